@@ -1,5 +1,6 @@
 package com.retailsports.cart_service.entity;
 
+import com.retailsports.money.Money;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -98,11 +99,9 @@ public class CartItem {
             return 0L;
         }
 
-        Long subtotal = calculateSubtotal();
-        BigDecimal discountFactor = discountPercentage.divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP);
-        BigDecimal discountAmount = BigDecimal.valueOf(subtotal).multiply(discountFactor);
-
-        return discountAmount.setScale(0, RoundingMode.HALF_UP).longValue();
+        // Percentuale in punti base (arrotondata a 0,01% come il fattore a 4 decimali) e calcolo esatto su long
+        long basisPoints = Money.percentToBasisPoints(discountPercentage);
+        return Money.basisPointsOf(calculateSubtotal(), basisPoints, RoundingMode.HALF_UP);
     }
 
     /**
@@ -11,13 +11,13 @@ import com.retailsports.cart_service.exception.CartNotFoundException;
 import com.retailsports.cart_service.repository.CartItemRepository;
 import com.retailsports.cart_service.repository.CartRepository;
 import com.retailsports.cart_service.service.ProductServiceClient.ProductInfo;
+import com.retailsports.money.MoneyFormatter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -250,8 +250,6 @@ public class CartServiceImpl implements CartService {
      * Formatta prezzo in centesimi in stringa (es. 9999 -> "99.99€")
      */
     private String formatPrice(Long priceCents) {
-        if (priceCents == null) return "0.00€";
-        BigDecimal price = BigDecimal.valueOf(priceCents).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
-        return String.format("%.2f€", price);
+        return MoneyFormatter.format(priceCents != null ? priceCents : 0L);
     }
 }
@@ -0,0 +1,31 @@
+package com.retailsports.datasource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Ritardo di replica MySQL da SHOW REPLICA STATUS (Seconds_Behind_Source)
+ * Nessuna riga: il database non è una replica (es. stesso server del primario in sviluppo), ritardo zero.
+ * Seconds_Behind_Source NULL: replica ferma, ritardo non determinabile.
+ */
+public class MySqlReplicaLagProbe implements ReplicaLagProbe {
+
+    private static final String REPLICA_STATUS_SQL = "SHOW REPLICA STATUS";
+
+    @Override
+    public Duration measure(DataSource replica) throws SQLException {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(REPLICA_STATUS_SQL)) {
+            if (!rs.next()) {
+                return Duration.ZERO;
+            }
+            long seconds = rs.getLong("Seconds_Behind_Source");
+            return rs.wasNull() ? null : Duration.ofSeconds(seconds);
+        }
+    }
+}
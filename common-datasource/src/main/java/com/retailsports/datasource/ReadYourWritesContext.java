@@ -0,0 +1,62 @@
+package com.retailsports.datasource;
+
+/**
+ * Stato read-your-writes della richiesta corrente (per thread)
+ * Il filtro apre il contesto con la scadenza ricevuta dal client; il DataSource lo consulta
+ * prima di scegliere la replica e lo marca quando apre una connessione in scrittura.
+ */
+public final class ReadYourWritesContext {
+
+    private static final ThreadLocal<State> CURRENT = new ThreadLocal<>();
+
+    private ReadYourWritesContext() {
+    }
+
+    /**
+     * Apre il contesto della richiesta
+     *
+     * @param primaryUntil epoch millis fino a cui le letture vanno sul primario (0 = nessun vincolo)
+     * @param onWrite      invocato alla prima scrittura confermata della richiesta
+     */
+    public static void begin(long primaryUntil, Runnable onWrite) {
+        CURRENT.set(new State(primaryUntil, onWrite));
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Le letture devono andare sul primario: il client ha scritto di recente o la richiesta ha già scritto
+     */
+    public static boolean isPinnedToPrimary() {
+        State state = CURRENT.get();
+        return state != null && (state.written || state.primaryUntil > System.currentTimeMillis());
+    }
+
+    /**
+     * Registra una scrittura confermata (senza contesto aperto non fa nulla)
+     */
+    public static void markWrite() {
+        State state = CURRENT.get();
+        if (state == null || state.written) {
+            return;
+        }
+        state.written = true;
+        if (state.onWrite != null) {
+            state.onWrite.run();
+        }
+    }
+
+    private static final class State {
+
+        private final long primaryUntil;
+        private final Runnable onWrite;
+        private boolean written;
+
+        private State(long primaryUntil, Runnable onWrite) {
+            this.primaryUntil = primaryUntil;
+            this.onWrite = onWrite;
+        }
+    }
+}
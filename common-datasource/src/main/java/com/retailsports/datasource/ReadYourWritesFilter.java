@@ -0,0 +1,73 @@
+package com.retailsports.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Porta il vincolo read-your-writes tra le richieste dello stesso client
+ * Dopo una scrittura confermata il cookie riceve la scadenza (epoch millis) fino a cui il client
+ * legge dal primario; il cookie passa dal gateway come ogni altro header.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final String cookieName;
+    private final Duration window;
+
+    public ReadYourWritesFilter(String cookieName, Duration window) {
+        this.cookieName = cookieName;
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReadYourWritesContext.begin(primaryUntil(request), () -> pinClient(response));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadYourWritesContext.end();
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private long primaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (cookieName.equals(cookie.getName())) {
+                try {
+                    // Limitato alla finestra: un valore manipolato non vincola il client più a lungo
+                    return Math.min(Long.parseLong(cookie.getValue()), System.currentTimeMillis() + window.toMillis());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void pinClient(HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return;
+        }
+        ResponseCookie cookie = ResponseCookie.from(cookieName, String.valueOf(System.currentTimeMillis() + window.toMillis()))
+            .path("/")
+            .maxAge(window.plusSeconds(1).toSeconds())
+            .httpOnly(true)
+            .sameSite("Lax")
+            .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+}
@@ -0,0 +1,18 @@
+package com.retailsports.datasource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Misura il ritardo di replica di un database in lettura
+ * Un'implementazione diversa (es. tabella heartbeat) si registra come bean e sostituisce quella MySQL.
+ */
+@FunctionalInterface
+public interface ReplicaLagProbe {
+
+    /**
+     * @return ritardo rispetto al primario, null se non determinabile (replica considerata non disponibile)
+     */
+    Duration measure(DataSource replica) throws SQLException;
+}
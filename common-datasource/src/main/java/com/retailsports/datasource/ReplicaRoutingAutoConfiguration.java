@@ -0,0 +1,120 @@
+package com.retailsports.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sostituisce il DataSource di Spring Boot con {@link ReplicaRoutingDataSource} quando datasource.routing.enabled=true
+ * Primario da spring.datasource.*, repliche da datasource.routing.replicas; entrambi i pool
+ * ricevono le impostazioni di spring.datasource.hikari.* (le repliche con pool e nome propri, in sola lettura).
+ */
+@AutoConfiguration(before = DataSourceAutoConfiguration.class)
+@ConditionalOnClass(HikariDataSource.class)
+@ConditionalOnProperty(prefix = "datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties({DataSourceProperties.class, RoutingDataSourceProperties.class})
+public class ReplicaRoutingAutoConfiguration {
+
+    private static final String HIKARI_PREFIX = "spring.datasource.hikari";
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ReplicaLagProbe replicaLagProbe() {
+        return new MySqlReplicaLagProbe();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                               RoutingDataSourceProperties routingProperties,
+                                               ReplicaLagProbe replicaLagProbe,
+                                               Environment environment) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .build();
+        binder.bind(HIKARI_PREFIX, Bindable.ofInstance(primary));
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<RoutingDataSourceProperties.Replica> configured = routingProperties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            RoutingDataSourceProperties.Replica replica = configured.get(i);
+            if (replica.getUrl() == null || replica.getUrl().isBlank()) {
+                throw new IllegalArgumentException("datasource.routing.replicas[" + i + "].url is required");
+            }
+            String name = replica.getName() != null ? replica.getName() : "replica-" + (i + 1);
+            if (replicas.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate replica name: " + name);
+            }
+            replicas.put(name, replicaPool(binder, dataSourceProperties, routingProperties, replica, name));
+        }
+
+        return new ReplicaRoutingDataSource(
+            primary,
+            replicas,
+            replicaLagProbe,
+            routingProperties.getMaxLag(),
+            routingProperties.getLagCheckInterval(),
+            routingProperties.getReadYourWrites().isEnabled()
+        );
+    }
+
+    private HikariDataSource replicaPool(Binder binder, DataSourceProperties dataSourceProperties,
+                                         RoutingDataSourceProperties routingProperties,
+                                         RoutingDataSourceProperties.Replica replica, String name) {
+        HikariDataSource pool = new HikariDataSource();
+        binder.bind(HIKARI_PREFIX, Bindable.ofInstance(pool));
+
+        pool.setJdbcUrl(replica.getUrl());
+        pool.setUsername(replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.determineUsername());
+        pool.setPassword(replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.determinePassword());
+        pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(routingProperties.getReplicaPoolSize());
+        // LazyConnectionDataSourceProxy non imposta readOnly sulle connessioni del DataSource di sola lettura
+        pool.setReadOnly(true);
+        return pool;
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.binder.MeterBinder")
+    static class MetricsConfiguration {
+
+        @Bean
+        public ReplicaRoutingMetrics replicaRoutingMetrics(ReplicaRoutingDataSource dataSource) {
+            return new ReplicaRoutingMetrics(dataSource);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(prefix = "datasource.routing.read-your-writes", name = "enabled", matchIfMissing = true)
+    static class ReadYourWritesConfiguration {
+
+        @Bean
+        public ReadYourWritesFilter readYourWritesFilter(RoutingDataSourceProperties routingProperties,
+                                                         Environment environment) {
+            RoutingDataSourceProperties.ReadYourWrites readYourWrites = routingProperties.getReadYourWrites();
+            String cookieName = readYourWrites.getCookieName() != null
+                ? readYourWrites.getCookieName()
+                : "rw-" + environment.getProperty("spring.application.name", "app");
+            return new ReadYourWritesFilter(cookieName, readYourWrites.getWindow());
+        }
+    }
+}
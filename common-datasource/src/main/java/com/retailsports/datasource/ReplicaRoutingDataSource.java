@@ -0,0 +1,284 @@
+package com.retailsports.datasource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DataSource che manda le transazioni readOnly sulle repliche e tutto il resto sul primario
+ *
+ * La connessione fisica è presa solo alla prima istruzione (LazyConnectionDataSourceProxy), quando
+ * il flag readOnly della transazione è già noto. Le repliche oltre max-lag o non raggiungibili sono escluse
+ * finché il controllo periodico non le ritrova allineate; senza repliche valide si legge dal primario.
+ * Con read-your-writes attivo, le letture del client che ha appena scritto restano sul primario.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    private static final Log log = LogFactory.getLog(ReplicaRoutingDataSource.class);
+
+    /**
+     * Destinazione scelta per una connessione (tag target/reason delle metriche)
+     */
+    public enum Route {
+        PRIMARY_READ_WRITE("primary", "read-write"),
+        REPLICA_READ_ONLY("replica", "read-only"),
+        PRIMARY_READ_YOUR_WRITES("primary", "read-your-writes"),
+        PRIMARY_REPLICA_UNAVAILABLE("primary", "replica-unavailable");
+
+        private final String target;
+        private final String reason;
+
+        Route(String target, String reason) {
+            this.target = target;
+            this.reason = reason;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReplicaLagProbe lagProbe;
+    private final Duration maxLag;
+    private final Duration lagCheckInterval;
+    private final boolean readYourWrites;
+
+    private final Map<Route, LongAdder> connectionCounts = new EnumMap<>(Route.class);
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private volatile List<Replica> healthyReplicas = List.of();
+    private volatile ScheduledExecutorService lagChecker;
+
+    /**
+     * @param replicas repliche per nome (l'ordine è quello del round-robin)
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, ReplicaLagProbe lagProbe,
+                                    Duration maxLag, Duration lagCheckInterval, boolean readYourWrites) {
+        this.primary = primary;
+        this.lagProbe = lagProbe;
+        this.maxLag = maxLag;
+        this.lagCheckInterval = lagCheckInterval;
+        this.readYourWrites = readYourWrites;
+
+        List<Replica> list = new ArrayList<>();
+        replicas.forEach((name, dataSource) -> list.add(new Replica(name, dataSource)));
+        this.replicas = Collections.unmodifiableList(list);
+
+        for (Route route : Route.values()) {
+            connectionCounts.put(route, new LongAdder());
+        }
+
+        setTargetDataSource(new PrimaryDataSource());
+        setReadOnlyDataSource(new ReadOnlyDataSource());
+    }
+
+    /**
+     * Avvia il controllo periodico del ritardo (prima verifica immediata, in background:
+     * fino ad allora le letture vanno sul primario)
+     */
+    public void start() {
+        if (replicas.isEmpty() || lagChecker != null) {
+            return;
+        }
+        lagChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-lag-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagChecker.scheduleWithFixedDelay(this::checkReplicas, 0, lagCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            closeQuietly(replica.dataSource);
+        }
+        closeQuietly(primary);
+    }
+
+    /**
+     * Connessioni aperte verso una destinazione dall'avvio
+     */
+    public long getConnectionCount(Route route) {
+        return connectionCounts.get(route).sum();
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Aggiorna ritardo e stato di tutte le repliche
+     */
+    void checkReplicas() {
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            Duration lag;
+            try {
+                lag = lagProbe.measure(replica.dataSource);
+            } catch (Exception e) {
+                lag = null;
+                log.debug("Lag check failed for replica " + replica.name, e);
+            }
+
+            boolean wasHealthy = replica.healthy;
+            replica.lag = lag;
+            replica.healthy = lag != null && lag.compareTo(maxLag) <= 0;
+            if (replica.healthy) {
+                healthy.add(replica);
+            }
+            if (wasHealthy != replica.healthy) {
+                log.info("Replica " + replica.name + (replica.healthy ? " back in rotation" : " excluded")
+                    + " (lag: " + (lag != null ? lag.toMillis() + " ms" : "unknown") + ")");
+            }
+        }
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private Connection primaryConnection(Route route, String username, String password) throws SQLException {
+        connectionCounts.get(route).increment();
+        return username != null ? primary.getConnection(username, password) : primary.getConnection();
+    }
+
+    /**
+     * Una transazione read-write confermata vincola al primario le letture successive del client
+     * (le connessioni fuori transazione non contano: qui le scritture passano sempre da una transazione)
+     */
+    private void registerWrite() {
+        if (!readYourWrites || !TransactionSynchronizationManager.isActualTransactionActive()
+            || !TransactionSynchronizationManager.isSynchronizationActive()
+            || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ReadYourWritesContext.markWrite();
+            }
+        });
+    }
+
+    private Connection readOnlyConnection(String username, String password) throws SQLException {
+        if (readYourWrites && ReadYourWritesContext.isPinnedToPrimary()) {
+            return primaryConnection(Route.PRIMARY_READ_YOUR_WRITES, username, password);
+        }
+
+        List<Replica> candidates = healthyReplicas;
+        if (!candidates.isEmpty()) {
+            Replica replica = candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size()));
+            try {
+                Connection connection = username != null
+                    ? replica.dataSource.getConnection(username, password)
+                    : replica.dataSource.getConnection();
+                connectionCounts.get(Route.REPLICA_READ_ONLY).increment();
+                return connection;
+            } catch (SQLException e) {
+                // Esclusa fino al prossimo controllo
+                replica.healthy = false;
+                healthyReplicas = candidates.stream().filter(r -> r != replica).toList();
+                log.warn("Replica " + replica.name + " unavailable, reading from primary: " + e.getMessage());
+            }
+        }
+        return primaryConnection(Route.PRIMARY_REPLICA_UNAVAILABLE, username, password);
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Error closing data source", e);
+            }
+        }
+    }
+
+    /**
+     * Replica con l'ultimo ritardo misurato
+     */
+    public static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile Duration lag;
+        private volatile boolean healthy;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Ultimo ritardo misurato (null se non determinabile o non ancora misurato)
+         */
+        public Duration getLag() {
+            return lag;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+    }
+
+    private final class PrimaryDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = primaryConnection(Route.PRIMARY_READ_WRITE, null, null);
+            registerWrite();
+            return connection;
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            Connection connection = primaryConnection(Route.PRIMARY_READ_WRITE, username, password);
+            registerWrite();
+            return connection;
+        }
+    }
+
+    private final class ReadOnlyDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return readOnlyConnection(null, null);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return readOnlyConnection(username, password);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.retailsports.datasource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+
+/**
+ * Metriche del routing:
+ * - datasource.routing.connections{target, reason}: connessioni aperte per destinazione e motivo
+ * - datasource.routing.replica.lag{replica}: ultimo ritardo misurato in secondi (NaN se non determinabile)
+ * - datasource.routing.replica.healthy{replica}: 1 se la replica è in rotazione
+ */
+public class ReplicaRoutingMetrics implements MeterBinder {
+
+    private final ReplicaRoutingDataSource dataSource;
+
+    public ReplicaRoutingMetrics(ReplicaRoutingDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (ReplicaRoutingDataSource.Route route : ReplicaRoutingDataSource.Route.values()) {
+            FunctionCounter.builder("datasource.routing.connections", dataSource, ds -> ds.getConnectionCount(route))
+                .description("Connections opened by routing target")
+                .tag("target", route.getTarget())
+                .tag("reason", route.getReason())
+                .register(registry);
+        }
+
+        for (ReplicaRoutingDataSource.Replica replica : dataSource.getReplicas()) {
+            Gauge.builder("datasource.routing.replica.lag", replica, ReplicaRoutingMetrics::lagSeconds)
+                .description("Last measured replication lag")
+                .baseUnit("seconds")
+                .tag("replica", replica.getName())
+                .register(registry);
+            Gauge.builder("datasource.routing.replica.healthy", replica, r -> r.isHealthy() ? 1 : 0)
+                .description("Whether the replica is in the read rotation")
+                .tag("replica", replica.getName())
+                .register(registry);
+        }
+    }
+
+    private static double lagSeconds(ReplicaRoutingDataSource.Replica replica) {
+        Duration lag = replica.getLag();
+        return lag != null ? lag.toMillis() / 1000.0 : Double.NaN;
+    }
+}
@@ -0,0 +1,172 @@
+package com.retailsports.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configurazione del routing verso le repliche (datasource.routing.*)
+ * Il primario resta quello di spring.datasource.*; le repliche ereditano spring.datasource.hikari.*
+ */
+@ConfigurationProperties("datasource.routing")
+public class RoutingDataSourceProperties {
+
+    /**
+     * Attiva il routing (disattivato: solo primario, come senza libreria)
+     */
+    private boolean enabled = false;
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * Ritardo massimo tollerato: oltre, la replica è esclusa finché non recupera
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    private Duration lagCheckInterval = Duration.ofSeconds(2);
+
+    private int replicaPoolSize = 10;
+
+    private ReadYourWrites readYourWrites = new ReadYourWrites();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+
+    public void setMaxLag(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    public Duration getLagCheckInterval() {
+        return lagCheckInterval;
+    }
+
+    public void setLagCheckInterval(Duration lagCheckInterval) {
+        this.lagCheckInterval = lagCheckInterval;
+    }
+
+    public int getReplicaPoolSize() {
+        return replicaPoolSize;
+    }
+
+    public void setReplicaPoolSize(int replicaPoolSize) {
+        this.replicaPoolSize = replicaPoolSize;
+    }
+
+    public ReadYourWrites getReadYourWrites() {
+        return readYourWrites;
+    }
+
+    public void setReadYourWrites(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    public static class Replica {
+
+        /**
+         * Nome usato nel pool Hikari e nei tag delle metriche
+         */
+        private String name;
+
+        private String url;
+
+        /**
+         * Se assenti si usano le credenziali del primario
+         */
+        private String username;
+
+        private String password;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+
+    public static class ReadYourWrites {
+
+        /**
+         * Dopo una scrittura il client legge dal primario per la durata della finestra
+         */
+        private boolean enabled = true;
+
+        /**
+         * Da tenere sopra il ritardo tipico delle repliche (e non sotto max-lag)
+         */
+        private Duration window = Duration.ofSeconds(5);
+
+        /**
+         * Cookie che porta la scadenza tra le richieste (default: rw-{spring.application.name})
+         */
+        private String cookieName;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public String getCookieName() {
+            return cookieName;
+        }
+
+        public void setCookieName(String cookieName) {
+            this.cookieName = cookieName;
+        }
+    }
+}
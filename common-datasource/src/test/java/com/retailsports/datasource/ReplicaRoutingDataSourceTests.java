@@ -0,0 +1,210 @@
+package com.retailsports.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routing con due H2 embedded: ogni database contiene il proprio nome nella tabella marker
+ */
+class ReplicaRoutingDataSourceTests {
+
+    private static final Duration MAX_LAG = Duration.ofSeconds(5);
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica;
+
+    private volatile Duration replicaLag = Duration.ZERO;
+    private volatile boolean probeFails;
+
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+
+        ReplicaLagProbe probe = dataSource -> {
+            if (probeFails) {
+                throw new SQLException("Replica unreachable");
+            }
+            return replicaLag;
+        };
+        routing = new ReplicaRoutingDataSource(primary, Map.of("replica-1", replica), probe,
+            MAX_LAG, Duration.ofHours(1), true);
+        routing.setDefaultAutoCommit(true);
+        routing.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        routing.afterPropertiesSet();
+
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWritesContext.end();
+        routing.close();
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    void readOnlyTransactionReadsFromReplica() {
+        routing.checkReplicas();
+
+        assertEquals("replica", readOnly.execute(status -> marker()));
+        assertEquals(1, routing.getConnectionCount(ReplicaRoutingDataSource.Route.REPLICA_READ_ONLY));
+    }
+
+    @Test
+    void readWriteTransactionUsesPrimary() {
+        routing.checkReplicas();
+
+        assertEquals("primary", readWrite.execute(status -> marker()));
+        assertEquals(0, routing.getConnectionCount(ReplicaRoutingDataSource.Route.REPLICA_READ_ONLY));
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimaryUntilItCatchesUp() {
+        replicaLag = MAX_LAG.plusSeconds(1);
+        routing.checkReplicas();
+
+        assertEquals("primary", readOnly.execute(status -> marker()));
+        assertEquals(1, routing.getConnectionCount(ReplicaRoutingDataSource.Route.PRIMARY_REPLICA_UNAVAILABLE));
+
+        replicaLag = Duration.ofSeconds(1);
+        routing.checkReplicas();
+
+        assertEquals("replica", readOnly.execute(status -> marker()));
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToPrimary() {
+        probeFails = true;
+        routing.checkReplicas();
+
+        assertFalse(routing.getReplicas().get(0).isHealthy());
+        assertEquals("primary", readOnly.execute(status -> marker()));
+    }
+
+    @Test
+    void committedWritePinsFollowingReadsToPrimary() {
+        routing.checkReplicas();
+        AtomicBoolean clientPinned = new AtomicBoolean();
+        ReadYourWritesContext.begin(0, () -> clientPinned.set(true));
+
+        assertEquals("replica", readOnly.execute(status -> marker()));
+
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("INSERT INTO orders (id) VALUES (1)"));
+
+        assertTrue(clientPinned.get());
+        assertEquals("primary", readOnly.execute(status -> marker()));
+        assertEquals(1, routing.getConnectionCount(ReplicaRoutingDataSource.Route.PRIMARY_READ_YOUR_WRITES));
+    }
+
+    @Test
+    void recentWriteFromPreviousRequestPinsReadsToPrimary() {
+        routing.checkReplicas();
+        ReadYourWritesContext.begin(System.currentTimeMillis() + 60_000, null);
+
+        assertEquals("primary", readOnly.execute(status -> marker()));
+
+        ReadYourWritesContext.begin(System.currentTimeMillis() - 1, null);
+
+        assertEquals("replica", readOnly.execute(status -> marker()));
+    }
+
+    @Test
+    void jpaTransactionsRouteByReadOnlyFlag() {
+        routing.checkReplicas();
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(routing);
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan(ReplicaRoutingDataSourceTests.class.getPackageName());
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+        try {
+            JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+            TransactionTemplate jpaReadWrite = new TransactionTemplate(transactionManager);
+            TransactionTemplate jpaReadOnly = new TransactionTemplate(transactionManager);
+            jpaReadOnly.setReadOnly(true);
+            long replicaConnections = routing.getConnectionCount(ReplicaRoutingDataSource.Route.REPLICA_READ_ONLY);
+
+            // Il flag readOnly arriva alla connessione prima della prima istruzione anche passando da Hibernate
+            assertEquals("replica", jpaReadOnly.execute(status -> jpaMarker(entityManagerFactory)));
+            assertEquals("primary", jpaReadWrite.execute(status -> jpaMarker(entityManagerFactory)));
+            assertEquals(replicaConnections + 1, routing.getConnectionCount(ReplicaRoutingDataSource.Route.REPLICA_READ_ONLY));
+        } finally {
+            factoryBean.destroy();
+        }
+    }
+
+    @Test
+    void metricsSplitConnectionsByTarget() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new ReplicaRoutingMetrics(routing).bindTo(registry);
+        replicaLag = Duration.ofMillis(1500);
+        routing.checkReplicas();
+
+        readOnly.execute(status -> marker());
+        readOnly.execute(status -> marker());
+        readWrite.execute(status -> marker());
+
+        assertEquals(2, registry.get("datasource.routing.connections")
+            .tags("target", "replica", "reason", "read-only").functionCounter().count());
+        assertEquals(1, registry.get("datasource.routing.connections")
+            .tags("target", "primary", "reason", "read-write").functionCounter().count());
+        assertEquals(1.5, registry.get("datasource.routing.replica.lag").tag("replica", "replica-1").gauge().value());
+        assertEquals(1, registry.get("datasource.routing.replica.healthy").tag("replica", "replica-1").gauge().value());
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private String marker() {
+        return jdbcTemplate.queryForObject("SELECT name FROM marker", String.class);
+    }
+
+    private static String jpaMarker(EntityManagerFactory entityManagerFactory) {
+        EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        return (String) entityManager.createNativeQuery("SELECT name FROM marker").getSingleResult();
+    }
+
+    private static EmbeddedDatabase database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.execute("CREATE TABLE marker (name VARCHAR(20))");
+        jdbc.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY)");
+        jdbc.update("INSERT INTO marker (name) VALUES (?)", name);
+        return database;
+    }
+}
@@ -0,0 +1,139 @@
+package com.retailsports.money;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confronto tra le implementazioni attuali dei servizi (BigDecimal, String.format, double)
+ * e la libreria su un lotto di importi casuali, come nella costruzione di una pagina di risposte
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private final long[] prices = new long[ROWS];
+    private final long[] compareAtPrices = new long[ROWS];
+    private final BigDecimal[] discountPercentages = new BigDecimal[ROWS];
+    private final long[] basisPoints = new long[ROWS];
+    private final StringBuilder builder = new StringBuilder(ROWS * 12);
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < ROWS; i++) {
+            prices[i] = random.nextLong(100, 1_000_000);
+            compareAtPrices[i] = prices[i] + random.nextLong(0, 200_000);
+            discountPercentages[i] = BigDecimal.valueOf(random.nextInt(0, 5000), 2);
+            basisPoints[i] = Money.percentToBasisPoints(discountPercentages[i]);
+        }
+    }
+
+    // ========== FORMATTAZIONE ==========
+
+    @Benchmark
+    public void formatBigDecimalStringFormat(Blackhole blackhole) {
+        for (long price : prices) {
+            BigDecimal value = BigDecimal.valueOf(price).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+            blackhole.consume(String.format("%.2f€", value));
+        }
+    }
+
+    @Benchmark
+    public void formatDoubleStringFormat(Blackhole blackhole) {
+        for (long price : prices) {
+            blackhole.consume(String.format("%.2f€", price / 100.0));
+        }
+    }
+
+    @Benchmark
+    public void formatMoneyFormatter(Blackhole blackhole) {
+        for (long price : prices) {
+            blackhole.consume(MoneyFormatter.format(price));
+        }
+    }
+
+    @Benchmark
+    public StringBuilder appendMoneyFormatter() {
+        builder.setLength(0);
+        for (long price : prices) {
+            MoneyFormatter.appendTo(builder, price).append(',');
+        }
+        return builder;
+    }
+
+    // ========== SCONTO RIGA CARRELLO ==========
+
+    @Benchmark
+    public long discountAmountBigDecimal() {
+        long total = 0;
+        for (int i = 0; i < ROWS; i++) {
+            BigDecimal factor = discountPercentages[i].divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP);
+            total += BigDecimal.valueOf(prices[i]).multiply(factor).setScale(0, RoundingMode.HALF_UP).longValue();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long discountAmountBasisPoints() {
+        long total = 0;
+        for (int i = 0; i < ROWS; i++) {
+            total += Money.basisPointsOf(prices[i], basisPoints[i], RoundingMode.HALF_UP);
+        }
+        return total;
+    }
+
+    // ========== PERCENTUALE DI SCONTO PRODOTTO ==========
+
+    @Benchmark
+    public long discountPercentageBigDecimal() {
+        long total = 0;
+        for (int i = 0; i < ROWS; i++) {
+            BigDecimal price = BigDecimal.valueOf(prices[i]);
+            BigDecimal compareAt = BigDecimal.valueOf(compareAtPrices[i]);
+            total += compareAt.subtract(price).divide(compareAt, 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100)).setScale(0, RoundingMode.HALF_UP).longValue();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long discountPercentageBasisPoints() {
+        long total = 0;
+        for (int i = 0; i < ROWS; i++) {
+            long ratio = Money.ratioInBasisPoints(compareAtPrices[i] - prices[i], compareAtPrices[i], RoundingMode.HALF_UP);
+            total += Money.basisPointsToPercent(ratio, RoundingMode.HALF_UP);
+        }
+        return total;
+    }
+
+    // ========== IMPOSTA ==========
+
+    @Benchmark
+    public long taxDouble() {
+        long total = 0;
+        for (long price : prices) {
+            total += (long) (price * 0.22);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long taxBasisPoints() {
+        long total = 0;
+        for (long price : prices) {
+            total += Money.basisPointsOf(price, 2200, RoundingMode.DOWN);
+        }
+        return total;
+    }
+}
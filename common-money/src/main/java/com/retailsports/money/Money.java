@@ -0,0 +1,96 @@
+package com.retailsports.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Aritmetica monetaria esatta su importi in centesimi (long)
+ * Le percentuali sono espresse in punti base (1 bp = 0,01%, 10000 bp = 100%):
+ * nessun BigDecimal né double nei calcoli, overflow segnalato con ArithmeticException.
+ */
+public final class Money {
+
+    public static final long CENTS_PER_UNIT = 100;
+    public static final long BASIS_POINTS_PER_UNIT = 10_000;
+    public static final long BASIS_POINTS_PER_PERCENT = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Importo totale di una riga (prezzo unitario × quantità)
+     */
+    public static long times(long unitCents, long quantity) {
+        return Math.multiplyExact(unitCents, quantity);
+    }
+
+    /**
+     * Quota di un importo in punti base (es. sconto o imposta), arrotondata al centesimo
+     */
+    public static long basisPointsOf(long cents, long basisPoints, RoundingMode rounding) {
+        return divide(Math.multiplyExact(cents, basisPoints), BASIS_POINTS_PER_UNIT, rounding);
+    }
+
+    /**
+     * Rapporto part/whole espresso in punti base (es. percentuale di sconto rispetto al prezzo pieno)
+     */
+    public static long ratioInBasisPoints(long part, long whole, RoundingMode rounding) {
+        return divide(Math.multiplyExact(part, BASIS_POINTS_PER_UNIT), whole, rounding);
+    }
+
+    /**
+     * Converte una percentuale decimale (es. 12.5) in punti base, arrotondando a 0,01%
+     */
+    public static long percentToBasisPoints(BigDecimal percent) {
+        if (percent == null) return 0;
+        return percent.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Converte punti base in percentuale intera
+     */
+    public static long basisPointsToPercent(long basisPoints, RoundingMode rounding) {
+        return divide(basisPoints, BASIS_POINTS_PER_PERCENT, rounding);
+    }
+
+    /**
+     * Divisione intera con la modalità di arrotondamento indicata (stessa semantica di BigDecimal)
+     */
+    public static long divide(long dividend, long divisor, RoundingMode rounding) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+
+        // Segno del risultato esatto (il quoziente troncato è sempre verso lo zero)
+        int signum = (dividend < 0) == (divisor < 0) ? 1 : -1;
+        boolean increment = switch (rounding) {
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+            case DOWN -> false;
+            case UP -> true;
+            case FLOOR -> signum < 0;
+            case CEILING -> signum > 0;
+            case HALF_UP, HALF_DOWN, HALF_EVEN -> {
+                // Confronto |resto| con |divisore| / 2 senza overflow
+                long absRemainder = Math.abs(remainder);
+                long complement = Math.abs(divisor) - absRemainder;
+                int comparison = Long.compare(absRemainder, complement);
+                if (comparison != 0) {
+                    yield comparison > 0;
+                }
+                yield switch (rounding) {
+                    case HALF_UP -> true;
+                    case HALF_DOWN -> false;
+                    default -> (quotient & 1) != 0;
+                };
+            }
+        };
+
+        return increment ? quotient + signum : quotient;
+    }
+}
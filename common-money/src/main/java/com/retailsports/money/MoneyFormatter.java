@@ -0,0 +1,74 @@
+package com.retailsports.money;
+
+/**
+ * Formattazione di importi in centesimi nel formato usato dalle API (es. 9999 -> "99.99€")
+ * Le cifre sono scritte direttamente in un buffer riutilizzabile per thread: nessun String.format,
+ * nessun BigDecimal; l'unica allocazione è la String restituita. appendTo non alloca nulla.
+ */
+public final class MoneyFormatter {
+
+    public static final char DECIMAL_SEPARATOR = '.';
+    public static final char CURRENCY_SYMBOL = '\u20AC';
+
+    // Segno + 19 cifre + separatore + simbolo
+    private static final int MAX_LENGTH = 22;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+    private MoneyFormatter() {
+    }
+
+    /**
+     * Formatta l'importo (null -> null)
+     */
+    public static String format(Long cents) {
+        return cents != null ? format(cents.longValue()) : null;
+    }
+
+    public static String format(Integer cents) {
+        return cents != null ? format(cents.longValue()) : null;
+    }
+
+    public static String format(long cents) {
+        char[] buffer = BUFFER.get();
+        int start = write(cents, buffer);
+        return new String(buffer, start, MAX_LENGTH - start);
+    }
+
+    /**
+     * Accoda l'importo formattato a un builder esistente (es. righe di export o report)
+     */
+    public static StringBuilder appendTo(StringBuilder builder, long cents) {
+        char[] buffer = BUFFER.get();
+        int start = write(cents, buffer);
+        return builder.append(buffer, start, MAX_LENGTH - start);
+    }
+
+    /**
+     * Scrive l'importo in coda al buffer, da destra verso sinistra; restituisce l'indice di inizio
+     */
+    private static int write(long cents, char[] buffer) {
+        int position = MAX_LENGTH;
+        buffer[--position] = CURRENCY_SYMBOL;
+
+        // Si lavora sui negativi: Long.MIN_VALUE non ha un opposto rappresentabile
+        boolean negative = cents < 0;
+        long remaining = negative ? cents : -cents;
+
+        buffer[--position] = (char) ('0' - (remaining % 10));
+        remaining /= 10;
+        buffer[--position] = (char) ('0' - (remaining % 10));
+        remaining /= 10;
+        buffer[--position] = DECIMAL_SEPARATOR;
+
+        do {
+            buffer[--position] = (char) ('0' - (remaining % 10));
+            remaining /= 10;
+        } while (remaining != 0);
+
+        if (negative) {
+            buffer[--position] = '-';
+        }
+        return position;
+    }
+}
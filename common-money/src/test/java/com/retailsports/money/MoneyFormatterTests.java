@@ -0,0 +1,43 @@
+package com.retailsports.money;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Formato delle API: due decimali, punto come separatore, simbolo dell'euro in coda
+ */
+class MoneyFormatterTests {
+
+    @Test
+    void formatsCentsWithTwoDecimals() {
+        assertEquals("99.99€", MoneyFormatter.format(9_999L));
+        assertEquals("0.00€", MoneyFormatter.format(0L));
+        assertEquals("0.05€", MoneyFormatter.format(5L));
+        assertEquals("1.00€", MoneyFormatter.format(100L));
+        assertEquals("-0.05€", MoneyFormatter.format(-5L));
+        assertEquals("-12.30€", MoneyFormatter.format(-1_230L));
+    }
+
+    @Test
+    void formatsExtremeValues() {
+        assertEquals("92233720368547758.07€", MoneyFormatter.format(Long.MAX_VALUE));
+        assertEquals("-92233720368547758.08€", MoneyFormatter.format(Long.MIN_VALUE));
+    }
+
+    @Test
+    void boxedNullFormatsToNull() {
+        assertNull(MoneyFormatter.format((Long) null));
+        assertNull(MoneyFormatter.format((Integer) null));
+        assertEquals("12.34€", MoneyFormatter.format(Integer.valueOf(1_234)));
+    }
+
+    @Test
+    void appendToReusesTheBufferAcrossCalls() {
+        StringBuilder line = new StringBuilder();
+        MoneyFormatter.appendTo(line, 1_999).append(';');
+        MoneyFormatter.appendTo(line, -1).append(';');
+        MoneyFormatter.appendTo(line, 100_000);
+        assertEquals("19.99€;-0.01€;1000.00€", line.toString());
+    }
+}
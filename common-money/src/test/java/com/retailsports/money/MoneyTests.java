@@ -0,0 +1,86 @@
+package com.retailsports.money;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Aritmetica in centesimi: divide deve dare lo stesso risultato di BigDecimal per ogni modalità di arrotondamento
+ */
+class MoneyTests {
+
+    @Test
+    void divideMatchesBigDecimalForEveryRoundingMode() {
+        long[] dividends = {-25, -16, -15, -14, -11, -10, -5, -1, 0, 1, 5, 10, 11, 14, 15, 16, 25};
+        long[] divisors = {-10, -3, -2, 2, 3, 10};
+        for (RoundingMode rounding : RoundingMode.values()) {
+            if (rounding == RoundingMode.UNNECESSARY) continue;
+            for (long dividend : dividends) {
+                for (long divisor : divisors) {
+                    long expected = BigDecimal.valueOf(dividend)
+                        .divide(BigDecimal.valueOf(divisor), 0, rounding)
+                        .longValueExact();
+                    assertEquals(expected, Money.divide(dividend, divisor, rounding),
+                        dividend + " / " + divisor + " " + rounding);
+                }
+            }
+        }
+    }
+
+    @Test
+    void divideHandlesExtremeValuesWithoutOverflow() {
+        assertEquals(Long.MIN_VALUE / 2, Money.divide(Long.MIN_VALUE, 2, RoundingMode.HALF_EVEN));
+        assertEquals(Long.MAX_VALUE / 2 + 1, Money.divide(Long.MAX_VALUE, 2, RoundingMode.HALF_UP));
+        assertEquals(Long.MAX_VALUE / 2, Money.divide(Long.MAX_VALUE, 2, RoundingMode.HALF_DOWN));
+        assertEquals(2, Money.divide(Long.MIN_VALUE, Long.MIN_VALUE + 1, RoundingMode.CEILING));
+    }
+
+    @Test
+    void divideRejectsZeroDivisorAndUnnecessaryRounding() {
+        assertThrows(ArithmeticException.class, () -> Money.divide(100, 0, RoundingMode.HALF_UP));
+        assertThrows(ArithmeticException.class, () -> Money.divide(10, 3, RoundingMode.UNNECESSARY));
+        assertEquals(3, Money.divide(9, 3, RoundingMode.UNNECESSARY));
+    }
+
+    @Test
+    void timesMultipliesAndSignalsOverflow() {
+        assertEquals(29_997, Money.times(9_999, 3));
+        assertEquals(0, Money.times(9_999, 0));
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2 + 1, 2));
+    }
+
+    @Test
+    void basisPointsOfRoundsToTheCent() {
+        // 12,5% di 99,99€ = 12,49875€
+        assertEquals(1_250, Money.basisPointsOf(9_999, 1_250, RoundingMode.HALF_UP));
+        assertEquals(1_249, Money.basisPointsOf(9_999, 1_250, RoundingMode.DOWN));
+        // 0,5 centesimi: HALF_EVEN va al pari
+        assertEquals(0, Money.basisPointsOf(1, 5_000, RoundingMode.HALF_EVEN));
+        assertEquals(2, Money.basisPointsOf(3, 5_000, RoundingMode.HALF_EVEN));
+        assertEquals(9_999, Money.basisPointsOf(9_999, Money.BASIS_POINTS_PER_UNIT, RoundingMode.UNNECESSARY));
+        assertThrows(ArithmeticException.class, () -> Money.basisPointsOf(Long.MAX_VALUE, 2, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void ratioInBasisPointsExpressesDiscountPercentage() {
+        // 79,99€ su 99,99€ di prezzo pieno: sconto del 20,002%
+        assertEquals(2_000, Money.ratioInBasisPoints(9_999 - 7_999, 9_999, RoundingMode.HALF_UP));
+        assertEquals(3_334, Money.ratioInBasisPoints(1, 3, RoundingMode.CEILING));
+        assertThrows(ArithmeticException.class, () -> Money.ratioInBasisPoints(1, 0, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void percentConversionsRoundToBasisPoints() {
+        assertEquals(1_250, Money.percentToBasisPoints(new BigDecimal("12.5")));
+        assertEquals(1_235, Money.percentToBasisPoints(new BigDecimal("12.345")));
+        assertEquals(-1_235, Money.percentToBasisPoints(new BigDecimal("-12.345")));
+        assertEquals(0, Money.percentToBasisPoints(null));
+
+        assertEquals(13, Money.basisPointsToPercent(1_250, RoundingMode.HALF_UP));
+        assertEquals(12, Money.basisPointsToPercent(1_250, RoundingMode.HALF_EVEN));
+        assertEquals(12, Money.basisPointsToPercent(1_299, RoundingMode.FLOOR));
+    }
+}
@@ -36,7 +36,7 @@ CREATE TABLE categories (
     
     -- Timestamp
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
     
     FOREIGN KEY (parent_id) REFERENCES categories(id) ON DELETE SET NULL,
     
@@ -68,7 +68,7 @@ CREATE TABLE brands (
     
     -- Timestamp
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
     
     INDEX idx_slug (slug),
     INDEX idx_active (is_active),
@@ -133,7 +133,7 @@ CREATE TABLE products (
     
     -- Timestamp
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT 'Millisecondi: due modifiche nello stesso secondo danno ETag diversi',
     
     FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE RESTRICT,
     FOREIGN KEY (brand_id) REFERENCES brands(id) ON DELETE SET NULL,
@@ -147,6 +147,8 @@ CREATE TABLE products (
     INDEX idx_deleted (deleted_at),
     INDEX idx_price (price_cents),
     INDEX idx_name (name),
+    INDEX idx_created (created_at) COMMENT 'Paginazione keyset per data (InnoDB aggiunge id)',
+    INDEX idx_on_sale (is_on_sale, created_at) COMMENT 'Listing prodotti in sconto',
     FULLTEXT INDEX idx_search (name, description)
 ) ENGINE=InnoDB COMMENT='Prodotti catalogo';
 
@@ -165,6 +167,10 @@ CREATE TABLE product_images (
     display_order INT DEFAULT 0 COMMENT 'Ordine visualizzazione',
     is_primary BOOLEAN DEFAULT FALSE COMMENT 'Immagine principale',
     
+    -- Varianti ridimensionate (thumb, card, zoom)
+    variants_key VARCHAR(64) COMMENT 'Chiave SHA-256 delle varianti (archivio locale)',
+    variants_status ENUM('PENDING', 'READY', 'FAILED') NOT NULL DEFAULT 'PENDING' COMMENT 'Stato generazione varianti',
+    
     -- Timestamp
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     
@@ -172,7 +178,8 @@ CREATE TABLE product_images (
     
     INDEX idx_product (product_id),
     INDEX idx_primary (is_primary),
-    INDEX idx_order (display_order)
+    INDEX idx_order (display_order),
+    INDEX idx_variants_status (variants_status)
 ) ENGINE=InnoDB COMMENT='Immagini prodotti';
 
 -- ============================================
@@ -291,7 +298,7 @@ CREATE TABLE discounts (
     -- Limiti utilizzo
     max_uses INT COMMENT 'Utilizzi massimi totali',
     max_uses_per_user INT DEFAULT 1 COMMENT 'Utilizzi massimi per utente',
-    current_uses INT DEFAULT 0 COMMENT 'Utilizzi attuali',
+    current_uses INT DEFAULT 0 COMMENT 'Utilizzi attuali (permessi assegnati alle istanze)',
     
     -- Requisiti minimi
     min_purchase_amount_cents INT COMMENT 'Importo minimo acquisto',
@@ -301,7 +308,7 @@ CREATE TABLE discounts (
     
     -- Timestamp
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
     
     INDEX idx_code (code),
     INDEX idx_active (is_active),
@@ -322,6 +329,81 @@ CREATE TABLE product_discounts (
     FOREIGN KEY (discount_id) REFERENCES discounts(id) ON DELETE CASCADE
 ) ENGINE=InnoDB COMMENT='Sconti applicati ai prodotti';
 
+-- ============================================
+-- TABELLA UTILIZZI SCONTO PER UTENTE
+-- ============================================
+CREATE TABLE discount_user_usage (
+    discount_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    uses INT NOT NULL DEFAULT 0,
+    
+    PRIMARY KEY (discount_id, user_id),
+    FOREIGN KEY (discount_id) REFERENCES discounts(id) ON DELETE CASCADE
+) ENGINE=InnoDB COMMENT='Riscatti per utente (limite max_uses_per_user)';
+
+-- ============================================
+-- TABELLA RISCATTI CODICI SCONTO
+-- ============================================
+CREATE TABLE discount_redemptions (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    discount_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    status ENUM('REDEEMED', 'REFUNDED') NOT NULL DEFAULT 'REDEEMED',
+    redeemed_at TIMESTAMP(3) NOT NULL,
+    refunded_at TIMESTAMP(3) NULL,
+    
+    FOREIGN KEY (discount_id) REFERENCES discounts(id) ON DELETE CASCADE,
+    INDEX idx_discount_user (discount_id, user_id)
+) ENGINE=InnoDB COMMENT='Registro dei riscatti (rimborsabili una volta)';
+
+-- ============================================
+-- TABELLA PRODOTTI SIMILI (precalcolati)
+-- ============================================
+CREATE TABLE product_similarities (
+    product_id BIGINT NOT NULL,
+    position INT NOT NULL COMMENT 'Posizione nel ranking (0 = più simile)',
+    similar_product_id BIGINT NOT NULL,
+    score INT NOT NULL COMMENT 'Similarità coseno x 10000',
+    
+    PRIMARY KEY (product_id, position),
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE,
+    FOREIGN KEY (similar_product_id) REFERENCES products(id) ON DELETE CASCADE
+) ENGINE=InnoDB COMMENT='Top-K prodotti simili per prodotto (tag, attributi, categoria, brand)';
+
+-- ============================================
+-- TABELLA ORDINI CON VENDITE REGISTRATE
+-- ============================================
+CREATE TABLE product_sales_orders (
+    order_id VARCHAR(64) PRIMARY KEY,
+    recorded_at TIMESTAMP(3) NOT NULL,
+    
+    INDEX idx_recorded (recorded_at)
+) ENGINE=InnoDB COMMENT='Ordini già conteggiati nelle vendite (registrazione idempotente per ordine)';
+
+-- ============================================
+-- FEED DELLE MODIFICHE DEL CATALOGO (outbox)
+-- ============================================
+CREATE TABLE catalog_change_sequence (
+    id TINYINT PRIMARY KEY,
+    version BIGINT NOT NULL COMMENT 'Ultima versione assegnata',
+    purged_through BIGINT NOT NULL DEFAULT 0 COMMENT 'Versioni fino a questa eliminate dalla retention',
+    updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT 'Assegnazione dell''ultima versione (Last-Modified dei conteggi prodotti)'
+) ENGINE=InnoDB COMMENT='Contatore delle versioni del feed (una sola riga, bloccata fino al commit)';
+
+INSERT INTO catalog_change_sequence (id, version, purged_through) VALUES (1, 0, 0);
+
+CREATE TABLE catalog_changes (
+    version BIGINT PRIMARY KEY COMMENT 'Versione monotona (ordine dei commit)',
+    entity_type ENUM('PRODUCT', 'DISCOUNT', 'ATTRIBUTE_VALUE') NOT NULL COMMENT 'ATTRIBUTE_VALUE solo per le istanze del servizio',
+    entity_id BIGINT NOT NULL,
+    change_type ENUM('UPSERT', 'DELETE') NOT NULL,
+    payload JSON COMMENT 'Stato compatto alla versione (NULL per DELETE)',
+    origin VARCHAR(36) NOT NULL COMMENT 'Istanza che ha scritto la modifica (già applicata nelle sue cache)',
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT 'Scrittura della modifica (ritardo di propagazione tra istanze)',
+    
+    INDEX idx_created (created_at)
+) ENGINE=InnoDB COMMENT='Modifiche di prodotti e sconti per le repliche degli altri servizi e le istanze del servizio';
+
 -- ============================================
 -- INSERIMENTO DATI INIZIALI
 -- ============================================
@@ -489,7 +571,7 @@ CREATE PROCEDURE update_product_stock(
 BEGIN
     UPDATE products 
     SET stock_quantity = stock_quantity + p_quantity_change,
-        updated_at = NOW()
+        updated_at = NOW(3)
     WHERE id = p_product_id;
     
     SELECT id, sku, name, stock_quantity 
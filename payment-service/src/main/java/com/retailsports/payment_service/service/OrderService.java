@@ -14,6 +14,8 @@ import com.retailsports.payment_service.exception.DuplicateResourceException;
 import com.retailsports.payment_service.exception.InvalidOrderStateException;
 import com.retailsports.payment_service.exception.ResourceNotFoundException;
 import com.retailsports.payment_service.repository.OrderRepository;
+import com.retailsports.money.Money;
+import com.retailsports.money.MoneyFormatter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -23,6 +25,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.Year;
 import java.util.List;
@@ -34,6 +37,9 @@ import java.util.stream.Collectors;
 @Transactional
 public class OrderService {
 
+    // Aliquota IVA in punti base (22%)
+    private static final long VAT_BASIS_POINTS = 2200;
+
     private final OrderRepository orderRepository;
 
     /**
@@ -215,8 +221,8 @@ public class OrderService {
     }
 
     private long calculateTax(long amount) {
-        // IVA 22%
-        return (long) (amount * 0.22);
+        // IVA 22%, troncata al centesimo come in precedenza ma senza errori di rappresentazione del double
+        return Money.basisPointsOf(amount, VAT_BASIS_POINTS, RoundingMode.DOWN);
     }
 
     private boolean isValidStatusTransition(OrderStatus currentStatus, OrderStatus newStatus) {
@@ -296,7 +302,6 @@ public class OrderService {
     }
 
     private String formatCents(Long cents) {
-        if (cents == null) return null;
-        return String.format("%.2f€", cents / 100.0);
+        return MoneyFormatter.format(cents);
     }
 }
@@ -3,6 +3,7 @@ package com.retailsports.payment_service.service;
 import com.retailsports.payment_service.dto.request.ProcessPaymentRequest;
 import com.retailsports.payment_service.dto.response.PaymentResponse;
 import com.retailsports.payment_service.entity.Order;
+import com.retailsports.payment_service.entity.OrderItem;
 import com.retailsports.payment_service.entity.Payment;
 import com.retailsports.payment_service.enums.PaymentMethod;
 import com.retailsports.payment_service.enums.PaymentStatus;
@@ -11,6 +12,7 @@ import com.retailsports.payment_service.exception.PaymentProcessingException;
 import com.retailsports.payment_service.exception.ResourceNotFoundException;
 import com.retailsports.payment_service.repository.OrderRepository;
 import com.retailsports.payment_service.repository.PaymentRepository;
+import com.retailsports.money.MoneyFormatter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -19,8 +21,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -32,6 +37,7 @@ public class PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
+    private final ProductServiceClient productServiceClient;
 
     /**
      * Processa un pagamento per un ordine
@@ -76,6 +82,7 @@ public class PaymentService {
             if (success) {
                 payment.markAsCompleted();
                 order.setPaymentStatus(com.retailsports.payment_service.enums.PaymentStatus.COMPLETED);
+                recordSalesAfterCommit(order);
                 log.info("Payment {} completed successfully", payment.getId());
             } else {
                 payment.markAsFailed("Payment declined");
@@ -166,6 +173,21 @@ public class PaymentService {
 
     // ========== HELPER METHODS ==========
 
+    /**
+     * Registra le vendite dell'ordine nel Product Service dopo il commit del pagamento
+     * Le righe sono copiate subito: dopo il commit la sessione non può più caricarle.
+     */
+    private void recordSalesAfterCommit(Order order) {
+        String orderNumber = order.getOrderNumber();
+        List<OrderItem> items = new ArrayList<>(order.getItems());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productServiceClient.recordSales(orderNumber, items);
+            }
+        });
+    }
+
     /**
      * Simulazione processamento pagamento con gateway esterno
      * In un'implementazione reale, qui si integrerebbe Stripe, PayPal, etc.
@@ -228,7 +250,6 @@ public class PaymentService {
     }
 
     private String formatCents(Long cents) {
-        if (cents == null) return null;
-        return String.format("%.2f€", cents / 100.0);
+        return MoneyFormatter.format(cents);
     }
 }
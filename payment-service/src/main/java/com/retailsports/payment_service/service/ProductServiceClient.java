@@ -0,0 +1,60 @@
+package com.retailsports.payment_service.service;
+
+import com.retailsports.payment_service.entity.OrderItem;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.*;
+
+/**
+ * Client per comunicare con il Product Service
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductServiceClient {
+
+    private final RestTemplate restTemplate;
+
+    @Value("${services.product-service.url}")
+    private String productServiceUrl;
+
+    /**
+     * DTO interni per la registrazione delle vendite di un ordine
+     */
+    public record SalesRequest(String orderId, List<SalesItem> items) {
+    }
+
+    public record SalesItem(Long productId, Integer quantity) {
+    }
+
+    /**
+     * Registra le vendite di un ordine pagato (contatori vendite e classifiche più venduti)
+     * Le righe dello stesso prodotto sono accorpate. Il Product Service ignora un ordine già registrato,
+     * quindi la chiamata può essere ripetuta. Un errore viene solo registrato: il pagamento resta valido.
+     */
+    public void recordSales(String orderNumber, Collection<OrderItem> items) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        List<SalesItem> salesItems = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> salesItems.add(new SalesItem(productId, quantity)));
+        String url = productServiceUrl + "/api/admin/products/sales";
+
+        log.info("Recording sales for order {} ({} products): {}", orderNumber, salesItems.size(), url);
+
+        try {
+            restTemplate.postForObject(url, new SalesRequest(orderNumber, salesItems), Void.class);
+        } catch (Exception ex) {
+            log.error("Error recording sales for order {} in Product Service: {}", orderNumber, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.retailsports.product_service.redemption;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Riscatto di uno stesso codice da tutti i core: permessi a strisce contro un unico contatore
+ * condiviso (CAS o lock), come il current_uses sulla riga dello sconto prima dei permessi in memoria
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class CouponPermitsBenchmark {
+
+    private static final int CAPACITY = Integer.MAX_VALUE / 2;
+
+    private CouponPermits permits;
+    private final AtomicInteger atomicRemaining = new AtomicInteger(CAPACITY);
+    private int lockedRemaining = CAPACITY;
+
+    @Setup
+    public void setup() {
+        // Ogni riscatto viene rimborsato: il contatore resta sotto contesa senza esaurirsi
+        permits = new CouponPermits(Runtime.getRuntime().availableProcessors(), 64, Duration.ofSeconds(1),
+            requested -> requested);
+    }
+
+    @Benchmark
+    public boolean stripedPermits() {
+        boolean acquired = permits.tryAcquire();
+        if (acquired) {
+            permits.release();
+        }
+        return acquired;
+    }
+
+    @Benchmark
+    public boolean singleAtomicCounter() {
+        int current;
+        do {
+            current = atomicRemaining.get();
+            if (current == 0) {
+                return false;
+            }
+        } while (!atomicRemaining.compareAndSet(current, current - 1));
+        atomicRemaining.incrementAndGet();
+        return true;
+    }
+
+    @Benchmark
+    public boolean synchronizedCounter() {
+        synchronized (this) {
+            if (lockedRemaining == 0) {
+                return false;
+            }
+            lockedRemaining--;
+        }
+        synchronized (this) {
+            lockedRemaining++;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,138 @@
+package com.retailsports.product_service.repository;
+
+import com.retailsports.product_service.model.Category;
+import com.retailsports.product_service.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Una pagina di prodotti in sconto al variare della dimensione dei saldi
+ * Con -prof gc, gc.alloc.rate.norm di databasePage resta costante al crescere di saleSize;
+ * loadAllThenSlice (caricamento completo e subList, come prima della paginazione su DB) cresce linearmente.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OnSaleListingBenchmark {
+
+    private static final Pageable PAGE =
+        PageRequest.of(3, 20, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+    private static final String ALL_ON_SALE =
+        "SELECT p FROM Product p WHERE p.isOnSale = true AND p.deletedAt IS NULL AND p.isActive = true " +
+        "ORDER BY p.createdAt DESC";
+
+    @Param({"1000", "5000", "20000"})
+    private int saleSize;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private EntityManagerFactory entityManagerFactory;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new SpringApplicationBuilder(BenchmarkConfig.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.main.banner-mode=off",
+                "spring.datasource.url=jdbc:h2:mem:on-sale;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "spring.jpa.open-in-view=false",
+                "logging.level.root=WARN")
+            .run();
+        productRepository = context.getBean(ProductRepository.class);
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<?> databasePage() {
+        return productRepository.findOnSaleSummaries(PAGE);
+    }
+
+    @Benchmark
+    public List<Product> loadAllThenSlice() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            List<Product> all = entityManager.createQuery(ALL_ON_SALE, Product.class).getResultList();
+            int from = (int) Math.min(PAGE.getOffset(), all.size());
+            int to = Math.min(from + PAGE.getPageSize(), all.size());
+            return List.copyOf(all.subList(from, to));
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * saleSize prodotti in sconto più altrettanti a prezzo pieno (esclusi dal filtro)
+     */
+    private void seed() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            Category category = Category.builder().name("Saldi").slug("saldi").build();
+            entityManager.persist(category);
+
+            for (int i = 0; i < saleSize * 2; i++) {
+                entityManager.persist(Product.builder()
+                    .sku("SKU-" + i)
+                    .name("Prodotto " + i)
+                    .slug("prodotto-" + i)
+                    .category(category)
+                    .priceCents(1000 + i)
+                    .isOnSale(i % 2 == 0)
+                    .build());
+                if (i % 500 == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    category = entityManager.getReference(Category.class, category.getId());
+                }
+            }
+            entityManager.getTransaction().commit();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Solo lo strato JPA del servizio (entità e repository) su H2 in memoria
+     */
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({
+        DataSourceAutoConfiguration.class,
+        HibernateJpaAutoConfiguration.class,
+        TransactionAutoConfiguration.class
+    })
+    @EntityScan(basePackageClasses = Product.class)
+    @EnableJpaRepositories(basePackageClasses = ProductRepository.class)
+    static class BenchmarkConfig {
+    }
+}
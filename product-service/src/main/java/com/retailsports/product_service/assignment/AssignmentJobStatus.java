@@ -0,0 +1,11 @@
+package com.retailsports.product_service.assignment;
+
+/**
+ * Stati di un job di assegnazione massiva
+ */
+public enum AssignmentJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,9 @@
+package com.retailsports.product_service.assignment;
+
+/**
+ * Operazioni di assegnazione massiva di uno sconto
+ */
+public enum AssignmentOperation {
+    ASSIGN,
+    REMOVE
+}
@@ -0,0 +1,78 @@
+package com.retailsports.product_service.assignment;
+
+import com.retailsports.product_service.dto.response.DiscountAssignmentResponse;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stato in memoria di un'assegnazione massiva di sconto
+ * Aggiornato dal thread del job e letto dalle richieste di stato: contatori atomici e campi volatile.
+ */
+@Getter
+public class DiscountAssignmentJob {
+
+    private final String id;
+    private final Long discountId;
+    private final AssignmentOperation operation;
+    private final List<Long> productIds;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private final AtomicLong processedProducts = new AtomicLong();
+    private final AtomicLong affectedProducts = new AtomicLong();
+
+    private volatile AssignmentJobStatus status = AssignmentJobStatus.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String failureMessage;
+
+    public DiscountAssignmentJob(String id, Long discountId, AssignmentOperation operation, List<Long> productIds) {
+        this.id = id;
+        this.discountId = discountId;
+        this.operation = operation;
+        this.productIds = productIds;
+    }
+
+    public void start() {
+        startedAt = LocalDateTime.now();
+        status = AssignmentJobStatus.RUNNING;
+    }
+
+    public void complete() {
+        finishedAt = LocalDateTime.now();
+        status = AssignmentJobStatus.COMPLETED;
+    }
+
+    public void fail(String message) {
+        failureMessage = message;
+        finishedAt = LocalDateTime.now();
+        status = AssignmentJobStatus.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == AssignmentJobStatus.COMPLETED || status == AssignmentJobStatus.FAILED;
+    }
+
+    public void chunkProcessed(int processed, int affected) {
+        processedProducts.addAndGet(processed);
+        affectedProducts.addAndGet(affected);
+    }
+
+    public DiscountAssignmentResponse toResponse() {
+        return DiscountAssignmentResponse.builder()
+            .jobId(id)
+            .discountId(discountId)
+            .operation(operation.name())
+            .status(status.name())
+            .matchedProducts((long) productIds.size())
+            .processedProducts(processedProducts.get())
+            .affectedProducts(affectedProducts.get())
+            .createdAt(createdAt)
+            .startedAt(startedAt)
+            .finishedAt(finishedAt)
+            .failureMessage(failureMessage)
+            .build();
+    }
+}
@@ -0,0 +1,291 @@
+package com.retailsports.product_service.assignment;
+
+import com.retailsports.product_service.cache.ProductDetailCache;
+import com.retailsports.product_service.dto.request.DiscountAssignmentRequest;
+import com.retailsports.product_service.dto.response.DiscountAssignmentResponse;
+import com.retailsports.product_service.exception.BadRequestException;
+import com.retailsports.product_service.exception.ResourceNotFoundException;
+import com.retailsports.product_service.feed.CatalogChangeFeed;
+import com.retailsports.product_service.pricing.DiscountEngine;
+import com.retailsports.product_service.repository.BrandRepository;
+import com.retailsports.product_service.repository.CategoryRepository;
+import com.retailsports.product_service.repository.DiscountRepository;
+import com.retailsports.product_service.repository.TagRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Assegnazione e rimozione massiva di uno sconto su categoria (con sottocategorie), brand, tag o lista di ID
+ * I prodotti sono selezionati con una sola query e le associazioni scritte a blocchi con batch JDBC:
+ * per blocco una lettura delle associazioni esistenti, un batch di INSERT (o un DELETE) e un UPDATE di updated_at.
+ * Fino a sync-limit prodotti l'operazione è eseguita nella richiesta; oltre diventa un job in background
+ * con una transazione per blocco, interrogabile per stato e avanzamento.
+ */
+@Service
+@Slf4j
+public class DiscountAssignmentService {
+
+    // Job conclusi conservati per le richieste di stato
+    private static final int MAX_RETAINED_JOBS = 100;
+
+    private static final String CATEGORY_SUBTREE_CTE =
+        "WITH RECURSIVE subtree (id) AS (" +
+        "SELECT id FROM categories WHERE id = :categoryId " +
+        "UNION ALL SELECT c.id FROM categories c JOIN subtree s ON c.parent_id = s.id) ";
+
+    private static final String LINKED_SQL =
+        "SELECT product_id FROM product_discounts WHERE discount_id = :discountId AND product_id IN (:ids)";
+
+    // IGNORE: un'associazione creata nel frattempo da un'altra richiesta non fa fallire il blocco
+    private static final String INSERT_LINK_SQL =
+        "INSERT IGNORE INTO product_discounts (product_id, discount_id) VALUES (?, ?)";
+
+    private static final String DELETE_LINKS_SQL =
+        "DELETE FROM product_discounts WHERE discount_id = :discountId AND product_id IN (:ids)";
+
+    // Gli sconti fanno parte del dettaglio prodotto (ETag)
+    private static final String TOUCH_PRODUCTS_SQL =
+        "UPDATE products SET updated_at = :now WHERE id IN (:ids)";
+
+    private final DiscountRepository discountRepository;
+    private final CategoryRepository categoryRepository;
+    private final BrandRepository brandRepository;
+    private final TagRepository tagRepository;
+    private final DiscountEngine discountEngine;
+    private final CatalogChangeFeed catalogChangeFeed;
+    private final ProductDetailCache productDetailCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int syncLimit;
+
+    private final Map<String, DiscountAssignmentJob> jobs = new ConcurrentHashMap<>();
+
+    private final ExecutorService assignmentExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "discount-assignment");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DiscountAssignmentService(DiscountRepository discountRepository,
+                                     CategoryRepository categoryRepository,
+                                     BrandRepository brandRepository,
+                                     TagRepository tagRepository,
+                                     DiscountEngine discountEngine,
+                                     CatalogChangeFeed catalogChangeFeed,
+                                     ProductDetailCache productDetailCache,
+                                     JdbcTemplate jdbcTemplate,
+                                     NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${product.discount-assignment.chunk-size:1000}") int chunkSize,
+                                     @Value("${product.discount-assignment.sync-limit:1000}") int syncLimit) {
+        this.discountRepository = discountRepository;
+        this.categoryRepository = categoryRepository;
+        this.brandRepository = brandRepository;
+        this.tagRepository = tagRepository;
+        this.discountEngine = discountEngine;
+        this.catalogChangeFeed = catalogChangeFeed;
+        this.productDetailCache = productDetailCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.syncLimit = syncLimit;
+    }
+
+    /**
+     * Assegna o rimuove lo sconto sui prodotti selezionati dai criteri
+     * Restituisce l'esito se eseguita subito, altrimenti il job accodato.
+     */
+    public DiscountAssignmentResponse submit(Long discountId, DiscountAssignmentRequest request, AssignmentOperation operation) {
+        if (!discountRepository.existsById(discountId)) {
+            throw new ResourceNotFoundException("Discount not found with id: " + discountId);
+        }
+        List<Long> productIds = findTargetProductIds(request);
+
+        if (productIds.size() <= syncLimit) {
+            DiscountAssignmentJob job = new DiscountAssignmentJob(null, discountId, operation, productIds);
+            execute(job);
+            log.info("Discount {} {}: {} products matched, {} affected",
+                discountId, operation, productIds.size(), job.getAffectedProducts().get());
+            return job.toResponse();
+        }
+
+        DiscountAssignmentJob job = new DiscountAssignmentJob(UUID.randomUUID().toString(), discountId, operation, productIds);
+        evictFinishedJobs();
+        jobs.put(job.getId(), job);
+        assignmentExecutor.execute(() -> run(job));
+
+        log.info("Discount assignment job {} queued: discount {} {} on {} products",
+            job.getId(), discountId, operation, productIds.size());
+        return job.toResponse();
+    }
+
+    /**
+     * Associa lo sconto a una lista di prodotti nella transazione corrente (creazione sconto)
+     * Come per l'associazione singola, un prodotto inesistente o cancellato fa fallire l'operazione.
+     */
+    public void assignProducts(Long discountId, Collection<Long> productIds) {
+        Set<Long> requested = new LinkedHashSet<>(productIds);
+        List<Long> found = findTargetProductIds(DiscountAssignmentRequest.builder()
+            .productIds(new ArrayList<>(requested))
+            .build());
+        if (found.size() < requested.size()) {
+            requested.removeAll(found);
+            throw new ResourceNotFoundException("Product not found with id: " + requested.iterator().next());
+        }
+
+        execute(new DiscountAssignmentJob(null, discountId, AssignmentOperation.ASSIGN, found));
+    }
+
+    /**
+     * Stato e avanzamento di un job
+     */
+    public DiscountAssignmentResponse getJob(String jobId) {
+        DiscountAssignmentJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Discount assignment job not found with id: " + jobId);
+        }
+        return job.toResponse();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        assignmentExecutor.shutdownNow();
+    }
+
+    // ========== ESECUZIONE ==========
+
+    private void run(DiscountAssignmentJob job) {
+        try {
+            execute(job);
+            log.info("Discount assignment job {} completed: {} of {} products affected",
+                job.getId(), job.getAffectedProducts().get(), job.getProductIds().size());
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            log.error("Discount assignment job {} failed: {}", job.getId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Elabora i prodotti a blocchi, ognuno nella propria transazione (o in quella del chiamante, se presente)
+     */
+    private void execute(DiscountAssignmentJob job) {
+        job.start();
+        List<Long> productIds = job.getProductIds();
+        for (int from = 0; from < productIds.size(); from += chunkSize) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + chunkSize, productIds.size()));
+            Integer affected = transactionTemplate.execute(status -> processChunk(job, chunk));
+            job.chunkProcessed(chunk.size(), affected);
+        }
+        job.complete();
+    }
+
+    /**
+     * Scrive le associazioni mancanti (o rimuove quelle esistenti) di un blocco
+     *
+     * @return prodotti effettivamente modificati
+     */
+    private int processChunk(DiscountAssignmentJob job, List<Long> chunk) {
+        Long discountId = job.getDiscountId();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("discountId", discountId)
+            .addValue("ids", chunk);
+        Set<Long> linked = new HashSet<>(namedParameterJdbcTemplate.queryForList(LINKED_SQL, params, Long.class));
+
+        List<Long> changed;
+        if (job.getOperation() == AssignmentOperation.ASSIGN) {
+            changed = chunk.stream().filter(id -> !linked.contains(id)).toList();
+            if (changed.isEmpty()) return 0;
+            jdbcTemplate.batchUpdate(INSERT_LINK_SQL, changed.stream()
+                .map(productId -> new Object[]{productId, discountId})
+                .toList());
+            discountEngine.linkAll(discountId, changed);
+        } else {
+            changed = chunk.stream().filter(linked::contains).toList();
+            if (changed.isEmpty()) return 0;
+            namedParameterJdbcTemplate.update(DELETE_LINKS_SQL, params.addValue("ids", changed));
+            discountEngine.unlinkAll(discountId, changed);
+        }
+
+        namedParameterJdbcTemplate.update(TOUCH_PRODUCTS_SQL, new MapSqlParameterSource()
+            .addValue("now", Timestamp.valueOf(LocalDateTime.now()))
+            .addValue("ids", changed));
+        changed.forEach(catalogChangeFeed::productChanged);
+        productDetailCache.invalidateAll(changed);
+        return changed.size();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Prodotti non cancellati che soddisfano tutti i criteri, in ordine di ID
+     */
+    private List<Long> findTargetProductIds(DiscountAssignmentRequest request) {
+        boolean hasProductIds = request.getProductIds() != null && !request.getProductIds().isEmpty();
+        if (request.getCategoryId() == null && request.getBrandId() == null && request.getTagId() == null && !hasProductIds) {
+            throw new BadRequestException("At least one of categoryId, brandId, tagId or productIds is required");
+        }
+
+        StringBuilder sql = new StringBuilder();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        if (request.getCategoryId() != null) {
+            if (!categoryRepository.existsById(request.getCategoryId())) {
+                throw new ResourceNotFoundException("Category not found with id: " + request.getCategoryId());
+            }
+            sql.append(CATEGORY_SUBTREE_CTE);
+            params.addValue("categoryId", request.getCategoryId());
+        }
+        sql.append("SELECT p.id FROM products p WHERE p.deleted_at IS NULL");
+
+        if (request.getCategoryId() != null) {
+            sql.append(" AND p.category_id IN (SELECT id FROM subtree)");
+        }
+        if (request.getBrandId() != null) {
+            if (!brandRepository.existsById(request.getBrandId())) {
+                throw new ResourceNotFoundException("Brand not found with id: " + request.getBrandId());
+            }
+            sql.append(" AND p.brand_id = :brandId");
+            params.addValue("brandId", request.getBrandId());
+        }
+        if (request.getTagId() != null) {
+            if (!tagRepository.existsById(request.getTagId())) {
+                throw new ResourceNotFoundException("Tag not found with id: " + request.getTagId());
+            }
+            sql.append(" AND EXISTS (SELECT 1 FROM product_tags pt WHERE pt.product_id = p.id AND pt.tag_id = :tagId)");
+            params.addValue("tagId", request.getTagId());
+        }
+        if (hasProductIds) {
+            sql.append(" AND p.id IN (:productIds)");
+            params.addValue("productIds", new HashSet<>(request.getProductIds()));
+        }
+        sql.append(" ORDER BY p.id");
+
+        return namedParameterJdbcTemplate.queryForList(sql.toString(), params, Long.class);
+    }
+
+    private void evictFinishedJobs() {
+        if (jobs.size() < MAX_RETAINED_JOBS) return;
+
+        jobs.values().stream()
+            .filter(DiscountAssignmentJob::isFinished)
+            .sorted(Comparator.comparing(DiscountAssignmentJob::getCreatedAt))
+            .limit(jobs.size() - MAX_RETAINED_JOBS + 1L)
+            .forEach(job -> jobs.remove(job.getId()));
+    }
+}
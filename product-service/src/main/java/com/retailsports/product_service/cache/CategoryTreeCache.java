@@ -0,0 +1,197 @@
+package com.retailsports.product_service.cache;
+
+import com.retailsports.product_service.dto.response.CategoryResponse;
+import com.retailsports.product_service.model.Category;
+import com.retailsports.product_service.repository.CategoryRepository;
+import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cache dell'albero categorie con conteggi prodotti aggregati
+ * Lo snapshot viene ricostruito in background (due query in tutto) quando categorie o prodotti cambiano
+ * e sostituito atomicamente: le richieste leggono sempre uno snapshot completo e coerente.
+ */
+@Component
+@Slf4j
+public class CategoryTreeCache {
+
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Un solo thread per le ricostruzioni richieste da invalidate()
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "category-tree-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Evita di accodare più ricostruzioni per una raffica di modifiche
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+
+    private volatile CategoryTreeSnapshot snapshot = CategoryTreeSnapshot.EMPTY;
+
+    public CategoryTreeCache(CategoryRepository categoryRepository,
+                             ProductRepository productRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.categoryRepository = categoryRepository;
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Costruisce il primo snapshot all'avvio (poi su richiesta: executor, sincronizzazione tra istanze)
+     * Le ricostruzioni sono serializzate: una ricostruzione iniziata dopo legge dati più recenti e pubblica
+     * sempre la versione successiva, senza essere sovrascritta da una più lenta iniziata prima.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        rebuildPending.set(false);
+        long start = System.currentTimeMillis();
+
+        List<CategoryResponse> roots = readOnlyTransaction.execute(status -> buildTree());
+        CategoryTreeSnapshot current = snapshot;
+        snapshot = new CategoryTreeSnapshot(current.version() + 1, LocalDateTime.now(), roots, digest(roots));
+
+        log.info("Category tree snapshot v{} built: {} root categories in {} ms",
+            current.version() + 1, roots.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Indica se è disponibile almeno uno snapshot
+     */
+    public boolean isReady() {
+        return snapshot.version() > 0;
+    }
+
+    /**
+     * Snapshot corrente (mai null)
+     */
+    public CategoryTreeSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Richiede una ricostruzione dopo il commit della transazione corrente
+     * Più richieste ravvicinate vengono accorpate in un'unica ricostruzione.
+     */
+    public void invalidate() {
+        TransactionUtils.afterCommit(() -> {
+            if (rebuildPending.compareAndSet(false, true)) {
+                rebuildExecutor.execute(() -> {
+                    try {
+                        rebuild();
+                    } catch (RuntimeException e) {
+                        log.error("Category tree snapshot rebuild failed, keeping v{}", snapshot.version(), e);
+                    }
+                });
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Costruisce l'albero delle categorie attive raggiungibili da una root attiva,
+     * con i conteggi prodotti sommati lungo la gerarchia
+     */
+    private List<CategoryResponse> buildTree() {
+        Map<Long, Long> directCounts = new HashMap<>();
+        for (Object[] row : productRepository.countActiveProductsGroupedByCategory()) {
+            directCounts.put((Long) row[0], (Long) row[1]);
+        }
+
+        // Già ordinate per displayOrder: i figli mantengono lo stesso ordine
+        List<Category> categories = categoryRepository.findAllActive();
+        Map<Long, List<Category>> childrenByParent = new HashMap<>();
+        List<Category> rootCategories = new ArrayList<>();
+        for (Category category : categories) {
+            if (category.getParent() == null) {
+                rootCategories.add(category);
+            } else {
+                childrenByParent.computeIfAbsent(category.getParent().getId(), id -> new ArrayList<>()).add(category);
+            }
+        }
+
+        return rootCategories.stream()
+            .map(root -> toNode(root, childrenByParent, directCounts))
+            .toList();
+    }
+
+    /**
+     * SHA-256 dei campi esposti dall'albero, in ordine di visita (ETag dell'albero)
+     */
+    private static String digest(List<CategoryResponse> roots) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder content = new StringBuilder();
+            appendNodes(roots, content);
+            digest.update(content.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void appendNodes(List<CategoryResponse> nodes, StringBuilder content) {
+        content.append('[');
+        for (CategoryResponse node : nodes) {
+            // Separatore NUL: non compare nei campi testuali, due alberi diversi non danno la stessa sequenza
+            for (Object field : new Object[]{node.getId(), node.getName(), node.getSlug(), node.getDescription(),
+                node.getParentId(), node.getDisplayOrder(), node.getIsActive(), node.getMetaTitle(),
+                node.getMetaDescription(), node.getCreatedAt(), node.getUpdatedAt(), node.getProductCount()}) {
+                content.append(field).append('\u0000');
+            }
+            appendNodes(node.getSubcategories(), content);
+        }
+        content.append(']');
+    }
+
+    private CategoryResponse toNode(Category category, Map<Long, List<Category>> childrenByParent, Map<Long, Long> directCounts) {
+        List<CategoryResponse> subcategories = childrenByParent.getOrDefault(category.getId(), List.of())
+            .stream()
+            .map(child -> toNode(child, childrenByParent, directCounts))
+            .toList();
+
+        long productCount = directCounts.getOrDefault(category.getId(), 0L)
+            + subcategories.stream().mapToLong(CategoryResponse::getProductCount).sum();
+
+        return CategoryResponse.builder()
+            .id(category.getId())
+            .name(category.getName())
+            .slug(category.getSlug())
+            .description(category.getDescription())
+            .parentId(category.getParent() != null ? category.getParent().getId() : null)
+            .displayOrder(category.getDisplayOrder())
+            .isActive(category.getIsActive())
+            .metaTitle(category.getMetaTitle())
+            .metaDescription(category.getMetaDescription())
+            .createdAt(category.getCreatedAt())
+            .updatedAt(category.getUpdatedAt())
+            .productCount(productCount)
+            .subcategories(subcategories)
+            .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.retailsports.product_service.cache;
+
+import com.retailsports.product_service.dto.response.CategoryResponse;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fotografia immutabile dell'albero delle categorie attive
+ * Ogni nodo riporta il numero di prodotti attivi della categoria e di tutte le sue discendenti.
+ * La versione cresce a ogni ricostruzione dell'istanza; contentDigest (SHA-256) dipende solo dal contenuto
+ * ed è quindi uguale su tutte le istanze che servono lo stesso albero (usato per l'ETag).
+ */
+public record CategoryTreeSnapshot(long version, LocalDateTime builtAt, List<CategoryResponse> roots,
+                                   String contentDigest) {
+
+    public static final CategoryTreeSnapshot EMPTY = new CategoryTreeSnapshot(0L, null, List.of(), "");
+
+    public CategoryTreeSnapshot {
+        roots = List.copyOf(roots);
+    }
+
+    /**
+     * Categorie richieste più tutte le loro discendenti attive
+     * Gli id non presenti nell'albero (es. categorie disattivate) restano comunque nel risultato.
+     */
+    public Set<Long> withDescendants(Collection<Long> categoryIds) {
+        Set<Long> result = new HashSet<>(categoryIds);
+        collect(roots, Set.copyOf(categoryIds), false, result);
+        return result;
+    }
+
+    private static void collect(List<CategoryResponse> nodes, Set<Long> selected, boolean inSelectedSubtree,
+                                Set<Long> result) {
+        for (CategoryResponse node : nodes) {
+            boolean selectedNode = inSelectedSubtree || selected.contains(node.getId());
+            if (selectedNode) {
+                result.add(node.getId());
+            }
+            if (node.getSubcategories() != null) {
+                collect(node.getSubcategories(), selected, selectedNode, result);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.retailsports.product_service.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Memoria off-heap a blocchi di dimensione fissa
+ * I segmenti diretti vengono allocati solo quando servono; un contenuto occupa una lista di blocchi
+ * non contigui, quindi la memoria liberata è sempre riutilizzabile (nessuna frammentazione).
+ * Allocazione e rilascio sono sincronizzati; lettura e scrittura dei blocchi assegnati no.
+ */
+final class OffHeapArena {
+
+    private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+
+    private final int blockSize;
+    private final int blocksPerSegment;
+    private final int totalBlocks;
+    private final ByteBuffer[] segments;
+
+    // Blocchi rilasciati (pila) e primo blocco mai assegnato
+    private final int[] freeBlocks;
+    private int freeCount;
+    private int nextUnused;
+
+    OffHeapArena(long capacityBytes, int blockSize) {
+        this.blockSize = blockSize;
+        this.blocksPerSegment = SEGMENT_BYTES / blockSize;
+        this.totalBlocks = (int) Math.min(capacityBytes / blockSize, Integer.MAX_VALUE - 8);
+        this.segments = new ByteBuffer[(totalBlocks + blocksPerSegment - 1) / blocksPerSegment];
+        this.freeBlocks = new int[totalBlocks];
+    }
+
+    int blockSize() {
+        return blockSize;
+    }
+
+    int totalBlocks() {
+        return totalBlocks;
+    }
+
+    synchronized int usedBlocks() {
+        return nextUnused - freeCount;
+    }
+
+    /**
+     * Blocchi necessari per un contenuto di questa lunghezza
+     */
+    int blocksFor(int length) {
+        return Math.max(1, (length + blockSize - 1) / blockSize);
+    }
+
+    /**
+     * Assegna i blocchi (null se non ce ne sono abbastanza liberi)
+     */
+    synchronized int[] allocate(int count) {
+        if (freeCount + (totalBlocks - nextUnused) < count) {
+            return null;
+        }
+        int[] blocks = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (freeCount > 0) {
+                blocks[i] = freeBlocks[--freeCount];
+            } else {
+                int block = nextUnused++;
+                int segment = block / blocksPerSegment;
+                if (segments[segment] == null) {
+                    int segmentBlocks = Math.min(blocksPerSegment, totalBlocks - segment * blocksPerSegment);
+                    segments[segment] = ByteBuffer.allocateDirect(segmentBlocks * blockSize);
+                }
+                blocks[i] = block;
+            }
+        }
+        return blocks;
+    }
+
+    synchronized void free(int[] blocks) {
+        for (int block : blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+
+    /**
+     * Copia il contenuto nei blocchi assegnati
+     */
+    void write(int[] blocks, byte[] content) {
+        for (int i = 0; i < blocks.length; i++) {
+            int start = i * blockSize;
+            int length = Math.min(blockSize, content.length - start);
+            if (length <= 0) {
+                return;
+            }
+            segment(blocks[i]).put(offset(blocks[i]), content, start, length);
+        }
+    }
+
+    /**
+     * Scrive sul canale i primi length byte dei blocchi
+     */
+    void transferTo(int[] blocks, int length, WritableByteChannel channel) throws IOException {
+        int remaining = length;
+        for (int i = 0; i < blocks.length && remaining > 0; i++) {
+            int chunk = Math.min(blockSize, remaining);
+            ByteBuffer slice = segment(blocks[i]).slice(offset(blocks[i]), chunk);
+            while (slice.hasRemaining()) {
+                channel.write(slice);
+            }
+            remaining -= chunk;
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private ByteBuffer segment(int block) {
+        return segments[block / blocksPerSegment];
+    }
+
+    private int offset(int block) {
+        return (block % blocksPerSegment) * blockSize;
+    }
+}
@@ -0,0 +1,305 @@
+package com.retailsports.product_service.cache;
+
+import com.retailsports.product_service.feed.CatalogChangeFeed;
+import com.retailsports.product_service.feed.ChangeEntityType;
+import com.retailsports.product_service.model.Product;
+import com.retailsports.product_service.pricing.DiscountEngine;
+import com.retailsports.product_service.ranking.ProductRanking;
+import com.retailsports.product_service.repository.DiscountRepository;
+import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.search.ProductFacetIndex;
+import com.retailsports.product_service.search.ProductIdentifierIndex;
+import com.retailsports.product_service.search.ProductSearchIndex;
+import com.retailsports.product_service.search.SuggestionIndex;
+import com.retailsports.product_service.service.CouponRedemptionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Coerenza delle cache locali tra le istanze del servizio
+ *
+ * Ogni istanza legge periodicamente catalog_changes (il log versionato scritto da CatalogChangeFeed nella transazione
+ * di ogni modifica) oltre l'ultima versione applicata e riallinea indici e cache per prodotti, sconti e valori di attributo
+ * modificati dalle altre istanze: le righe scritte da questa istanza sono saltate, perché già applicate al commit.
+ * Le versioni seguono l'ordine dei commit e il messaggio non porta lo stato: ogni entità viene ricaricata dal primario
+ * (le repliche possono essere indietro rispetto al log), quindi un messaggio vecchio non può riportare dati superati.
+ * Categorie e brand non passano dal log: il loro contenuto è confrontato con un'impronta calcolata a ogni lettura.
+ */
+@Component
+@Slf4j
+public class PeerCacheSync {
+
+    private static final String SELECT_SEQUENCE_SQL =
+        "SELECT version, purged_through FROM catalog_change_sequence WHERE id = 1";
+
+    private static final String SELECT_CHANGES_SQL =
+        "SELECT version, entity_type, entity_id, origin, created_at FROM catalog_changes WHERE version > ? " +
+        "ORDER BY version LIMIT ?";
+
+    private static final String ATTRIBUTE_VALUES_SQL =
+        "SELECT id, attribute_id FROM attribute_values WHERE id IN (:ids)";
+
+    private static final String PRODUCT_DISCOUNTS_SQL =
+        "SELECT product_id, discount_id FROM product_discounts WHERE product_id IN (:ids)";
+
+    // Impronta del contenuto di categorie e brand (tabelle piccole): cambia con qualsiasi modifica visibile
+    private static final String CATALOG_FINGERPRINT_SQL =
+        "SELECT (SELECT CONCAT(COUNT(*), ':', COALESCE(SUM(CRC32(CONCAT_WS('|', id, name, slug, parent_id, " +
+        "display_order, is_active, updated_at))), 0)) FROM categories), " +
+        "(SELECT CONCAT(COUNT(*), ':', COALESCE(SUM(CRC32(CONCAT_WS('|', id, name, slug, logo_url, is_active, " +
+        "updated_at))), 0)) FROM brands)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ProductRepository productRepository;
+    private final DiscountRepository discountRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductIdentifierIndex productIdentifierIndex;
+    private final ProductRanking productRanking;
+    private final DiscountEngine discountEngine;
+    private final SuggestionIndex suggestionIndex;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ProductDetailCache productDetailCache;
+    private final CouponRedemptionService couponRedemptionService;
+    private final CatalogChangeFeed catalogChangeFeed;
+    private final TransactionTemplate primaryTransaction;
+    private final boolean enabled;
+    private final int batchSize;
+
+    private final Timer propagationDelay;
+    private final Counter appliedChanges;
+
+    // Ultima versione applicata e impronta di categorie e brand (solo thread dello scheduler)
+    private volatile long appliedVersion;
+    private String catalogFingerprint;
+
+    public PeerCacheSync(JdbcTemplate jdbcTemplate,
+                         NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                         ProductRepository productRepository,
+                         DiscountRepository discountRepository,
+                         ProductSearchIndex productSearchIndex,
+                         ProductFacetIndex productFacetIndex,
+                         ProductIdentifierIndex productIdentifierIndex,
+                         ProductRanking productRanking,
+                         DiscountEngine discountEngine,
+                         SuggestionIndex suggestionIndex,
+                         CategoryTreeCache categoryTreeCache,
+                         ProductDetailCache productDetailCache,
+                         CouponRedemptionService couponRedemptionService,
+                         CatalogChangeFeed catalogChangeFeed,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${product.coherence.enabled:true}") boolean enabled,
+                         @Value("${product.coherence.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.productRepository = productRepository;
+        this.discountRepository = discountRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.productFacetIndex = productFacetIndex;
+        this.productIdentifierIndex = productIdentifierIndex;
+        this.productRanking = productRanking;
+        this.discountEngine = discountEngine;
+        this.suggestionIndex = suggestionIndex;
+        this.categoryTreeCache = categoryTreeCache;
+        this.productDetailCache = productDetailCache;
+        this.couponRedemptionService = couponRedemptionService;
+        this.catalogChangeFeed = catalogChangeFeed;
+        // Transazione non readOnly: instradata al primario, che ha già le righe lette dal log
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+
+        this.propagationDelay = Timer.builder("product.cache.invalidation.delay")
+            .description("Ritardo tra la scrittura di una modifica e il suo arrivo nelle cache di questa istanza")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.appliedChanges = Counter.builder("product.cache.invalidation.applied")
+            .description("Modifiche del log applicate alle cache locali")
+            .register(meterRegistry);
+        Gauge.builder("product.cache.invalidation.version", this, sync -> sync.appliedVersion)
+            .description("Ultima versione del log applicata")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Punto di partenza: la versione corrente, letta prima della costruzione degli indici all'avvio
+     * (le modifiche successive vengono riapplicate: ricaricare un'entità è idempotente)
+     */
+    @PostConstruct
+    public void initialize() {
+        appliedVersion = jdbcTemplate.queryForObject(SELECT_SEQUENCE_SQL, (rs, rowNum) -> rs.getLong("version"));
+    }
+
+    /**
+     * Applica le modifiche successive all'ultima versione letta e controlla categorie e brand
+     */
+    @Scheduled(fixedDelayString = "${product.coherence.poll-interval-ms:1000}",
+               initialDelayString = "${product.coherence.poll-interval-ms:1000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            while (applyChanges() == batchSize) {
+                // Arretrati: si prosegue subito con il blocco successivo
+            }
+            checkCatalogFingerprint();
+        } catch (RuntimeException e) {
+            log.error("Peer cache sync failed after version {}, retrying at next poll", appliedVersion, e);
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * @return numero di modifiche lette
+     */
+    private int applyChanges() {
+        List<LogEntry> entries = jdbcTemplate.query(SELECT_CHANGES_SQL, (rs, rowNum) -> new LogEntry(
+            rs.getLong("version"),
+            ChangeEntityType.valueOf(rs.getString("entity_type")),
+            rs.getLong("entity_id"),
+            rs.getString("origin"),
+            rs.getTimestamp("created_at").toLocalDateTime()), appliedVersion, batchSize);
+
+        if ((entries.isEmpty() || entries.get(0).version() > appliedVersion + 1) && resetIfPurged()) {
+            return 0;
+        }
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        List<LogEntry> peerEntries = entries.stream()
+            .filter(entry -> !catalogChangeFeed.instanceId().equals(entry.origin()))
+            .toList();
+
+        Set<Long> productIds = new LinkedHashSet<>();
+        Set<Long> discountIds = new LinkedHashSet<>();
+        Set<Long> attributeValueIds = new LinkedHashSet<>();
+        for (LogEntry entry : peerEntries) {
+            switch (entry.entityType()) {
+                case PRODUCT -> productIds.add(entry.entityId());
+                case DISCOUNT -> discountIds.add(entry.entityId());
+                case ATTRIBUTE_VALUE -> attributeValueIds.add(entry.entityId());
+            }
+        }
+
+        // Gli aggiornamenti degli indici sono applicati al commit di questa transazione
+        // (valori di attributo prima dei prodotti che li usano)
+        if (!peerEntries.isEmpty()) {
+            primaryTransaction.executeWithoutResult(status -> {
+                if (!attributeValueIds.isEmpty()) {
+                    refreshAttributeValues(attributeValueIds);
+                }
+                if (!productIds.isEmpty()) {
+                    refreshProducts(productIds);
+                }
+                discountIds.forEach(this::refreshDiscount);
+            });
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (LogEntry entry : peerEntries) {
+            propagationDelay.record(Duration.between(entry.createdAt(), now).abs());
+        }
+        appliedChanges.increment(peerEntries.size());
+        appliedVersion = entries.get(entries.size() - 1).version();
+        return entries.size();
+    }
+
+    private void refreshProducts(Set<Long> productIds) {
+        Map<Long, List<Long>> discountsByProduct = new HashMap<>();
+        namedParameterJdbcTemplate.query(PRODUCT_DISCOUNTS_SQL, Map.of("ids", productIds), rs -> {
+            discountsByProduct.computeIfAbsent(rs.getLong("product_id"), id -> new ArrayList<>())
+                .add(rs.getLong("discount_id"));
+        });
+
+        for (Product product : productRepository.findForIndexingByIds(productIds)) {
+            productSearchIndex.index(product);
+            productFacetIndex.index(product);
+            productIdentifierIndex.index(product);
+            productRanking.index(product);
+            discountEngine.relinkProduct(product.getId(), discountsByProduct.getOrDefault(product.getId(), List.of()));
+        }
+        productDetailCache.invalidateAll(productIds);
+        categoryTreeCache.invalidate();
+        suggestionIndex.invalidate();
+    }
+
+    private void refreshAttributeValues(Set<Long> attributeValueIds) {
+        Set<Long> missing = new HashSet<>(attributeValueIds);
+        namedParameterJdbcTemplate.query(ATTRIBUTE_VALUES_SQL, Map.of("ids", attributeValueIds), rs -> {
+            missing.remove(rs.getLong("id"));
+            productFacetIndex.defineAttributeValue(rs.getLong("id"), rs.getLong("attribute_id"));
+        });
+        missing.forEach(productFacetIndex::removeAttributeValue);
+    }
+
+    private void refreshDiscount(Long discountId) {
+        discountRepository.findById(discountId).ifPresentOrElse(
+            discount -> {
+                discountEngine.update(discount);
+                productDetailCache.invalidateAll(discountRepository.findProductIdsByDiscountId(discountId));
+                couponRedemptionService.evictIfChanged(discount);
+            },
+            () -> {
+                discountEngine.remove(discountId);
+                couponRedemptionService.evict(discountId);
+            });
+    }
+
+    /**
+     * Versioni mancanti: l'istanza è rimasta ferma oltre la retention del log e ricostruisce tutto
+     *
+     * @return true se gli indici sono stati ricostruiti
+     */
+    private boolean resetIfPurged() {
+        long[] sequence = jdbcTemplate.queryForObject(SELECT_SEQUENCE_SQL,
+            (rs, rowNum) -> new long[]{rs.getLong("version"), rs.getLong("purged_through")});
+        if (appliedVersion >= sequence[1]) {
+            return false;
+        }
+
+        log.warn("Change log purged past version {}, rebuilding local indexes", appliedVersion);
+        appliedVersion = sequence[0];
+        productSearchIndex.rebuild();
+        productFacetIndex.rebuild();
+        productIdentifierIndex.rebuild();
+        discountEngine.rebuild();
+        categoryTreeCache.rebuild();
+        suggestionIndex.rebuild();
+        return true;
+    }
+
+    private void checkCatalogFingerprint() {
+        String fingerprint = jdbcTemplate.queryForObject(CATALOG_FINGERPRINT_SQL,
+            (rs, rowNum) -> rs.getString(1) + "/" + rs.getString(2));
+        if (catalogFingerprint != null && !catalogFingerprint.equals(fingerprint)) {
+            log.debug("Categories or brands changed, refreshing category tree and suggestions");
+            categoryTreeCache.invalidate();
+            suggestionIndex.invalidate();
+        }
+        catalogFingerprint = fingerprint;
+    }
+
+    private record LogEntry(long version, ChangeEntityType entityType, long entityId, String origin,
+                            LocalDateTime createdAt) {
+    }
+}
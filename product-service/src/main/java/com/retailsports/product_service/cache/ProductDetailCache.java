@@ -0,0 +1,262 @@
+package com.retailsports.product_service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.retailsports.product_service.dto.response.ProductResponse;
+import com.retailsports.product_service.util.TransactionUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cache del dettaglio prodotto già serializzato in JSON, fuori dallo heap
+ *
+ * I byte stanno in un'area off-heap a blocchi; sullo heap restano solo chiave, ETag e lista dei blocchi.
+ * L'eviction (W-TinyLFU di Caffeine) pesa le voci per blocchi occupati. Ogni voce è valida solo per
+ * l'ETag con cui è stata scritta: la versione calcolata a ogni richiesta la scarta comunque se prodotto,
+ * categoria, brand o sconti sono cambiati, mentre l'invalidazione per ID dai percorsi di scrittura
+ * libera subito la memoria. Un dettaglio caricato mentre arriva un'invalidazione per lo stesso ID non viene
+ * messo in cache: potrebbe precedere la modifica pur avendo lo stesso ETag.
+ */
+@Component
+@Slf4j
+public class ProductDetailCache {
+
+    // Stesso envelope di ApiResponse.success(data)
+    private static final String SUCCESS_MESSAGE = "Operation successful";
+
+    // Contatori di invalidazione per gruppo di ID (potenza di 2): una collisione salta solo qualche inserimento
+    private static final int INVALIDATION_STRIPES = 4096;
+
+    private final ObjectMapper objectMapper;
+    private final OffHeapArena arena;
+    private final Cache<Long, Entry> entries;
+    private final int maxEntryBytes;
+    private final byte[] envelopePrefix;
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ProductDetailCache(ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${product.detail-cache.capacity-mb:128}") long capacityMb,
+                              @Value("${product.detail-cache.block-size:4096}") int blockSize,
+                              @Value("${product.detail-cache.max-entry-kb:256}") int maxEntryKb) throws IOException {
+        this.objectMapper = objectMapper;
+        this.maxEntryBytes = maxEntryKb * 1024;
+        this.envelopePrefix = ("{\"success\":true,\"message\":" + objectMapper.writeValueAsString(SUCCESS_MESSAGE)
+            + ",\"data\":").getBytes(StandardCharsets.UTF_8);
+
+        OffHeapArena offHeapArena = new OffHeapArena(capacityMb * 1024 * 1024, blockSize);
+        // Margine di una voce massima: l'eviction avviene dopo l'inserimento, i blocchi servono prima
+        long maxWeight = offHeapArena.totalBlocks() - offHeapArena.blocksFor(maxEntryBytes);
+        if (maxWeight > 0) {
+            this.arena = offHeapArena;
+            this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Long id, Entry entry) -> entry.blocks.length)
+                .executor(Runnable::run)
+                .removalListener((Long id, Entry entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        entry.release();
+                    }
+                })
+                .build();
+        } else {
+            log.info("Product detail cache disabled (capacity {} MB)", capacityMb);
+            this.arena = null;
+            this.entries = null;
+        }
+
+        this.hits = Counter.builder("product.detail.cache.hits")
+            .description("Dettagli prodotto serviti dalla cache")
+            .register(meterRegistry);
+        this.misses = Counter.builder("product.detail.cache.misses")
+            .description("Dettagli prodotto ricostruiti dal database")
+            .register(meterRegistry);
+        Gauge.builder("product.detail.cache.size", this, cache -> cache.entries != null ? cache.entries.estimatedSize() : 0)
+            .description("Prodotti in cache")
+            .register(meterRegistry);
+        Gauge.builder("product.detail.cache.used", this, ProductDetailCache::usedBytes)
+            .description("Memoria off-heap occupata")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Contatore delle invalidazioni del prodotto: va letto prima di caricare il dettaglio da mettere in cache
+     */
+    public long invalidationStamp(Long productId) {
+        return invalidations.get(stripe(productId));
+    }
+
+    /**
+     * Scrive il dettaglio dalla cache se presente per questa versione
+     *
+     * @return false se la voce manca o è di una versione precedente (nulla è stato scritto)
+     */
+    public boolean writeCached(Long productId, String etag, HttpServletResponse response) throws IOException {
+        Entry entry = entries != null ? entries.getIfPresent(productId) : null;
+        if (entry == null || !entry.etag.equals(etag) || !entry.retain()) {
+            misses.increment();
+            return false;
+        }
+
+        try {
+            byte[] suffix = envelopeSuffix();
+            startResponse(response, envelopePrefix.length + entry.length + suffix.length);
+            OutputStream out = response.getOutputStream();
+            out.write(envelopePrefix);
+            arena.transferTo(entry.blocks, entry.length, Channels.newChannel(out));
+            out.write(suffix);
+        } finally {
+            entry.release();
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Serializza il dettaglio, lo mette in cache per questa versione e lo scrive nella risposta
+     *
+     * @param stamp invalidationStamp letto prima del caricamento: se è cambiato il dettaglio non va in cache
+     */
+    public void writeAndCache(Long productId, String etag, long stamp, ProductResponse product,
+                              HttpServletResponse response) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(product);
+        put(productId, etag, stamp, json);
+
+        byte[] suffix = envelopeSuffix();
+        startResponse(response, envelopePrefix.length + json.length + suffix.length);
+        OutputStream out = response.getOutputStream();
+        out.write(envelopePrefix);
+        out.write(json);
+        out.write(suffix);
+    }
+
+    /**
+     * Rimuove il prodotto dopo il commit della transazione corrente
+     */
+    public void invalidate(Long productId) {
+        if (entries != null) {
+            TransactionUtils.afterCommit(() -> {
+                invalidations.incrementAndGet(stripe(productId));
+                entries.invalidate(productId);
+            });
+        }
+    }
+
+    /**
+     * Rimuove i prodotti dopo il commit della transazione corrente (es. tutti quelli di uno sconto)
+     */
+    public void invalidateAll(Collection<Long> productIds) {
+        if (entries != null && !productIds.isEmpty()) {
+            TransactionUtils.afterCommit(() -> {
+                productIds.forEach(productId -> invalidations.incrementAndGet(stripe(productId)));
+                entries.invalidateAll(productIds);
+            });
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private void put(Long productId, String etag, long stamp, byte[] json) {
+        if (entries == null || json.length > maxEntryBytes || invalidationStamp(productId) != stamp) {
+            return;
+        }
+        Entry current = entries.getIfPresent(productId);
+        if (current != null && current.etag.equals(etag)) {
+            return;
+        }
+
+        int[] blocks = arena.allocate(arena.blocksFor(json.length));
+        if (blocks == null) {
+            // Blocchi ancora in lettura da voci già rimosse: si riprova alla prossima richiesta
+            log.debug("Product detail cache full, product {} not cached", productId);
+            return;
+        }
+        arena.write(blocks, json);
+        Entry entry = new Entry(etag, blocks, json.length);
+        entries.put(productId, entry);
+        // Invalidazione arrivata tra il controllo e l'inserimento: la voce appena scritta non è affidabile
+        if (invalidationStamp(productId) != stamp) {
+            entries.asMap().remove(productId, entry);
+        }
+    }
+
+    private static int stripe(Long productId) {
+        return Long.hashCode(productId) & (INVALIDATION_STRIPES - 1);
+    }
+
+    private void startResponse(HttpServletResponse response, int contentLength) {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(contentLength);
+    }
+
+    private byte[] envelopeSuffix() throws IOException {
+        ByteArrayOutputStream suffix = new ByteArrayOutputStream(48);
+        suffix.write(",\"timestamp\":".getBytes(StandardCharsets.UTF_8));
+        suffix.write(objectMapper.writeValueAsBytes(LocalDateTime.now()));
+        suffix.write('}');
+        return suffix.toByteArray();
+    }
+
+    private double usedBytes() {
+        return arena != null ? (double) arena.usedBlocks() * arena.blockSize() : 0;
+    }
+
+    /**
+     * Voce in cache: i blocchi tornano liberi quando è stata rimossa e nessuna richiesta li sta ancora scrivendo
+     */
+    private final class Entry {
+
+        private final String etag;
+        private final int[] blocks;
+        private final int length;
+
+        // Un riferimento della cache più uno per ogni scrittura in corso
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Entry(String etag, int[] blocks, int length) {
+            this.etag = etag;
+            this.blocks = blocks;
+            this.length = length;
+        }
+
+        private boolean retain() {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                arena.free(blocks);
+            }
+        }
+    }
+}
@@ -23,7 +23,7 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${cors.allowed-headers:*}")
     private String[] allowedHeaders;
 
-    @Value("${cors.exposed-headers:Authorization,Content-Type}")
+    @Value("${cors.exposed-headers:Authorization,Content-Type,ETag,Last-Modified}")
     private String[] exposedHeaders;
 
     @Value("${cors.allow-credentials:true}")
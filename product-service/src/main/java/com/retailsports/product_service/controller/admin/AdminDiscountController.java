@@ -1,8 +1,15 @@
 package com.retailsports.product_service.controller.admin;
 
+import com.retailsports.product_service.assignment.AssignmentOperation;
+import com.retailsports.product_service.assignment.DiscountAssignmentService;
+import com.retailsports.product_service.dto.request.CouponRedemptionRequest;
+import com.retailsports.product_service.dto.request.DiscountAssignmentRequest;
 import com.retailsports.product_service.dto.request.DiscountRequest;
 import com.retailsports.product_service.dto.response.ApiResponse;
+import com.retailsports.product_service.dto.response.CouponRedemptionResponse;
+import com.retailsports.product_service.dto.response.DiscountAssignmentResponse;
 import com.retailsports.product_service.dto.response.DiscountResponse;
+import com.retailsports.product_service.service.CouponRedemptionService;
 import com.retailsports.product_service.service.DiscountService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +27,8 @@ import java.util.List;
 public class AdminDiscountController {
 
     private final DiscountService discountService;
+    private final CouponRedemptionService couponRedemptionService;
+    private final DiscountAssignmentService discountAssignmentService;
 
     /**
      * POST /api/admin/discounts - Crea sconto
@@ -118,4 +127,82 @@ public class AdminDiscountController {
         discountService.removeDiscountFromProduct(discountId, productId);
         return ResponseEntity.ok(ApiResponse.success("Discount removed from product successfully", null));
     }
+
+    /**
+     * POST /api/admin/discounts/{discountId}/products/bulk - Applica sconto a categoria, brand, tag o lista di prodotti
+     * Eseguita subito fino al limite configurato (200 con i conteggi), oltre accodata come job (202 con l'ID del job)
+     */
+    @PostMapping("/{discountId}/products/bulk")
+    public ResponseEntity<ApiResponse<DiscountAssignmentResponse>> assignDiscountInBulk(
+            @PathVariable Long discountId,
+            @Valid @RequestBody DiscountAssignmentRequest request
+    ) {
+        log.info("POST /api/admin/discounts/{}/products/bulk - Assigning discount in bulk", discountId);
+
+        DiscountAssignmentResponse assignment = discountAssignmentService.submit(discountId, request, AssignmentOperation.ASSIGN);
+        return assignmentResponse(assignment, "Discount applied to products successfully");
+    }
+
+    /**
+     * POST /api/admin/discounts/{discountId}/products/bulk-remove - Rimuovi sconto dai prodotti selezionati
+     */
+    @PostMapping("/{discountId}/products/bulk-remove")
+    public ResponseEntity<ApiResponse<DiscountAssignmentResponse>> removeDiscountInBulk(
+            @PathVariable Long discountId,
+            @Valid @RequestBody DiscountAssignmentRequest request
+    ) {
+        log.info("POST /api/admin/discounts/{}/products/bulk-remove - Removing discount in bulk", discountId);
+
+        DiscountAssignmentResponse assignment = discountAssignmentService.submit(discountId, request, AssignmentOperation.REMOVE);
+        return assignmentResponse(assignment, "Discount removed from products successfully");
+    }
+
+    /**
+     * GET /api/admin/discounts/assignments/{jobId} - Stato e avanzamento di un'assegnazione massiva
+     */
+    @GetMapping("/assignments/{jobId}")
+    public ResponseEntity<ApiResponse<DiscountAssignmentResponse>> getAssignmentJob(@PathVariable String jobId) {
+        log.info("GET /api/admin/discounts/assignments/{}", jobId);
+
+        DiscountAssignmentResponse job = discountAssignmentService.getJob(jobId);
+        return ResponseEntity.ok(ApiResponse.success(job));
+    }
+
+    /**
+     * POST /api/admin/discounts/redemptions - Riscatta codice sconto (checkout)
+     */
+    @PostMapping("/redemptions")
+    public ResponseEntity<ApiResponse<CouponRedemptionResponse>> redeemCoupon(
+            @Valid @RequestBody CouponRedemptionRequest request
+    ) {
+        log.info("POST /api/admin/discounts/redemptions - Redeeming code {} for user {}", request.getCode(), request.getUserId());
+
+        CouponRedemptionResponse redemption = couponRedemptionService.redeem(request);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Discount redeemed successfully", redemption));
+    }
+
+    /**
+     * POST /api/admin/discounts/redemptions/{redemptionId}/refund - Rimborsa riscatto (ordine annullato)
+     */
+    @PostMapping("/redemptions/{redemptionId}/refund")
+    public ResponseEntity<ApiResponse<String>> refundRedemption(@PathVariable Long redemptionId) {
+        log.info("POST /api/admin/discounts/redemptions/{}/refund - Refunding redemption", redemptionId);
+
+        couponRedemptionService.refund(redemptionId);
+        return ResponseEntity.ok(ApiResponse.success("Redemption refunded successfully", null));
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private ResponseEntity<ApiResponse<DiscountAssignmentResponse>> assignmentResponse(
+            DiscountAssignmentResponse assignment,
+            String completedMessage
+    ) {
+        if (assignment.getJobId() != null) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ApiResponse.success("Discount assignment started", assignment));
+        }
+        return ResponseEntity.ok(ApiResponse.success(completedMessage, assignment));
+    }
 }
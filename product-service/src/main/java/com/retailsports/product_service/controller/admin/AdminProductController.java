@@ -1,8 +1,11 @@
 package com.retailsports.product_service.controller.admin;
 
 import com.retailsports.product_service.dto.request.ProductRequest;
+import com.retailsports.product_service.dto.request.ProductSalesRequest;
 import com.retailsports.product_service.dto.response.ApiResponse;
+import com.retailsports.product_service.dto.response.AttributeValueResponse;
 import com.retailsports.product_service.dto.response.ProductResponse;
+import com.retailsports.product_service.service.ProductAttributeService;
 import com.retailsports.product_service.service.ProductService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +14,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/admin/products")
 @RequiredArgsConstructor
@@ -18,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 public class AdminProductController {
 
     private final ProductService productService;
+    private final ProductAttributeService productAttributeService;
 
     /**
      * POST /api/admin/products - Crea prodotto
@@ -97,6 +103,42 @@ public class AdminProductController {
         return ResponseEntity.ok(ApiResponse.success("Active status toggled successfully", updated));
     }
 
+    /**
+     * POST /api/admin/products/sales - Registra le vendite di un ordine (contatori e classifiche più venduti)
+     */
+    @PostMapping("/sales")
+    public ResponseEntity<ApiResponse<Integer>> recordSales(@Valid @RequestBody ProductSalesRequest request) {
+        log.info("POST /api/admin/products/sales - order: {}, {} items", request.getOrderId(), request.getItems().size());
+
+        int recorded = productService.recordSales(request);
+        return ResponseEntity.ok(ApiResponse.success("Sales recorded successfully", recorded));
+    }
+
+    /**
+     * GET /api/admin/products/{id}/attributes - Valori di attributo assegnati al prodotto
+     */
+    @GetMapping("/{id}/attributes")
+    public ResponseEntity<ApiResponse<List<AttributeValueResponse>>> getAttributeValues(@PathVariable Long id) {
+        log.info("GET /api/admin/products/{}/attributes", id);
+
+        List<AttributeValueResponse> values = productAttributeService.getProductAttributeValues(id);
+        return ResponseEntity.ok(ApiResponse.success(values));
+    }
+
+    /**
+     * PUT /api/admin/products/{id}/attributes - Sostituisce i valori di attributo del prodotto
+     */
+    @PutMapping("/{id}/attributes")
+    public ResponseEntity<ApiResponse<List<AttributeValueResponse>>> setAttributeValues(
+            @PathVariable Long id,
+            @RequestBody AttributeValuesUpdateRequest request
+    ) {
+        log.info("PUT /api/admin/products/{}/attributes - Attribute values: {}", id, request.getAttributeValueIds());
+
+        List<AttributeValueResponse> values = productAttributeService.setProductAttributeValues(id, request.getAttributeValueIds());
+        return ResponseEntity.ok(ApiResponse.success("Attribute values updated successfully", values));
+    }
+
     // ========== HELPER CLASSES ==========
 
     /**
@@ -114,6 +156,21 @@ public class AdminProductController {
         }
     }
 
+    /**
+     * DTO per assegnazione valori di attributo
+     */
+    public static class AttributeValuesUpdateRequest {
+        private List<Long> attributeValueIds;
+
+        public List<Long> getAttributeValueIds() {
+            return attributeValueIds;
+        }
+
+        public void setAttributeValueIds(List<Long> attributeValueIds) {
+            this.attributeValueIds = attributeValueIds;
+        }
+    }
+
     /**
      * Helper per convertire ProductResponse in ProductRequest (per toggle)
      */
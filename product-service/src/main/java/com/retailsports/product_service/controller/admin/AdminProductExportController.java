@@ -0,0 +1,47 @@
+package com.retailsports.product_service.controller.admin;
+
+import com.retailsports.product_service.exporter.ExportFormat;
+import com.retailsports.product_service.exporter.ProductExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/admin/products/export")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminProductExportController {
+
+    private final ProductExportService productExportService;
+
+    /**
+     * GET /api/admin/products/export - Export completo del catalogo in streaming (JSONL o CSV)
+     * Con updatedSince solo i prodotti modificati da quella data, inclusi quelli cancellati (deletedAt valorizzato)
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "jsonl") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince
+    ) {
+        log.info("GET /api/admin/products/export - format: {}, updatedSince: {}", format, updatedSince);
+
+        ExportFormat exportFormat = ExportFormat.resolve(format);
+        StreamingResponseBody body = outputStream -> productExportService.export(exportFormat, updatedSince, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("products." + exportFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
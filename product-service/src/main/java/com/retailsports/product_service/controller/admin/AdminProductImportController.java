@@ -0,0 +1,48 @@
+package com.retailsports.product_service.controller.admin;
+
+import com.retailsports.product_service.dto.response.ApiResponse;
+import com.retailsports.product_service.dto.response.ProductImportJobResponse;
+import com.retailsports.product_service.importer.ProductImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/api/admin/products/import")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminProductImportController {
+
+    private final ProductImportService productImportService;
+
+    /**
+     * POST /api/admin/products/import - Avvia import massivo da file CSV o JSONL
+     * Il formato è dedotto dall'estensione se non indicato; la risposta contiene l'ID del job
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<ProductImportJobResponse>> startImport(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String format
+    ) {
+        log.info("POST /api/admin/products/import - file: {}, size: {}", file.getOriginalFilename(), file.getSize());
+
+        ProductImportJobResponse job = productImportService.submit(file, format);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Product import started", job));
+    }
+
+    /**
+     * GET /api/admin/products/import/{jobId} - Stato, avanzamento ed errori del job
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<ProductImportJobResponse>> getImportJob(@PathVariable String jobId) {
+        log.info("GET /api/admin/products/import/{}", jobId);
+
+        ProductImportJobResponse job = productImportService.getJob(jobId);
+        return ResponseEntity.ok(ApiResponse.success(job));
+    }
+}
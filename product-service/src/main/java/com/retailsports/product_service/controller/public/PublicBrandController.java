@@ -3,10 +3,12 @@ package com.retailsports.product_service.controller.public_;
 import com.retailsports.product_service.dto.response.ApiResponse;
 import com.retailsports.product_service.dto.response.BrandResponse;
 import com.retailsports.product_service.service.BrandService;
+import com.retailsports.product_service.util.ResourceVersion;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -20,44 +22,68 @@ public class PublicBrandController {
 
     /**
      * GET /api/brands - Tutti i brand
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<BrandResponse>>> getAllBrands() {
+    public ResponseEntity<ApiResponse<List<BrandResponse>>> getAllBrands(WebRequest webRequest) {
         log.info("GET /api/brands");
 
+        ResourceVersion version = brandService.getBrandsVersion();
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+
         List<BrandResponse> brands = brandService.getAllBrands();
         return ResponseEntity.ok(ApiResponse.success(brands));
     }
 
     /**
      * GET /api/brands/active - Brand attivi
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping("/active")
-    public ResponseEntity<ApiResponse<List<BrandResponse>>> getActiveBrands() {
+    public ResponseEntity<ApiResponse<List<BrandResponse>>> getActiveBrands(WebRequest webRequest) {
         log.info("GET /api/brands/active");
 
+        ResourceVersion version = brandService.getBrandsVersion();
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+
         List<BrandResponse> brands = brandService.getActiveBrands();
         return ResponseEntity.ok(ApiResponse.success(brands));
     }
 
     /**
      * GET /api/brands/{id} - Dettaglio brand
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<BrandResponse>> getBrandById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<BrandResponse>> getBrandById(@PathVariable Long id, WebRequest webRequest) {
         log.info("GET /api/brands/{}", id);
 
+        ResourceVersion version = brandService.getBrandVersion(id);
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+
         BrandResponse brand = brandService.getBrandById(id);
         return ResponseEntity.ok(ApiResponse.success(brand));
     }
 
     /**
      * GET /api/brands/slug/{slug} - Brand per slug
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping("/slug/{slug}")
-    public ResponseEntity<ApiResponse<BrandResponse>> getBrandBySlug(@PathVariable String slug) {
+    public ResponseEntity<ApiResponse<BrandResponse>> getBrandBySlug(@PathVariable String slug, WebRequest webRequest) {
         log.info("GET /api/brands/slug/{}", slug);
 
+        ResourceVersion version = brandService.getBrandVersionBySlug(slug);
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+
         BrandResponse brand = brandService.getBrandBySlug(slug);
         return ResponseEntity.ok(ApiResponse.success(brand));
     }
@@ -3,10 +3,12 @@ package com.retailsports.product_service.controller.public_;
 import com.retailsports.product_service.dto.response.ApiResponse;
 import com.retailsports.product_service.dto.response.CategoryResponse;
 import com.retailsports.product_service.service.CategoryService;
+import com.retailsports.product_service.util.ResourceVersion;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -20,66 +22,102 @@ public class PublicCategoryController {
 
     /**
      * GET /api/categories - Tutte le categorie
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<CategoryResponse>>> getAllCategories() {
+    public ResponseEntity<ApiResponse<List<CategoryResponse>>> getAllCategories(WebRequest webRequest) {
         log.info("GET /api/categories");
 
+        ResourceVersion version = categoryService.getCategoriesVersion();
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+
         List<CategoryResponse> categories = categoryService.getAllCategories();
         return ResponseEntity.ok(ApiResponse.success(categories));
     }
 
     /**
      * GET /api/categories/tree - Albero categorie (gerarchia completa)
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping("/tree")
-    public ResponseEntity<ApiResponse<List<CategoryResponse>>> getCategoryTree() {
+    public ResponseEntity<ApiResponse<List<CategoryResponse>>> getCategoryTree(WebRequest webRequest) {
         log.info("GET /api/categories/tree");
 
+        ResourceVersion version = categoryService.getCategoryTreeVersion();
+        if (version != null && webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+
         List<CategoryResponse> categoryTree = categoryService.getCategoryTree();
         return ResponseEntity.ok(ApiResponse.success(categoryTree));
     }
 
     /**
      * GET /api/categories/{id} - Dettaglio categoria
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<CategoryResponse>> getCategoryById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<CategoryResponse>> getCategoryById(@PathVariable Long id, WebRequest webRequest) {
         log.info("GET /api/categories/{}", id);
 
+        ResourceVersion version = categoryService.getCategoryVersion(id);
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+
         CategoryResponse category = categoryService.getCategoryById(id);
         return ResponseEntity.ok(ApiResponse.success(category));
     }
 
     /**
      * GET /api/categories/slug/{slug} - Categoria per slug
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping("/slug/{slug}")
-    public ResponseEntity<ApiResponse<CategoryResponse>> getCategoryBySlug(@PathVariable String slug) {
+    public ResponseEntity<ApiResponse<CategoryResponse>> getCategoryBySlug(@PathVariable String slug, WebRequest webRequest) {
         log.info("GET /api/categories/slug/{}", slug);
 
+        ResourceVersion version = categoryService.getCategoryVersionBySlug(slug);
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+
         CategoryResponse category = categoryService.getCategoryBySlug(slug);
         return ResponseEntity.ok(ApiResponse.success(category));
     }
 
     /**
      * GET /api/categories/{id}/subcategories - Sottocategorie
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping("/{id}/subcategories")
-    public ResponseEntity<ApiResponse<List<CategoryResponse>>> getSubcategories(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<List<CategoryResponse>>> getSubcategories(@PathVariable Long id, WebRequest webRequest) {
         log.info("GET /api/categories/{}/subcategories", id);
 
+        ResourceVersion version = categoryService.getCategoriesVersion();
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+
         List<CategoryResponse> subcategories = categoryService.getSubcategories(id);
         return ResponseEntity.ok(ApiResponse.success(subcategories));
     }
 
     /**
      * GET /api/categories/root - Categorie root (livello 1)
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping("/root")
-    public ResponseEntity<ApiResponse<List<CategoryResponse>>> getRootCategories() {
+    public ResponseEntity<ApiResponse<List<CategoryResponse>>> getRootCategories(WebRequest webRequest) {
         log.info("GET /api/categories/root");
 
+        ResourceVersion version = categoryService.getCategoriesVersion();
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+
         List<CategoryResponse> rootCategories = categoryService.getRootCategories();
         return ResponseEntity.ok(ApiResponse.success(rootCategories));
     }
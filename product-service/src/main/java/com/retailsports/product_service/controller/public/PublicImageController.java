@@ -0,0 +1,47 @@
+package com.retailsports.product_service.controller.public_;
+
+import com.retailsports.product_service.service.ProductImageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/images")
+@RequiredArgsConstructor
+@Slf4j
+public class PublicImageController {
+
+    private final ProductImageService productImageService;
+
+    /**
+     * GET /api/images/{key}/{variant}.jpg - Variante ridimensionata di un'immagine prodotto
+     * Indirizzata per contenuto: la risposta non cambia mai, quindi cache immutabile di un anno
+     */
+    @GetMapping("/{key}/{variant}.jpg")
+    public ResponseEntity<Resource> getImageVariant(
+            @PathVariable String key,
+            @PathVariable String variant,
+            WebRequest webRequest
+    ) {
+        log.debug("GET /api/images/{}/{}.jpg", key, variant);
+
+        Path file = productImageService.getImageVariant(key, variant);
+        if (webRequest.checkNotModified("\"" + key + "-" + variant + "\"")) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .contentType(MediaType.IMAGE_JPEG)
+                .body(new FileSystemResource(file));
+    }
+}
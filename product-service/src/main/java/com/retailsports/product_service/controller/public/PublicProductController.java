@@ -1,11 +1,19 @@
 package com.retailsports.product_service.controller.public_;
 
+import com.retailsports.product_service.cache.ProductDetailCache;
+import com.retailsports.product_service.dto.request.ProductBatchRequest;
 import com.retailsports.product_service.dto.request.ProductSearchRequest;
 import com.retailsports.product_service.dto.response.ApiResponse;
+import com.retailsports.product_service.dto.response.CatalogChangesResponse;
 import com.retailsports.product_service.dto.response.PageResponse;
+import com.retailsports.product_service.dto.response.ProductBatchResponse;
 import com.retailsports.product_service.dto.response.ProductResponse;
 import com.retailsports.product_service.dto.response.ProductSummaryResponse;
+import com.retailsports.product_service.dto.response.SuggestionResponse;
+import com.retailsports.product_service.ranking.RankingWindow;
 import com.retailsports.product_service.service.ProductService;
+import com.retailsports.product_service.util.ResourceVersion;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -14,6 +22,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/products")
@@ -22,20 +34,28 @@ import org.springframework.web.bind.annotation.*;
 public class PublicProductController {
 
     private final ProductService productService;
+    private final ProductDetailCache productDetailCache;
 
     /**
      * GET /api/products - Catalogo prodotti (paginato)
+     * Con il parametro cursor (anche vuoto per la prima pagina) usa la paginazione keyset
      */
     @GetMapping
     public ResponseEntity<PageResponse<ProductSummaryResponse>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String direction
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) String cursor
     ) {
         log.info("GET /api/products - page: {}, size: {}, sortBy: {}, direction: {}", page, size, sortBy, direction);
 
         Sort.Direction sortDirection = direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+
+        if (cursor != null) {
+            return ResponseEntity.ok(productService.getProductsByCursor(null, null, cursor, size, sortBy, sortDirection));
+        }
+
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
 
         ProductSearchRequest searchRequest = ProductSearchRequest.builder().build();
@@ -45,13 +65,17 @@ public class PublicProductController {
     }
 
     /**
-     * GET /api/products/search - Ricerca con filtri
+     * GET /api/products/search - Ricerca con filtri combinabili e conteggi per faccetta
      */
     @GetMapping("/search")
     public ResponseEntity<PageResponse<ProductSummaryResponse>> searchProducts(
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) Long brandId,
+            @RequestParam(required = false) List<Long> categoryIds,
+            @RequestParam(required = false) List<Long> brandIds,
+            @RequestParam(required = false) List<Long> tagIds,
+            @RequestParam(required = false) List<Long> attributeValueIds,
             @RequestParam(required = false) Integer minPrice,
             @RequestParam(required = false) Integer maxPrice,
             @RequestParam(required = false) Boolean featured,
@@ -60,18 +84,30 @@ public class PublicProductController {
             @RequestParam(required = false) Boolean inStock,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(required = false) String sortBy,
             @RequestParam(defaultValue = "desc") String direction
     ) {
         log.info("GET /api/products/search - keyword: {}, categoryId: {}, brandId: {}", keyword, categoryId, brandId);
 
-        Sort.Direction sortDirection = direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
+        // Con una keyword e senza sortBy (o con sortBy=relevance) i risultati seguono il punteggio BM25
+        boolean hasKeyword = keyword != null && !keyword.isBlank();
+        Sort sort;
+        if (sortBy == null || sortBy.equalsIgnoreCase("relevance")) {
+            sort = hasKeyword ? Sort.unsorted() : Sort.by(Sort.Direction.DESC, "createdAt");
+        } else {
+            Sort.Direction sortDirection = direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+            sort = Sort.by(sortDirection, sortBy);
+        }
+        Pageable pageable = PageRequest.of(page, size, sort);
 
         ProductSearchRequest searchRequest = ProductSearchRequest.builder()
                 .keyword(keyword)
                 .categoryId(categoryId)
                 .brandId(brandId)
+                .categoryIds(categoryIds)
+                .brandIds(brandIds)
+                .tagIds(tagIds)
+                .attributeValueIds(attributeValueIds)
                 .minPrice(minPrice)
                 .maxPrice(maxPrice)
                 .featured(featured)
@@ -80,41 +116,140 @@ public class PublicProductController {
                 .inStock(inStock)
                 .build();
 
-        Page<ProductSummaryResponse> products = productService.searchProducts(searchRequest, pageable);
+        return ResponseEntity.ok(productService.searchProductsWithFacets(searchRequest, pageable));
+    }
 
-        return ResponseEntity.ok(PageResponse.from(products));
+    /**
+     * GET /api/products/suggest?q=scar - Autocompletamento per la casella di ricerca (prodotti, brand, categorie)
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionResponse>>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(productService.suggest(q, limit)));
+    }
+
+    /**
+     * POST /api/products/batch - Lettura di più prodotti per ID e/o SKU in una sola chiamata (servizi interni)
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<ProductBatchResponse>> getProductsBatch(@RequestBody ProductBatchRequest request) {
+        log.info("POST /api/products/batch - ids: {}, skus: {}",
+            request.getIds() != null ? request.getIds().size() : 0,
+            request.getSkus() != null ? request.getSkus().size() : 0);
+
+        ProductBatchResponse products = productService.getProductsBatch(request);
+        return ResponseEntity.ok(ApiResponse.success(products));
+    }
+
+    /**
+     * GET /api/products/batch?ids=1,2,3&skus=A,B - Variante GET della lettura batch
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<ApiResponse<ProductBatchResponse>> getProductsBatchByQuery(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) List<String> skus
+    ) {
+        log.info("GET /api/products/batch - ids: {}, skus: {}", ids, skus);
+
+        ProductBatchResponse products = productService.getProductsBatch(new ProductBatchRequest(ids, skus));
+        return ResponseEntity.ok(ApiResponse.success(products));
     }
 
     /**
      * GET /api/products/{id} - Dettaglio prodotto
+     * Supporta If-None-Match / If-Modified-Since: 304 senza caricare immagini e sconti
+     * Risposta dalla cache del JSON serializzato se presente per la versione corrente
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<ProductResponse>> getProductById(@PathVariable Long id) {
+    public void getProductById(@PathVariable Long id, WebRequest webRequest,
+                               HttpServletResponse response) throws IOException {
         log.info("GET /api/products/{}", id);
 
+        ResourceVersion version = productService.getProductVersion(id);
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            productService.incrementViews(id);
+            return;
+        }
+        long stamp = productDetailCache.invalidationStamp(id);
+        if (productDetailCache.writeCached(id, version.etag(), response)) {
+            productService.incrementViews(id);
+            return;
+        }
+
         ProductResponse product = productService.getProductById(id);
-        return ResponseEntity.ok(ApiResponse.success(product));
+        productDetailCache.writeAndCache(id, version.etag(), stamp, product, response);
+    }
+
+    /**
+     * GET /api/products/{id}/similar - Prodotti simili precalcolati ("potrebbe piacerti anche")
+     */
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<ApiResponse<List<ProductSummaryResponse>>> getSimilarProducts(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "12") int limit
+    ) {
+        log.info("GET /api/products/{}/similar - limit: {}", id, limit);
+
+        List<ProductSummaryResponse> products = productService.getSimilarProducts(id, limit);
+        return ResponseEntity.ok(ApiResponse.success(products));
     }
 
     /**
      * GET /api/products/slug/{slug} - Prodotto per slug
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping("/slug/{slug}")
-    public ResponseEntity<ApiResponse<ProductResponse>> getProductBySlug(@PathVariable String slug) {
+    public void getProductBySlug(@PathVariable String slug, WebRequest webRequest,
+                                 HttpServletResponse response) throws IOException {
         log.info("GET /api/products/slug/{}", slug);
 
+        ResourceVersion version = productService.getProductVersionBySlug(slug);
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            productService.incrementViews(version.id());
+            return;
+        }
+        long stamp = productDetailCache.invalidationStamp(version.id());
+        if (productDetailCache.writeCached(version.id(), version.etag(), response)) {
+            productService.incrementViews(version.id());
+            return;
+        }
+
         ProductResponse product = productService.getProductBySlug(slug);
-        return ResponseEntity.ok(ApiResponse.success(product));
+        productDetailCache.writeAndCache(version.id(), version.etag(), stamp, product, response);
     }
 
     /**
      * GET /api/products/sku/{sku} - Prodotto per SKU
+     * Supporta If-None-Match / If-Modified-Since
      */
     @GetMapping("/sku/{sku}")
-    public ResponseEntity<ApiResponse<ProductResponse>> getProductBySku(@PathVariable String sku) {
+    public void getProductBySku(@PathVariable String sku, WebRequest webRequest,
+                                HttpServletResponse response) throws IOException {
         log.info("GET /api/products/sku/{}", sku);
 
+        ResourceVersion version = productService.getProductVersionBySku(sku);
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return;
+        }
+        long stamp = productDetailCache.invalidationStamp(version.id());
+        if (productDetailCache.writeCached(version.id(), version.etag(), response)) {
+            return;
+        }
+
         ProductResponse product = productService.getProductBySku(sku);
+        productDetailCache.writeAndCache(version.id(), version.etag(), stamp, product, response);
+    }
+
+    /**
+     * GET /api/products/barcode/{barcode} - Prodotto per codice a barre (lettura alle casse)
+     */
+    @GetMapping("/barcode/{barcode}")
+    public ResponseEntity<ApiResponse<ProductResponse>> getProductByBarcode(@PathVariable String barcode) {
+        log.info("GET /api/products/barcode/{}", barcode);
+
+        ProductResponse product = productService.getProductByBarcode(barcode);
         return ResponseEntity.ok(ApiResponse.success(product));
     }
 
@@ -134,6 +269,51 @@ public class PublicProductController {
         return ResponseEntity.ok(PageResponse.from(products));
     }
 
+    /**
+     * GET /api/products/trending?window=week - Prodotti di tendenza (visualizzazioni e vendite), anche per categoria
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<ApiResponse<List<ProductSummaryResponse>>> getTrendingProducts(
+            @RequestParam(defaultValue = "week") String window,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        log.info("GET /api/products/trending - window: {}, categoryId: {}, limit: {}", window, categoryId, limit);
+
+        List<ProductSummaryResponse> products = productService.getTrendingProducts(RankingWindow.resolve(window), categoryId, limit);
+        return ResponseEntity.ok(ApiResponse.success(products));
+    }
+
+    /**
+     * GET /api/products/bestsellers?window=day - Prodotti più venduti nella finestra, anche per categoria
+     */
+    @GetMapping("/bestsellers")
+    public ResponseEntity<ApiResponse<List<ProductSummaryResponse>>> getBestsellers(
+            @RequestParam(defaultValue = "week") String window,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        log.info("GET /api/products/bestsellers - window: {}, categoryId: {}, limit: {}", window, categoryId, limit);
+
+        List<ProductSummaryResponse> products = productService.getBestsellers(RankingWindow.resolve(window), categoryId, limit);
+        return ResponseEntity.ok(ApiResponse.success(products));
+    }
+
+    /**
+     * GET /api/products/changes?sinceVersion=0 - Feed delle modifiche del catalogo per le repliche locali
+     * Il consumer ripete la chiamata con nextVersion finché hasMore è true
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<ApiResponse<CatalogChangesResponse>> getCatalogChanges(
+            @RequestParam(defaultValue = "0") long sinceVersion,
+            @RequestParam(defaultValue = "500") int limit
+    ) {
+        log.debug("GET /api/products/changes - sinceVersion: {}, limit: {}", sinceVersion, limit);
+
+        CatalogChangesResponse changes = productService.getCatalogChanges(sinceVersion, limit);
+        return ResponseEntity.ok(ApiResponse.success(changes));
+    }
+
     /**
      * GET /api/products/new - Nuovi arrivi
      */
@@ -156,11 +336,14 @@ public class PublicProductController {
     @GetMapping("/on-sale")
     public ResponseEntity<PageResponse<ProductSummaryResponse>> getProductsOnSale(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String direction
     ) {
-        log.info("GET /api/products/on-sale - page: {}, size: {}", page, size);
+        log.info("GET /api/products/on-sale - page: {}, size: {}, sortBy: {}, direction: {}", page, size, sortBy, direction);
 
-        Pageable pageable = PageRequest.of(page, size);
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
         Page<ProductSummaryResponse> products = productService.getProductsOnSale(pageable);
 
         return ResponseEntity.ok(PageResponse.from(products));
@@ -168,6 +351,7 @@ public class PublicProductController {
 
     /**
      * GET /api/products/category/{categoryId} - Prodotti per categoria
+     * Con il parametro cursor (anche vuoto per la prima pagina) usa la paginazione keyset
      */
     @GetMapping("/category/{categoryId}")
     public ResponseEntity<PageResponse<ProductSummaryResponse>> getProductsByCategory(
@@ -175,11 +359,16 @@ public class PublicProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "asc") String direction
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) String cursor
     ) {
         log.info("GET /api/products/category/{} - page: {}, size: {}", categoryId, page, size);
 
         Sort.Direction sortDirection = direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+
+        if (cursor != null) {
+            return ResponseEntity.ok(productService.getProductsByCursor(categoryId, null, cursor, size, sortBy, sortDirection));
+        }
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
 
         Page<ProductSummaryResponse> products = productService.getProductsByCategory(categoryId, pageable);
@@ -189,6 +378,7 @@ public class PublicProductController {
 
     /**
      * GET /api/products/brand/{brandId} - Prodotti per brand
+     * Con il parametro cursor (anche vuoto per la prima pagina) usa la paginazione keyset
      */
     @GetMapping("/brand/{brandId}")
     public ResponseEntity<PageResponse<ProductSummaryResponse>> getProductsByBrand(
@@ -196,11 +386,16 @@ public class PublicProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "asc") String direction
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) String cursor
     ) {
         log.info("GET /api/products/brand/{} - page: {}, size: {}", brandId, page, size);
 
         Sort.Direction sortDirection = direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+
+        if (cursor != null) {
+            return ResponseEntity.ok(productService.getProductsByCursor(null, brandId, cursor, size, sortBy, sortDirection));
+        }
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
 
         Page<ProductSummaryResponse> products = productService.getProductsByBrand(brandId, pageable);
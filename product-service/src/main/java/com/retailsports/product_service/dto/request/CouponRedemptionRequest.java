@@ -0,0 +1,28 @@
+package com.retailsports.product_service.dto.request;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO per il riscatto di un codice sconto al checkout
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CouponRedemptionRequest {
+
+    @NotBlank(message = "Code is required")
+    @Size(max = 50, message = "Code must be less than 50 characters")
+    private String code;
+
+    @NotNull(message = "User id is required")
+    private Long userId;
+
+    // Importo dell'ordine per la verifica dell'acquisto minimo (opzionale)
+    @Min(value = 0, message = "Purchase amount cannot be negative")
+    private Integer purchaseAmountCents;
+}
@@ -0,0 +1,30 @@
+package com.retailsports.product_service.dto.request;
+
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO per l'assegnazione (o rimozione) massiva di uno sconto
+ * I criteri indicati si combinano in AND; almeno uno è obbligatorio.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DiscountAssignmentRequest {
+
+    // Categoria e tutte le sue sottocategorie
+    private Long categoryId;
+
+    private Long brandId;
+
+    private Long tagId;
+
+    @Size(max = 50000, message = "Cannot target more than 50000 product ids")
+    private List<Long> productIds;
+}
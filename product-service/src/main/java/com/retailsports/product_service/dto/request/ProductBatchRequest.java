@@ -0,0 +1,22 @@
+package com.retailsports.product_service.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO per la lettura di più prodotti in una sola chiamata (per ID e/o SKU)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductBatchRequest {
+
+    private List<Long> ids;
+
+    private List<String> skus;
+}
@@ -0,0 +1,45 @@
+package com.retailsports.product_service.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO per la registrazione delle vendite di un ordine (contatori vendite e classifiche)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductSalesRequest {
+
+    // Le vendite di uno stesso ordine sono conteggiate una sola volta (retry del chiamante)
+    @NotBlank(message = "Order id is required")
+    @Size(max = 64, message = "Order id must not exceed 64 characters")
+    private String orderId;
+
+    @NotEmpty(message = "At least one item is required")
+    @Valid
+    private List<Item> items;
+
+    /**
+     * Riga venduta: prodotto e quantità
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        @NotNull(message = "Product id is required")
+        private Long productId;
+
+        @NotNull(message = "Quantity is required")
+        @Min(value = 1, message = "Quantity must be at least 1")
+        private Integer quantity;
+    }
+}
@@ -18,6 +18,10 @@ public class ProductSearchRequest {
     private Long categoryId;
     private Long brandId;
 
+    // Filtri multi-valore (OR tra i valori, combinati in AND con gli altri filtri)
+    private List<Long> categoryIds;
+    private List<Long> brandIds;
+
     // Filtri prezzo (in centesimi)
     @Min(value = 0, message = "Min price must be at least 0")
     private Integer minPrice;
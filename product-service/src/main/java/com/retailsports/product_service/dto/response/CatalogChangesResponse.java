@@ -0,0 +1,48 @@
+package com.retailsports.product_service.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.retailsports.product_service.feed.ChangeEntityType;
+import com.retailsports.product_service.feed.ChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Blocco del feed delle modifiche del catalogo
+ * Il consumer applica le modifiche in ordine e riparte da nextVersion; con resetRequired le versioni richieste
+ * non sono più disponibili: va ricaricato il catalogo e il feed ripreso da currentVersion.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CatalogChangesResponse {
+
+    private List<Change> changes;
+    private long nextVersion;
+    private long currentVersion;
+    private boolean hasMore;
+    private boolean resetRequired;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Change {
+
+        private long version;
+        private ChangeEntityType entityType;
+        private Long entityId;
+        private ChangeType changeType;
+
+        // Stato dell'entità alla versione (assente per DELETE)
+        @JsonRawValue
+        private String payload;
+    }
+}
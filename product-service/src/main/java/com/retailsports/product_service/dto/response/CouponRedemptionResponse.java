@@ -0,0 +1,26 @@
+package com.retailsports.product_service.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.retailsports.product_service.model.Discount.DiscountType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CouponRedemptionResponse {
+
+    private Long redemptionId; // Da usare per il rimborso se l'ordine viene annullato
+    private Long discountId;
+    private String code;
+    private DiscountType type;
+    private Integer value;
+    private Long userId;
+    private LocalDateTime redeemedAt;
+}
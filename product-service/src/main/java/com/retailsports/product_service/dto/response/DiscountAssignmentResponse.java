@@ -0,0 +1,38 @@
+package com.retailsports.product_service.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO con esito e avanzamento di un'assegnazione massiva di sconto
+ * Le assegnazioni piccole sono eseguite subito (nessun jobId); le altre diventano job in background.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DiscountAssignmentResponse {
+
+    private String jobId;
+    private Long discountId;
+    private String operation; // ASSIGN, REMOVE
+    private String status;
+
+    // Prodotti selezionati dai criteri, già elaborati, effettivamente associati o rimossi
+    private Long matchedProducts;
+    private Long processedProducts;
+    private Long affectedProducts;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    // Errore che ha interrotto il job (solo status FAILED)
+    private String failureMessage;
+}
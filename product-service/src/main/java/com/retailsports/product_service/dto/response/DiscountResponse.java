@@ -26,7 +26,8 @@ public class DiscountResponse {
     private LocalDateTime endsAt;
     private Integer maxUses;
     private Integer maxUsesPerUser;
-    private Integer currentUses;
+    private Integer currentUses; // Riscatti confermati (esclusi i rimborsati)
+    private Integer allocatedUses; // Utilizzi prelevati dalle istanze: include i permessi non ancora usati
     private Integer minPurchaseAmountCents;
     private Boolean isActive;
     private LocalDateTime createdAt;
@@ -35,5 +36,5 @@ public class DiscountResponse {
     // Campi calcolati
     private Boolean isValid; // Se lo sconto è valido al momento
     private Boolean isExpired; // Se lo sconto è scaduto
-    private Integer remainingUses; // Utilizzi rimanenti
+    private Integer remainingUses; // Utilizzi rimanenti (maxUses - riscatti confermati)
 }
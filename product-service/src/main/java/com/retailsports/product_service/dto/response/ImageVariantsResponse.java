@@ -0,0 +1,20 @@
+package com.retailsports.product_service.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * URL delle varianti ridimensionate di un'immagine (immutabili: cambiano solo se cambia il contenuto)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImageVariantsResponse {
+
+    private String thumb;
+    private String card;
+    private String zoom;
+}
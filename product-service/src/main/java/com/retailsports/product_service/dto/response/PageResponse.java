@@ -29,6 +29,12 @@ public class PageResponse<T> {
     private Boolean last;
     private Boolean empty;
 
+    // Cursore della pagina successiva (solo paginazione keyset, null sull'ultima pagina)
+    private String nextCursor;
+
+    // Conteggi per faccetta (solo ricerca prodotti)
+    private ProductFacetsResponse facets;
+
     // Costruttore di convenienza da Spring Data Page
     public static <T> PageResponse<T> from(Page<T> page) {
         return PageResponse.<T>builder()
@@ -43,6 +49,17 @@ public class PageResponse<T> {
             .build();
     }
 
+    // Costruttore per la paginazione keyset: niente numero pagina né totali (nessuna COUNT)
+    public static <T> PageResponse<T> fromSlice(List<T> content, int pageSize, String nextCursor) {
+        return PageResponse.<T>builder()
+            .content(content)
+            .pageSize(pageSize)
+            .last(nextCursor == null)
+            .empty(content.isEmpty())
+            .nextCursor(nextCursor)
+            .build();
+    }
+
     // Costruttore con trasformazione del contenuto (es. Entity -> DTO)
     public static <T, R> PageResponse<R> from(Page<T> page, List<R> transformedContent) {
         return PageResponse.<R>builder()
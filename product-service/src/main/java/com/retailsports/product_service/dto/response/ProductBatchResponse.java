@@ -0,0 +1,47 @@
+package com.retailsports.product_service.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO di risposta della lettura batch: prodotti trovati indicizzati per ID e identificativi mancanti
+ * I prodotti cercati per SKU compaiono nella stessa mappa (chiave = ID).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductBatchResponse {
+
+    private Map<Long, ProductInfo> products;
+
+    // ID / SKU richiesti ma inesistenti o cancellati
+    private List<Long> missingIds;
+    private List<String> missingSkus;
+
+    /**
+     * Classe interna con i dati essenziali del prodotto per i servizi interni
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ProductInfo {
+
+        private Long id;
+        private String sku;
+        private String name;
+        private String slug;
+        private Integer priceCents;
+        private Integer stockQuantity;
+        private Boolean trackInventory;
+        private Boolean isActive;
+    }
+}
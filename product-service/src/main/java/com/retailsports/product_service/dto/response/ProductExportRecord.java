@@ -0,0 +1,59 @@
+package com.retailsports.product_service.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Riga dell'export del catalogo (una per prodotto)
+ * deletedAt è valorizzato solo negli export incrementali, per propagare le cancellazioni.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductExportRecord {
+
+    private Long id;
+    private String sku;
+    private String barcode;
+    private String name;
+    private String slug;
+    private String description;
+
+    // Categoria e brand
+    private Long categoryId;
+    private String categoryName;
+    private String categorySlug;
+    private Long brandId;
+    private String brandName;
+    private String brandSlug;
+
+    // Prezzi e inventario
+    private Integer priceCents;
+    private Integer compareAtPriceCents;
+    private Integer stockQuantity;
+
+    // Stato
+    private Boolean isActive;
+    private Boolean isFeatured;
+    private Boolean isNew;
+    private Boolean isOnSale;
+
+    private String primaryImageUrl;
+
+    // Slug dei tag
+    private List<String> tags;
+
+    // Valori per nome attributo (es. size -> [40, 41, 42])
+    private Map<String, List<String>> attributes;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,66 @@
+package com.retailsports.product_service.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO con i conteggi per faccetta della ricerca prodotti (sidebar filtri dello storefront)
+ * Il conteggio di ogni valore tiene conto di tutti i filtri attivi tranne quelli della sua faccetta.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductFacetsResponse {
+
+    private List<FacetValue> categories;
+    private List<FacetValue> brands;
+    private List<FacetValue> tags;
+    private List<FacetValue> priceRanges;
+
+    // Conteggi per valore, raggruppati per attributo (taglia, colore, ...)
+    private List<AttributeFacet> attributes;
+
+    // Conteggi per flag (FEATURED, NEW, ON_SALE, IN_STOCK)
+    private Map<String, Long> flags;
+
+    /**
+     * Classe interna per il conteggio di un singolo valore
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class FacetValue {
+
+        // ID del valore (categoria, brand, tag, valore di attributo)
+        private Long id;
+
+        // Estremi della fascia di prezzo in centesimi (maxPriceCents escluso, null = nessun limite)
+        private Integer minPriceCents;
+        private Integer maxPriceCents;
+
+        private Long count;
+    }
+
+    /**
+     * Classe interna per i conteggi dei valori di un attributo
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AttributeFacet {
+
+        private Long attributeId;
+        private List<FacetValue> values;
+    }
+}
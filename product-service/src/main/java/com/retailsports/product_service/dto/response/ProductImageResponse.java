@@ -17,6 +17,7 @@ public class ProductImageResponse {
 
     private Long id;
     private String imageUrl;
+    private ImageVariantsResponse variants;
     private String altText;
     private Integer displayOrder;
     private Boolean isPrimary;
@@ -0,0 +1,58 @@
+package com.retailsports.product_service.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO con stato, avanzamento ed errori di un job di import prodotti
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductImportJobResponse {
+
+    private String jobId;
+    private String fileName;
+    private String format;
+    private String status;
+
+    // Avanzamento (righe lette, importate, scartate)
+    private Long processedRows;
+    private Long importedRows;
+    private Long failedRows;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    // Errore che ha interrotto il job (solo status FAILED)
+    private String failureMessage;
+
+    // Errori per riga (limitati ai primi N)
+    private List<RowError> errors;
+    private Boolean errorsTruncated;
+
+    /**
+     * Classe interna per l'errore di una singola riga
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class RowError {
+
+        // Riga del file (per il CSV: riga di inizio del record)
+        private Long line;
+        private String sku;
+        private String message;
+    }
+}
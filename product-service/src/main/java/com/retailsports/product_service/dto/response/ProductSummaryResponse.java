@@ -36,6 +36,7 @@ public class ProductSummaryResponse {
 
     // Immagine principale
     private String primaryImageUrl;
+    private ImageVariantsResponse primaryImageVariants;
 
     // Rating
     private BigDecimal ratingAverage;
@@ -0,0 +1,22 @@
+package com.retailsports.product_service.dto.response;
+
+import com.retailsports.product_service.search.SuggestionType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO di risposta dell'autocompletamento
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SuggestionResponse {
+
+    private SuggestionType type;
+    private Long id;
+    private String name;
+    private String slug;
+}
@@ -0,0 +1,28 @@
+package com.retailsports.product_service.exporter;
+
+import com.retailsports.product_service.exception.BadRequestException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Locale;
+
+/**
+ * Formati supportati dall'export del catalogo
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+    JSONL("application/x-ndjson", "jsonl"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    public static ExportFormat resolve(String format) {
+        return switch (format.toLowerCase(Locale.ENGLISH)) {
+            case "jsonl", "ndjson" -> JSONL;
+            case "csv" -> CSV;
+            default -> throw new BadRequestException("Unsupported export format: " + format + " (allowed: jsonl, csv)");
+        };
+    }
+}
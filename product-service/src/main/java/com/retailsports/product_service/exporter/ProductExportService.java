@@ -0,0 +1,235 @@
+package com.retailsports.product_service.exporter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailsports.product_service.dto.response.ProductExportRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Export in streaming dell'intero catalogo (JSONL o CSV)
+ * I prodotti sono letti con un result set forward-only in streaming (nessun caricamento completo in memoria);
+ * tag e attributi vengono caricati a blocchi di prodotti con query IN su una connessione separata.
+ * La memoria usata è quindi costante rispetto alla dimensione del catalogo.
+ */
+@Service
+@Slf4j
+public class ProductExportService {
+
+    private static final String PRODUCTS_SQL =
+        "SELECT p.id, p.sku, p.barcode, p.name, p.slug, p.description, " +
+        "p.price_cents, p.compare_at_price_cents, p.stock_quantity, " +
+        "p.is_active, p.is_featured, p.is_new, p.is_on_sale, p.created_at, p.updated_at, p.deleted_at, " +
+        "c.id AS category_id, c.name AS category_name, c.slug AS category_slug, " +
+        "b.id AS brand_id, b.name AS brand_name, b.slug AS brand_slug, " +
+        "(SELECT MIN(pi.image_url) FROM product_images pi WHERE pi.product_id = p.id AND pi.is_primary = true) AS primary_image_url " +
+        "FROM products p JOIN categories c ON c.id = p.category_id LEFT JOIN brands b ON b.id = p.brand_id ";
+
+    private static final String TAGS_SQL =
+        "SELECT pt.product_id, t.slug FROM product_tags pt JOIN tags t ON t.id = pt.tag_id " +
+        "WHERE pt.product_id IN (:ids) ORDER BY t.slug";
+
+    private static final String ATTRIBUTES_SQL =
+        "SELECT pav.product_id, pa.name, av.value FROM product_attribute_values pav " +
+        "JOIN attribute_values av ON av.id = pav.attribute_value_id " +
+        "JOIN product_attributes pa ON pa.id = av.attribute_id " +
+        "WHERE pav.product_id IN (:ids) ORDER BY pa.display_order, pa.name, av.display_order, av.value";
+
+    private static final List<String> CSV_COLUMNS = List.of(
+        "id", "sku", "barcode", "name", "slug", "description",
+        "categoryId", "categoryName", "categorySlug", "brandId", "brandName", "brandSlug",
+        "priceCents", "compareAtPriceCents", "stockQuantity",
+        "isActive", "isFeatured", "isNew", "isOnSale", "primaryImageUrl", "tags", "attributes",
+        "createdAt", "updatedAt", "deletedAt");
+
+    // Template dedicato con fetch size di streaming (Integer.MIN_VALUE = riga per riga con MySQL Connector/J)
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public ProductExportService(DataSource dataSource,
+                                NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                ObjectMapper objectMapper,
+                                @Value("${product.export.fetch-size:-2147483648}") int fetchSize,
+                                @Value("${product.export.batch-size:500}") int batchSize) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Scrive il catalogo sullo stream di output
+     *
+     * @param updatedSince se valorizzato, solo i prodotti modificati da quella data (inclusi i soft deleted);
+     *                     altrimenti tutti i prodotti non cancellati
+     */
+    public void export(ExportFormat format, LocalDateTime updatedSince, OutputStream outputStream) throws IOException {
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+
+        if (format == ExportFormat.CSV) {
+            writeCsvLine(writer, CSV_COLUMNS);
+        }
+
+        List<ProductExportRecord> batch = new ArrayList<>(batchSize);
+        long[] exported = {0};
+
+        RowCallbackHandler handler = rs -> {
+            batch.add(mapProduct(rs));
+            if (batch.size() == batchSize) {
+                exported[0] += writeBatch(format, batch, writer);
+            }
+        };
+
+        try {
+            if (updatedSince != null) {
+                streamingJdbcTemplate.query(PRODUCTS_SQL + "WHERE p.updated_at >= ? ORDER BY p.id",
+                    handler, Timestamp.valueOf(updatedSince));
+            } else {
+                streamingJdbcTemplate.query(PRODUCTS_SQL + "WHERE p.deleted_at IS NULL ORDER BY p.id", handler);
+            }
+            exported[0] += writeBatch(format, batch, writer);
+        } catch (UncheckedIOException e) {
+            // Client disconnesso durante lo streaming
+            throw e.getCause();
+        }
+
+        writer.flush();
+        log.info("Catalog export completed: {} products ({}) in {} ms",
+            exported[0], format, System.currentTimeMillis() - start);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Completa il blocco con tag e attributi (una query ciascuno) e lo scrive; svuota il blocco
+     */
+    private int writeBatch(ExportFormat format, List<ProductExportRecord> batch, Writer writer) {
+        if (batch.isEmpty()) return 0;
+
+        Map<Long, ProductExportRecord> byId = batch.stream()
+            .collect(Collectors.toMap(ProductExportRecord::getId, record -> record));
+        Map<String, Object> params = Map.of("ids", byId.keySet());
+
+        namedParameterJdbcTemplate.query(TAGS_SQL, params, (RowCallbackHandler) rs ->
+            byId.get(rs.getLong("product_id")).getTags().add(rs.getString("slug")));
+
+        namedParameterJdbcTemplate.query(ATTRIBUTES_SQL, params, (RowCallbackHandler) rs ->
+            byId.get(rs.getLong("product_id")).getAttributes()
+                .computeIfAbsent(rs.getString("name"), name -> new ArrayList<>())
+                .add(rs.getString("value")));
+
+        try {
+            for (ProductExportRecord record : batch) {
+                if (format == ExportFormat.CSV) {
+                    writeCsvLine(writer, toCsvValues(record));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(record));
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int written = batch.size();
+        batch.clear();
+        return written;
+    }
+
+    private ProductExportRecord mapProduct(ResultSet rs) throws SQLException {
+        return ProductExportRecord.builder()
+            .id(rs.getLong("id"))
+            .sku(rs.getString("sku"))
+            .barcode(rs.getString("barcode"))
+            .name(rs.getString("name"))
+            .slug(rs.getString("slug"))
+            .description(rs.getString("description"))
+            .categoryId(rs.getLong("category_id"))
+            .categoryName(rs.getString("category_name"))
+            .categorySlug(rs.getString("category_slug"))
+            .brandId(rs.getObject("brand_id", Long.class))
+            .brandName(rs.getString("brand_name"))
+            .brandSlug(rs.getString("brand_slug"))
+            .priceCents(rs.getInt("price_cents"))
+            .compareAtPriceCents(rs.getObject("compare_at_price_cents", Integer.class))
+            .stockQuantity(rs.getObject("stock_quantity", Integer.class))
+            .isActive(rs.getBoolean("is_active"))
+            .isFeatured(rs.getBoolean("is_featured"))
+            .isNew(rs.getBoolean("is_new"))
+            .isOnSale(rs.getBoolean("is_on_sale"))
+            .primaryImageUrl(rs.getString("primary_image_url"))
+            .tags(new ArrayList<>())
+            .attributes(new LinkedHashMap<>())
+            .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+            .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+            .deletedAt(toLocalDateTime(rs.getTimestamp("deleted_at")))
+            .build();
+    }
+
+    private List<String> toCsvValues(ProductExportRecord record) {
+        String attributes = record.getAttributes().entrySet().stream()
+            .map(entry -> entry.getKey() + "=" + String.join("/", entry.getValue()))
+            .collect(Collectors.joining(";"));
+
+        return Arrays.asList(
+            String.valueOf(record.getId()), record.getSku(), record.getBarcode(), record.getName(), record.getSlug(),
+            record.getDescription(),
+            String.valueOf(record.getCategoryId()), record.getCategoryName(), record.getCategorySlug(),
+            toString(record.getBrandId()), record.getBrandName(), record.getBrandSlug(),
+            toString(record.getPriceCents()), toString(record.getCompareAtPriceCents()), toString(record.getStockQuantity()),
+            toString(record.getIsActive()), toString(record.getIsFeatured()), toString(record.getIsNew()),
+            toString(record.getIsOnSale()), record.getPrimaryImageUrl(),
+            String.join("|", record.getTags()), attributes,
+            toString(record.getCreatedAt()), toString(record.getUpdatedAt()), toString(record.getDeletedAt()));
+    }
+
+    /**
+     * Scrive una riga CSV (RFC 4180: campi con virgole, apici o a capo tra doppi apici)
+     */
+    private static void writeCsvLine(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) writer.write(',');
+            String value = values.get(i);
+            if (value == null) continue;
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String toString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,409 @@
+package com.retailsports.product_service.feed;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailsports.product_service.dto.response.CatalogChangesResponse;
+import com.retailsports.product_service.model.Discount.DiscountType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Feed versionato delle modifiche del catalogo (outbox) per le repliche locali degli altri servizi
+ * Le modifiche a prodotti e sconti sono raccolte per transazione e scritte in catalog_changes subito prima del commit,
+ * nella stessa transazione: una modifica annullata non compare mai nel feed. Le versioni sono assegnate dal contatore
+ * in catalog_change_sequence, la cui riga resta bloccata fino al commit: l'ordine delle versioni è l'ordine dei commit,
+ * quindi un consumer che legge oltre la versione V non può perdere una versione minore committata dopo.
+ * Ogni riga porta lo stato compatto dell'entità a quella versione (non il diff): applicarla è idempotente.
+ */
+@Component
+@Slf4j
+public class CatalogChangeFeed {
+
+    private static final String LOCK_SEQUENCE_SQL =
+        "SELECT version FROM catalog_change_sequence WHERE id = 1 FOR UPDATE";
+
+    private static final String UPDATE_SEQUENCE_SQL =
+        "UPDATE catalog_change_sequence SET version = ?, updated_at = ? WHERE id = 1";
+
+    private static final String SELECT_VERSION_SQL =
+        "SELECT version, updated_at FROM catalog_change_sequence WHERE id = 1";
+
+    private static final String SELECT_SEQUENCE_SQL =
+        "SELECT version, purged_through FROM catalog_change_sequence WHERE id = 1";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO catalog_changes (version, entity_type, entity_id, change_type, payload, origin, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_CHANGES_SQL =
+        "SELECT version, entity_type, entity_id, change_type, payload FROM catalog_changes " +
+        "WHERE version > ? ORDER BY version LIMIT ?";
+
+    // Letture con lock condiviso: vedono l'ultimo stato committato, non lo snapshot di inizio transazione
+    // (le righe lette sono già bloccate in scrittura dalla transazione, quindi non ci sono attese)
+    private static final String PRODUCTS_SQL =
+        "SELECT id, sku, name, price_cents, compare_at_price_cents, stock_quantity, track_inventory, is_active, " +
+        "deleted_at FROM products WHERE id IN (:ids) LOCK IN SHARE MODE";
+
+    private static final String PRODUCT_DISCOUNTS_SQL =
+        "SELECT product_id, discount_id FROM product_discounts WHERE product_id IN (:ids) ORDER BY discount_id " +
+        "LOCK IN SHARE MODE";
+
+    private static final String DISCOUNTS_SQL =
+        "SELECT id, type, value, starts_at, ends_at, is_active, max_uses, current_uses FROM discounts " +
+        "WHERE id IN (:ids) LOCK IN SHARE MODE";
+
+    private static final String ATTRIBUTE_VALUES_SQL =
+        "SELECT id, attribute_id FROM attribute_values WHERE id IN (:ids) LOCK IN SHARE MODE";
+
+    // Il limite di purga si sposta prima della cancellazione: un lettore non vede mai un buco senza resetRequired
+    private static final String PURGE_LIMIT_SQL =
+        "SELECT MAX(version) FROM catalog_changes WHERE created_at < ?";
+
+    private static final String UPDATE_PURGED_THROUGH_SQL =
+        "UPDATE catalog_change_sequence SET purged_through = GREATEST(purged_through, ?) WHERE id = 1";
+
+    private static final String PURGE_SQL =
+        "DELETE FROM catalog_changes WHERE version <= ? LIMIT ?";
+
+    private static final int PURGE_CHUNK_SIZE = 10000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate writeTransaction;
+    private final int retentionDays;
+
+    // Identifica le righe scritte da questa istanza (già applicate localmente al commit)
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CatalogChangeFeed(JdbcTemplate jdbcTemplate,
+                             NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${product.changes.retention-days:7}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Registra la modifica di un prodotto (prezzo, stock, attivazione, sconti associati, cancellazione)
+     */
+    public void productChanged(Long productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writeTransaction.executeWithoutResult(status -> productChanged(productId));
+            return;
+        }
+        pendingChanges().productIds.add(productId);
+    }
+
+    /**
+     * Registra la modifica di uno sconto (valore, intervallo di validità, attivazione, cancellazione)
+     */
+    public void discountChanged(Long discountId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writeTransaction.executeWithoutResult(status -> discountChanged(discountId));
+            return;
+        }
+        pendingChanges().discountIds.add(discountId);
+    }
+
+    /**
+     * Registra la creazione, modifica o cancellazione di un valore di attributo
+     * Riga interna per le altre istanze del servizio (dizionario delle faccette): non compare nel feed pubblico.
+     */
+    public void attributeValueChanged(Long attributeValueId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writeTransaction.executeWithoutResult(status -> attributeValueChanged(attributeValueId));
+            return;
+        }
+        pendingChanges().attributeValueIds.add(attributeValueId);
+    }
+
+    /**
+     * Origine delle righe scritte da questa istanza
+     */
+    public String instanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Versione corrente del catalogo (ultima modifica di prodotti o sconti committata)
+     * Lettura della sola riga del contatore: usata come versione dei conteggi prodotti negli ETag.
+     */
+    public CatalogVersion currentVersion() {
+        return jdbcTemplate.queryForObject(SELECT_VERSION_SQL, (rs, rowNum) ->
+            new CatalogVersion(rs.getLong("version"), rs.getTimestamp("updated_at").toLocalDateTime()));
+    }
+
+    /**
+     * Modifiche successive a sinceVersion, in ordine di versione
+     * Nel blocco restituito ogni entità compare una sola volta, con lo stato più recente.
+     */
+    public CatalogChangesResponse read(long sinceVersion, int limit) {
+        long[] sequence = jdbcTemplate.queryForObject(SELECT_SEQUENCE_SQL,
+            (rs, rowNum) -> new long[]{rs.getLong("version"), rs.getLong("purged_through")});
+        long currentVersion = sequence[0];
+        long purgedThrough = sequence[1];
+
+        if (sinceVersion < purgedThrough) {
+            return CatalogChangesResponse.builder()
+                .changes(List.of())
+                .nextVersion(sinceVersion)
+                .currentVersion(currentVersion)
+                .resetRequired(true)
+                .build();
+        }
+
+        List<CatalogChangesResponse.Change> rows = jdbcTemplate.query(SELECT_CHANGES_SQL, (rs, rowNum) ->
+            CatalogChangesResponse.Change.builder()
+                .version(rs.getLong("version"))
+                .entityType(ChangeEntityType.valueOf(rs.getString("entity_type")))
+                .entityId(rs.getLong("entity_id"))
+                .changeType(ChangeType.valueOf(rs.getString("change_type")))
+                .payload(rs.getString("payload"))
+                .build(), sinceVersion, limit);
+
+        // Ultima modifica per entità, nell'ordine delle versioni
+        Map<String, CatalogChangesResponse.Change> latest = new LinkedHashMap<>();
+        for (CatalogChangesResponse.Change change : rows) {
+            if (change.getEntityType() == ChangeEntityType.ATTRIBUTE_VALUE) {
+                continue;
+            }
+            String key = change.getEntityType() + ":" + change.getEntityId();
+            latest.remove(key);
+            latest.put(key, change);
+        }
+
+        return CatalogChangesResponse.builder()
+            .changes(new ArrayList<>(latest.values()))
+            .nextVersion(rows.isEmpty() ? sinceVersion : rows.get(rows.size() - 1).getVersion())
+            .currentVersion(currentVersion)
+            .hasMore(rows.size() == limit)
+            .build();
+    }
+
+    /**
+     * Elimina le modifiche più vecchie del periodo di conservazione
+     * I consumer fermi da più tempo ricevono resetRequired e ricaricano il catalogo.
+     */
+    @Scheduled(fixedDelayString = "${product.changes.purge-interval-ms:3600000}",
+               initialDelayString = "${product.changes.purge-interval-ms:3600000}")
+    public void purge() {
+        LocalDateTime threshold = LocalDateTime.now().minusDays(retentionDays);
+        Long purgeThrough = jdbcTemplate.queryForObject(PURGE_LIMIT_SQL, Long.class, Timestamp.valueOf(threshold));
+        if (purgeThrough == null) {
+            return;
+        }
+
+        jdbcTemplate.update(UPDATE_PURGED_THROUGH_SQL, purgeThrough);
+        int deleted = 0;
+        int chunk;
+        do {
+            chunk = jdbcTemplate.update(PURGE_SQL, purgeThrough, PURGE_CHUNK_SIZE);
+            deleted += chunk;
+        } while (chunk == PURGE_CHUNK_SIZE);
+
+        log.info("Purged {} catalog changes up to version {}", deleted, purgeThrough);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Modifiche raccolte nella transazione corrente (scritte prima del commit)
+     */
+    private PendingChanges pendingChanges() {
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        PendingChanges created = new PendingChanges();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                write(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CatalogChangeFeed.this);
+            }
+        });
+        return created;
+    }
+
+    private void write(PendingChanges pending) {
+        if (pending.productIds.isEmpty() && pending.discountIds.isEmpty() && pending.attributeValueIds.isEmpty()) {
+            return;
+        }
+
+        // Le modifiche JPA non ancora scritte devono essere visibili alle letture JDBC
+        entityManager.flush();
+
+        List<Object[]> rows = new ArrayList<>(
+            pending.productIds.size() + pending.discountIds.size() + pending.attributeValueIds.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // Valori prima dei prodotti: chi applica il log definisce un valore prima di indicizzare i prodotti che lo usano
+        if (!pending.attributeValueIds.isEmpty()) {
+            loadAttributeValues(pending.attributeValueIds, now, rows);
+        }
+        if (!pending.productIds.isEmpty()) {
+            loadProducts(pending.productIds, now, rows);
+        }
+        if (!pending.discountIds.isEmpty()) {
+            loadDiscounts(pending.discountIds, now, rows);
+        }
+
+        // Versioni consecutive; il lock sulla riga del contatore è rilasciato dal commit
+        long version = jdbcTemplate.queryForObject(LOCK_SEQUENCE_SQL, Long.class);
+        for (Object[] row : rows) {
+            row[0] = ++version;
+        }
+        jdbcTemplate.update(UPDATE_SEQUENCE_SQL, version, now);
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    private void loadProducts(Set<Long> productIds, Timestamp now, List<Object[]> rows) {
+        Map<String, Object> params = Map.of("ids", productIds);
+
+        Map<Long, List<Long>> discountIds = new HashMap<>();
+        namedParameterJdbcTemplate.query(PRODUCT_DISCOUNTS_SQL, params, (RowCallbackHandler) rs ->
+            discountIds.computeIfAbsent(rs.getLong("product_id"), id -> new ArrayList<>()).add(rs.getLong("discount_id")));
+
+        Set<Long> missing = new LinkedHashSet<>(productIds);
+        namedParameterJdbcTemplate.query(PRODUCTS_SQL, params, (RowCallbackHandler) rs -> {
+            long id = rs.getLong("id");
+            missing.remove(id);
+            if (rs.getTimestamp("deleted_at") != null) {
+                rows.add(row(ChangeEntityType.PRODUCT, id, ChangeType.DELETE, null, now));
+                return;
+            }
+            ProductPayload payload = new ProductPayload(
+                rs.getString("sku"),
+                rs.getString("name"),
+                rs.getInt("price_cents"),
+                rs.getObject("compare_at_price_cents", Integer.class),
+                rs.getInt("stock_quantity"),
+                rs.getBoolean("track_inventory"),
+                rs.getBoolean("is_active"),
+                discountIds.getOrDefault(id, List.of()));
+            rows.add(row(ChangeEntityType.PRODUCT, id, ChangeType.UPSERT, payload, now));
+        });
+
+        for (Long id : missing) {
+            rows.add(row(ChangeEntityType.PRODUCT, id, ChangeType.DELETE, null, now));
+        }
+    }
+
+    private void loadDiscounts(Set<Long> discountIds, Timestamp now, List<Object[]> rows) {
+        Set<Long> missing = new LinkedHashSet<>(discountIds);
+        namedParameterJdbcTemplate.query(DISCOUNTS_SQL, Map.of("ids", discountIds), (RowCallbackHandler) rs -> {
+            long id = rs.getLong("id");
+            missing.remove(id);
+            Integer maxUses = rs.getObject("max_uses", Integer.class);
+            DiscountPayload payload = new DiscountPayload(
+                DiscountType.valueOf(rs.getString("type")),
+                rs.getInt("value"),
+                rs.getTimestamp("starts_at").toLocalDateTime(),
+                rs.getTimestamp("ends_at").toLocalDateTime(),
+                rs.getBoolean("is_active"),
+                maxUses != null && rs.getInt("current_uses") >= maxUses);
+            rows.add(row(ChangeEntityType.DISCOUNT, id, ChangeType.UPSERT, payload, now));
+        });
+
+        for (Long id : missing) {
+            rows.add(row(ChangeEntityType.DISCOUNT, id, ChangeType.DELETE, null, now));
+        }
+    }
+
+    private void loadAttributeValues(Set<Long> attributeValueIds, Timestamp now, List<Object[]> rows) {
+        Set<Long> missing = new LinkedHashSet<>(attributeValueIds);
+        namedParameterJdbcTemplate.query(ATTRIBUTE_VALUES_SQL, Map.of("ids", attributeValueIds), (RowCallbackHandler) rs -> {
+            long id = rs.getLong("id");
+            missing.remove(id);
+            AttributeValuePayload payload = new AttributeValuePayload(rs.getLong("attribute_id"));
+            rows.add(row(ChangeEntityType.ATTRIBUTE_VALUE, id, ChangeType.UPSERT, payload, now));
+        });
+
+        for (Long id : missing) {
+            rows.add(row(ChangeEntityType.ATTRIBUTE_VALUE, id, ChangeType.DELETE, null, now));
+        }
+    }
+
+    private Object[] row(ChangeEntityType entityType, long entityId, ChangeType changeType, Object payload, Timestamp now) {
+        try {
+            String json = payload != null ? objectMapper.writeValueAsString(payload) : null;
+            return new Object[]{null, entityType.name(), entityId, changeType.name(), json, instanceId, now};
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize catalog change payload", e);
+        }
+    }
+
+    /**
+     * ID modificati nella transazione (insiemi: più modifiche alla stessa entità producono una sola versione)
+     */
+    private static final class PendingChanges {
+
+        private final Set<Long> productIds = new LinkedHashSet<>();
+        private final Set<Long> discountIds = new LinkedHashSet<>();
+        private final Set<Long> attributeValueIds = new LinkedHashSet<>();
+    }
+
+    /**
+     * Stato compatto di un prodotto: i campi usati da carrello e magazzino
+     */
+    private record ProductPayload(
+        String sku,
+        String name,
+        int priceCents,
+        Integer compareAtPriceCents,
+        int stockQuantity,
+        boolean trackInventory,
+        @JsonProperty("isActive") boolean isActive,
+        List<Long> discountIds
+    ) {
+    }
+
+    /**
+     * Stato compatto di uno sconto: basta per calcolare il prezzo scontato in un istante qualsiasi
+     */
+    private record DiscountPayload(
+        DiscountType type,
+        int value,
+        LocalDateTime startsAt,
+        LocalDateTime endsAt,
+        @JsonProperty("isActive") boolean isActive,
+        boolean exhausted
+    ) {
+    }
+
+    /**
+     * Valore di attributo: l'attributo a cui appartiene (dizionario delle faccette)
+     */
+    private record AttributeValuePayload(long attributeId) {
+    }
+}
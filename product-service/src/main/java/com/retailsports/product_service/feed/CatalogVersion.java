@@ -0,0 +1,9 @@
+package com.retailsports.product_service.feed;
+
+import java.time.LocalDateTime;
+
+/**
+ * Versione corrente del feed del catalogo e istante in cui è stata assegnata
+ */
+public record CatalogVersion(long version, LocalDateTime updatedAt) {
+}
@@ -0,0 +1,11 @@
+package com.retailsports.product_service.feed;
+
+/**
+ * Entità pubblicate nel feed delle modifiche del catalogo
+ */
+public enum ChangeEntityType {
+    PRODUCT,
+    DISCOUNT,
+    // Solo per le istanze del servizio (dizionario delle faccette), escluso dal feed pubblico
+    ATTRIBUTE_VALUE
+}
@@ -0,0 +1,9 @@
+package com.retailsports.product_service.feed;
+
+/**
+ * Tipo di modifica: UPSERT porta lo stato corrente dell'entità, DELETE la rimuove dalle repliche
+ */
+public enum ChangeType {
+    UPSERT,
+    DELETE
+}
@@ -0,0 +1,30 @@
+package com.retailsports.product_service.image;
+
+import com.retailsports.product_service.exception.ResourceNotFoundException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Locale;
+
+/**
+ * Varianti generate per ogni immagine prodotto (lato maggiore in pixel, senza ingrandire gli originali piccoli)
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ImageVariant {
+    THUMB("thumb", 200),
+    CARD("card", 600),
+    ZOOM("zoom", 1600);
+
+    private final String name;
+    private final int maxSize;
+
+    public static ImageVariant resolve(String name) {
+        return switch (name.toLowerCase(Locale.ENGLISH)) {
+            case "thumb" -> THUMB;
+            case "card" -> CARD;
+            case "zoom" -> ZOOM;
+            default -> throw new ResourceNotFoundException("Image variant not found: " + name);
+        };
+    }
+}
@@ -0,0 +1,428 @@
+package com.retailsports.product_service.image;
+
+import com.retailsports.product_service.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Generazione delle varianti (thumb, card, zoom) delle immagini prodotto
+ * L'originale viene scaricato da image_url, ridimensionato con ImageIO/Java2D e salvato nell'archivio locale;
+ * la riga passa da PENDING a READY (o FAILED) con la chiave delle varianti. Il lavoro gira su un pool di worker
+ * con coda limitata: le immagini rifiutate a coda piena (o perse a un riavvio) restano PENDING e vengono
+ * riprese dalla scansione periodica.
+ */
+@Component
+@Slf4j
+public class ImageVariantGenerator {
+
+    private static final String SELECT_PENDING_URL_SQL =
+        "SELECT image_url FROM product_images WHERE id = ? AND variants_status = 'PENDING'";
+
+    private static final String SELECT_PENDING_IDS_SQL =
+        "SELECT id FROM product_images WHERE variants_status = 'PENDING' ORDER BY id LIMIT ?";
+
+    // image_url nella condizione: se l'URL è cambiato nel frattempo il risultato è già superato
+    private static final String MARK_READY_SQL =
+        "UPDATE product_images SET variants_key = ?, variants_status = 'READY' WHERE id = ? AND image_url = ?";
+
+    private static final String MARK_FAILED_SQL =
+        "UPDATE product_images SET variants_status = 'FAILED' WHERE id = ? AND image_url = ?";
+
+    // Le varianti compaiono nel dettaglio prodotto: nuova versione per ETag e Last-Modified
+    private static final String TOUCH_PRODUCT_SQL =
+        "UPDATE products SET updated_at = ? WHERE id = (SELECT product_id FROM product_images WHERE id = ?)";
+
+    private static final int MAX_REDIRECTS = 5;
+
+    // Dalla più grande alla più piccola: ogni variante è ridotta dalla precedente
+    private static final List<ImageVariant> VARIANTS_BY_SIZE = Arrays.stream(ImageVariant.values())
+        .sorted(Comparator.comparingInt(ImageVariant::getMaxSize).reversed())
+        .toList();
+
+    private final ImageVariantStore imageVariantStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxSourceBytes;
+    private final long maxSourcePixels;
+    private final float jpegQuality;
+    private final Duration downloadTimeout;
+    private final Set<String> allowedHosts;
+    private final boolean allowAnyPublicHost;
+
+    private final ThreadPoolExecutor workers;
+    private final HttpClient httpClient;
+
+    // Immagini in coda o in lavorazione (evita duplicati tra upload e scansione)
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    public ImageVariantGenerator(ImageVariantStore imageVariantStore,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Value("${product.images.workers:2}") int workerCount,
+                                 @Value("${product.images.queue-capacity:500}") int queueCapacity,
+                                 @Value("${product.images.max-source-bytes:20971520}") int maxSourceBytes,
+                                 @Value("${product.images.max-source-pixels:40000000}") long maxSourcePixels,
+                                 @Value("${product.images.jpeg-quality:0.85}") float jpegQuality,
+                                 @Value("${product.images.download-timeout-ms:10000}") long downloadTimeoutMs,
+                                 @Value("${product.images.allowed-hosts:}") List<String> allowedHosts,
+                                 @Value("${product.images.allow-any-public-host:false}") boolean allowAnyPublicHost) {
+        this.imageVariantStore = imageVariantStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxSourceBytes = maxSourceBytes;
+        this.maxSourcePixels = maxSourcePixels;
+        this.jpegQuality = jpegQuality;
+        this.downloadTimeout = Duration.ofMillis(downloadTimeoutMs);
+        this.allowedHosts = allowedHosts.stream()
+            .map(String::trim)
+            .filter(host -> !host.isEmpty())
+            .map(host -> host.toLowerCase(Locale.ENGLISH))
+            .collect(Collectors.toUnmodifiableSet());
+        this.allowAnyPublicHost = allowAnyPublicHost;
+        if (this.allowedHosts.isEmpty() && !allowAnyPublicHost) {
+            log.error("product.images.allowed-hosts is empty: image originals will not be downloaded");
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "product-image-variants-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(downloadTimeout)
+            // Redirect seguiti a mano: ogni destinazione passa dagli stessi controlli dell'URL iniziale
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+    }
+
+    /**
+     * Accoda la generazione delle varianti (dopo il commit: la riga PENDING deve essere visibile ai worker)
+     */
+    public void submit(Long imageId) {
+        TransactionUtils.afterCommit(() -> enqueue(imageId));
+    }
+
+    /**
+     * Riprende le immagini ancora PENDING (coda piena al momento dell'upload, riavvio del servizio)
+     */
+    @Scheduled(fixedDelayString = "${product.images.sweep-interval-ms:300000}",
+               initialDelayString = "${product.images.sweep-initial-delay-ms:30000}")
+    public void sweep() {
+        int capacity = workers.getQueue().remainingCapacity();
+        if (capacity == 0) {
+            return;
+        }
+        List<Long> pending = jdbcTemplate.queryForList(SELECT_PENDING_IDS_SQL, Long.class, capacity);
+        pending.forEach(this::enqueue);
+        if (!pending.isEmpty()) {
+            log.info("Queued {} pending product images for variant generation", pending.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private void enqueue(Long imageId) {
+        if (!queued.add(imageId)) {
+            return;
+        }
+        try {
+            workers.execute(() -> generate(imageId));
+        } catch (RejectedExecutionException e) {
+            queued.remove(imageId);
+            log.warn("Image variant queue full, image {} left pending for the next sweep", imageId);
+        }
+    }
+
+    private void generate(Long imageId) {
+        try {
+            List<String> urls = jdbcTemplate.queryForList(SELECT_PENDING_URL_SQL, String.class, imageId);
+            if (urls.isEmpty()) {
+                return;
+            }
+            String imageUrl = urls.get(0);
+
+            long start = System.currentTimeMillis();
+            try {
+                byte[] source = download(imageUrl);
+                String key = variantsKey(source);
+                if (!imageVariantStore.containsAll(key)) {
+                    BufferedImage image = decode(source);
+                    for (ImageVariant variant : VARIANTS_BY_SIZE) {
+                        image = resize(image, variant.getMaxSize());
+                        imageVariantStore.store(key, variant, encodeJpeg(image));
+                    }
+                }
+                if (jdbcTemplate.update(MARK_READY_SQL, key, imageId, imageUrl) > 0) {
+                    jdbcTemplate.update(TOUCH_PRODUCT_SQL, LocalDateTime.now(), imageId);
+                }
+                log.debug("Generated variants for image {} in {} ms", imageId, System.currentTimeMillis() - start);
+            } catch (IOException e) {
+                // Originale irraggiungibile o non valido: riprovato solo se l'URL cambia
+                jdbcTemplate.update(MARK_FAILED_SQL, imageId, imageUrl);
+                log.warn("Variant generation failed for image {} ({}): {}", imageId, imageUrl, e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            // Errore di database: l'immagine resta PENDING per la scansione successiva
+            log.error("Variant generation failed for image {}", imageId, e);
+        } finally {
+            queued.remove(imageId);
+        }
+    }
+
+    /**
+     * Scarica l'originale (solo http/https verso host consentiti, dimensione limitata, al massimo MAX_REDIRECTS redirect)
+     */
+    private byte[] download(String imageUrl) throws IOException {
+        URI uri;
+        try {
+            uri = URI.create(imageUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid image URL");
+        }
+
+        HttpResponse<InputStream> response = null;
+        for (int redirects = 0; response == null; redirects++) {
+            checkTarget(uri);
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(downloadTimeout).GET().build();
+            HttpResponse<InputStream> current;
+            try {
+                current = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Image download interrupted");
+            }
+
+            Optional<String> location = current.headers().firstValue("Location");
+            if (!isRedirect(current.statusCode()) || location.isEmpty()) {
+                response = current;
+                continue;
+            }
+            current.body().close();
+            if (redirects == MAX_REDIRECTS) {
+                throw new IOException("Too many redirects");
+            }
+            try {
+                uri = uri.resolve(location.get());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid redirect location");
+            }
+        }
+
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException("Image download returned HTTP " + response.statusCode());
+            }
+            byte[] content = body.readNBytes(maxSourceBytes + 1);
+            if (content.length > maxSourceBytes) {
+                throw new IOException("Image larger than " + maxSourceBytes + " bytes");
+            }
+            return content;
+        }
+    }
+
+    /**
+     * Protezione SSRF: schema http/https e host in allowed-hosts
+     * Senza elenco i download sono rifiutati, salvo allow-any-public-host (solo sviluppo): lì si accettano gli host
+     * con indirizzi pubblici (nessun loopback, rete privata, link-local come i metadata cloud, multicast o indirizzo
+     * non specificato), ma HttpClient risolve di nuovo il nome alla connessione e un host con DNS rebinding
+     * può superare il controllo.
+     */
+    private void checkTarget(URI uri) throws IOException {
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ENGLISH) : "";
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            throw new IOException("Unsupported image URL scheme: " + scheme);
+        }
+        String host = uri.getHost();
+        if (host == null || host.isEmpty()) {
+            throw new IOException("Image URL without host");
+        }
+
+        if (!allowedHosts.isEmpty()) {
+            if (!allowedHosts.contains(host.toLowerCase(Locale.ENGLISH))) {
+                throw new IOException("Image host not allowed: " + host);
+            }
+            return;
+        }
+        if (!allowAnyPublicHost) {
+            throw new IOException("No allowed image hosts configured");
+        }
+
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(host);
+        } catch (UnknownHostException e) {
+            throw new IOException("Unknown image host: " + host);
+        }
+        for (InetAddress address : addresses) {
+            if (!isPublic(address)) {
+                throw new IOException("Image host resolves to a non-public address: " + host);
+            }
+        }
+    }
+
+    private static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            int first = bytes[0] & 0xFF;
+            int second = bytes[1] & 0xFF;
+            // 0.0.0.0/8 e 100.64.0.0/10 (CGNAT)
+            return first != 0 && !(first == 100 && second >= 64 && second < 128);
+        }
+        if (address instanceof Inet6Address) {
+            // fc00::/7 (unique local)
+            return (bytes[0] & 0xFE) != 0xFC;
+        }
+        return true;
+    }
+
+    private static boolean isRedirect(int statusCode) {
+        return statusCode == 301 || statusCode == 302 || statusCode == 303 || statusCode == 307 || statusCode == 308;
+    }
+
+    /**
+     * Decodifica controllando prima le dimensioni dichiarate (niente decodifica di immagini enormi)
+     */
+    private BufferedImage decode(byte[] source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(source))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxSourcePixels) {
+                    throw new IOException("Image too large: " + reader.getWidth(0) + "x" + reader.getHeight(0));
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Riduce al lato maggiore indicato dimezzando a ogni passo (bilineare a più passi: qualità vicina al
+     * bicubico a una frazione del costo); la trasparenza viene appiattita su bianco
+     */
+    private static BufferedImage resize(BufferedImage source, int maxSize) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(width / 2, targetWidth);
+            height = Math.max(height / 2, targetHeight);
+
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Chiave delle varianti: SHA-256 di originale e parametri di generazione
+     * Cambiando dimensioni o qualità cambiano le chiavi, quindi gli URL già pubblicati restano validi.
+     */
+    private String variantsKey(byte[] source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(source);
+            StringBuilder parameters = new StringBuilder("jpeg:").append(jpegQuality);
+            for (ImageVariant variant : VARIANTS_BY_SIZE) {
+                parameters.append(';').append(variant.getName()).append(':').append(variant.getMaxSize());
+            }
+            digest.update(parameters.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.retailsports.product_service.image;
+
+import com.retailsports.product_service.dto.response.ImageVariantsResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Archivio locale delle varianti, indirizzato per contenuto: {root}/{ab}/{chiave}/{variante}.jpg
+ * La chiave è l'hash di immagine sorgente e parametri di generazione, quindi un file scritto non cambia mai:
+ * può essere servito con cache immutabile e condiviso tra immagini con lo stesso contenuto.
+ */
+@Component
+public class ImageVariantStore {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static final String EXTENSION = ".jpg";
+
+    private final Path root;
+    private final String publicBaseUrl;
+
+    public ImageVariantStore(@Value("${product.images.storage-dir:./data/images}") String storageDir,
+                             @Value("${product.images.public-base-url:}") String publicBaseUrl) {
+        this.root = Paths.get(storageDir).toAbsolutePath().normalize();
+        this.publicBaseUrl = publicBaseUrl.endsWith("/")
+            ? publicBaseUrl.substring(0, publicBaseUrl.length() - 1)
+            : publicBaseUrl;
+    }
+
+    /**
+     * Verifica se tutte le varianti della chiave sono già presenti
+     */
+    public boolean containsAll(String key) {
+        for (ImageVariant variant : ImageVariant.values()) {
+            if (!Files.isRegularFile(resolve(key, variant))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Salva una variante (scrittura su file temporaneo e rename atomico: nessun lettore vede file parziali)
+     */
+    public void store(String key, ImageVariant variant, byte[] content) throws IOException {
+        Path target = resolve(key, variant);
+        if (Files.isRegularFile(target)) {
+            return;
+        }
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), variant.getName(), ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * File di una variante (vuoto se la chiave non è valida o la variante non esiste)
+     */
+    public Optional<Path> find(String key, ImageVariant variant) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            return Optional.empty();
+        }
+        Path path = resolve(key, variant);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * URL pubblici delle varianti (null se non ancora generate)
+     */
+    public ImageVariantsResponse urls(String key) {
+        if (key == null) {
+            return null;
+        }
+        return ImageVariantsResponse.builder()
+            .thumb(url(key, ImageVariant.THUMB))
+            .card(url(key, ImageVariant.CARD))
+            .zoom(url(key, ImageVariant.ZOOM))
+            .build();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private String url(String key, ImageVariant variant) {
+        return publicBaseUrl + "/api/images/" + key + "/" + variant.getName() + EXTENSION;
+    }
+
+    private Path resolve(String key, ImageVariant variant) {
+        return root.resolve(key.substring(0, 2)).resolve(key).resolve(variant.getName() + EXTENSION);
+    }
+}
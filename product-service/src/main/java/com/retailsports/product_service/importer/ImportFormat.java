@@ -0,0 +1,32 @@
+package com.retailsports.product_service.importer;
+
+import com.retailsports.product_service.exception.BadRequestException;
+
+import java.util.Locale;
+
+/**
+ * Formati supportati dall'import prodotti
+ */
+public enum ImportFormat {
+    CSV,
+    JSONL;
+
+    /**
+     * Risolve il formato dal parametro esplicito o, in sua assenza, dall'estensione del file
+     */
+    public static ImportFormat resolve(String format, String fileName) {
+        String value = format;
+        if (value == null || value.isBlank()) {
+            if (fileName == null || !fileName.contains(".")) {
+                throw new BadRequestException("Import format not specified and not inferable from file name");
+            }
+            value = fileName.substring(fileName.lastIndexOf('.') + 1);
+        }
+
+        return switch (value.toLowerCase(Locale.ENGLISH)) {
+            case "csv" -> CSV;
+            case "jsonl", "ndjson" -> JSONL;
+            default -> throw new BadRequestException("Unsupported import format: " + value + " (allowed: csv, jsonl)");
+        };
+    }
+}
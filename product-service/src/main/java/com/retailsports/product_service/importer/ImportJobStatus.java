@@ -0,0 +1,11 @@
+package com.retailsports.product_service.importer;
+
+/**
+ * Stati di un job di import
+ */
+public enum ImportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,13 @@
+package com.retailsports.product_service.importer;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Record grezzo letto dal file di import
+ *
+ * @param line   riga del file in cui inizia il record
+ * @param fields campi del record (intestazioni CSV o chiavi JSON); null se la riga non è leggibile
+ * @param error  motivo per cui la riga non è leggibile
+ */
+public record ImportRecord(long line, ObjectNode fields, String error) {
+}
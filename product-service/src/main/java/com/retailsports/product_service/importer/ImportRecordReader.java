@@ -0,0 +1,157 @@
+package com.retailsports.product_service.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lettore in streaming dei file di import: un record alla volta, senza caricare il file in memoria
+ * CSV: prima riga di intestazione, separatore virgola, campi tra doppi apici (anche su più righe) con "" come escape.
+ * JSONL: un oggetto JSON per riga.
+ */
+public class ImportRecordReader implements Closeable {
+
+    private final ImportFormat format;
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+
+    private List<String> header;
+    private long line = 0;
+
+    public ImportRecordReader(ImportFormat format, Path file, ObjectMapper objectMapper) throws IOException {
+        this.format = format;
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Legge il prossimo record (null a fine file); le righe vuote vengono saltate
+     */
+    public ImportRecord next() throws IOException {
+        return format == ImportFormat.CSV ? nextCsv() : nextJsonLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // ========== JSONL ==========
+
+    private ImportRecord nextJsonLine() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) return null;
+            line++;
+        } while (text.isBlank());
+
+        try {
+            JsonNode node = objectMapper.readTree(text);
+            if (!node.isObject()) {
+                return new ImportRecord(line, null, "Line is not a JSON object");
+            }
+            return new ImportRecord(line, (ObjectNode) node, null);
+        } catch (JsonProcessingException e) {
+            return new ImportRecord(line, null, "Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    // ========== CSV ==========
+
+    private ImportRecord nextCsv() throws IOException {
+        if (header == null) {
+            List<String> headerValues = readCsvValues();
+            if (headerValues == null) return null;
+            header = headerValues.stream().map(String::trim).toList();
+            // BOM UTF-8 eventualmente presente all'inizio del file
+            if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+                List<String> cleaned = new ArrayList<>(header);
+                cleaned.set(0, cleaned.get(0).substring(1));
+                header = List.copyOf(cleaned);
+            }
+        }
+
+        List<String> values;
+        long startLine;
+        do {
+            startLine = line + 1;
+            values = readCsvValues();
+            if (values == null) return null;
+        } while (values.size() == 1 && values.get(0).isBlank());
+
+        if (values.size() != header.size()) {
+            return new ImportRecord(startLine, null,
+                "Expected " + header.size() + " columns but found " + values.size());
+        }
+
+        ObjectNode fields = objectMapper.createObjectNode();
+        for (int i = 0; i < header.size(); i++) {
+            String value = values.get(i).trim();
+            // Cella vuota = campo assente
+            if (!value.isEmpty()) {
+                fields.put(header.get(i), value);
+            }
+        }
+        return new ImportRecord(startLine, fields, null);
+    }
+
+    /**
+     * Legge i valori di un record CSV (che può occupare più righe se ha campi quotati con a capo)
+     */
+    private List<String> readCsvValues() throws IOException {
+        String text = reader.readLine();
+        if (text == null) return null;
+        line++;
+
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        while (true) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                            current.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+
+            if (!quoted) break;
+
+            // Campo quotato che prosegue sulla riga successiva
+            text = reader.readLine();
+            if (text == null) break;
+            line++;
+            current.append('\n');
+        }
+
+        values.add(current.toString());
+        return values;
+    }
+}
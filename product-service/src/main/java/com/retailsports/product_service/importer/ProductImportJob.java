@@ -0,0 +1,108 @@
+package com.retailsports.product_service.importer;
+
+import com.retailsports.product_service.dto.response.ProductImportJobResponse;
+import com.retailsports.product_service.dto.response.ProductImportJobResponse.RowError;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stato in memoria di un job di import
+ * Aggiornato dal thread di import e letto dalle richieste di stato: contatori atomici e campi volatile.
+ */
+@Getter
+public class ProductImportJob {
+
+    // Numero massimo di errori per riga conservati (i successivi sono solo contati)
+    private static final int MAX_ERRORS = 1000;
+
+    private final String id;
+    private final String fileName;
+    private final ImportFormat format;
+    private final Path file;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private final AtomicLong processedRows = new AtomicLong();
+    private final AtomicLong importedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final List<RowError> errors = new ArrayList<>();
+
+    private volatile ImportJobStatus status = ImportJobStatus.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String failureMessage;
+
+    public ProductImportJob(String id, String fileName, ImportFormat format, Path file) {
+        this.id = id;
+        this.fileName = fileName;
+        this.format = format;
+        this.file = file;
+    }
+
+    public void start() {
+        startedAt = LocalDateTime.now();
+        status = ImportJobStatus.RUNNING;
+    }
+
+    public void complete() {
+        finishedAt = LocalDateTime.now();
+        status = ImportJobStatus.COMPLETED;
+    }
+
+    public void fail(String message) {
+        failureMessage = message;
+        finishedAt = LocalDateTime.now();
+        status = ImportJobStatus.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == ImportJobStatus.COMPLETED || status == ImportJobStatus.FAILED;
+    }
+
+    public void rowProcessed() {
+        processedRows.incrementAndGet();
+    }
+
+    public void rowsImported(int count) {
+        importedRows.addAndGet(count);
+    }
+
+    /**
+     * Registra lo scarto di una riga
+     */
+    public void rowFailed(long line, String sku, String message) {
+        failedRows.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(RowError.builder().line(line).sku(sku).message(message).build());
+            }
+        }
+    }
+
+    public ProductImportJobResponse toResponse() {
+        List<RowError> errorsCopy;
+        synchronized (errors) {
+            errorsCopy = List.copyOf(errors);
+        }
+
+        return ProductImportJobResponse.builder()
+            .jobId(id)
+            .fileName(fileName)
+            .format(format.name())
+            .status(status.name())
+            .processedRows(processedRows.get())
+            .importedRows(importedRows.get())
+            .failedRows(failedRows.get())
+            .createdAt(createdAt)
+            .startedAt(startedAt)
+            .finishedAt(finishedAt)
+            .failureMessage(failureMessage)
+            .errors(errorsCopy)
+            .errorsTruncated(failedRows.get() > errorsCopy.size())
+            .build();
+    }
+}
@@ -0,0 +1,507 @@
+package com.retailsports.product_service.importer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.retailsports.product_service.cache.CategoryTreeCache;
+import com.retailsports.product_service.cache.ProductDetailCache;
+import com.retailsports.product_service.dto.request.ProductRequest;
+import com.retailsports.product_service.dto.response.ProductImportJobResponse;
+import com.retailsports.product_service.exception.BadRequestException;
+import com.retailsports.product_service.exception.ResourceNotFoundException;
+import com.retailsports.product_service.feed.CatalogChangeFeed;
+import com.retailsports.product_service.model.Brand;
+import com.retailsports.product_service.model.Category;
+import com.retailsports.product_service.ranking.ProductRanking;
+import com.retailsports.product_service.recommendation.ProductSimilarityJob;
+import com.retailsports.product_service.repository.BrandRepository;
+import com.retailsports.product_service.repository.CategoryRepository;
+import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.search.ProductFacetIndex;
+import com.retailsports.product_service.search.ProductIdentifierIndex;
+import com.retailsports.product_service.search.ProductSearchIndex;
+import com.retailsports.product_service.search.SuggestionIndex;
+import com.retailsports.product_service.util.SlugUtil;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Import massivo di prodotti da file CSV / JSONL
+ * Il file viene letto in streaming e processato a blocchi: per ogni blocco una query per gli SKU esistenti,
+ * una per i barcode, una per gli slug e un'unica INSERT batch JDBC. Categorie e brand sono risolti da un dizionario in memoria
+ * (per ID, slug o nome) caricato all'inizio del job. I job girano uno alla volta su un thread dedicato.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    // Job conclusi conservati per le richieste di stato
+    private static final int MAX_RETAINED_JOBS = 100;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO products (sku, barcode, name, slug, description, long_description, category_id, brand_id, " +
+        "price_cents, compare_at_price_cents, cost_price_cents, weight_grams, length_cm, width_cm, height_cm, " +
+        "stock_quantity, low_stock_threshold, track_inventory, is_active, is_featured, is_new, is_on_sale, " +
+        "meta_title, meta_description, meta_keywords, views_count, sales_count, rating_average, rating_count, " +
+        "created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0, 0, 0, ?, ?)";
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final BrandRepository brandRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductIdentifierIndex productIdentifierIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final ProductSimilarityJob productSimilarityJob;
+    private final ProductRanking productRanking;
+    private final CatalogChangeFeed catalogChangeFeed;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ProductDetailCache productDetailCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    private final Map<String, ProductImportJob> jobs = new ConcurrentHashMap<>();
+
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProductImportService(ProductRepository productRepository,
+                                CategoryRepository categoryRepository,
+                                BrandRepository brandRepository,
+                                ProductSearchIndex productSearchIndex,
+                                ProductFacetIndex productFacetIndex,
+                                ProductIdentifierIndex productIdentifierIndex,
+                                SuggestionIndex suggestionIndex,
+                                ProductSimilarityJob productSimilarityJob,
+                                ProductRanking productRanking,
+                                CatalogChangeFeed catalogChangeFeed,
+                                CategoryTreeCache categoryTreeCache,
+                                ProductDetailCache productDetailCache,
+                                JdbcTemplate jdbcTemplate,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${product.import.chunk-size:500}") int chunkSize) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.brandRepository = brandRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.productFacetIndex = productFacetIndex;
+        this.productIdentifierIndex = productIdentifierIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.productSimilarityJob = productSimilarityJob;
+        this.productRanking = productRanking;
+        this.catalogChangeFeed = catalogChangeFeed;
+        this.categoryTreeCache = categoryTreeCache;
+        this.productDetailCache = productDetailCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Accoda un import: il file caricato viene spostato in un file temporaneo (senza leggerlo in memoria)
+     * e processato in background
+     */
+    public ProductImportJobResponse submit(MultipartFile file, String format) {
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException("Import file is empty");
+        }
+        ImportFormat importFormat = ImportFormat.resolve(format, file.getOriginalFilename());
+
+        Path tempFile;
+        try {
+            tempFile = Files.createTempFile("product-import-", "." + importFormat.name().toLowerCase(Locale.ENGLISH));
+            file.transferTo(tempFile);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot store import file: " + e.getMessage(), e);
+        }
+
+        ProductImportJob job = new ProductImportJob(UUID.randomUUID().toString(), file.getOriginalFilename(), importFormat, tempFile);
+        evictFinishedJobs();
+        jobs.put(job.getId(), job);
+        importExecutor.execute(() -> run(job));
+
+        log.info("Product import job {} queued: file {} ({} bytes, {})",
+            job.getId(), file.getOriginalFilename(), file.getSize(), importFormat);
+        return job.toResponse();
+    }
+
+    /**
+     * Stato, avanzamento ed errori di un job
+     */
+    public ProductImportJobResponse getJob(String jobId) {
+        ProductImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Import job not found with id: " + jobId);
+        }
+        return job.toResponse();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    // ========== ESECUZIONE JOB ==========
+
+    private void run(ProductImportJob job) {
+        job.start();
+        log.info("Product import job {} started", job.getId());
+
+        try (ImportRecordReader reader = new ImportRecordReader(job.getFormat(), job.getFile(), objectMapper)) {
+            CatalogDictionary dictionary = loadDictionary();
+
+            List<ImportRecord> chunk = new ArrayList<>(chunkSize);
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                chunk.add(record);
+                if (chunk.size() == chunkSize) {
+                    processChunk(job, chunk, dictionary);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(job, chunk, dictionary);
+            }
+
+            job.complete();
+            log.info("Product import job {} completed: {} imported, {} failed",
+                job.getId(), job.getImportedRows().get(), job.getFailedRows().get());
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            log.error("Product import job {} failed: {}", job.getId(), e.getMessage(), e);
+        } finally {
+            deleteQuietly(job.getFile());
+            if (job.getImportedRows().get() > 0) {
+                categoryTreeCache.invalidate();
+                suggestionIndex.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Valida, deduplica e scrive un blocco di record
+     */
+    private void processChunk(ProductImportJob job, List<ImportRecord> chunk, CatalogDictionary dictionary) {
+        // 1. Conversione, risoluzione categoria/brand, validazione e duplicati interni al blocco
+        List<PendingRow> rows = new ArrayList<>(chunk.size());
+        Set<String> chunkSkus = new HashSet<>();
+        Set<String> chunkBarcodes = new HashSet<>();
+        for (ImportRecord record : chunk) {
+            job.rowProcessed();
+            if (record.error() != null) {
+                job.rowFailed(record.line(), null, record.error());
+                continue;
+            }
+
+            PendingRow row;
+            try {
+                row = toPendingRow(record, dictionary);
+            } catch (IllegalArgumentException e) {
+                job.rowFailed(record.line(), textField(record.fields(), "sku"), e.getMessage());
+                continue;
+            }
+
+            if (!chunkSkus.add(row.request().getSku())) {
+                job.rowFailed(row.line(), row.request().getSku(), "Duplicate SKU in import file");
+                continue;
+            }
+            String barcode = row.request().getBarcode();
+            if (barcode != null && !chunkBarcodes.add(barcode)) {
+                job.rowFailed(row.line(), row.request().getSku(), "Duplicate barcode '" + barcode + "' in import file");
+                continue;
+            }
+            rows.add(row);
+        }
+        if (rows.isEmpty()) return;
+
+        // 2. SKU e barcode già presenti: una query per blocco ciascuno
+        Set<String> existingSkus = new HashSet<>(productRepository.findExistingSkus(chunkSkus));
+        rows.removeIf(row -> {
+            if (existingSkus.contains(row.request().getSku())) {
+                job.rowFailed(row.line(), row.request().getSku(), "Product with SKU '" + row.request().getSku() + "' already exists");
+                return true;
+            }
+            return false;
+        });
+        if (rows.isEmpty()) return;
+
+        // Barcode già presenti: una query per blocco (solo se il blocco ne contiene)
+        if (!chunkBarcodes.isEmpty()) {
+            Set<String> existingBarcodes = new HashSet<>(productRepository.findExistingBarcodes(chunkBarcodes));
+            rows.removeIf(row -> {
+                if (existingBarcodes.contains(row.request().getBarcode())) {
+                    job.rowFailed(row.line(), row.request().getSku(), "Product with barcode '" + row.request().getBarcode() + "' already exists");
+                    return true;
+                }
+                return false;
+            });
+            if (rows.isEmpty()) return;
+        }
+
+        // 3. Slug univoci: se lo slug base è occupato si usa slug-sku (unico perché lo SKU lo è)
+        assignSlugs(job, rows);
+        if (rows.isEmpty()) return;
+
+        // 4. Scrittura in batch (riga per riga solo se il batch fallisce, per isolare le righe non valide)
+        int imported = insertChunk(job, rows);
+        job.rowsImported(imported);
+
+        // 5. Aggiornamento indici in memoria
+        if (imported > 0) {
+            List<String> skus = rows.stream().map(row -> row.request().getSku()).toList();
+            transactionTemplate.executeWithoutResult(status ->
+                productRepository.findForIndexingBySkus(skus).forEach(product -> {
+                    productSearchIndex.index(product);
+                    productFacetIndex.index(product);
+                    productIdentifierIndex.index(product);
+                    productSimilarityJob.markDirty(product.getId());
+                    productRanking.index(product);
+                    catalogChangeFeed.productChanged(product.getId());
+                    productDetailCache.invalidate(product.getId());
+                }));
+        }
+    }
+
+    /**
+     * Converte un record in ProductRequest applicando i default dell'import e validandolo
+     * Default: prodotto attivo, inventario tracciato, stock 0; slug generato dal nome se assente.
+     */
+    private PendingRow toPendingRow(ImportRecord record, CatalogDictionary dictionary) {
+        ObjectNode fields = record.fields();
+        ProductRequest request = objectMapper.convertValue(fields, ProductRequest.class);
+
+        // Categoria: categoryId oppure "category" (slug o nome)
+        if (request.getCategoryId() != null) {
+            if (!dictionary.categoryIds().contains(request.getCategoryId())) {
+                throw new IllegalArgumentException("Category not found with id: " + request.getCategoryId());
+            }
+        } else {
+            String categoryRef = textField(fields, "category");
+            if (categoryRef != null) {
+                request.setCategoryId(Optional.ofNullable(dictionary.categoriesByKey().get(normalizeKey(categoryRef)))
+                    .orElseThrow(() -> new IllegalArgumentException("Category not found: " + categoryRef)));
+            }
+        }
+
+        // Brand (opzionale): brandId oppure "brand" (slug o nome)
+        if (request.getBrandId() != null) {
+            if (!dictionary.brandIds().contains(request.getBrandId())) {
+                throw new IllegalArgumentException("Brand not found with id: " + request.getBrandId());
+            }
+        } else {
+            String brandRef = textField(fields, "brand");
+            if (brandRef != null) {
+                request.setBrandId(Optional.ofNullable(dictionary.brandsByKey().get(normalizeKey(brandRef)))
+                    .orElseThrow(() -> new IllegalArgumentException("Brand not found: " + brandRef)));
+            }
+        }
+
+        if (request.getIsActive() == null) request.setIsActive(true);
+        if (request.getTrackInventory() == null) request.setTrackInventory(true);
+        if (request.getStockQuantity() == null) request.setStockQuantity(0);
+        // Barcode vuoto = nessun barcode (la colonna è UNIQUE: più stringhe vuote andrebbero in conflitto)
+        if (request.getBarcode() != null && request.getBarcode().isBlank()) request.setBarcode(null);
+        if ((request.getSlug() == null || request.getSlug().isBlank())
+                && request.getName() != null && !request.getName().isBlank()) {
+            request.setSlug(SlugUtil.generateSlug(request.getName()));
+        }
+
+        Set<ConstraintViolation<ProductRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; ")));
+        }
+
+        return new PendingRow(record.line(), request);
+    }
+
+    /**
+     * Assegna slug univoci al blocco con una sola query sugli slug candidati
+     */
+    private void assignSlugs(ProductImportJob job, List<PendingRow> rows) {
+        Set<String> candidates = new HashSet<>();
+        for (PendingRow row : rows) {
+            candidates.add(row.request().getSlug());
+            candidates.add(alternativeSlug(row.request()));
+        }
+
+        Set<String> taken = new HashSet<>(productRepository.findExistingSlugs(candidates));
+        rows.removeIf(row -> {
+            String slug = row.request().getSlug();
+            if (taken.contains(slug)) {
+                slug = alternativeSlug(row.request());
+            }
+            if (taken.contains(slug)) {
+                job.rowFailed(row.line(), row.request().getSku(), "Product with slug '" + row.request().getSlug() + "' already exists");
+                return true;
+            }
+            taken.add(slug);
+            row.request().setSlug(slug);
+            return false;
+        });
+    }
+
+    /**
+     * Scrive il blocco con un'unica INSERT batch; restituisce il numero di righe scritte
+     */
+    private int insertChunk(ProductImportJob job, List<PendingRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        ParameterizedPreparedStatementSetter<PendingRow> setter = (ps, row) -> bindInsert(ps, row.request(), now);
+
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), setter));
+            return rows.size();
+        } catch (DataAccessException e) {
+            log.warn("Import job {}: batch insert of {} rows failed ({}), retrying row by row",
+                job.getId(), rows.size(), e.getMostSpecificCause().getMessage());
+        }
+
+        int imported = 0;
+        for (Iterator<PendingRow> iterator = rows.iterator(); iterator.hasNext(); ) {
+            PendingRow row = iterator.next();
+            try {
+                jdbcTemplate.update(INSERT_SQL, ps -> bindInsert(ps, row.request(), now));
+                imported++;
+            } catch (DataAccessException e) {
+                job.rowFailed(row.line(), row.request().getSku(), e.getMostSpecificCause().getMessage());
+                iterator.remove();
+            }
+        }
+        return imported;
+    }
+
+    private void bindInsert(PreparedStatement ps, ProductRequest request, Timestamp now) throws SQLException {
+        boolean isOnSale = request.getCompareAtPriceCents() != null
+            && request.getCompareAtPriceCents() > request.getPriceCents();
+
+        int i = 1;
+        ps.setString(i++, request.getSku());
+        ps.setString(i++, request.getBarcode());
+        ps.setString(i++, request.getName());
+        ps.setString(i++, request.getSlug());
+        ps.setString(i++, request.getDescription());
+        ps.setString(i++, request.getLongDescription());
+        ps.setLong(i++, request.getCategoryId());
+        ps.setObject(i++, request.getBrandId());
+        ps.setInt(i++, request.getPriceCents());
+        ps.setObject(i++, request.getCompareAtPriceCents());
+        ps.setObject(i++, request.getCostPriceCents());
+        ps.setObject(i++, request.getWeightGrams());
+        ps.setBigDecimal(i++, request.getLengthCm());
+        ps.setBigDecimal(i++, request.getWidthCm());
+        ps.setBigDecimal(i++, request.getHeightCm());
+        ps.setInt(i++, request.getStockQuantity());
+        ps.setInt(i++, request.getLowStockThreshold() != null ? request.getLowStockThreshold() : 10);
+        ps.setBoolean(i++, request.getTrackInventory());
+        ps.setBoolean(i++, request.getIsActive());
+        ps.setBoolean(i++, request.getIsFeatured() != null ? request.getIsFeatured() : false);
+        ps.setBoolean(i++, request.getIsNew() != null ? request.getIsNew() : false);
+        ps.setBoolean(i++, isOnSale);
+        ps.setString(i++, request.getMetaTitle());
+        ps.setString(i++, request.getMetaDescription());
+        ps.setString(i++, request.getMetaKeywords());
+        ps.setTimestamp(i++, now);
+        ps.setTimestamp(i, now);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Dizionario di categorie e brand (per ID, slug e nome) caricato una volta per job
+     */
+    private CatalogDictionary loadDictionary() {
+        Map<String, Long> categoriesByKey = new HashMap<>();
+        Set<Long> categoryIds = new HashSet<>();
+        for (Category category : categoryRepository.findAll()) {
+            categoryIds.add(category.getId());
+            categoriesByKey.putIfAbsent(normalizeKey(category.getSlug()), category.getId());
+            categoriesByKey.putIfAbsent(normalizeKey(category.getName()), category.getId());
+        }
+
+        Map<String, Long> brandsByKey = new HashMap<>();
+        Set<Long> brandIds = new HashSet<>();
+        for (Brand brand : brandRepository.findAll()) {
+            brandIds.add(brand.getId());
+            brandsByKey.putIfAbsent(normalizeKey(brand.getSlug()), brand.getId());
+            brandsByKey.putIfAbsent(normalizeKey(brand.getName()), brand.getId());
+        }
+
+        return new CatalogDictionary(categoriesByKey, categoryIds, brandsByKey, brandIds);
+    }
+
+    private void evictFinishedJobs() {
+        if (jobs.size() < MAX_RETAINED_JOBS) return;
+
+        jobs.values().stream()
+            .filter(ProductImportJob::isFinished)
+            .sorted(Comparator.comparing(ProductImportJob::getCreatedAt))
+            .limit(jobs.size() - MAX_RETAINED_JOBS + 1L)
+            .forEach(job -> jobs.remove(job.getId()));
+    }
+
+    private static String alternativeSlug(ProductRequest request) {
+        return request.getSlug() + "-" + SlugUtil.generateSlug(request.getSku());
+    }
+
+    private static String textField(ObjectNode fields, String name) {
+        if (fields == null) return null;
+        JsonNode node = fields.get(name);
+        return node != null && !node.isNull() && !node.asText().isBlank() ? node.asText().trim() : null;
+    }
+
+    private static String normalizeKey(String value) {
+        return value.trim().toLowerCase(Locale.ENGLISH);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Cannot delete import file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private record CatalogDictionary(Map<String, Long> categoriesByKey, Set<Long> categoryIds,
+                                     Map<String, Long> brandsByKey, Set<Long> brandIds) {
+    }
+
+    private record PendingRow(long line, ProductRequest request) {
+    }
+}
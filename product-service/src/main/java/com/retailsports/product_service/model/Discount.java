@@ -56,7 +56,8 @@ public class Discount {
     @Builder.Default
     private Integer maxUsesPerUser = 1;
 
-    @Column(name = "current_uses")
+    // Aggiornato solo con UPDATE condizionali: il salvataggio dell'entity non sovrascrive riscatti concorrenti
+    @Column(name = "current_uses", updatable = false)
     @Builder.Default
     private Integer currentUses = 0;
 
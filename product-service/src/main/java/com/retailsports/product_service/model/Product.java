@@ -20,7 +20,9 @@ import java.util.Set;
     @Index(name = "idx_featured", columnList = "is_featured"),
     @Index(name = "idx_deleted", columnList = "deleted_at"),
     @Index(name = "idx_price", columnList = "price_cents"),
-    @Index(name = "idx_name", columnList = "name")
+    @Index(name = "idx_name", columnList = "name"),
+    @Index(name = "idx_created", columnList = "created_at"),
+    @Index(name = "idx_on_sale", columnList = "is_on_sale, created_at")
 })
 @Getter
 @Setter
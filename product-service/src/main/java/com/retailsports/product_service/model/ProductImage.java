@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 @Table(name = "product_images", indexes = {
     @Index(name = "idx_product", columnList = "product_id"),
     @Index(name = "idx_primary", columnList = "is_primary"),
-    @Index(name = "idx_order", columnList = "display_order")
+    @Index(name = "idx_order", columnList = "display_order"),
+    @Index(name = "idx_variants_status", columnList = "variants_status")
 })
 @Getter
 @Setter
@@ -41,6 +42,15 @@ public class ProductImage {
     @Builder.Default
     private Boolean isPrimary = false;
 
+    // Chiave delle varianti ridimensionate nell'archivio locale (null finché non generate)
+    @Column(name = "variants_key", length = 64)
+    private String variantsKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "variants_status", nullable = false)
+    @Builder.Default
+    private VariantStatus variantsStatus = VariantStatus.PENDING;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -57,4 +67,11 @@ public class ProductImage {
     public int hashCode() {
         return getClass().hashCode();
     }
+
+    // Stato della generazione delle varianti
+    public enum VariantStatus {
+        PENDING,    // In attesa di generazione
+        READY,      // Varianti disponibili
+        FAILED      // Originale non scaricabile o non decodificabile
+    }
 }
@@ -0,0 +1,48 @@
+package com.retailsports.product_service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Prodotto simile precalcolato: una riga per posizione del ranking (top-K per prodotto)
+ * Chiave primaria (product_id, position): i simili di un prodotto si leggono con una sola scansione della chiave.
+ */
+@Entity
+@Table(name = "product_similarities")
+@IdClass(ProductSimilarity.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductSimilarity {
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    // Posizione nel ranking (0 = più simile)
+    @Id
+    @Column(nullable = false)
+    private Integer position;
+
+    @Column(name = "similar_product_id", nullable = false)
+    private Long similarProductId;
+
+    // Similarità coseno x 10000
+    @Column(nullable = false)
+    private Integer score;
+
+    /**
+     * Chiave composta (product_id, position)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long productId;
+        private Integer position;
+    }
+}
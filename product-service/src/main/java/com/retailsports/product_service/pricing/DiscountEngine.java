@@ -0,0 +1,454 @@
+package com.retailsports.product_service.pricing;
+
+import com.retailsports.product_service.model.Discount;
+import com.retailsports.product_service.repository.DiscountRepository;
+import com.retailsports.product_service.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Motore sconti in memoria: indice a intervalli degli sconti per prodotto
+ * Per ogni prodotto mantiene gli sconti non scaduti ordinati per startsAt e, sopra l'indice,
+ * una vista materializzata degli sconti validi "adesso" valida fino al prossimo confine
+ * (startsAt o endsAt più vicino), a cui la vista viene ricalcolata da un task schedulato.
+ * L'indice è aggiornato in modo incrementale dopo il commit delle modifiche di DiscountService;
+ * le letture non toccano mai il database.
+ */
+@Component
+@Slf4j
+public class DiscountEngine {
+
+    // Limite al ritardo della rivalutazione, per riassorbire eventuali salti dell'orologio di sistema
+    private static final Duration MAX_REFRESH_DELAY = Duration.ofHours(1);
+
+    // Tentativi di ricostruzione completa se nel frattempo arrivano modifiche incrementali
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    private static final Comparator<DiscountWindow> BY_START =
+        Comparator.comparing(DiscountWindow::startsAt).thenComparing(DiscountWindow::id);
+
+    private final DiscountRepository discountRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "discount-engine");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Indice a intervalli: liste immutabili ordinate per startsAt, sostituite a ogni modifica
+    private final Map<Long, List<DiscountWindow>> windowsByProduct = new ConcurrentHashMap<>();
+
+    // Stato di scrittura, protetto dal lock dell'istanza
+    private final Map<Long, DiscountWindow> discounts = new HashMap<>();
+    private final Map<Long, Set<Long>> productsByDiscount = new HashMap<>();
+    private long modifications = 0;
+    private ScheduledFuture<?> refreshTask;
+
+    private volatile ActiveView activeView = ActiveView.EMPTY;
+    private volatile boolean ready = false;
+
+    public DiscountEngine(DiscountRepository discountRepository, PlatformTransactionManager transactionManager) {
+        this.discountRepository = discountRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Ricostruzione completa dell'indice (all'avvio e dopo modifiche massive)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+
+        for (int attempt = 1; ; attempt++) {
+            long seen;
+            synchronized (this) {
+                seen = modifications;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<DiscountWindow> windows = new ArrayList<>();
+            List<Object[]> links = new ArrayList<>();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                discountRepository.findIndexableDiscounts(now).forEach(discount -> windows.add(DiscountWindow.of(discount)));
+                links.addAll(discountRepository.findIndexableDiscountProductLinks(now));
+            });
+
+            synchronized (this) {
+                // Una modifica applicata durante il caricamento andrebbe persa: si ricarica
+                if (seen != modifications && attempt < MAX_REBUILD_ATTEMPTS) {
+                    continue;
+                }
+                install(windows, links);
+            }
+
+            ready = true;
+            log.info("Discount index built: {} discounts on {} products in {} ms",
+                windows.size(), windowsByProduct.size(), System.currentTimeMillis() - start);
+            return;
+        }
+    }
+
+    /**
+     * Indica se l'indice è stato costruito almeno una volta
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Sconti validi per il prodotto nell'istante indicato, ordinati per data di inizio
+     * L'indice contiene solo sconti non scaduti: l'istante deve essere presente o futuro.
+     */
+    public List<DiscountWindow> getValidDiscounts(Long productId, LocalDateTime at) {
+        ActiveView view = activeView;
+        if (view.covers(at)) {
+            return view.byProduct().getOrDefault(productId, List.of());
+        }
+        return validAt(windowsByProduct.getOrDefault(productId, List.of()), at);
+    }
+
+    // ========== AGGIORNAMENTI (da chiamare dentro la transazione di scrittura) ==========
+
+    /**
+     * Reindicizza uno sconto creato o modificato dopo il commit
+     * Sconti disattivati, scaduti o esauriti vengono rimossi dall'indice.
+     */
+    public void update(Discount discount) {
+        Long discountId = discount.getId();
+        DiscountWindow window = isIndexable(discount, LocalDateTime.now()) ? DiscountWindow.of(discount) : null;
+        Set<Long> productIds = window != null
+            ? new HashSet<>(discountRepository.findProductIdsByDiscountId(discountId))
+            : Set.of();
+
+        TransactionUtils.afterCommit(() -> apply(discountId, window, productIds));
+    }
+
+    /**
+     * Rimuove uno sconto dall'indice dopo il commit
+     */
+    public void remove(Long discountId) {
+        TransactionUtils.afterCommit(() -> apply(discountId, null, Set.of()));
+    }
+
+    /**
+     * Associa uno sconto indicizzato a un prodotto dopo il commit
+     */
+    public void link(Long discountId, Long productId) {
+        TransactionUtils.afterCommit(() -> relink(discountId, Set.of(productId), true));
+    }
+
+    /**
+     * Rimuove l'associazione sconto-prodotto dopo il commit
+     */
+    public void unlink(Long discountId, Long productId) {
+        TransactionUtils.afterCommit(() -> relink(discountId, Set.of(productId), false));
+    }
+
+    /**
+     * Associa uno sconto a più prodotti dopo il commit, con un solo ricalcolo della vista (assegnazioni massive)
+     */
+    public void linkAll(Long discountId, Collection<Long> productIds) {
+        Set<Long> changed = new HashSet<>(productIds);
+        TransactionUtils.afterCommit(() -> relink(discountId, changed, true));
+    }
+
+    /**
+     * Rimuove l'associazione di uno sconto da più prodotti dopo il commit
+     */
+    public void unlinkAll(Long discountId, Collection<Long> productIds) {
+        Set<Long> changed = new HashSet<>(productIds);
+        TransactionUtils.afterCommit(() -> relink(discountId, changed, false));
+    }
+
+    /**
+     * Allinea dopo il commit gli sconti associati al prodotto a quelli indicati
+     * (modifiche lette dal log, senza sapere quale associazione è cambiata)
+     */
+    public void relinkProduct(Long productId, Collection<Long> discountIds) {
+        Set<Long> linked = new HashSet<>(discountIds);
+        TransactionUtils.afterCommit(() -> relinkAll(productId, linked));
+    }
+
+    /**
+     * Richiede una ricostruzione completa in background dopo il commit (es. aggiornamenti massivi)
+     */
+    public void reload() {
+        TransactionUtils.afterCommit(() -> scheduler.execute(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Discount index rebuild failed, keeping current index", e);
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private synchronized void install(List<DiscountWindow> windows, List<Object[]> links) {
+        discounts.clear();
+        productsByDiscount.clear();
+        windows.forEach(window -> discounts.put(window.id(), window));
+
+        Map<Long, List<DiscountWindow>> byProduct = new HashMap<>();
+        for (Object[] link : links) {
+            DiscountWindow window = discounts.get((Long) link[0]);
+            if (window == null) continue;
+            productsByDiscount.computeIfAbsent(window.id(), id -> new HashSet<>()).add((Long) link[1]);
+            byProduct.computeIfAbsent((Long) link[1], id -> new ArrayList<>()).add(window);
+        }
+
+        windowsByProduct.clear();
+        byProduct.forEach((productId, productWindows) -> {
+            productWindows.sort(BY_START);
+            windowsByProduct.put(productId, List.copyOf(productWindows));
+        });
+
+        refresh();
+    }
+
+    private synchronized void apply(Long discountId, DiscountWindow window, Set<Long> productIds) {
+        modifications++;
+
+        Set<Long> affected = new HashSet<>(productsByDiscount.getOrDefault(discountId, Set.of()));
+        affected.addAll(productIds);
+
+        if (window == null || productIds.isEmpty()) {
+            discounts.remove(discountId);
+            productsByDiscount.remove(discountId);
+        } else {
+            discounts.put(discountId, window);
+            productsByDiscount.put(discountId, new HashSet<>(productIds));
+        }
+
+        for (Long productId : affected) {
+            replaceWindow(productId, discountId, productIds.contains(productId) ? window : null);
+        }
+        updateView(affected);
+    }
+
+    private synchronized void relink(Long discountId, Set<Long> changed, boolean linked) {
+        DiscountWindow window = discounts.get(discountId);
+        if (window == null) {
+            // Sconto non indicizzabile (inattivo, scaduto o esaurito): nulla da fare
+            return;
+        }
+        modifications++;
+
+        Set<Long> productIds = productsByDiscount.computeIfAbsent(discountId, id -> new HashSet<>());
+        if (linked) {
+            productIds.addAll(changed);
+        } else {
+            productIds.removeAll(changed);
+        }
+
+        for (Long productId : changed) {
+            replaceWindow(productId, discountId, linked ? window : null);
+        }
+        updateView(changed);
+    }
+
+    private synchronized void relinkAll(Long productId, Set<Long> linked) {
+        modifications++;
+
+        for (Map.Entry<Long, DiscountWindow> entry : discounts.entrySet()) {
+            Long discountId = entry.getKey();
+            boolean shouldLink = linked.contains(discountId);
+            Set<Long> productIds = productsByDiscount.get(discountId);
+            if (shouldLink == (productIds != null && productIds.contains(productId))) {
+                continue;
+            }
+            if (shouldLink) {
+                productsByDiscount.computeIfAbsent(discountId, id -> new HashSet<>()).add(productId);
+            } else {
+                productIds.remove(productId);
+            }
+            replaceWindow(productId, discountId, shouldLink ? entry.getValue() : null);
+        }
+        updateView(Set.of(productId));
+    }
+
+    /**
+     * Sostituisce (o rimuove) la finestra di uno sconto nella lista ordinata del prodotto
+     */
+    private void replaceWindow(Long productId, Long discountId, DiscountWindow window) {
+        List<DiscountWindow> current = windowsByProduct.getOrDefault(productId, List.of());
+        List<DiscountWindow> updated = new ArrayList<>(current.size() + 1);
+        for (DiscountWindow existing : current) {
+            if (!existing.id().equals(discountId)) {
+                updated.add(existing);
+            }
+        }
+        if (window != null) {
+            updated.add(window);
+        }
+
+        if (updated.isEmpty()) {
+            windowsByProduct.remove(productId);
+        } else {
+            updated.sort(BY_START);
+            windowsByProduct.put(productId, List.copyOf(updated));
+        }
+    }
+
+    /**
+     * Ricalcola la vista solo per i prodotti modificati
+     * Gli altri prodotti non hanno confini prima di "until": le loro voci restano valide.
+     */
+    private void updateView(Set<Long> productIds) {
+        LocalDateTime now = LocalDateTime.now();
+        ActiveView view = activeView;
+        if (!view.covers(now)) {
+            refresh();
+            return;
+        }
+
+        Map<Long, List<DiscountWindow>> byProduct = new HashMap<>(view.byProduct());
+        LocalDateTime until = view.until();
+        for (Long productId : productIds) {
+            List<DiscountWindow> windows = windowsByProduct.getOrDefault(productId, List.of());
+            List<DiscountWindow> valid = validAt(windows, now);
+            if (valid.isEmpty()) {
+                byProduct.remove(productId);
+            } else {
+                byProduct.put(productId, valid);
+            }
+            until = earliest(until, nextBoundary(windows, now));
+        }
+
+        installView(new ActiveView(now, until, Collections.unmodifiableMap(byProduct)));
+    }
+
+    /**
+     * Ricalcolo completo della vista al confine raggiunto, eliminando le finestre scadute
+     */
+    private synchronized void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, List<DiscountWindow>> byProduct = new HashMap<>();
+        LocalDateTime until = LocalDateTime.MAX;
+
+        for (Map.Entry<Long, List<DiscountWindow>> entry : windowsByProduct.entrySet()) {
+            List<DiscountWindow> windows = entry.getValue();
+            if (windows.stream().anyMatch(window -> !window.expiresAt().isAfter(now))) {
+                windows = windows.stream().filter(window -> window.expiresAt().isAfter(now)).toList();
+                if (windows.isEmpty()) {
+                    windowsByProduct.remove(entry.getKey());
+                    continue;
+                }
+                windowsByProduct.put(entry.getKey(), windows);
+            }
+
+            List<DiscountWindow> valid = validAt(windows, now);
+            if (!valid.isEmpty()) {
+                byProduct.put(entry.getKey(), valid);
+            }
+            until = earliest(until, nextBoundary(windows, now));
+        }
+
+        discounts.values().removeIf(window -> !window.expiresAt().isAfter(now));
+        productsByDiscount.keySet().retainAll(discounts.keySet());
+
+        installView(new ActiveView(now, until, Collections.unmodifiableMap(byProduct)));
+        log.debug("Discount view refreshed: {} products with valid discounts, next boundary at {}", byProduct.size(), until);
+    }
+
+    private void installView(ActiveView view) {
+        activeView = view;
+
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+        Duration delay = view.until().isAfter(view.from().plus(MAX_REFRESH_DELAY))
+            ? MAX_REFRESH_DELAY
+            : Duration.between(view.from(), view.until());
+        refreshTask = scheduler.schedule(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.error("Discount view refresh failed", e);
+            }
+        }, delay.toMillis() + 1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sconti validi nell'istante: ricerca binaria dell'ultima finestra iniziata, poi filtro sulla fine
+     */
+    private static List<DiscountWindow> validAt(List<DiscountWindow> windows, LocalDateTime at) {
+        int low = 0;
+        int high = windows.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (windows.get(mid).startsAt().isAfter(at)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+
+        List<DiscountWindow> valid = new ArrayList<>();
+        for (int i = 0; i < low; i++) {
+            if (windows.get(i).isValidAt(at)) {
+                valid.add(windows.get(i));
+            }
+        }
+        return List.copyOf(valid);
+    }
+
+    /**
+     * Prossimo istante (dopo "now") in cui uno degli sconti inizia o termina
+     */
+    private static LocalDateTime nextBoundary(List<DiscountWindow> windows, LocalDateTime now) {
+        LocalDateTime next = LocalDateTime.MAX;
+        for (DiscountWindow window : windows) {
+            if (window.startsAt().isAfter(now)) {
+                next = earliest(next, window.startsAt());
+            }
+            if (window.expiresAt().isAfter(now)) {
+                next = earliest(next, window.expiresAt());
+            }
+        }
+        return next;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static boolean isIndexable(Discount discount, LocalDateTime now) {
+        return Boolean.TRUE.equals(discount.getIsActive())
+            && !discount.getEndsAt().isBefore(now)
+            && !discount.hasReachedMaxUses();
+    }
+
+    /**
+     * Sconti validi per prodotto nell'intervallo [from, until): nessun confine cade al suo interno
+     */
+    private record ActiveView(LocalDateTime from, LocalDateTime until, Map<Long, List<DiscountWindow>> byProduct) {
+
+        static final ActiveView EMPTY = new ActiveView(LocalDateTime.MIN, LocalDateTime.MIN, Map.of());
+
+        boolean covers(LocalDateTime at) {
+            return !at.isBefore(from) && at.isBefore(until);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.retailsports.product_service.pricing;
+
+import com.retailsports.product_service.model.Discount;
+import com.retailsports.product_service.model.Discount.DiscountType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Copia immutabile di uno sconto con il suo intervallo di validità [startsAt, endsAt]
+ * Contiene solo i campi necessari al calcolo dei prezzi e alla risposta di dettaglio prodotto.
+ */
+public record DiscountWindow(
+    Long id,
+    String name,
+    String code,
+    DiscountType type,
+    Integer value,
+    LocalDateTime startsAt,
+    LocalDateTime endsAt,
+    Integer maxUses,
+    Integer currentUses
+) {
+
+    public static DiscountWindow of(Discount discount) {
+        return new DiscountWindow(
+            discount.getId(),
+            discount.getName(),
+            discount.getCode(),
+            discount.getType(),
+            discount.getValue(),
+            discount.getStartsAt(),
+            discount.getEndsAt(),
+            discount.getMaxUses(),
+            discount.getCurrentUses());
+    }
+
+    /**
+     * Validità nell'istante indicato (estremi inclusi, come nelle query del repository)
+     */
+    public boolean isValidAt(LocalDateTime at) {
+        return !at.isBefore(startsAt) && !at.isAfter(endsAt);
+    }
+
+    /**
+     * Primo istante in cui lo sconto non è più valido
+     */
+    public LocalDateTime expiresAt() {
+        return endsAt.plusNanos(1);
+    }
+
+    public Integer remainingUses() {
+        return maxUses != null ? maxUses - currentUses : null;
+    }
+}
@@ -0,0 +1,353 @@
+package com.retailsports.product_service.ranking;
+
+import com.retailsports.product_service.model.Product;
+import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.util.PendingCounters;
+import com.retailsports.product_service.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Classifiche in memoria "di tendenza" e "più venduti" su finestre scorrevoli (ultime 24 ore, ultimi 7 giorni)
+ * Visualizzazioni e vendite si accumulano senza lock e vengono applicate periodicamente a bucket orari
+ * in anello per prodotto (7 giorni x 24 ore, array primitivi). Le somme per finestra sono mantenute
+ * incrementalmente: all'avanzare dell'ora si sottrae il bucket che esce dalla finestra. Ad ogni aggiornamento
+ * con variazioni le classifiche (globale e per categoria) sono ricalcolate con heap top-K e pubblicate
+ * in blocco: le letture non prendono lock. I contatori non sono persistiti: dopo un riavvio le finestre ripartono vuote.
+ */
+@Component
+@Slf4j
+public class ProductRanking {
+
+    private static final int HOURS = RankingWindow.WEEK.getHours();
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final RankingWindow[] WINDOWS = RankingWindow.values();
+    private static final RankingType[] TYPES = RankingType.values();
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int topK;
+    private final int saleWeight;
+
+    // Eventi in attesa di essere applicati ai bucket (percorso caldo senza lock)
+    private final PendingCounters pendingViews = new PendingCounters();
+    private final PendingCounters pendingSales = new PendingCounters();
+
+    // Serializza aggiornamento periodico e modifiche al catalogo
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Uno slot per prodotto attivo; bucket in viewBuckets[slot * HOURS + ora % HOURS]
+    private final Map<Long, Integer> slotByProduct = new HashMap<>();
+    private long[] productIds = new long[INITIAL_CAPACITY];
+    private long[] categoryIds = new long[INITIAL_CAPACITY];
+    private int[] viewBuckets = new int[INITIAL_CAPACITY * HOURS];
+    private int[] saleBuckets = new int[INITIAL_CAPACITY * HOURS];
+
+    // Somme per finestra: [finestra][slot]
+    private int[][] viewSums = new int[WINDOWS.length][INITIAL_CAPACITY];
+    private int[][] saleSums = new int[WINDOWS.length][INITIAL_CAPACITY];
+
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    private long currentHour = currentHour();
+
+    // Variazioni dall'ultima pubblicazione delle classifiche
+    private boolean changed;
+
+    private volatile Map<RankingKey, long[]> rankings = Map.of();
+    private volatile boolean ready = false;
+
+    public ProductRanking(ProductRepository productRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${product.ranking.top-k:50}") int topK,
+                          @Value("${product.ranking.sale-weight:10}") int saleWeight) {
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.topK = topK;
+        this.saleWeight = saleWeight;
+    }
+
+    /**
+     * Registra i prodotti attivi con la loro categoria
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        List<Object[]> rows = readOnlyTransaction.execute(status -> productRepository.findActiveProductCategoryRows());
+
+        lock.lock();
+        try {
+            for (Object[] row : rows) {
+                assign((Long) row[0], (Long) row[1]);
+            }
+            changed = true;
+            publish();
+        } finally {
+            lock.unlock();
+        }
+        ready = true;
+
+        log.info("Product ranking initialized: {} products", rows.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Registra una visualizzazione (solo memoria)
+     */
+    public void recordView(Long productId) {
+        pendingViews.add(productId, 1);
+    }
+
+    /**
+     * Registra la vendita di una quantità di prodotto (solo memoria)
+     */
+    public void recordSale(Long productId, int quantity) {
+        pendingSales.add(productId, quantity);
+    }
+
+    /**
+     * Aggiorna categoria e stato del prodotto (applicato dopo il commit della transazione)
+     * I prodotti disattivati o soft deleted escono dalle classifiche e perdono i contatori.
+     */
+    public void index(Product product) {
+        Long productId = product.getId();
+        Long categoryId = product.isDeleted() || !product.getIsActive() ? null : product.getCategory().getId();
+
+        TransactionUtils.afterCommit(() -> {
+            lock.lock();
+            try {
+                if (categoryId != null) {
+                    assign(productId, categoryId);
+                } else {
+                    release(productId);
+                }
+                changed = true;
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * ID dei prodotti in classifica (categoryId null = classifica globale)
+     */
+    public List<Long> top(RankingType type, RankingWindow window, Long categoryId, int limit) {
+        long[] ranking = rankings.get(new RankingKey(type, window, categoryId));
+        if (ranking == null) {
+            return List.of();
+        }
+
+        int count = Math.min(limit, ranking.length);
+        List<Long> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(ranking[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Avanza i bucket orari, applica gli eventi in attesa e ripubblica le classifiche se qualcosa è cambiato
+     */
+    @Scheduled(fixedDelayString = "${product.ranking.refresh-interval-ms:60000}",
+               initialDelayString = "${product.ranking.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            advanceTo(currentHour());
+            applyPending(pendingViews, viewBuckets, viewSums);
+            applyPending(pendingSales, saleBuckets, saleSums);
+            publish();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private static long currentHour() {
+        return System.currentTimeMillis() / HOUR_MILLIS;
+    }
+
+    /**
+     * Per ogni ora trascorsa: sottrae dalle somme i bucket che escono dalle finestre e libera il bucket della nuova ora
+     */
+    private void advanceTo(long hour) {
+        if (hour <= currentHour) {
+            return;
+        }
+
+        if (hour - currentHour >= HOURS) {
+            // Nessun aggiornamento per un'intera settimana: tutti i bucket sono scaduti
+            Arrays.fill(viewBuckets, 0);
+            Arrays.fill(saleBuckets, 0);
+            for (int w = 0; w < WINDOWS.length; w++) {
+                Arrays.fill(viewSums[w], 0);
+                Arrays.fill(saleSums[w], 0);
+            }
+            currentHour = hour;
+            changed = true;
+            return;
+        }
+
+        for (long h = currentHour + 1; h <= hour; h++) {
+            int bucket = (int) (h % HOURS);
+            for (RankingWindow window : WINDOWS) {
+                // Il bucket dell'ora h - hours esce dalla finestra (per WEEK coincide con il bucket della nuova ora)
+                int expired = (int) ((h - window.getHours()) % HOURS);
+                int[] views = viewSums[window.ordinal()];
+                int[] sales = saleSums[window.ordinal()];
+                for (int slot = 0; slot < slotCount; slot++) {
+                    views[slot] -= viewBuckets[slot * HOURS + expired];
+                    sales[slot] -= saleBuckets[slot * HOURS + expired];
+                }
+            }
+            for (int slot = 0; slot < slotCount; slot++) {
+                viewBuckets[slot * HOURS + bucket] = 0;
+                saleBuckets[slot * HOURS + bucket] = 0;
+            }
+        }
+        currentHour = hour;
+        changed = true;
+    }
+
+    /**
+     * Somma gli eventi in attesa nel bucket dell'ora corrente
+     */
+    private void applyPending(PendingCounters pending, int[] buckets, int[][] sums) {
+        int bucket = (int) (currentHour % HOURS);
+        for (Map.Entry<Long, Long> entry : pending.drain().entrySet()) {
+            long delta = entry.getValue();
+
+            Integer slot = slotByProduct.get(entry.getKey());
+            if (delta <= 0 || slot == null) {
+                // Prodotto non attivo: eventi scartati
+                continue;
+            }
+
+            int amount = (int) Math.min(delta, Integer.MAX_VALUE);
+            buckets[slot * HOURS + bucket] += amount;
+            for (int[] windowSums : sums) {
+                windowSums[slot] += amount;
+            }
+            changed = true;
+        }
+    }
+
+    /**
+     * Ricalcola le classifiche con un heap top-K per categoria (più quello globale) e le pubblica in blocco
+     */
+    private void publish() {
+        if (!changed) {
+            return;
+        }
+
+        Map<RankingKey, long[]> published = new HashMap<>();
+        for (RankingWindow window : WINDOWS) {
+            int[] views = viewSums[window.ordinal()];
+            int[] sales = saleSums[window.ordinal()];
+
+            for (RankingType type : TYPES) {
+                Map<Long, TopKHeap> heaps = new HashMap<>();
+                TopKHeap global = new TopKHeap(topK);
+
+                for (int slot = 0; slot < slotCount; slot++) {
+                    if (productIds[slot] == 0) continue;
+
+                    long score = type == RankingType.TRENDING
+                        ? views[slot] + (long) saleWeight * sales[slot]
+                        : sales[slot];
+                    if (score <= 0) continue;
+
+                    global.offer(score, productIds[slot]);
+                    heaps.computeIfAbsent(categoryIds[slot], id -> new TopKHeap(topK)).offer(score, productIds[slot]);
+                }
+
+                published.put(new RankingKey(type, window, null), global.drainDescending());
+                heaps.forEach((categoryId, heap) ->
+                    published.put(new RankingKey(type, window, categoryId), heap.drainDescending()));
+            }
+        }
+
+        rankings = published;
+        changed = false;
+    }
+
+    private void assign(Long productId, Long categoryId) {
+        Integer slot = slotByProduct.get(productId);
+        if (slot == null) {
+            slot = allocateSlot();
+            slotByProduct.put(productId, slot);
+            productIds[slot] = productId;
+        }
+        categoryIds[slot] = categoryId;
+    }
+
+    /**
+     * Libera lo slot del prodotto azzerandone bucket e somme
+     */
+    private void release(Long productId) {
+        Integer slot = slotByProduct.remove(productId);
+        if (slot == null) {
+            return;
+        }
+
+        productIds[slot] = 0;
+        categoryIds[slot] = 0;
+        Arrays.fill(viewBuckets, slot * HOURS, (slot + 1) * HOURS, 0);
+        Arrays.fill(saleBuckets, slot * HOURS, (slot + 1) * HOURS, 0);
+        for (int w = 0; w < WINDOWS.length; w++) {
+            viewSums[w][slot] = 0;
+            saleSums[w][slot] = 0;
+        }
+
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+
+        if (slotCount == productIds.length) {
+            int capacity = productIds.length * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            viewBuckets = Arrays.copyOf(viewBuckets, capacity * HOURS);
+            saleBuckets = Arrays.copyOf(saleBuckets, capacity * HOURS);
+            for (int w = 0; w < WINDOWS.length; w++) {
+                viewSums[w] = Arrays.copyOf(viewSums[w], capacity);
+                saleSums[w] = Arrays.copyOf(saleSums[w], capacity);
+            }
+        }
+        return slotCount++;
+    }
+
+    /**
+     * Chiave di una classifica (categoryId null = globale)
+     */
+    private record RankingKey(RankingType type, RankingWindow window, Long categoryId) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.retailsports.product_service.ranking;
+
+/**
+ * Tipi di classifica: TRENDING pesa visualizzazioni e vendite, BESTSELLERS conta solo le unità vendute
+ */
+public enum RankingType {
+    TRENDING,
+    BESTSELLERS
+}
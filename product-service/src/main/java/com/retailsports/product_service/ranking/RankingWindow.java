@@ -0,0 +1,27 @@
+package com.retailsports.product_service.ranking;
+
+import com.retailsports.product_service.exception.BadRequestException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Locale;
+
+/**
+ * Finestre temporali delle classifiche (in ore, allineate ai bucket orari)
+ */
+@Getter
+@RequiredArgsConstructor
+public enum RankingWindow {
+    DAY(24),
+    WEEK(168);
+
+    private final int hours;
+
+    public static RankingWindow resolve(String window) {
+        return switch (window.toLowerCase(Locale.ENGLISH)) {
+            case "day", "24h", "1d" -> DAY;
+            case "week", "7d", "168h" -> WEEK;
+            default -> throw new BadRequestException("Unsupported ranking window: " + window + " (allowed: day, week)");
+        };
+    }
+}
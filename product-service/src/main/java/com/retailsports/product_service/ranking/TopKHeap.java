@@ -0,0 +1,86 @@
+package com.retailsports.product_service.ranking;
+
+/**
+ * Min-heap a capacità fissa su array primitivi per i k elementi con punteggio più alto
+ * La radice è il peggiore dei k tenuti: un nuovo elemento entra solo se lo batte.
+ * A parità di punteggio vince l'ID prodotto minore (classifiche stabili tra un aggiornamento e l'altro).
+ */
+final class TopKHeap {
+
+    private final long[] scores;
+    private final long[] productIds;
+    private int size;
+
+    TopKHeap(int k) {
+        this.scores = new long[k];
+        this.productIds = new long[k];
+    }
+
+    void offer(long score, long productId) {
+        if (scores.length == 0) return;
+
+        if (size < scores.length) {
+            scores[size] = score;
+            productIds[size] = productId;
+            siftUp(size++);
+        } else if (worse(scores[0], productIds[0], score, productId)) {
+            scores[0] = score;
+            productIds[0] = productId;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * ID prodotto in ordine di punteggio decrescente (svuota l'heap)
+     */
+    long[] drainDescending() {
+        long[] result = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = productIds[0];
+            size--;
+            scores[0] = scores[size];
+            productIds[0] = productIds[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * true se (scoreA, idA) è in classifica dopo (scoreB, idB)
+     */
+    private static boolean worse(long scoreA, long idA, long scoreB, long idB) {
+        return scoreA < scoreB || (scoreA == scoreB && idA > idB);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!worse(scores[index], productIds[index], scores[parent], productIds[parent])) break;
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) break;
+            int right = left + 1;
+            int smallest = right < size && worse(scores[right], productIds[right], scores[left], productIds[left]) ? right : left;
+            if (!worse(scores[smallest], productIds[smallest], scores[index], productIds[index])) break;
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        long productId = productIds[a];
+        productIds[a] = productIds[b];
+        productIds[b] = productId;
+    }
+}
@@ -0,0 +1,22 @@
+package com.retailsports.product_service.recommendation;
+
+/**
+ * Tipi di feature del modello di similarità con il relativo peso
+ * Categoria e tag descrivono l'uso del prodotto e pesano più di brand e attributi (taglia, colore).
+ */
+enum FeatureType {
+    CATEGORY(2.0f),
+    BRAND(1.0f),
+    TAG(1.5f),
+    ATTRIBUTE(0.5f);
+
+    private final float weight;
+
+    FeatureType(float weight) {
+        this.weight = weight;
+    }
+
+    float weight() {
+        return weight;
+    }
+}
@@ -0,0 +1,277 @@
+package com.retailsports.product_service.recommendation;
+
+import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Calcolo dei prodotti simili ("potrebbe piacerti anche") salvati in product_similarities
+ * Un ricalcolo completo periodico aggiorna tutti i prodotti; tra un ricalcolo e l'altro i prodotti modificati
+ * (categoria, brand, tag, attributi) vengono ricalcolati in modo incrementale. In entrambi i casi il modello
+ * è costruito sull'intero catalogo attivo, ma solo le righe dei prodotti interessati vengono riscritte.
+ * Le esecuzioni sono serializzate su un unico thread; il calcolo dei punteggi è parallelo su un pool fork-join.
+ */
+@Component
+@Slf4j
+public class ProductSimilarityJob {
+
+    private static final String DELETE_SQL = "DELETE FROM product_similarities WHERE product_id = ?";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO product_similarities (product_id, position, similar_product_id, score) VALUES (?, ?, ?, ?)";
+
+    // Righe di prodotti disattivati o soft deleted (solo nel ricalcolo completo)
+    private static final String DELETE_INACTIVE_SQL =
+        "DELETE FROM product_similarities WHERE product_id NOT IN " +
+        "(SELECT id FROM products WHERE deleted_at IS NULL AND is_active = true)";
+
+    // Il punteggio (coseno in [0, 1]) è salvato come intero
+    private static final int SCORE_SCALE = 10000;
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final int topK;
+    private final int maxPostingSize;
+    private final int parallelism;
+    private final int writeChunkSize;
+
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-similarity-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Prodotti modificati dall'ultima esecuzione
+    private final Set<Long> dirtyProductIds = ConcurrentHashMap.newKeySet();
+
+    // Evitano di accodare più esecuzioni dello stesso tipo
+    private final AtomicBoolean fullRunPending = new AtomicBoolean(false);
+    private final AtomicBoolean incrementalRunPending = new AtomicBoolean(false);
+
+    public ProductSimilarityJob(ProductRepository productRepository,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${product.similar.top-k:12}") int topK,
+                                @Value("${product.similar.max-posting-size:20000}") int maxPostingSize,
+                                @Value("${product.similar.parallelism:0}") int parallelism,
+                                @Value("${product.similar.write-chunk-size:500}") int writeChunkSize) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.topK = topK;
+        this.maxPostingSize = maxPostingSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.writeChunkSize = writeChunkSize;
+    }
+
+    /**
+     * Segnala un prodotto da ricalcolare (dopo il commit della transazione corrente)
+     */
+    public void markDirty(Long productId) {
+        TransactionUtils.afterCommit(() -> dirtyProductIds.add(productId));
+    }
+
+    /**
+     * Ricalcolo completo periodico
+     */
+    @Scheduled(fixedDelayString = "${product.similar.refresh-interval-ms:21600000}",
+               initialDelayString = "${product.similar.initial-delay-ms:60000}")
+    public void scheduleFullRun() {
+        if (fullRunPending.compareAndSet(false, true)) {
+            jobExecutor.execute(this::runFull);
+        }
+    }
+
+    /**
+     * Ricalcolo incrementale dei prodotti modificati
+     */
+    @Scheduled(fixedDelayString = "${product.similar.incremental-interval-ms:60000}",
+               initialDelayString = "${product.similar.incremental-interval-ms:60000}")
+    public void scheduleIncrementalRun() {
+        if (!dirtyProductIds.isEmpty() && incrementalRunPending.compareAndSet(false, true)) {
+            jobExecutor.execute(this::runIncremental);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private void runFull() {
+        fullRunPending.set(false);
+        // Le modifiche segnalate finora sono coperte dal ricalcolo completo
+        dirtyProductIds.clear();
+        try {
+            compute(null);
+        } catch (RuntimeException e) {
+            log.error("Product similarity full run failed, keeping previous results", e);
+        }
+    }
+
+    private void runIncremental() {
+        incrementalRunPending.set(false);
+        Set<Long> productIds = new HashSet<>();
+        for (Iterator<Long> iterator = dirtyProductIds.iterator(); iterator.hasNext(); ) {
+            productIds.add(iterator.next());
+            iterator.remove();
+        }
+        if (productIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            compute(productIds);
+        } catch (RuntimeException e) {
+            // Riprovati alla prossima esecuzione
+            dirtyProductIds.addAll(productIds);
+            log.error("Product similarity incremental run failed for {} products", productIds.size(), e);
+        }
+    }
+
+    /**
+     * Costruisce il modello sul catalogo attivo e riscrive i simili dei prodotti indicati (null = tutti)
+     */
+    private void compute(Set<Long> onlyProductIds) {
+        long start = System.currentTimeMillis();
+
+        Catalog catalog = readOnlyTransaction.execute(status -> loadCatalog());
+
+        int[] targets;
+        List<Long> removedProductIds = new ArrayList<>();
+        if (onlyProductIds == null) {
+            targets = new int[catalog.productIds().length];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = i;
+            }
+        } else {
+            targets = new int[onlyProductIds.size()];
+            int count = 0;
+            for (Long productId : onlyProductIds) {
+                Integer index = catalog.indexById().get(productId);
+                if (index != null) {
+                    targets[count++] = index;
+                } else {
+                    // Disattivato o soft deleted: nessun simile
+                    removedProductIds.add(productId);
+                }
+            }
+            targets = Arrays.copyOf(targets, count);
+        }
+
+        SimilarityModel.TopK top;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            top = catalog.model().score(targets, topK, pool);
+        } finally {
+            pool.shutdown();
+        }
+        long scored = System.currentTimeMillis();
+
+        write(catalog.productIds(), top, removedProductIds);
+        if (onlyProductIds == null) {
+            jdbcTemplate.update(DELETE_INACTIVE_SQL);
+        }
+
+        log.info("Product similarity {} run: {} of {} products scored in {} ms, written in {} ms",
+            onlyProductIds == null ? "full" : "incremental", targets.length, catalog.productIds().length,
+            scored - start, System.currentTimeMillis() - scored);
+    }
+
+    /**
+     * Feature dei prodotti attivi: categoria, brand, tag e valori di attributo
+     */
+    private Catalog loadCatalog() {
+        List<Object[]> rows = productRepository.findActiveSimilarityRows();
+
+        long[] productIds = new long[rows.size()];
+        Map<Long, Integer> indexById = new HashMap<>(rows.size() * 2);
+        SimilarityModel.Builder builder = new SimilarityModel.Builder(rows.size(), maxPostingSize);
+
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            productIds[i] = (Long) row[0];
+            indexById.put(productIds[i], i);
+            builder.add(i, FeatureType.CATEGORY, (Long) row[1]);
+            if (row[2] != null) {
+                builder.add(i, FeatureType.BRAND, (Long) row[2]);
+            }
+        }
+        for (Object[] pair : productRepository.findActiveProductTagPairs()) {
+            Integer index = indexById.get((Long) pair[0]);
+            if (index != null) {
+                builder.add(index, FeatureType.TAG, (Long) pair[1]);
+            }
+        }
+        for (Object[] pair : productRepository.findActiveProductAttributeValuePairs()) {
+            Integer index = indexById.get((Long) pair[0]);
+            if (index != null) {
+                builder.add(index, FeatureType.ATTRIBUTE, (Long) pair[1]);
+            }
+        }
+
+        return new Catalog(productIds, indexById, builder.build());
+    }
+
+    /**
+     * Riscrive le righe dei prodotti calcolati a blocchi (una transazione per blocco: i lettori vedono
+     * sempre il ranking completo, vecchio o nuovo) e cancella quelle dei prodotti rimossi
+     */
+    private void write(long[] productIds, SimilarityModel.TopK top, List<Long> removedProductIds) {
+        int k = top.k;
+        for (int from = 0; from < top.targets.length; from += writeChunkSize) {
+            int to = Math.min(from + writeChunkSize, top.targets.length);
+
+            List<Object[]> deletes = new ArrayList<>(to - from);
+            List<Object[]> inserts = new ArrayList<>((to - from) * k);
+            for (int t = from; t < to; t++) {
+                long productId = productIds[top.targets[t]];
+                deletes.add(new Object[]{productId});
+                for (int position = 0; position < k; position++) {
+                    int similar = top.products[t * k + position];
+                    if (similar < 0) break;
+                    inserts.add(new Object[]{productId, position, productIds[similar],
+                        Math.round(top.scores[t * k + position] * SCORE_SCALE)});
+                }
+            }
+
+            writeTransaction.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+                }
+            });
+        }
+
+        if (!removedProductIds.isEmpty()) {
+            List<Object[]> deletes = removedProductIds.stream().map(id -> new Object[]{id}).toList();
+            jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+        }
+    }
+
+    /**
+     * Catalogo caricato per un'esecuzione: ID prodotto per indice, indice per ID e modello
+     */
+    private record Catalog(long[] productIds, Map<Long, Integer> indexById, SimilarityModel model) {
+    }
+}
@@ -0,0 +1,300 @@
+package com.retailsports.product_service.recommendation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Modello di similarità tra prodotti su vettori sparsi di feature binarie (categoria, brand, tag, valori di attributo)
+ * Vettori e liste inverse sono in formato CSR su array primitivi (offset + indici int): nessun oggetto per prodotto
+ * o per feature. Il peso di una feature è il peso del suo tipo per l'IDF, la similarità è il coseno: il prodotto
+ * scalare si accumula scorrendo le liste inverse delle feature del prodotto, quindi si visitano solo i candidati
+ * che condividono almeno una feature. Non thread-safe in costruzione, immutabile dopo.
+ */
+final class SimilarityModel {
+
+    // Prodotti per foglia del fork-join
+    private static final int LEAF_SIZE = 64;
+
+    private final int productCount;
+
+    // Vettori: feature del prodotto p in features[vectorOffsets[p] .. vectorOffsets[p + 1])
+    private final int[] vectorOffsets;
+    private final int[] features;
+
+    // Liste inverse: prodotti con la feature f in postings[postingOffsets[f] .. postingOffsets[f + 1])
+    private final int[] postingOffsets;
+    private final int[] postings;
+
+    private final float[] featureWeights;
+    private final float[] norms;
+
+    // Feature troppo comuni (liste inverse più lunghe) escluse dal calcolo
+    private final int maxPostingSize;
+
+    private SimilarityModel(int[] vectorOffsets, int[] features, float[] featureTypeWeights, int maxPostingSize) {
+        this.productCount = vectorOffsets.length - 1;
+        this.vectorOffsets = vectorOffsets;
+        this.features = features;
+        this.maxPostingSize = maxPostingSize;
+
+        int featureCount = featureTypeWeights.length;
+
+        // Liste inverse: conteggio, offset cumulativi, riempimento (i prodotti restano in ordine crescente)
+        int[] documentFrequency = new int[featureCount];
+        for (int feature : features) {
+            documentFrequency[feature]++;
+        }
+        this.postingOffsets = new int[featureCount + 1];
+        for (int f = 0; f < featureCount; f++) {
+            postingOffsets[f + 1] = postingOffsets[f] + documentFrequency[f];
+        }
+        this.postings = new int[features.length];
+        int[] cursor = Arrays.copyOf(postingOffsets, featureCount);
+        for (int p = 0; p < productCount; p++) {
+            for (int i = vectorOffsets[p]; i < vectorOffsets[p + 1]; i++) {
+                postings[cursor[features[i]]++] = p;
+            }
+        }
+
+        // IDF: le feature rare (un tag di nicchia) contano più di quelle diffuse (una categoria ampia)
+        this.featureWeights = new float[featureCount];
+        for (int f = 0; f < featureCount; f++) {
+            if (documentFrequency[f] > 0) {
+                featureWeights[f] = (float) (featureTypeWeights[f] * Math.log(1.0 + (double) productCount / documentFrequency[f]));
+            }
+        }
+
+        this.norms = new float[productCount];
+        for (int p = 0; p < productCount; p++) {
+            double sum = 0;
+            for (int i = vectorOffsets[p]; i < vectorOffsets[p + 1]; i++) {
+                float weight = featureWeights[features[i]];
+                sum += weight * weight;
+            }
+            norms[p] = (float) Math.sqrt(sum);
+        }
+    }
+
+    int productCount() {
+        return productCount;
+    }
+
+    /**
+     * Calcola i k prodotti più simili per ciascun prodotto indicato, in parallelo sul pool fork-join
+     *
+     * @return risultato con k posizioni per target (indice prodotto -1 = posizione vuota)
+     */
+    TopK score(int[] targets, int k, ForkJoinPool pool) {
+        TopK result = new TopK(targets, k);
+        ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(() -> new Accumulator(productCount));
+        pool.invoke(new ScoringTask(targets, 0, targets.length, k, result, accumulators));
+        return result;
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Coseno tra il prodotto e tutti i candidati che condividono almeno una feature; tiene i k migliori
+     */
+    private void scoreProduct(int target, int k, Accumulator accumulator, int[] topProducts, float[] topScores, int base) {
+        if (norms[target] == 0) {
+            return;
+        }
+
+        float[] dots = accumulator.dots;
+        int[] touched = accumulator.touched;
+        int touchedCount = 0;
+
+        for (int i = vectorOffsets[target]; i < vectorOffsets[target + 1]; i++) {
+            int feature = features[i];
+            int from = postingOffsets[feature];
+            int to = postingOffsets[feature + 1];
+            if (to - from > maxPostingSize) continue;
+
+            float weight = featureWeights[feature];
+            float contribution = weight * weight;
+            if (contribution == 0) continue;
+            for (int j = from; j < to; j++) {
+                int candidate = postings[j];
+                if (candidate == target) continue;
+                if (dots[candidate] == 0) {
+                    touched[touchedCount++] = candidate;
+                }
+                dots[candidate] += contribution;
+            }
+        }
+
+        // Selezione dei k migliori per inserimento (k piccolo); a parità di punteggio vince l'indice minore
+        int size = 0;
+        for (int t = 0; t < touchedCount; t++) {
+            int candidate = touched[t];
+            float score = dots[candidate] / (norms[target] * norms[candidate]);
+            dots[candidate] = 0;
+
+            if (size == k && !better(score, candidate, topScores[base + k - 1], topProducts[base + k - 1])) {
+                continue;
+            }
+            int position = size < k ? size++ : k - 1;
+            while (position > 0 && better(score, candidate, topScores[base + position - 1], topProducts[base + position - 1])) {
+                topScores[base + position] = topScores[base + position - 1];
+                topProducts[base + position] = topProducts[base + position - 1];
+                position--;
+            }
+            topScores[base + position] = score;
+            topProducts[base + position] = candidate;
+        }
+    }
+
+    private static boolean better(float score, int product, float otherScore, int otherProduct) {
+        return score > otherScore || (score == otherScore && product < otherProduct);
+    }
+
+    /**
+     * Costruisce il modello da coppie (prodotto, feature); le feature sono codificate a dizionario in indici densi
+     */
+    static final class Builder {
+
+        private final int productCount;
+        private final int maxPostingSize;
+
+        // Dizionario (tipo, ID) -> indice feature
+        private final Map<Long, Integer> featureIndex = new HashMap<>();
+        private float[] typeWeights = new float[1024];
+
+        private int[] pairProducts = new int[1024];
+        private int[] pairFeatures = new int[1024];
+        private int pairCount;
+
+        Builder(int productCount, int maxPostingSize) {
+            this.productCount = productCount;
+            this.maxPostingSize = maxPostingSize;
+        }
+
+        void add(int product, FeatureType type, long id) {
+            long key = ((long) type.ordinal() << 56) | id;
+            Integer feature = featureIndex.get(key);
+            if (feature == null) {
+                feature = featureIndex.size();
+                featureIndex.put(key, feature);
+                if (feature == typeWeights.length) {
+                    typeWeights = Arrays.copyOf(typeWeights, feature * 2);
+                }
+                typeWeights[feature] = type.weight();
+            }
+
+            if (pairCount == pairProducts.length) {
+                pairProducts = Arrays.copyOf(pairProducts, pairCount * 2);
+                pairFeatures = Arrays.copyOf(pairFeatures, pairCount * 2);
+            }
+            pairProducts[pairCount] = product;
+            pairFeatures[pairCount] = feature;
+            pairCount++;
+        }
+
+        /**
+         * Raggruppa le coppie per prodotto (counting sort) eliminando le feature duplicate
+         */
+        SimilarityModel build() {
+            int[] offsets = new int[productCount + 1];
+            for (int i = 0; i < pairCount; i++) {
+                offsets[pairProducts[i] + 1]++;
+            }
+            for (int p = 0; p < productCount; p++) {
+                offsets[p + 1] += offsets[p];
+            }
+
+            int[] grouped = new int[pairCount];
+            int[] cursor = Arrays.copyOf(offsets, productCount);
+            for (int i = 0; i < pairCount; i++) {
+                grouped[cursor[pairProducts[i]]++] = pairFeatures[i];
+            }
+
+            int[] vectorOffsets = new int[productCount + 1];
+            int size = 0;
+            for (int p = 0; p < productCount; p++) {
+                Arrays.sort(grouped, offsets[p], offsets[p + 1]);
+                for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                    if (i == offsets[p] || grouped[i] != grouped[i - 1]) {
+                        grouped[size++] = grouped[i];
+                    }
+                }
+                vectorOffsets[p + 1] = size;
+            }
+
+            return new SimilarityModel(vectorOffsets, Arrays.copyOf(grouped, size),
+                Arrays.copyOf(typeWeights, featureIndex.size()), maxPostingSize);
+        }
+    }
+
+    /**
+     * Risultato del calcolo: per il target i le posizioni [i * k, (i + 1) * k)
+     */
+    static final class TopK {
+
+        final int[] targets;
+        final int k;
+        final int[] products;
+        final float[] scores;
+
+        private TopK(int[] targets, int k) {
+            this.targets = targets;
+            this.k = k;
+            this.products = new int[targets.length * k];
+            this.scores = new float[targets.length * k];
+            Arrays.fill(products, -1);
+        }
+    }
+
+    /**
+     * Accumulatore denso per thread: prodotti scalari parziali e candidati toccati (azzerati dopo ogni prodotto)
+     */
+    private static final class Accumulator {
+
+        private final float[] dots;
+        private final int[] touched;
+
+        private Accumulator(int productCount) {
+            this.dots = new float[productCount];
+            this.touched = new int[productCount];
+        }
+    }
+
+    /**
+     * Divide i target a metà fino a LEAF_SIZE prodotti per foglia
+     */
+    private final class ScoringTask extends RecursiveAction {
+
+        private final int[] targets;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final TopK result;
+        private final ThreadLocal<Accumulator> accumulators;
+
+        private ScoringTask(int[] targets, int from, int to, int k, TopK result, ThreadLocal<Accumulator> accumulators) {
+            this.targets = targets;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.result = result;
+            this.accumulators = accumulators;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                Accumulator accumulator = accumulators.get();
+                for (int i = from; i < to; i++) {
+                    scoreProduct(targets[i], k, accumulator, result.products, result.scores, i * k);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScoringTask(targets, from, middle, k, result, accumulators),
+                      new ScoringTask(targets, middle, to, k, result, accumulators));
+        }
+    }
+}
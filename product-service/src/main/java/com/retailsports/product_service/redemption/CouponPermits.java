@@ -0,0 +1,156 @@
+package com.retailsports.product_service.redemption;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Permessi di utilizzo di un codice sconto tenuti in memoria, distribuiti su più contatori
+ *
+ * Ogni thread preleva dal proprio contatore (e dagli altri quando è vuoto) con una CAS: sotto carico
+ * i riscatti dello stesso codice non si contendono una sola variabile né la riga dello sconto.
+ * Quando tutti i contatori sono vuoti un blocco di permessi viene richiesto all'allocatore (database),
+ * un thread alla volta. Se l'allocatore non ne concede, il codice risulta esaurito senza nuove richieste
+ * fino allo scadere dell'intervallo di ricontrollo (i permessi possono tornare da rimborsi o da altre istanze).
+ */
+public final class CouponPermits {
+
+    // Un contatore ogni 16 int (64 byte): contatori diversi su linee di cache diverse
+    private static final int PADDING = 16;
+
+    private final int stripeCount;
+    private final AtomicIntegerArray stripes;
+    private final int blockSize;
+    private final long exhaustedRecheckNanos;
+    private final IntUnaryOperator allocator;
+
+    // Stato di ricarica e chiusura, protetto da refillLock
+    private final Object refillLock = new Object();
+    private boolean exhausted;
+    private long exhaustedAt;
+    private volatile boolean closed;
+    private volatile long refills;
+
+    /**
+     * @param allocator permessi richiesti -> permessi concessi (0 se esauriti)
+     */
+    public CouponPermits(int stripeCount, int blockSize, Duration exhaustedRecheck, IntUnaryOperator allocator) {
+        this.stripeCount = Math.max(1, stripeCount);
+        this.stripes = new AtomicIntegerArray(this.stripeCount * PADDING);
+        this.blockSize = Math.max(1, blockSize);
+        this.exhaustedRecheckNanos = exhaustedRecheck.toNanos();
+        this.allocator = allocator;
+    }
+
+    /**
+     * Preleva un permesso, ricaricando dall'allocatore se in memoria non ce ne sono più
+     *
+     * @return false se il codice è esaurito o i permessi sono stati restituiti (close)
+     */
+    public boolean tryAcquire() {
+        int home = homeStripe();
+        return takeAny(home) || refill(home);
+    }
+
+    /**
+     * Rimette in memoria un permesso preso e non usato (riscatto fallito)
+     *
+     * @return false se i permessi sono già stati restituiti: il permesso va reso all'allocatore
+     */
+    public boolean release() {
+        synchronized (refillLock) {
+            if (closed) {
+                return false;
+            }
+            stripes.incrementAndGet(homeStripe() * PADDING);
+            exhausted = false;
+            return true;
+        }
+    }
+
+    /**
+     * Chiude il pool e restituisce il numero di permessi rimasti (da rendere all'allocatore)
+     */
+    public int close() {
+        synchronized (refillLock) {
+            closed = true;
+            int remaining = 0;
+            for (int i = 0; i < stripeCount; i++) {
+                remaining += stripes.getAndSet(i * PADDING, 0);
+            }
+            return remaining;
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Permessi in memoria (stima: i contatori sono letti uno alla volta)
+     */
+    public int available() {
+        int available = 0;
+        for (int i = 0; i < stripeCount; i++) {
+            available += stripes.get(i * PADDING);
+        }
+        return available;
+    }
+
+    /**
+     * Blocchi ricevuti dall'allocatore dalla creazione
+     */
+    public long refills() {
+        return refills;
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private boolean takeAny(int home) {
+        for (int i = 0; i < stripeCount; i++) {
+            int index = ((home + i) % stripeCount) * PADDING;
+            int current;
+            while ((current = stripes.get(index)) > 0) {
+                if (stripes.compareAndSet(index, current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean refill(int home) {
+        synchronized (refillLock) {
+            if (closed) {
+                return false;
+            }
+            // Un altro thread può aver appena ricaricato
+            if (takeAny(home)) {
+                return true;
+            }
+            long now = System.nanoTime();
+            if (exhausted && now - exhaustedAt < exhaustedRecheckNanos) {
+                return false;
+            }
+
+            int granted = allocator.applyAsInt(blockSize);
+            if (granted <= 0) {
+                exhausted = true;
+                exhaustedAt = now;
+                return false;
+            }
+            exhausted = false;
+            refills++;
+            // Un permesso è per questo thread, gli altri nel suo contatore
+            if (granted > 1) {
+                stripes.addAndGet(home * PADDING, granted - 1);
+            }
+            return true;
+        }
+    }
+
+    private int homeStripe() {
+        long id = Thread.currentThread().threadId();
+        return (int) Math.floorMod(id * 0x9E3779B97F4A7C15L >>> 32, (long) stripeCount);
+    }
+}
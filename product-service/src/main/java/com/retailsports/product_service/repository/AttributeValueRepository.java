@@ -37,6 +37,10 @@ public interface AttributeValueRepository extends JpaRepository<AttributeValue,
            "WHERE av.attribute.id = :attributeId AND av.value = :value")
     boolean existsByAttributeIdAndValue(@Param("attributeId") Long attributeId, @Param("value") String value);
 
+    // Coppie (attributeValueId, attributeId) di tutti i valori (dizionario dell'indice a faccette)
+    @Query("SELECT av.id, av.attribute.id FROM AttributeValue av")
+    List<Object[]> findAllValueAttributePairs();
+
     // Elimina tutti i valori di un attributo
     @Query("DELETE FROM AttributeValue av WHERE av.attribute.id = :attributeId")
     void deleteByAttributeId(@Param("attributeId") Long attributeId);
@@ -1,6 +1,7 @@
 package com.retailsports.product_service.repository;
 
 import com.retailsports.product_service.model.Brand;
+import com.retailsports.product_service.repository.projection.TableVersionProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -43,4 +44,8 @@ public interface BrandRepository extends JpaRepository<Brand, Long> {
     @Query("SELECT b FROM Brand b WHERE (LOWER(b.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
            "OR LOWER(b.description) LIKE LOWER(CONCAT('%', :search, '%'))) AND b.isActive = true")
     List<Brand> searchActiveByNameOrDescription(@Param("search") String search);
+
+    // Ultimo aggiornamento e numero di brand (ETag delle liste)
+    @Query("SELECT MAX(b.updatedAt) AS lastUpdatedAt, COUNT(b) AS rowCount FROM Brand b")
+    TableVersionProjection findTableVersion();
 }
@@ -1,6 +1,7 @@
 package com.retailsports.product_service.repository;
 
 import com.retailsports.product_service.model.Category;
+import com.retailsports.product_service.repository.projection.TableVersionProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -58,4 +59,8 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     // Trova tutte le categorie ordinate per displayOrder
     @Query("SELECT c FROM Category c ORDER BY c.displayOrder ASC")
     List<Category> findAllOrderedByDisplayOrder();
+
+    // Ultimo aggiornamento e numero di categorie (ETag delle liste)
+    @Query("SELECT MAX(c.updatedAt) AS lastUpdatedAt, COUNT(c) AS rowCount FROM Category c")
+    TableVersionProjection findTableVersion();
 }
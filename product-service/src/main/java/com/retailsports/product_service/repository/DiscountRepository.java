@@ -48,6 +48,20 @@ public interface DiscountRepository extends JpaRepository<Discount, Long> {
            "AND (d.maxUses IS NULL OR d.currentUses < d.maxUses)")
     List<Discount> findValidDiscountsByProductId(@Param("productId") Long productId, @Param("now") LocalDateTime now);
 
+    // Sconti indicizzabili dal motore sconti (attivi, non scaduti, con utilizzi residui)
+    @Query("SELECT d FROM Discount d WHERE d.isActive = true AND d.endsAt >= :now " +
+           "AND (d.maxUses IS NULL OR d.currentUses < d.maxUses)")
+    List<Discount> findIndexableDiscounts(@Param("now") LocalDateTime now);
+
+    // Coppie [discountId, productId] degli sconti indicizzabili
+    @Query("SELECT d.id, p.id FROM Discount d JOIN d.products p WHERE d.isActive = true AND d.endsAt >= :now " +
+           "AND (d.maxUses IS NULL OR d.currentUses < d.maxUses)")
+    List<Object[]> findIndexableDiscountProductLinks(@Param("now") LocalDateTime now);
+
+    // ID dei prodotti associati a uno sconto
+    @Query("SELECT p.id FROM Discount d JOIN d.products p WHERE d.id = :discountId")
+    List<Long> findProductIdsByDiscountId(@Param("discountId") Long discountId);
+
     // Trova sconti scaduti
     @Query("SELECT d FROM Discount d WHERE d.endsAt < :now ORDER BY d.endsAt DESC")
     List<Discount> findExpiredDiscounts(@Param("now") LocalDateTime now);
@@ -69,14 +83,19 @@ public interface DiscountRepository extends JpaRepository<Discount, Long> {
     long countProductsByDiscountId(@Param("discountId") Long discountId);
 
     // Disattiva sconti scaduti
+    // ID degli sconti scaduti ancora attivi (da disattivare)
+    @Query("SELECT d.id FROM Discount d WHERE d.endsAt < :now AND d.isActive = true")
+    List<Long> findActiveExpiredIds(@Param("now") LocalDateTime now);
+
     @Modifying
     @Query("UPDATE Discount d SET d.isActive = false WHERE d.endsAt < :now AND d.isActive = true")
     int deactivateExpiredDiscounts(@Param("now") LocalDateTime now);
 
-    // Incrementa currentUses di uno sconto
-    @Modifying
-    @Query("UPDATE Discount d SET d.currentUses = d.currentUses + 1 WHERE d.id = :discountId")
-    void incrementUsage(@Param("discountId") Long discountId);
+    // Incrementa currentUses di uno sconto se non ha raggiunto maxUses (0 = esaurito)
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Discount d SET d.currentUses = d.currentUses + 1 WHERE d.id = :discountId " +
+           "AND (d.maxUses IS NULL OR d.currentUses < d.maxUses)")
+    int incrementUsageIfAvailable(@Param("discountId") Long discountId);
 
     // Trova sconti per importo minimo
     @Query("SELECT d FROM Discount d WHERE d.isActive = true " +
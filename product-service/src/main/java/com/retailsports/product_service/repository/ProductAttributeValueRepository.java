@@ -21,6 +21,10 @@ public interface ProductAttributeValueRepository extends JpaRepository<ProductAt
     @Query("SELECT pav FROM ProductAttributeValue pav WHERE pav.attributeValue.id = :attributeValueId")
     List<ProductAttributeValue> findByAttributeValueId(@Param("attributeValueId") Long attributeValueId);
 
+    // ID dei prodotti con un determinato valore di attributo
+    @Query("SELECT pav.product.id FROM ProductAttributeValue pav WHERE pav.attributeValue.id = :attributeValueId")
+    List<Long> findProductIdsByAttributeValueId(@Param("attributeValueId") Long attributeValueId);
+
     // Trova attributi di un prodotto per tipo di attributo
     @Query("SELECT pav FROM ProductAttributeValue pav " +
            "WHERE pav.product.id = :productId AND pav.attributeValue.attribute.type = :attributeType")
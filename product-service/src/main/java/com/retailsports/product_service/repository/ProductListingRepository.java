@@ -0,0 +1,18 @@
+package com.retailsports.product_service.repository;
+
+import com.retailsports.product_service.repository.projection.ProductSummaryProjection;
+import com.retailsports.product_service.util.KeysetCursor;
+
+import java.util.List;
+
+/**
+ * Query di listing con paginazione keyset (seek), costruite dinamicamente sulla chiave di ordinamento
+ */
+public interface ProductListingRepository {
+
+    /**
+     * Prodotti attivi successivi al cursore, ordinati per (sortBy, id)
+     * categoryId e brandId sono filtri opzionali (null = nessun filtro). Nessuna query di COUNT.
+     */
+    List<ProductSummaryProjection> findSummariesAfter(Long categoryId, Long brandId, KeysetCursor cursor, int limit);
+}
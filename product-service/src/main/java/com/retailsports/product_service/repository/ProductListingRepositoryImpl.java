@@ -0,0 +1,88 @@
+package com.retailsports.product_service.repository;
+
+import com.retailsports.product_service.repository.projection.ProductSummaryProjection;
+import com.retailsports.product_service.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Implementazione delle query keyset: il predicato di seek dipende dalla chiave di ordinamento,
+ * quindi la JPQL è composta a runtime (la chiave è sempre una delle KeysetCursor.SORT_KEYS)
+ */
+public class ProductListingRepositoryImpl implements ProductListingRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductSummaryProjection> findSummariesAfter(Long categoryId, Long brandId, KeysetCursor cursor, int limit) {
+        String key = "p." + cursor.sortBy();
+        boolean ascending = cursor.direction() == Sort.Direction.ASC;
+        String comparison = ascending ? ">" : "<";
+        String order = ascending ? "ASC" : "DESC";
+
+        StringBuilder jpql = new StringBuilder(ProductRepository.SUMMARY_SELECT)
+            .append("WHERE p.deletedAt IS NULL AND p.isActive = true ");
+        if (categoryId != null) {
+            jpql.append("AND c.id = :categoryId ");
+        }
+        if (brandId != null) {
+            jpql.append("AND b.id = :brandId ");
+        }
+        if (!cursor.isFirst()) {
+            // Seek su (chiave, id): riprende esattamente dopo l'ultimo elemento restituito
+            jpql.append("AND (").append(key).append(' ').append(comparison).append(" :lastValue ")
+                .append("OR (").append(key).append(" = :lastValue AND p.id ").append(comparison).append(" :lastId)) ");
+        }
+        jpql.append("ORDER BY ").append(key).append(' ').append(order).append(", p.id ").append(order);
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
+        if (categoryId != null) {
+            query.setParameter("categoryId", categoryId);
+        }
+        if (brandId != null) {
+            query.setParameter("brandId", brandId);
+        }
+        if (!cursor.isFirst()) {
+            query.setParameter("lastValue", cursor.lastValue());
+            query.setParameter("lastId", cursor.lastId());
+        }
+        query.setMaxResults(limit);
+
+        return query.getResultList()
+            .stream()
+            .<ProductSummaryProjection>map(TupleProductSummary::new)
+            .toList();
+    }
+
+    /**
+     * Adattatore Tuple -> ProductSummaryProjection (stessi alias di SUMMARY_SELECT)
+     */
+    private record TupleProductSummary(Tuple tuple) implements ProductSummaryProjection {
+
+        @Override public Long getId() { return tuple.get("id", Long.class); }
+        @Override public String getSku() { return tuple.get("sku", String.class); }
+        @Override public String getName() { return tuple.get("name", String.class); }
+        @Override public String getSlug() { return tuple.get("slug", String.class); }
+        @Override public Integer getPriceCents() { return tuple.get("priceCents", Integer.class); }
+        @Override public Integer getCompareAtPriceCents() { return tuple.get("compareAtPriceCents", Integer.class); }
+        @Override public Integer getStockQuantity() { return tuple.get("stockQuantity", Integer.class); }
+        @Override public String getBrandName() { return tuple.get("brandName", String.class); }
+        @Override public String getCategoryName() { return tuple.get("categoryName", String.class); }
+        @Override public String getPrimaryImageUrl() { return tuple.get("primaryImageUrl", String.class); }
+        @Override public String getPrimaryImageVariantsKey() { return tuple.get("primaryImageVariantsKey", String.class); }
+        @Override public BigDecimal getRatingAverage() { return tuple.get("ratingAverage", BigDecimal.class); }
+        @Override public Integer getRatingCount() { return tuple.get("ratingCount", Integer.class); }
+        @Override public Boolean getIsFeatured() { return tuple.get("isFeatured", Boolean.class); }
+        @Override public Boolean getIsNew() { return tuple.get("isNew", Boolean.class); }
+        @Override public Boolean getIsOnSale() { return tuple.get("isOnSale", Boolean.class); }
+        @Override public LocalDateTime getCreatedAt() { return tuple.get("createdAt", LocalDateTime.class); }
+    }
+}
@@ -1,18 +1,34 @@
 package com.retailsports.product_service.repository;
 
 import com.retailsports.product_service.model.Product;
+import com.retailsports.product_service.repository.projection.ProductInfoProjection;
+import com.retailsports.product_service.repository.projection.ProductSummaryProjection;
+import com.retailsports.product_service.repository.projection.ProductVersionProjection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductListingRepository {
+
+    // SELECT condivisa dalle query di listing: categoria, brand e immagine principale in un'unica query
+    String SUMMARY_SELECT = "SELECT p.id AS id, p.sku AS sku, p.name AS name, p.slug AS slug, " +
+           "p.priceCents AS priceCents, p.compareAtPriceCents AS compareAtPriceCents, " +
+           "p.stockQuantity AS stockQuantity, p.ratingAverage AS ratingAverage, p.ratingCount AS ratingCount, " +
+           "p.isFeatured AS isFeatured, p.isNew AS isNew, p.isOnSale AS isOnSale, p.createdAt AS createdAt, " +
+           "c.name AS categoryName, b.name AS brandName, " +
+           "(SELECT MIN(pi.imageUrl) FROM ProductImage pi WHERE pi.product.id = p.id AND pi.isPrimary = true) AS primaryImageUrl, " +
+           "(SELECT MIN(pi.variantsKey) FROM ProductImage pi WHERE pi.product.id = p.id AND pi.isPrimary = true) AS primaryImageVariantsKey " +
+           "FROM Product p JOIN p.category c LEFT JOIN p.brand b ";
 
     // ========== QUERY BASE ==========
 
@@ -111,11 +127,6 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "ORDER BY p.createdAt DESC")
     List<Product> findNewProducts();
 
-    // Trova prodotti in sconto
-    @Query("SELECT p FROM Product p WHERE p.isOnSale = true AND p.deletedAt IS NULL AND p.isActive = true " +
-           "ORDER BY p.createdAt DESC")
-    List<Product> findProductsOnSale();
-
     // Trova prodotti in evidenza con paginazione
     @Query("SELECT p FROM Product p WHERE p.isFeatured = true AND p.deletedAt IS NULL AND p.isActive = true")
     Page<Product> findFeaturedProducts(Pageable pageable);
@@ -204,4 +215,185 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // Conta prodotti attivi totali
     @Query("SELECT COUNT(p) FROM Product p WHERE p.deletedAt IS NULL AND p.isActive = true")
     long countActiveProducts();
+
+    // ========== QUERY LISTING (PROIEZIONI) ==========
+
+    // Catalogo prodotti attivi (proiezione summary)
+    @Query(value = SUMMARY_SELECT + "WHERE p.deletedAt IS NULL AND p.isActive = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.deletedAt IS NULL AND p.isActive = true")
+    Page<ProductSummaryProjection> findAllActiveSummaries(Pageable pageable);
+
+    // Prodotti per categoria (proiezione summary)
+    @Query(value = SUMMARY_SELECT + "WHERE c.id = :categoryId AND p.deletedAt IS NULL AND p.isActive = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId " +
+                        "AND p.deletedAt IS NULL AND p.isActive = true")
+    Page<ProductSummaryProjection> findSummariesByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    // Prodotti per brand (proiezione summary)
+    @Query(value = SUMMARY_SELECT + "WHERE b.id = :brandId AND p.deletedAt IS NULL AND p.isActive = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.brand.id = :brandId " +
+                        "AND p.deletedAt IS NULL AND p.isActive = true")
+    Page<ProductSummaryProjection> findSummariesByBrandId(@Param("brandId") Long brandId, Pageable pageable);
+
+    // Prodotti in evidenza (proiezione summary)
+    @Query(value = SUMMARY_SELECT + "WHERE p.isFeatured = true AND p.deletedAt IS NULL AND p.isActive = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.isFeatured = true " +
+                        "AND p.deletedAt IS NULL AND p.isActive = true")
+    Page<ProductSummaryProjection> findFeaturedSummaries(Pageable pageable);
+
+    // Prodotti in sconto (proiezione summary, paginazione e ordinamento su DB)
+    @Query(value = SUMMARY_SELECT + "WHERE p.isOnSale = true AND p.deletedAt IS NULL AND p.isActive = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.isOnSale = true " +
+                        "AND p.deletedAt IS NULL AND p.isActive = true")
+    Page<ProductSummaryProjection> findOnSaleSummaries(Pageable pageable);
+
+    // Ricerca su nome e descrizione (proiezione summary)
+    @Query(value = SUMMARY_SELECT + "WHERE (LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+           "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+           "AND p.deletedAt IS NULL AND p.isActive = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE (LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+                        "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+                        "AND p.deletedAt IS NULL AND p.isActive = true")
+    Page<ProductSummaryProjection> searchSummariesByNameOrDescription(@Param("search") String search, Pageable pageable);
+
+    // Prodotti per categoria con filtri multipli (proiezione summary)
+    @Query(value = SUMMARY_SELECT + "WHERE c.id = :categoryId " +
+           "AND (:brandId IS NULL OR b.id = :brandId) " +
+           "AND (:minPrice IS NULL OR p.priceCents >= :minPrice) " +
+           "AND (:maxPrice IS NULL OR p.priceCents <= :maxPrice) " +
+           "AND p.deletedAt IS NULL AND p.isActive = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId " +
+                        "AND (:brandId IS NULL OR p.brand.id = :brandId) " +
+                        "AND (:minPrice IS NULL OR p.priceCents >= :minPrice) " +
+                        "AND (:maxPrice IS NULL OR p.priceCents <= :maxPrice) " +
+                        "AND p.deletedAt IS NULL AND p.isActive = true")
+    Page<ProductSummaryProjection> findSummariesWithFilters(
+        @Param("categoryId") Long categoryId,
+        @Param("brandId") Long brandId,
+        @Param("minPrice") Integer minPrice,
+        @Param("maxPrice") Integer maxPrice,
+        Pageable pageable
+    );
+
+    // Prodotti per IDs (proiezione summary) - l'ordine va ricostruito dal chiamante
+    @Query(SUMMARY_SELECT + "WHERE p.id IN :ids AND p.deletedAt IS NULL AND p.isActive = true")
+    List<ProductSummaryProjection> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    // Prodotti simili precalcolati, nell'ordine del ranking (scansione della chiave primaria di product_similarities)
+    @Query(SUMMARY_SELECT + "JOIN ProductSimilarity s ON s.similarProductId = p.id " +
+           "WHERE s.productId = :productId AND p.deletedAt IS NULL AND p.isActive = true " +
+           "ORDER BY s.position")
+    List<ProductSummaryProjection> findSimilarSummaries(@Param("productId") Long productId, Pageable pageable);
+
+    // Righe per il modello di similarità: [id, categoryId, brandId] dei prodotti attivi
+    @Query("SELECT p.id, p.category.id, b.id FROM Product p LEFT JOIN p.brand b " +
+           "WHERE p.deletedAt IS NULL AND p.isActive = true ORDER BY p.id")
+    List<Object[]> findActiveSimilarityRows();
+
+    // ========== QUERY PER INDICIZZAZIONE ==========
+
+    // Prodotti attivi con categoria e brand già caricati (costruzione indice di ricerca)
+    @Query("SELECT p FROM Product p JOIN FETCH p.category LEFT JOIN FETCH p.brand " +
+           "WHERE p.deletedAt IS NULL AND p.isActive = true")
+    List<Product> findAllActiveForIndexing();
+
+    // Prodotti attivi per l'autocompletamento: [id, name, slug, salesCount, viewsCount, categoryId, brandId]
+    @Query("SELECT p.id, p.name, p.slug, p.salesCount, p.viewsCount, c.id, b.id " +
+           "FROM Product p JOIN p.category c LEFT JOIN p.brand b WHERE p.deletedAt IS NULL AND p.isActive = true")
+    List<Object[]> findSuggestionRows();
+
+    // Identificativi di tutti i prodotti, inclusi i soft deleted: [id, sku, slug, barcode, deletedAt]
+    @Query("SELECT p.id, p.sku, p.slug, p.barcode, p.deletedAt FROM Product p")
+    List<Object[]> findAllIdentifiers();
+
+    // Coppie (productId, tagId) dei prodotti attivi (costruzione indice a faccette)
+    @Query("SELECT p.id, t.id FROM Product p JOIN p.tags t WHERE p.deletedAt IS NULL AND p.isActive = true")
+    List<Object[]> findActiveProductTagPairs();
+
+    // Coppie (productId, attributeValueId) dei prodotti attivi (costruzione indice a faccette)
+    @Query("SELECT p.id, pav.attributeValue.id FROM Product p JOIN p.attributeValues pav " +
+           "WHERE p.deletedAt IS NULL AND p.isActive = true")
+    List<Object[]> findActiveProductAttributeValuePairs();
+
+    // Coppie (productId, categoryId) dei prodotti attivi (classifiche trending e più venduti)
+    @Query("SELECT p.id, p.category.id FROM Product p WHERE p.deletedAt IS NULL AND p.isActive = true")
+    List<Object[]> findActiveProductCategoryRows();
+
+    // Coppie (categoryId, numero prodotti attivi) (snapshot albero categorie)
+    @Query("SELECT p.category.id, COUNT(p) FROM Product p WHERE p.deletedAt IS NULL AND p.isActive = true " +
+           "GROUP BY p.category.id")
+    List<Object[]> countActiveProductsGroupedByCategory();
+
+    // ========== QUERY BATCH (SERVIZI INTERNI) ==========
+
+    String INFO_SELECT = "SELECT p.id AS id, p.sku AS sku, p.name AS name, p.slug AS slug, p.priceCents AS priceCents, " +
+        "p.stockQuantity AS stockQuantity, p.trackInventory AS trackInventory, p.isActive AS isActive FROM Product p ";
+
+    // Dati essenziali per ID (no soft deleted)
+    @Query(INFO_SELECT + "WHERE p.id IN :ids AND p.deletedAt IS NULL")
+    List<ProductInfoProjection> findInfoByIds(@Param("ids") Collection<Long> ids);
+
+    // Dati essenziali per SKU (no soft deleted)
+    @Query(INFO_SELECT + "WHERE p.sku IN :skus AND p.deletedAt IS NULL")
+    List<ProductInfoProjection> findInfoBySkus(@Param("skus") Collection<String> skus);
+
+    // ========== QUERY PER IMPORT ==========
+
+    // SKU già presenti tra quelli indicati (inclusi soft deleted: il vincolo di unicità vale su tutta la tabella)
+    @Query("SELECT p.sku FROM Product p WHERE p.sku IN :skus")
+    List<String> findExistingSkus(@Param("skus") Collection<String> skus);
+
+    // Barcode già presenti tra quelli indicati (inclusi soft deleted: il vincolo di unicità vale su tutta la tabella)
+    @Query("SELECT p.barcode FROM Product p WHERE p.barcode IN :barcodes")
+    List<String> findExistingBarcodes(@Param("barcodes") Collection<String> barcodes);
+
+    // Slug già presenti tra quelli indicati
+    @Query("SELECT p.slug FROM Product p WHERE p.slug IN :slugs")
+    List<String> findExistingSlugs(@Param("slugs") Collection<String> slugs);
+
+    // Prodotti per SKU con categoria e brand già caricati (indicizzazione dopo un import)
+    @Query("SELECT p FROM Product p JOIN FETCH p.category LEFT JOIN FETCH p.brand WHERE p.sku IN :skus")
+    List<Product> findForIndexingBySkus(@Param("skus") Collection<String> skus);
+
+    // Prodotti per ID con categoria e brand già caricati (modifiche lette dal log delle altre istanze)
+    @Query("SELECT p FROM Product p JOIN FETCH p.category LEFT JOIN FETCH p.brand WHERE p.id IN :ids")
+    List<Product> findForIndexingByIds(@Param("ids") Collection<Long> ids);
+
+    // ========== QUERY PER VERSIONI (GET CONDIZIONALI) ==========
+
+    String VERSION_SELECT =
+        "SELECT p.id AS id, p.sku AS sku, p.slug AS slug, p.updatedAt AS updatedAt, c.updatedAt AS categoryUpdatedAt, b.updatedAt AS brandUpdatedAt, " +
+        "(SELECT COUNT(d) FROM Discount d JOIN d.products dp WHERE dp.id = p.id " +
+        "AND d.isActive = true AND d.startsAt <= :now AND d.endsAt >= :now " +
+        "AND (d.maxUses IS NULL OR d.currentUses < d.maxUses)) AS validDiscountCount, " +
+        "(SELECT MAX(d.updatedAt) FROM Discount d JOIN d.products dp WHERE dp.id = p.id) AS discountsUpdatedAt " +
+        "FROM Product p JOIN p.category c LEFT JOIN p.brand b ";
+
+    // Versione del dettaglio prodotto per ID (no soft deleted)
+    @Query(VERSION_SELECT + "WHERE p.id = :id AND p.deletedAt IS NULL")
+    Optional<ProductVersionProjection> findVersionById(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Versione del dettaglio prodotto per slug (no soft deleted)
+    @Query(VERSION_SELECT + "WHERE p.slug = :slug AND p.deletedAt IS NULL")
+    Optional<ProductVersionProjection> findVersionBySlug(@Param("slug") String slug, @Param("now") LocalDateTime now);
+
+    // Versione del dettaglio prodotto per SKU (no soft deleted)
+    @Query(VERSION_SELECT + "WHERE p.sku = :sku AND p.deletedAt IS NULL")
+    Optional<ProductVersionProjection> findVersionBySku(@Param("sku") String sku, @Param("now") LocalDateTime now);
+
+    // Aggiorna solo updatedAt (modifiche a entità figlie incluse nel dettaglio, es. immagini)
+    @Modifying
+    @Query("UPDATE Product p SET p.updatedAt = :now WHERE p.id = :id")
+    int touch(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Aggiorna solo updatedAt di più prodotti (es. valore di attributo eliminato)
+    @Modifying
+    @Query("UPDATE Product p SET p.updatedAt = :now WHERE p.id IN :ids")
+    int touchAll(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Incrementa il contatore vendite (updatedAt invariato: una vendita non è una modifica del prodotto)
+    @Modifying
+    @Query("UPDATE Product p SET p.salesCount = p.salesCount + :quantity, p.updatedAt = p.updatedAt " +
+           "WHERE p.id = :id AND p.deletedAt IS NULL")
+    int incrementSalesCount(@Param("id") Long id, @Param("quantity") int quantity);
 }
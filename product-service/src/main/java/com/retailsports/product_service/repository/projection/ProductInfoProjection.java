@@ -0,0 +1,16 @@
+package com.retailsports.product_service.repository.projection;
+
+/**
+ * Proiezione con i dati essenziali del prodotto (lettura batch per i servizi interni)
+ */
+public interface ProductInfoProjection {
+
+    Long getId();
+    String getSku();
+    String getName();
+    String getSlug();
+    Integer getPriceCents();
+    Integer getStockQuantity();
+    Boolean getTrackInventory();
+    Boolean getIsActive();
+}
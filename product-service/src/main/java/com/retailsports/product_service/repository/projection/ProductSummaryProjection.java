@@ -0,0 +1,43 @@
+package com.retailsports.product_service.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Proiezione per le liste di prodotti (catalogo, ricerca, categoria, brand)
+ * Caricata con una sola query: prodotto + nome categoria + nome brand + URL immagine principale
+ */
+public interface ProductSummaryProjection {
+
+    Long getId();
+    String getSku();
+    String getName();
+    String getSlug();
+
+    // Prezzo
+    Integer getPriceCents();
+    Integer getCompareAtPriceCents();
+
+    // Inventario (per badge e isInStock)
+    Integer getStockQuantity();
+
+    // Brand e categoria
+    String getBrandName();
+    String getCategoryName();
+
+    // Immagine principale
+    String getPrimaryImageUrl();
+    String getPrimaryImageVariantsKey();
+
+    // Rating
+    BigDecimal getRatingAverage();
+    Integer getRatingCount();
+
+    // Flags
+    Boolean getIsFeatured();
+    Boolean getIsNew();
+    Boolean getIsOnSale();
+
+    // Chiave di ordinamento per la paginazione keyset
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,21 @@
+package com.retailsports.product_service.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Componenti della versione del dettaglio prodotto
+ * Include i timestamp di categoria, brand e sconti, che compaiono nella risposta completa.
+ */
+public interface ProductVersionProjection {
+
+    Long getId();
+    String getSku();
+    String getSlug();
+    LocalDateTime getUpdatedAt();
+    LocalDateTime getCategoryUpdatedAt();
+    LocalDateTime getBrandUpdatedAt();
+
+    // Sconti: il numero di quelli validi cambia anche solo per il passare del tempo
+    Long getValidDiscountCount();
+    LocalDateTime getDiscountsUpdatedAt();
+}
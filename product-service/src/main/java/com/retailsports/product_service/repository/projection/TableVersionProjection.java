@@ -0,0 +1,13 @@
+package com.retailsports.product_service.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ultimo aggiornamento e numero di righe di una tabella
+ * Usata per calcolare l'ETag delle liste senza caricarne il contenuto.
+ */
+public interface TableVersionProjection {
+
+    LocalDateTime getLastUpdatedAt();
+    Long getRowCount();
+}
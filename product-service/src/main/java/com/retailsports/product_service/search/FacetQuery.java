@@ -0,0 +1,20 @@
+package com.retailsports.product_service.search;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Filtri per faccetta: OR tra i valori della stessa faccetta, AND tra faccette diverse
+ * Prezzi in centesimi (null = nessun limite). I valori di attributo sono raggruppati per attributo:
+ * OR tra valori dello stesso attributo (taglia 42 o 43), AND tra attributi diversi (taglia e colore).
+ */
+public record FacetQuery(
+    Set<Long> categoryIds,
+    Set<Long> brandIds,
+    Set<Long> tagIds,
+    Set<Long> attributeValueIds,
+    EnumSet<ProductFlag> flags,
+    Integer minPrice,
+    Integer maxPrice
+) {
+}
@@ -0,0 +1,11 @@
+package com.retailsports.product_service.search;
+
+import com.retailsports.product_service.dto.response.ProductFacetsResponse;
+
+import java.util.List;
+
+/**
+ * Risultato di una ricerca a faccette: IDs della pagina richiesta, totale e conteggi per faccetta
+ */
+public record FacetedHits(List<Long> productIds, long totalHits, ProductFacetsResponse facets) {
+}
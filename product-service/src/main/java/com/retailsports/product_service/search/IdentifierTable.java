@@ -0,0 +1,232 @@
+package com.retailsports.product_service.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Tabella hash a indirizzamento aperto (probing lineare) da chiave stringa a ID prodotto, su soli array primitivi
+ * Le chiavi sono salvate in UTF-8 in un'unica arena di byte; ogni voce occupa uno slot negli array
+ * hash/id/offset: nessun oggetto per voce, quindi pressione trascurabile sul GC anche con milioni di chiavi.
+ * Non thread-safe: la sincronizzazione è a carico di ProductIdentifierIndex.
+ */
+final class IdentifierTable {
+
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = -1;
+    private static final int MAX_LOAD_PERCENT = 60;
+    private static final int MIN_CAPACITY = 1024;
+
+    private int[] hashes;
+    private long[] ids;
+    private int[] offsets;
+    private int mask;
+
+    private int size;
+    private int tombstones;
+
+    // Arena delle chiavi: [lunghezza (2 byte)][byte UTF-8]
+    private byte[] arena;
+    private int arenaLength;
+    private int arenaGarbage;
+
+    // ID prodotto -> slot + 1 (gli ID sono autoincrementali, quindi densi)
+    private int[] slotById = new int[MIN_CAPACITY];
+
+    IdentifierTable() {
+        this(MIN_CAPACITY);
+    }
+
+    IdentifierTable(int expectedSize) {
+        allocate(capacityFor(expectedSize), Math.max(expectedSize, MIN_CAPACITY) * 16);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * ID associato alla chiave, 0 se assente
+     */
+    long get(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int slot = find(bytes, hash(bytes));
+        return slot >= 0 ? ids[slot] : EMPTY;
+    }
+
+    /**
+     * Associa la chiave all'ID, sostituendo l'eventuale chiave precedente dello stesso ID
+     */
+    void put(String key, long id) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes);
+
+        int existing = find(bytes, hash);
+        if (existing >= 0) {
+            if (ids[existing] == id) return;
+            // Chiave passata a un altro prodotto: il vecchio proprietario perde la voce
+            clearSlotById(ids[existing]);
+            removeSlot(existing);
+        }
+        remove(id);
+
+        if ((size + tombstones + 1) * 100L > (long) hashes.length * MAX_LOAD_PERCENT) {
+            rehash(capacityFor(size + 1));
+        }
+        if (arenaLength + 2 + bytes.length > arena.length) {
+            growArena(2 + bytes.length);
+        }
+
+        int slot = hash & mask;
+        while (ids[slot] != EMPTY && ids[slot] != TOMBSTONE) {
+            slot = (slot + 1) & mask;
+        }
+        if (ids[slot] == TOMBSTONE) {
+            tombstones--;
+        }
+
+        hashes[slot] = hash;
+        ids[slot] = id;
+        offsets[slot] = appendKey(bytes);
+        setSlotById(id, slot);
+        size++;
+    }
+
+    /**
+     * Rimuove la chiave associata all'ID (se presente)
+     */
+    void remove(long id) {
+        if (id >= slotById.length || slotById[(int) id] == 0) return;
+        int slot = slotById[(int) id] - 1;
+        slotById[(int) id] = 0;
+        removeSlot(slot);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private int find(byte[] bytes, int hash) {
+        int slot = hash & mask;
+        while (ids[slot] != EMPTY) {
+            if (ids[slot] != TOMBSTONE && hashes[slot] == hash && keyEquals(offsets[slot], bytes)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void removeSlot(int slot) {
+        arenaGarbage += 2 + keyLength(offsets[slot]);
+        ids[slot] = TOMBSTONE;
+        size--;
+        tombstones++;
+    }
+
+    private boolean keyEquals(int offset, byte[] bytes) {
+        int length = keyLength(offset);
+        return length == bytes.length
+            && Arrays.equals(arena, offset + 2, offset + 2 + length, bytes, 0, length);
+    }
+
+    private int keyLength(int offset) {
+        return ((arena[offset] & 0xFF) << 8) | (arena[offset + 1] & 0xFF);
+    }
+
+    private int appendKey(byte[] bytes) {
+        int offset = arenaLength;
+        arena[offset] = (byte) (bytes.length >>> 8);
+        arena[offset + 1] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, arena, offset + 2, bytes.length);
+        arenaLength += 2 + bytes.length;
+        return offset;
+    }
+
+    /**
+     * Arena piena: se è soprattutto spazio liberato la si compatta, altrimenti la si raddoppia
+     */
+    private void growArena(int needed) {
+        if (arenaGarbage * 2 > arenaLength) {
+            rehash(hashes.length);
+        }
+        if (arenaLength + needed > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + needed));
+        }
+    }
+
+    /**
+     * Ricostruisce tabella e arena con le sole voci vive (elimina tombstone e chiavi orfane)
+     */
+    private void rehash(int capacity) {
+        int[] oldHashes = hashes;
+        long[] oldIds = ids;
+        int[] oldOffsets = offsets;
+        byte[] oldArena = arena;
+
+        allocate(capacity, Math.max(arenaLength - arenaGarbage, MIN_CAPACITY) * 2);
+        for (int i = 0; i < oldIds.length; i++) {
+            long id = oldIds[i];
+            if (id == EMPTY || id == TOMBSTONE) continue;
+
+            int oldOffset = oldOffsets[i];
+            int entryLength = 2 + (((oldArena[oldOffset] & 0xFF) << 8) | (oldArena[oldOffset + 1] & 0xFF));
+            int offset = arenaLength;
+            System.arraycopy(oldArena, oldOffset, arena, offset, entryLength);
+            arenaLength += entryLength;
+
+            int slot = oldHashes[i] & mask;
+            while (ids[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = oldHashes[i];
+            ids[slot] = id;
+            offsets[slot] = offset;
+            setSlotById(id, slot);
+            size++;
+        }
+    }
+
+    private void allocate(int capacity, int arenaCapacity) {
+        hashes = new int[capacity];
+        ids = new long[capacity];
+        offsets = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+        tombstones = 0;
+        arena = new byte[arenaCapacity];
+        arenaLength = 0;
+        arenaGarbage = 0;
+    }
+
+    private void setSlotById(long id, int slot) {
+        if (id >= slotById.length) {
+            slotById = Arrays.copyOf(slotById, (int) Math.max(id + 1, slotById.length * 2L));
+        }
+        slotById[(int) id] = slot + 1;
+    }
+
+    private void clearSlotById(long id) {
+        if (id < slotById.length) {
+            slotById[(int) id] = 0;
+        }
+    }
+
+    private static int capacityFor(int entries) {
+        int needed = (int) Math.max(MIN_CAPACITY, entries * 100L / MAX_LOAD_PERCENT + 1);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    /**
+     * FNV-1a sui byte della chiave con mescolamento finale (murmur3 fmix32)
+     */
+    private static int hash(byte[] bytes) {
+        int hash = 0x811C9DC5;
+        for (byte b : bytes) {
+            hash = (hash ^ b) * 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
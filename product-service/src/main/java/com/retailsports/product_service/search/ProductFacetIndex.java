@@ -0,0 +1,709 @@
+package com.retailsports.product_service.search;
+
+import com.retailsports.product_service.cache.CategoryTreeCache;
+import com.retailsports.product_service.dto.response.ProductFacetsResponse;
+import com.retailsports.product_service.dto.response.ProductFacetsResponse.AttributeFacet;
+import com.retailsports.product_service.dto.response.ProductFacetsResponse.FacetValue;
+import com.retailsports.product_service.model.Product;
+import com.retailsports.product_service.model.Tag;
+import com.retailsports.product_service.repository.AttributeValueRepository;
+import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Indice a bitmap compresse (Roaring) per la ricerca a faccette
+ * Una bitmap per categoria, brand, tag, valore di attributo, flag e fascia di prezzo: le combinazioni di filtri
+ * sono risolte con AND/OR tra bitmap e i conteggi per faccetta con la cardinalità delle intersezioni.
+ * Gli attributi sono codificati a dizionario: l'ID di AttributeValue è il codice del valore e il dizionario
+ * valore -> attributo permette di raggruppare i filtri e i conteggi per attributo senza join su product_attribute_values.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductFacetIndex {
+
+    // Criteri di ordinamento disponibili nei documenti dell'indice (contatori come vendite e visualizzazioni no)
+    private static final Set<String> SORT_PROPERTIES = Set.of("createdAt", "priceCents", "price", "name", "id");
+
+    // Limite inferiore (incluso) di ogni fascia di prezzo in centesimi: 0-25€, 25-50€, 50-100€, 100-200€, 200€+
+    private static final int[] PRICE_BUCKET_BOUNDS = {0, 2500, 5000, 10000, 20000};
+
+    private final ProductRepository productRepository;
+    private final AttributeValueRepository attributeValueRepository;
+    private final CategoryTreeCache categoryTreeCache;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Bitmaps bitmaps = new Bitmaps();
+
+    // Modifiche applicate durante una ricostruzione: riapplicate sulle nuove bitmap prima dello scambio
+    private List<Consumer<Bitmaps>> updatesDuringRebuild;
+
+    private volatile boolean ready = false;
+
+    /**
+     * Costruisce l'indice completo a partire dai prodotti attivi
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+
+        // Da qui le modifiche committate vengono registrate: quelle non viste dalla lettura non vanno perse
+        lock.writeLock().lock();
+        try {
+            updatesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            install(start);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                updatesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void install(long start) {
+
+        // Tag di tutti i prodotti attivi con una sola query
+        Map<Long, Set<Long>> tagsByProduct = new HashMap<>();
+        for (Object[] pair : productRepository.findActiveProductTagPairs()) {
+            tagsByProduct.computeIfAbsent((Long) pair[0], id -> new HashSet<>()).add((Long) pair[1]);
+        }
+
+        // Valori di attributo dei prodotti attivi e dizionario valore -> attributo
+        Map<Long, Set<Long>> attributeValuesByProduct = new HashMap<>();
+        for (Object[] pair : productRepository.findActiveProductAttributeValuePairs()) {
+            attributeValuesByProduct.computeIfAbsent((Long) pair[0], id -> new HashSet<>()).add((Long) pair[1]);
+        }
+
+        Bitmaps newBitmaps = new Bitmaps();
+        for (Object[] pair : attributeValueRepository.findAllValueAttributePairs()) {
+            newBitmaps.defineAttributeValue((Long) pair[0], (Long) pair[1]);
+        }
+        for (Product product : productRepository.findAllActiveForIndexing()) {
+            newBitmaps.add(toDocument(product,
+                tagsByProduct.getOrDefault(product.getId(), Set.of()),
+                attributeValuesByProduct.getOrDefault(product.getId(), Set.of())));
+        }
+        newBitmaps.optimize();
+
+        lock.writeLock().lock();
+        try {
+            updatesDuringRebuild.forEach(update -> update.accept(newBitmaps));
+            updatesDuringRebuild = null;
+            bitmaps = newBitmaps;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Product facet index built: {} products in {} ms",
+            newBitmaps.all.getCardinality(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Indica se l'indice è stato costruito e può servire le ricerche
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Aggiunge o aggiorna un prodotto nell'indice (applicato dopo il commit della transazione)
+     * I prodotti disattivati o soft deleted vengono rimossi.
+     */
+    public void index(Product product) {
+        if (product.isDeleted() || !product.getIsActive()) {
+            remove(product.getId());
+            return;
+        }
+
+        // Snapshot immediato: dopo il commit le relazioni lazy non sono più navigabili
+        Set<Long> tagIds = product.getTags().stream().map(Tag::getId).collect(Collectors.toSet());
+        Set<Long> attributeValueIds = product.getAttributeValues().stream()
+            .map(productAttributeValue -> productAttributeValue.getAttributeValue().getId())
+            .collect(Collectors.toSet());
+        FacetDocument document = toDocument(product, tagIds, attributeValueIds);
+
+        TransactionUtils.afterCommit(() -> apply(target -> {
+            target.remove(document.id());
+            target.add(document);
+        }));
+    }
+
+    /**
+     * Rimuove un prodotto dall'indice (applicato dopo il commit della transazione)
+     */
+    public void remove(Long productId) {
+        int id = Math.toIntExact(productId);
+        TransactionUtils.afterCommit(() -> apply(target -> target.remove(id)));
+    }
+
+    /**
+     * Aggiorna solo la disponibilità di un prodotto già indicizzato (applicato dopo il commit della transazione)
+     * Da usare per ogni variazione di stock: non rilegge tag e attributi del prodotto.
+     */
+    public void updateStock(Long productId, Integer stockQuantity) {
+        int id = Math.toIntExact(productId);
+        boolean inStock = stockQuantity != null && stockQuantity > 0;
+        TransactionUtils.afterCommit(() -> apply(target -> target.setInStock(id, inStock)));
+    }
+
+    /**
+     * Sostituisce i valori di attributo di un prodotto già indicizzato (applicato dopo il commit della transazione)
+     */
+    public void updateAttributeValues(Long productId, Set<Long> attributeValueIds) {
+        int id = Math.toIntExact(productId);
+        Set<Long> valueIds = Set.copyOf(attributeValueIds);
+        TransactionUtils.afterCommit(() -> apply(target -> {
+            FacetDocument document = target.documents.get(id);
+            if (document != null) {
+                target.remove(id);
+                target.add(document.withAttributeValueIds(valueIds));
+            }
+        }));
+    }
+
+    /**
+     * Registra (o sposta) un valore nel dizionario degli attributi (applicato dopo il commit della transazione)
+     */
+    public void defineAttributeValue(Long attributeValueId, Long attributeId) {
+        TransactionUtils.afterCommit(() -> apply(target -> target.defineAttributeValue(attributeValueId, attributeId)));
+    }
+
+    /**
+     * Rimuove un valore dal dizionario e dai prodotti che lo usano (applicato dopo il commit della transazione)
+     */
+    public void removeAttributeValue(Long attributeValueId) {
+        TransactionUtils.afterCommit(() -> apply(target -> target.removeAttributeValue(attributeValueId)));
+    }
+
+    /**
+     * Indica se l'indice può ordinare secondo il Sort (solo il primo criterio conta); altrimenti serve la query su DB
+     */
+    public boolean supportsSort(Sort sort) {
+        return sort.stream().findFirst().map(order -> SORT_PROPERTIES.contains(order.getProperty())).orElse(true);
+    }
+
+    /**
+     * Applica i filtri, ordina e pagina i risultati e calcola i conteggi per faccetta
+     *
+     * @param rankedCandidates prodotti già ordinati per rilevanza (ricerca per keyword), null se assente;
+     *                         l'ordine di rilevanza vale solo se il Sort non è indicato
+     */
+    public FacetedHits search(FacetQuery query, List<Long> rankedCandidates, Sort sort, int offset, int limit) {
+        query = withSubcategories(query);
+        lock.readLock().lock();
+        try {
+            RoaringBitmap candidates = bitmaps.all;
+            if (rankedCandidates != null) {
+                candidates = new RoaringBitmap();
+                for (Long productId : rankedCandidates) {
+                    candidates.add(Math.toIntExact(productId));
+                }
+            }
+
+            RoaringBitmap matches = filter(query, candidates, null, null);
+
+            List<Long> ordered;
+            if (rankedCandidates != null && sort.isUnsorted()) {
+                ordered = rankedCandidates.stream()
+                    .filter(productId -> matches.contains(Math.toIntExact(productId)))
+                    .collect(Collectors.toList());
+            } else {
+                ordered = sortMatches(matches, sort);
+            }
+
+            int from = Math.min(offset, ordered.size());
+            int to = Math.min(from + limit, ordered.size());
+
+            return new FacetedHits(List.copyOf(ordered.subList(from, to)), ordered.size(), countFacets(query, candidates, matches));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ordina i prodotti indicati secondo il Sort (ricerca per keyword con ordinamento esplicito)
+     * I prodotti non indicizzati (inattivi o cancellati) sono esclusi.
+     */
+    public List<Long> sort(Collection<Long> productIds, Sort sort) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = new RoaringBitmap();
+            for (Long productId : productIds) {
+                matches.add(Math.toIntExact(productId));
+            }
+            matches.and(bitmaps.all);
+            return sortMatches(matches, sort);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Applica una modifica alle bitmap correnti e, durante una ricostruzione, la registra per riapplicarla
+     */
+    private void apply(Consumer<Bitmaps> update) {
+        lock.writeLock().lock();
+        try {
+            update.accept(bitmaps);
+            if (updatesDuringRebuild != null) {
+                updatesDuringRebuild.add(update);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Un filtro per categoria comprende le sue sottocategorie (albero delle categorie attive)
+     */
+    private FacetQuery withSubcategories(FacetQuery query) {
+        if (isEmpty(query.categoryIds())) {
+            return query;
+        }
+        return new FacetQuery(
+            categoryTreeCache.getSnapshot().withDescendants(query.categoryIds()),
+            query.brandIds(),
+            query.tagIds(),
+            query.attributeValueIds(),
+            query.flags(),
+            query.minPrice(),
+            query.maxPrice()
+        );
+    }
+
+    /**
+     * Intersezione dei filtri attivi, escludendo eventualmente una faccetta (per i conteggi)
+     * Per la faccetta ATTRIBUTE viene escluso solo il filtro dell'attributo indicato.
+     */
+    private RoaringBitmap filter(FacetQuery query, RoaringBitmap candidates, Facet excluded, Long excludedAttributeId) {
+        RoaringBitmap result = candidates.clone();
+
+        if (excluded != Facet.CATEGORY && !isEmpty(query.categoryIds())) {
+            result.and(union(bitmaps.byCategory, query.categoryIds()));
+        }
+        if (excluded != Facet.BRAND && !isEmpty(query.brandIds())) {
+            result.and(union(bitmaps.byBrand, query.brandIds()));
+        }
+        if (excluded != Facet.TAG && !isEmpty(query.tagIds())) {
+            result.and(union(bitmaps.byTag, query.tagIds()));
+        }
+        if (!isEmpty(query.attributeValueIds())) {
+            for (Map.Entry<Long, Set<Long>> group : groupByAttribute(query.attributeValueIds()).entrySet()) {
+                if (excluded != Facet.ATTRIBUTE || !Objects.equals(group.getKey(), excludedAttributeId)) {
+                    result.and(union(bitmaps.byAttributeValue, group.getValue()));
+                }
+            }
+        }
+        if (excluded != Facet.FLAG && query.flags() != null) {
+            for (ProductFlag flag : query.flags()) {
+                result.and(bitmaps.byFlag.get(flag));
+            }
+        }
+        if (excluded != Facet.PRICE && (query.minPrice() != null || query.maxPrice() != null)) {
+            result.and(priceRange(query.minPrice(), query.maxPrice()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Raggruppa i valori richiesti per attributo tramite il dizionario (valori sconosciuti sotto la chiave null)
+     */
+    private Map<Long, Set<Long>> groupByAttribute(Set<Long> attributeValueIds) {
+        Map<Long, Set<Long>> groups = new HashMap<>();
+        for (Long valueId : attributeValueIds) {
+            groups.computeIfAbsent(bitmaps.attributeByValue.get(valueId), key -> new HashSet<>()).add(valueId);
+        }
+        return groups;
+    }
+
+    private RoaringBitmap union(Map<Long, RoaringBitmap> index, Set<Long> keys) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (Long key : keys) {
+            RoaringBitmap bitmap = index.get(key);
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Prodotti nel range di prezzo: le fasce interamente contenute entrano per intero,
+     * quelle a cavallo degli estremi vengono filtrate prodotto per prodotto
+     */
+    private RoaringBitmap priceRange(Integer minPrice, Integer maxPrice) {
+        int min = minPrice != null ? minPrice : 0;
+        int max = maxPrice != null ? maxPrice : Integer.MAX_VALUE;
+
+        RoaringBitmap result = new RoaringBitmap();
+        for (int bucket = 0; bucket < PRICE_BUCKET_BOUNDS.length; bucket++) {
+            int lower = PRICE_BUCKET_BOUNDS[bucket];
+            int upper = bucketUpperBound(bucket);
+
+            if (upper <= min || lower > max) {
+                continue;
+            }
+
+            if (lower >= min && upper - 1 <= max) {
+                result.or(bitmaps.byPriceBucket[bucket]);
+            } else {
+                bitmaps.byPriceBucket[bucket].forEach((IntConsumer) id -> {
+                    int price = bitmaps.documents.get(id).priceCents();
+                    if (price >= min && price <= max) {
+                        result.add(id);
+                    }
+                });
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Conteggi per faccetta: per ogni faccetta si applicano tutti i filtri tranne il suo
+     * Gli attributi senza filtri attivi contano direttamente sui risultati (matches).
+     */
+    private ProductFacetsResponse countFacets(FacetQuery query, RoaringBitmap candidates, RoaringBitmap matches) {
+        RoaringBitmap categoryBase = filter(query, candidates, Facet.CATEGORY, null);
+        RoaringBitmap brandBase = filter(query, candidates, Facet.BRAND, null);
+        RoaringBitmap tagBase = filter(query, candidates, Facet.TAG, null);
+        RoaringBitmap flagBase = filter(query, candidates, Facet.FLAG, null);
+        RoaringBitmap priceBase = filter(query, candidates, Facet.PRICE, null);
+
+        Set<Long> filteredAttributes = isEmpty(query.attributeValueIds())
+            ? Set.of()
+            : groupByAttribute(query.attributeValueIds()).keySet();
+
+        List<AttributeFacet> attributes = new ArrayList<>();
+        bitmaps.valuesByAttribute.forEach((attributeId, valueIds) -> {
+            RoaringBitmap base = filteredAttributes.contains(attributeId)
+                ? filter(query, candidates, Facet.ATTRIBUTE, attributeId)
+                : matches;
+
+            Map<Long, RoaringBitmap> valueBitmaps = new HashMap<>();
+            for (Long valueId : valueIds) {
+                RoaringBitmap bitmap = bitmaps.byAttributeValue.get(valueId);
+                if (bitmap != null) {
+                    valueBitmaps.put(valueId, bitmap);
+                }
+            }
+
+            List<FacetValue> values = countValues(valueBitmaps, base);
+            if (!values.isEmpty()) {
+                attributes.add(AttributeFacet.builder().attributeId(attributeId).values(values).build());
+            }
+        });
+
+        Map<String, Long> flagCounts = new LinkedHashMap<>();
+        for (ProductFlag flag : ProductFlag.values()) {
+            flagCounts.put(flag.name(), (long) RoaringBitmap.andCardinality(flagBase, bitmaps.byFlag.get(flag)));
+        }
+
+        List<FacetValue> priceRanges = new ArrayList<>();
+        for (int bucket = 0; bucket < PRICE_BUCKET_BOUNDS.length; bucket++) {
+            long count = RoaringBitmap.andCardinality(priceBase, bitmaps.byPriceBucket[bucket]);
+            if (count > 0) {
+                priceRanges.add(FacetValue.builder()
+                    .minPriceCents(PRICE_BUCKET_BOUNDS[bucket])
+                    .maxPriceCents(bucket + 1 < PRICE_BUCKET_BOUNDS.length ? PRICE_BUCKET_BOUNDS[bucket + 1] : null)
+                    .count(count)
+                    .build());
+            }
+        }
+
+        return ProductFacetsResponse.builder()
+            .categories(countValues(bitmaps.byCategory, categoryBase))
+            .brands(countValues(bitmaps.byBrand, brandBase))
+            .tags(countValues(bitmaps.byTag, tagBase))
+            .attributes(attributes)
+            .priceRanges(priceRanges)
+            .flags(flagCounts)
+            .build();
+    }
+
+    private List<FacetValue> countValues(Map<Long, RoaringBitmap> index, RoaringBitmap base) {
+        List<FacetValue> values = new ArrayList<>();
+        index.forEach((id, bitmap) -> {
+            long count = RoaringBitmap.andCardinality(base, bitmap);
+            if (count > 0) {
+                values.add(FacetValue.builder().id(id).count(count).build());
+            }
+        });
+        values.sort(Comparator.comparing(FacetValue::getCount).reversed().thenComparing(FacetValue::getId));
+        return values;
+    }
+
+    /**
+     * Ordina i risultati secondo il primo criterio del Sort (createdAt, priceCents, name, id)
+     * I chiamanti verificano prima supportsSort: un criterio non indicizzato è un errore.
+     */
+    private List<Long> sortMatches(RoaringBitmap matches, Sort sort) {
+        Sort.Order order = sort.stream().findFirst().orElse(Sort.Order.desc("createdAt"));
+
+        Comparator<FacetDocument> comparator = switch (order.getProperty()) {
+            case "priceCents", "price" -> Comparator.comparingInt(FacetDocument::priceCents);
+            case "name" -> Comparator.comparing(FacetDocument::name, String.CASE_INSENSITIVE_ORDER);
+            case "id" -> Comparator.comparingInt(FacetDocument::id);
+            case "createdAt" -> Comparator.comparing(FacetDocument::createdAt, Comparator.nullsFirst(Comparator.naturalOrder()));
+            default -> throw new IllegalArgumentException("Sort not supported by the facet index: " + order.getProperty());
+        };
+        if (order.isDescending()) {
+            comparator = comparator.reversed();
+        }
+        comparator = comparator.thenComparing(Comparator.comparingInt(FacetDocument::id).reversed());
+
+        List<FacetDocument> documents = new ArrayList<>(matches.getCardinality());
+        matches.forEach((IntConsumer) id -> {
+            // I candidati della ricerca per keyword possono non essere (ancora) nell'indice a faccette
+            FacetDocument document = bitmaps.documents.get(id);
+            if (document != null) {
+                documents.add(document);
+            }
+        });
+        documents.sort(comparator);
+
+        List<Long> productIds = new ArrayList<>(documents.size());
+        for (FacetDocument document : documents) {
+            productIds.add((long) document.id());
+        }
+        return productIds;
+    }
+
+    private FacetDocument toDocument(Product product, Set<Long> tagIds, Set<Long> attributeValueIds) {
+        EnumSet<ProductFlag> flags = EnumSet.noneOf(ProductFlag.class);
+        if (Boolean.TRUE.equals(product.getIsFeatured())) flags.add(ProductFlag.FEATURED);
+        if (Boolean.TRUE.equals(product.getIsNew())) flags.add(ProductFlag.NEW);
+        if (Boolean.TRUE.equals(product.getIsOnSale())) flags.add(ProductFlag.ON_SALE);
+        if (product.getStockQuantity() != null && product.getStockQuantity() > 0) flags.add(ProductFlag.IN_STOCK);
+
+        return new FacetDocument(
+            Math.toIntExact(product.getId()),
+            product.getCategory().getId(),
+            product.getBrand() != null ? product.getBrand().getId() : null,
+            Set.copyOf(tagIds),
+            Set.copyOf(attributeValueIds),
+            flags,
+            product.getPriceCents(),
+            product.getCreatedAt(),
+            product.getName()
+        );
+    }
+
+    private static int bucketOf(int priceCents) {
+        for (int bucket = PRICE_BUCKET_BOUNDS.length - 1; bucket > 0; bucket--) {
+            if (priceCents >= PRICE_BUCKET_BOUNDS[bucket]) {
+                return bucket;
+            }
+        }
+        return 0;
+    }
+
+    private static int bucketUpperBound(int bucket) {
+        return bucket + 1 < PRICE_BUCKET_BOUNDS.length ? PRICE_BUCKET_BOUNDS[bucket + 1] : Integer.MAX_VALUE;
+    }
+
+    private static boolean isEmpty(Set<Long> values) {
+        return values == null || values.isEmpty();
+    }
+
+    private enum Facet {
+        CATEGORY, BRAND, TAG, ATTRIBUTE, FLAG, PRICE
+    }
+
+    /**
+     * Dati del prodotto necessari a filtri e ordinamento
+     */
+    private record FacetDocument(
+        int id,
+        Long categoryId,
+        Long brandId,
+        Set<Long> tagIds,
+        Set<Long> attributeValueIds,
+        EnumSet<ProductFlag> flags,
+        int priceCents,
+        LocalDateTime createdAt,
+        String name
+    ) {
+
+        private FacetDocument withAttributeValueIds(Set<Long> valueIds) {
+            return new FacetDocument(id, categoryId, brandId, tagIds, valueIds, flags, priceCents, createdAt, name);
+        }
+
+        private FacetDocument withFlags(EnumSet<ProductFlag> newFlags) {
+            return new FacetDocument(id, categoryId, brandId, tagIds, attributeValueIds, newFlags, priceCents, createdAt, name);
+        }
+    }
+
+    /**
+     * Insieme delle bitmap dell'indice (sostituito in blocco al rebuild)
+     */
+    private static class Bitmaps {
+
+        private final RoaringBitmap all = new RoaringBitmap();
+        private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+        private final Map<Long, RoaringBitmap> byBrand = new HashMap<>();
+        private final Map<Long, RoaringBitmap> byTag = new HashMap<>();
+        private final Map<Long, RoaringBitmap> byAttributeValue = new HashMap<>();
+        private final Map<ProductFlag, RoaringBitmap> byFlag = new EnumMap<>(ProductFlag.class);
+        private final RoaringBitmap[] byPriceBucket = new RoaringBitmap[PRICE_BUCKET_BOUNDS.length];
+        private final Map<Integer, FacetDocument> documents = new HashMap<>();
+
+        // Dizionario degli attributi: valore -> attributo e valori per attributo (ordinati per ID attributo)
+        private final Map<Long, Long> attributeByValue = new HashMap<>();
+        private final Map<Long, Set<Long>> valuesByAttribute = new TreeMap<>();
+
+        private Bitmaps() {
+            for (ProductFlag flag : ProductFlag.values()) {
+                byFlag.put(flag, new RoaringBitmap());
+            }
+            for (int bucket = 0; bucket < byPriceBucket.length; bucket++) {
+                byPriceBucket[bucket] = new RoaringBitmap();
+            }
+        }
+
+        private void add(FacetDocument document) {
+            int id = document.id();
+            documents.put(id, document);
+            all.add(id);
+
+            byCategory.computeIfAbsent(document.categoryId(), key -> new RoaringBitmap()).add(id);
+            if (document.brandId() != null) {
+                byBrand.computeIfAbsent(document.brandId(), key -> new RoaringBitmap()).add(id);
+            }
+            for (Long tagId : document.tagIds()) {
+                byTag.computeIfAbsent(tagId, key -> new RoaringBitmap()).add(id);
+            }
+            for (Long valueId : document.attributeValueIds()) {
+                byAttributeValue.computeIfAbsent(valueId, key -> new RoaringBitmap()).add(id);
+            }
+            for (ProductFlag flag : document.flags()) {
+                byFlag.get(flag).add(id);
+            }
+            byPriceBucket[bucketOf(document.priceCents())].add(id);
+        }
+
+        private void remove(int id) {
+            FacetDocument document = documents.remove(id);
+            if (document == null) {
+                return;
+            }
+
+            all.remove(id);
+            removeFrom(byCategory, document.categoryId(), id);
+            if (document.brandId() != null) {
+                removeFrom(byBrand, document.brandId(), id);
+            }
+            for (Long tagId : document.tagIds()) {
+                removeFrom(byTag, tagId, id);
+            }
+            for (Long valueId : document.attributeValueIds()) {
+                removeFrom(byAttributeValue, valueId, id);
+            }
+            for (ProductFlag flag : document.flags()) {
+                byFlag.get(flag).remove(id);
+            }
+            byPriceBucket[bucketOf(document.priceCents())].remove(id);
+        }
+
+        private void setInStock(int id, boolean inStock) {
+            FacetDocument document = documents.get(id);
+            if (document == null || document.flags().contains(ProductFlag.IN_STOCK) == inStock) {
+                return;
+            }
+
+            EnumSet<ProductFlag> flags = EnumSet.copyOf(document.flags());
+            if (inStock) {
+                flags.add(ProductFlag.IN_STOCK);
+                byFlag.get(ProductFlag.IN_STOCK).add(id);
+            } else {
+                flags.remove(ProductFlag.IN_STOCK);
+                byFlag.get(ProductFlag.IN_STOCK).remove(id);
+            }
+            documents.put(id, document.withFlags(flags));
+        }
+
+        private void defineAttributeValue(Long valueId, Long attributeId) {
+            Long previous = attributeByValue.put(valueId, attributeId);
+            if (previous != null && !previous.equals(attributeId)) {
+                forgetValue(previous, valueId);
+            }
+            valuesByAttribute.computeIfAbsent(attributeId, key -> new HashSet<>()).add(valueId);
+        }
+
+        private void removeAttributeValue(Long valueId) {
+            Long attributeId = attributeByValue.remove(valueId);
+            if (attributeId != null) {
+                forgetValue(attributeId, valueId);
+            }
+
+            RoaringBitmap bitmap = byAttributeValue.remove(valueId);
+            if (bitmap != null) {
+                bitmap.forEach((IntConsumer) id -> {
+                    FacetDocument document = documents.get(id);
+                    Set<Long> remaining = new HashSet<>(document.attributeValueIds());
+                    remaining.remove(valueId);
+                    documents.put(id, document.withAttributeValueIds(Set.copyOf(remaining)));
+                });
+            }
+        }
+
+        private void forgetValue(Long attributeId, Long valueId) {
+            Set<Long> values = valuesByAttribute.get(attributeId);
+            if (values != null) {
+                values.remove(valueId);
+                if (values.isEmpty()) {
+                    valuesByAttribute.remove(attributeId);
+                }
+            }
+        }
+
+        private void removeFrom(Map<Long, RoaringBitmap> index, Long key, int id) {
+            RoaringBitmap bitmap = index.get(key);
+            if (bitmap != null) {
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+
+        private void optimize() {
+            all.runOptimize();
+            byCategory.values().forEach(RoaringBitmap::runOptimize);
+            byBrand.values().forEach(RoaringBitmap::runOptimize);
+            byTag.values().forEach(RoaringBitmap::runOptimize);
+            byAttributeValue.values().forEach(RoaringBitmap::runOptimize);
+            byFlag.values().forEach(RoaringBitmap::runOptimize);
+            for (RoaringBitmap bitmap : byPriceBucket) {
+                bitmap.runOptimize();
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.retailsports.product_service.search;
+
+/**
+ * Flag di stato del prodotto indicizzati come faccette booleane
+ */
+public enum ProductFlag {
+    FEATURED,
+    NEW,
+    ON_SALE,
+    IN_STOCK
+}
@@ -0,0 +1,217 @@
+package com.retailsports.product_service.search;
+
+import com.retailsports.product_service.model.Product;
+import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice in memoria degli identificativi prodotto (SKU, slug, barcode) verso l'ID
+ * Contiene anche i prodotti soft deleted, perché i vincoli di unicità valgono su tutte le righe:
+ * questi restano "occupati" per i controlli di unicità ma non sono risolvibili nelle ricerche.
+ * Le chiavi sono confrontate in minuscolo, come la collation case-insensitive del database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductIdentifierIndex {
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IdentifierTable skus = new IdentifierTable();
+    private IdentifierTable slugs = new IdentifierTable();
+    private IdentifierTable barcodes = new IdentifierTable();
+
+    // ID dei prodotti soft deleted
+    private Set<Long> deletedIds = new HashSet<>();
+
+    // Modifiche applicate durante una ricostruzione: riapplicate sulle nuove tabelle subito dopo lo scambio
+    private List<Runnable> updatesDuringRebuild;
+
+    private volatile boolean ready = false;
+
+    /**
+     * Costruisce l'indice completo (inclusi i prodotti soft deleted)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+
+        // Da qui le modifiche committate vengono registrate: quelle non viste dalla lettura non vanno perse
+        lock.writeLock().lock();
+        try {
+            updatesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            install(start);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                updatesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void install(long start) {
+        List<Object[]> rows = productRepository.findAllIdentifiers();
+        IdentifierTable newSkus = new IdentifierTable(rows.size());
+        IdentifierTable newSlugs = new IdentifierTable(rows.size());
+        IdentifierTable newBarcodes = new IdentifierTable(rows.size());
+        Set<Long> newDeletedIds = new HashSet<>();
+
+        for (Object[] row : rows) {
+            long id = (Long) row[0];
+            newSkus.put(normalize((String) row[1]), id);
+            newSlugs.put(normalize((String) row[2]), id);
+            if (row[3] != null) {
+                newBarcodes.put(normalize((String) row[3]), id);
+            }
+            if (row[4] != null) {
+                newDeletedIds.add(id);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            skus = newSkus;
+            slugs = newSlugs;
+            barcodes = newBarcodes;
+            deletedIds = newDeletedIds;
+            updatesDuringRebuild.forEach(Runnable::run);
+            updatesDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+
+        log.info("Product identifier index built: {} products ({} soft deleted) in {} ms",
+            rows.size(), newDeletedIds.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // ========== RICERCHE (solo prodotti non cancellati) ==========
+
+    public Long findActiveIdBySku(String sku) {
+        return findActiveId(skus, sku);
+    }
+
+    public Long findActiveIdBySlug(String slug) {
+        return findActiveId(slugs, slug);
+    }
+
+    public Long findActiveIdByBarcode(String barcode) {
+        return findActiveId(barcodes, barcode);
+    }
+
+    // ========== UNICITÀ (inclusi i soft deleted) ==========
+
+    public boolean containsSku(String sku) {
+        return contains(skus, sku);
+    }
+
+    public boolean containsSlug(String slug) {
+        return contains(slugs, slug);
+    }
+
+    public boolean containsBarcode(String barcode) {
+        return contains(barcodes, barcode);
+    }
+
+    // ========== AGGIORNAMENTI ==========
+
+    /**
+     * Aggiorna gli identificativi del prodotto dopo il commit (creazione, modifica, soft delete, ripristino)
+     */
+    public void index(Product product) {
+        long id = product.getId();
+        String sku = normalize(product.getSku());
+        String slug = normalize(product.getSlug());
+        String barcode = product.getBarcode() != null && !product.getBarcode().isBlank()
+            ? normalize(product.getBarcode())
+            : null;
+        boolean deleted = product.isDeleted();
+
+        TransactionUtils.afterCommit(() -> apply(() -> {
+            skus.put(sku, id);
+            slugs.put(slug, id);
+            if (barcode != null) {
+                barcodes.put(barcode, id);
+            } else {
+                barcodes.remove(id);
+            }
+            if (deleted) {
+                deletedIds.add(id);
+            } else {
+                deletedIds.remove(id);
+            }
+        }));
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Applica una modifica alle tabelle correnti (le legge al momento dell'esecuzione) e la registra se è in corso
+     * una ricostruzione
+     */
+    private void apply(Runnable update) {
+        lock.writeLock().lock();
+        try {
+            update.run();
+            if (updatesDuringRebuild != null) {
+                updatesDuringRebuild.add(update);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Long findActiveId(IdentifierTable table, String key) {
+        if (key == null || key.isBlank()) return null;
+
+        lock.readLock().lock();
+        try {
+            long id = table.get(normalize(key));
+            return id != 0 && !deletedIds.contains(id) ? id : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean contains(IdentifierTable table, String key) {
+        if (key == null || key.isBlank()) return false;
+
+        lock.readLock().lock();
+        try {
+            return table.get(normalize(key)) != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String normalize(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,323 @@
+package com.retailsports.product_service.search;
+
+import com.retailsports.product_service.model.Product;
+import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.util.TextNormalizer;
+import com.retailsports.product_service.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice invertito in memoria per la ricerca full-text sul catalogo
+ * Indicizza nome, descrizione, SKU, brand e categoria e ordina i risultati con BM25.
+ * Costruito all'avvio e aggiornato in modo incrementale dalle scritture di ProductService.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    // Parametri BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Pesi per campo (un match nel nome conta più di uno nella descrizione)
+    private static final int NAME_WEIGHT = 3;
+    private static final int SKU_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Numero massimo di termini considerati per l'espansione a prefisso dell'ultimo token
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // termine -> (productId -> frequenza pesata)
+    private NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    // productId -> termini del documento (serve per rimuoverlo dalle posting list)
+    private Map<Long, Map<String, Integer>> documents = new HashMap<>();
+
+    // productId -> lunghezza del documento (somma delle frequenze pesate)
+    private Map<Long, Integer> documentLengths = new HashMap<>();
+    private long totalLength = 0;
+
+    // Modifiche applicate durante una ricostruzione (null = rimozione): riapplicate sul nuovo indice prima dello scambio
+    private Map<Long, Map<String, Integer>> updatesDuringRebuild;
+
+    private volatile boolean ready = false;
+
+    /**
+     * Costruisce l'indice completo a partire dai prodotti attivi
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+
+        // Da qui le modifiche committate vengono registrate: quelle non viste dalla lettura non vanno perse
+        lock.writeLock().lock();
+        try {
+            updatesDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        NavigableMap<String, Map<Long, Integer>> newPostings = new TreeMap<>();
+        Map<Long, Map<String, Integer>> newDocuments = new HashMap<>();
+        Map<Long, Integer> newLengths = new HashMap<>();
+        long newTotalLength = 0;
+
+        try {
+            for (Product product : productRepository.findAllActiveForIndexing()) {
+                Map<String, Integer> terms = analyze(product);
+                int length = terms.values().stream().mapToInt(Integer::intValue).sum();
+
+                terms.forEach((term, tf) -> newPostings.computeIfAbsent(term, t -> new HashMap<>()).put(product.getId(), tf));
+                newDocuments.put(product.getId(), terms);
+                newLengths.put(product.getId(), length);
+                newTotalLength += length;
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                updatesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Map<Long, Map<String, Integer>> replay = updatesDuringRebuild;
+            updatesDuringRebuild = null;
+
+            postings = newPostings;
+            documents = newDocuments;
+            documentLengths = newLengths;
+            totalLength = newTotalLength;
+            replay.forEach(this::applyDocument);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Product search index built: {} products, {} terms in {} ms",
+            newDocuments.size(), newPostings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Indica se l'indice è stato costruito e può servire le ricerche
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Aggiunge o aggiorna un prodotto nell'indice (applicato dopo il commit della transazione)
+     * I prodotti disattivati o soft deleted vengono rimossi.
+     */
+    public void index(Product product) {
+        Long productId = product.getId();
+
+        if (product.isDeleted() || !product.getIsActive()) {
+            remove(productId);
+            return;
+        }
+
+        // Analisi eseguita subito: dopo il commit l'entity potrebbe non essere più navigabile
+        Map<String, Integer> terms = analyze(product);
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                applyDocument(productId, terms);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Rimuove un prodotto dall'indice (applicato dopo il commit della transazione)
+     */
+    public void remove(Long productId) {
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                applyDocument(productId, null);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Cerca i prodotti che contengono tutti i token della query e restituisce la pagina richiesta
+     */
+    public SearchHits search(String query, int offset, int limit) {
+        List<Long> ranked = rank(query);
+
+        int from = Math.min(offset, ranked.size());
+        int to = Math.min(from + limit, ranked.size());
+        return new SearchHits(List.copyOf(ranked.subList(from, to)), ranked.size());
+    }
+
+    /**
+     * Restituisce tutti i prodotti che contengono i token della query, ordinati per punteggio BM25
+     * L'ultimo token è trattato come prefisso (ricerca mentre l'utente digita).
+     */
+    public List<Long> rank(String query) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return List.of();
+            }
+
+            double averageLength = (double) totalLength / documentCount;
+
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean prefix = i == tokens.size() - 1;
+                Map<Long, Double> tokenScores = scoreToken(tokens.get(i), prefix, documentCount, averageLength);
+
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    // Semantica AND: restano solo i prodotti che contengono anche questo token
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((productId, score) -> score + tokenScores.get(productId));
+                }
+
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.<Long, Double>comparingByKey(Comparator.reverseOrder())));
+
+            List<Long> productIds = new ArrayList<>(ranked.size());
+            for (Map.Entry<Long, Double> entry : ranked) {
+                productIds.add(entry.getKey());
+            }
+            return productIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Calcola il punteggio BM25 di un token per ogni documento che lo contiene
+     * Con l'espansione a prefisso, per ogni documento vale il termine con punteggio migliore.
+     */
+    private Map<Long, Double> scoreToken(String token, boolean prefix, int documentCount, double averageLength) {
+        Map<Long, Double> result = new HashMap<>();
+
+        Collection<Map<Long, Integer>> matchingPostings;
+        if (prefix) {
+            matchingPostings = postings.subMap(token, true, token + Character.MAX_VALUE, false).values()
+                .stream()
+                .limit(MAX_PREFIX_EXPANSIONS)
+                .toList();
+        } else {
+            Map<Long, Integer> exact = postings.get(token);
+            matchingPostings = exact != null ? List.of(exact) : List.of();
+        }
+
+        for (Map<Long, Integer> postingList : matchingPostings) {
+            int documentFrequency = postingList.size();
+            double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+
+            postingList.forEach((productId, tf) -> {
+                double lengthRatio = documentLengths.get(productId) / averageLength;
+                double score = idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * lengthRatio));
+                result.merge(productId, score, Math::max);
+            });
+        }
+
+        return result;
+    }
+
+    /**
+     * Estrae i termini pesati di un prodotto
+     */
+    private Map<String, Integer> analyze(Product product) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, product.getName(), NAME_WEIGHT);
+        addTerms(terms, product.getSku(), SKU_WEIGHT);
+        addTerms(terms, product.getDescription(), DESCRIPTION_WEIGHT);
+        if (product.getBrand() != null) {
+            addTerms(terms, product.getBrand().getName(), BRAND_WEIGHT);
+        }
+        if (product.getCategory() != null) {
+            addTerms(terms, product.getCategory().getName(), CATEGORY_WEIGHT);
+        }
+        return terms;
+    }
+
+    private void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String token : TextNormalizer.tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+
+    // Da chiamare con il write lock acquisito (terms null = rimozione)
+    private void applyDocument(Long productId, Map<String, Integer> terms) {
+        removeDocument(productId);
+        if (terms != null) {
+            addDocument(productId, terms);
+        }
+        if (updatesDuringRebuild != null) {
+            updatesDuringRebuild.put(productId, terms);
+        }
+    }
+
+    // Da chiamare con il write lock acquisito
+    private void addDocument(Long productId, Map<String, Integer> terms) {
+        int length = terms.values().stream().mapToInt(Integer::intValue).sum();
+        terms.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(productId, tf));
+        documents.put(productId, terms);
+        documentLengths.put(productId, length);
+        totalLength += length;
+    }
+
+    // Da chiamare con il write lock acquisito
+    private void removeDocument(Long productId) {
+        Map<String, Integer> terms = documents.remove(productId);
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms.keySet()) {
+            Map<Long, Integer> postingList = postings.get(term);
+            if (postingList != null) {
+                postingList.remove(productId);
+                if (postingList.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= documentLengths.remove(productId);
+    }
+}
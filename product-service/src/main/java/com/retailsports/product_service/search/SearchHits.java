@@ -0,0 +1,12 @@
+package com.retailsports.product_service.search;
+
+import java.util.List;
+
+/**
+ * Risultato di una ricerca sull'indice: IDs della pagina richiesta (ordinati per rilevanza)
+ * e numero totale di prodotti trovati
+ */
+public record SearchHits(List<Long> productIds, long totalHits) {
+
+    public static final SearchHits EMPTY = new SearchHits(List.of(), 0);
+}
@@ -0,0 +1,7 @@
+package com.retailsports.product_service.search;
+
+/**
+ * Voce dell'autocompletamento: entità, nome da mostrare e peso di ordinamento (più alto = più rilevante)
+ */
+public record Suggestion(SuggestionType type, Long id, String name, String slug, long weight) {
+}
@@ -0,0 +1,232 @@
+package com.retailsports.product_service.search;
+
+import com.retailsports.product_service.util.TextNormalizer;
+
+import java.util.*;
+
+/**
+ * Struttura immutabile per la ricerca a prefisso dell'autocompletamento
+ * I nomi normalizzati sono concatenati in un unico array di caratteri; ogni parola di ogni nome è una voce
+ * (offset nel testo) e le voci sono ordinate per suffisso, così un prefisso individua un intervallo contiguo
+ * con due ricerche binarie. I suggerimenti sono ordinati per peso decrescente: il rango coincide con l'indice,
+ * quindi i migliori risultati di un intervallo sono i ranghi più piccoli. Per i prefissi corti (intervalli
+ * molto ampi) i migliori risultati sono precalcolati.
+ */
+final class SuggestionDictionary {
+
+    static final SuggestionDictionary EMPTY = build(List.of(), 1);
+
+    // Lunghezza massima dei prefissi con risultati precalcolati
+    private static final int PRECOMPUTED_PREFIX_LENGTH = 3;
+
+    private static final char END = '\0';
+    private static final int[] NO_RANKS = new int[0];
+
+    private final Suggestion[] suggestions;
+    private final char[] text;
+    private final int[] entryOffsets;
+    private final int[] entryRanks;
+    private final Map<String, int[]> topByPrefix;
+    private final int maxResults;
+
+    private SuggestionDictionary(Suggestion[] suggestions, char[] text, int[] entryOffsets, int[] entryRanks,
+                                 Map<String, int[]> topByPrefix, int maxResults) {
+        this.suggestions = suggestions;
+        this.text = text;
+        this.entryOffsets = entryOffsets;
+        this.entryRanks = entryRanks;
+        this.topByPrefix = topByPrefix;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Costruisce il dizionario; maxResults è il numero massimo di risultati per interrogazione
+     */
+    static SuggestionDictionary build(List<Suggestion> input, int maxResults) {
+        Suggestion[] suggestions = input.stream()
+            .sorted(Comparator.comparingLong(Suggestion::weight).reversed()
+                .thenComparingInt(suggestion -> suggestion.name().length()))
+            .toArray(Suggestion[]::new);
+
+        // Testo: nomi normalizzati separati da END; una voce per ogni inizio di parola
+        StringBuilder builder = new StringBuilder();
+        List<int[]> entries = new ArrayList<>();
+        for (int rank = 0; rank < suggestions.length; rank++) {
+            String normalized = normalize(suggestions[rank].name());
+            if (normalized.isEmpty()) continue;
+
+            int base = builder.length();
+            builder.append(normalized).append(END);
+            entries.add(new int[]{base, rank});
+            for (int i = 1; i < normalized.length(); i++) {
+                if (normalized.charAt(i - 1) == ' ') {
+                    entries.add(new int[]{base + i, rank});
+                }
+            }
+        }
+
+        char[] text = builder.toString().toCharArray();
+        entries.sort((a, b) -> {
+            int comparison = compareSuffixes(text, a[0], b[0]);
+            return comparison != 0 ? comparison : Integer.compare(a[1], b[1]);
+        });
+
+        int[] entryOffsets = new int[entries.size()];
+        int[] entryRanks = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            entryOffsets[i] = entries.get(i)[0];
+            entryRanks[i] = entries.get(i)[1];
+        }
+
+        Map<String, int[]> topByPrefix = new HashMap<>();
+        for (int length = 1; length <= PRECOMPUTED_PREFIX_LENGTH; length++) {
+            precomputePrefixes(text, entryOffsets, entryRanks, length, maxResults, topByPrefix);
+        }
+
+        return new SuggestionDictionary(suggestions, text, entryOffsets, entryRanks, topByPrefix, maxResults);
+    }
+
+    int size() {
+        return suggestions.length;
+    }
+
+    /**
+     * Suggerimenti il cui nome contiene una parola che inizia con la query (più parole: sequenza di parole)
+     */
+    List<Suggestion> lookup(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        int[] ranks;
+        if (prefix.length() <= PRECOMPUTED_PREFIX_LENGTH) {
+            ranks = topByPrefix.getOrDefault(prefix, NO_RANKS);
+        } else {
+            int from = lowerBound(prefix);
+            int to = upperBound(prefix, from);
+            ranks = topRanks(entryRanks, from, to, Math.min(limit, maxResults));
+        }
+
+        int count = Math.min(Math.min(limit, maxResults), ranks.length);
+        List<Suggestion> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(suggestions[ranks[i]]);
+        }
+        return results;
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private static String normalize(String value) {
+        return String.join(" ", TextNormalizer.tokenize(value));
+    }
+
+    /**
+     * Prima voce >= prefisso
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = entryOffsets.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(entryOffsets[mid], prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Prima voce che non inizia con il prefisso
+     */
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int high = entryOffsets.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(entryOffsets[mid], prefix) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Confronta il suffisso all'offset con il prefisso limitandosi alla lunghezza del prefisso (0 = inizia con)
+     */
+    private int comparePrefix(int offset, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = text[offset + i];
+            if (c == END) return -1;
+            if (c != prefix.charAt(i)) return c < prefix.charAt(i) ? -1 : 1;
+        }
+        return 0;
+    }
+
+    private static int compareSuffixes(char[] text, int a, int b) {
+        for (int i = 0; ; i++) {
+            char x = text[a + i];
+            char y = text[b + i];
+            if (x != y) return x < y ? -1 : 1;
+            if (x == END) return 0;
+        }
+    }
+
+    /**
+     * Calcola i migliori ranghi per tutti i prefissi della lunghezza indicata (voci consecutive con lo stesso prefisso)
+     */
+    private static void precomputePrefixes(char[] text, int[] entryOffsets, int[] entryRanks, int length,
+                                           int maxResults, Map<String, int[]> topByPrefix) {
+        int groupStart = -1;
+        String groupPrefix = null;
+
+        for (int i = 0; i <= entryOffsets.length; i++) {
+            String prefix = i < entryOffsets.length ? prefixOf(text, entryOffsets[i], length) : null;
+            if (Objects.equals(prefix, groupPrefix)) continue;
+
+            if (groupPrefix != null) {
+                topByPrefix.put(groupPrefix, topRanks(entryRanks, groupStart, i, maxResults));
+            }
+            groupStart = i;
+            groupPrefix = prefix;
+        }
+    }
+
+    private static String prefixOf(char[] text, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (text[offset + i] == END) return null;
+        }
+        return new String(text, offset, length);
+    }
+
+    /**
+     * I k ranghi distinti più piccoli nell'intervallo di voci [from, to), in ordine crescente
+     */
+    private static int[] topRanks(int[] entryRanks, int from, int to, int k) {
+        int[] top = new int[k];
+        int size = 0;
+
+        for (int i = from; i < to; i++) {
+            int rank = entryRanks[i];
+            if (size == k && rank >= top[size - 1]) continue;
+
+            int position = Arrays.binarySearch(top, 0, size, rank);
+            if (position >= 0) continue;
+            position = -position - 1;
+
+            int moved = Math.min(size, k - 1) - position;
+            if (moved > 0) {
+                System.arraycopy(top, position, top, position + 1, moved);
+            }
+            top[position] = rank;
+            if (size < k) size++;
+        }
+
+        return size == k ? top : Arrays.copyOf(top, size);
+    }
+}
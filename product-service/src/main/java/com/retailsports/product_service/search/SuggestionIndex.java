@@ -0,0 +1,161 @@
+package com.retailsports.product_service.search;
+
+import com.retailsports.product_service.repository.BrandRepository;
+import com.retailsports.product_service.repository.CategoryRepository;
+import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Indice di autocompletamento su nomi di prodotti, brand e categorie
+ * Il peso di un prodotto deriva da vendite e visualizzazioni; brand e categorie sommano i pesi dei loro prodotti.
+ * Il dizionario è immutabile e viene ricostruito in background (modifiche al catalogo accorpate con un breve
+ * ritardo, più un aggiornamento periodico dei pesi) e sostituito atomicamente.
+ */
+@Component
+@Slf4j
+public class SuggestionIndex {
+
+    // Una vendita pesa quanto 10 visualizzazioni
+    private static final long SALES_WEIGHT = 10;
+
+    private final ProductRepository productRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxResults;
+    private final long rebuildDelayMs;
+
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggestion-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Evita di accodare più ricostruzioni per una raffica di modifiche
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+
+    private volatile SuggestionDictionary dictionary = SuggestionDictionary.EMPTY;
+    private volatile boolean ready = false;
+
+    public SuggestionIndex(ProductRepository productRepository,
+                           BrandRepository brandRepository,
+                           CategoryRepository categoryRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${product.suggest.max-results:20}") int maxResults,
+                           @Value("${product.suggest.rebuild-delay-ms:2000}") long rebuildDelayMs) {
+        this.productRepository = productRepository;
+        this.brandRepository = brandRepository;
+        this.categoryRepository = categoryRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxResults = maxResults;
+        this.rebuildDelayMs = rebuildDelayMs;
+    }
+
+    /**
+     * Costruisce il dizionario all'avvio
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildPending.set(false);
+        long start = System.currentTimeMillis();
+
+        List<Suggestion> suggestions = readOnlyTransaction.execute(status -> loadSuggestions());
+        SuggestionDictionary built = SuggestionDictionary.build(suggestions, maxResults);
+        dictionary = built;
+        ready = true;
+
+        log.info("Suggestion index built: {} entries in {} ms", built.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Suggerimenti per il testo digitato, ordinati per peso
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        return dictionary.lookup(query, limit);
+    }
+
+    /**
+     * Richiede una ricostruzione dopo il commit della transazione corrente
+     * Le richieste che arrivano entro il ritardo di ricostruzione vengono accorpate.
+     */
+    public void invalidate() {
+        TransactionUtils.afterCommit(() -> scheduleRebuild(rebuildDelayMs));
+    }
+
+    /**
+     * Aggiornamento periodico dei pesi (vendite e visualizzazioni cambiano senza invalidare il catalogo)
+     */
+    @Scheduled(fixedDelayString = "${product.suggest.refresh-interval-ms:600000}",
+               initialDelayString = "${product.suggest.refresh-interval-ms:600000}")
+    public void refreshWeights() {
+        scheduleRebuild(0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private void scheduleRebuild(long delayMs) {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.schedule(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.error("Suggestion index rebuild failed, keeping current dictionary", e);
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Prodotti attivi con il loro peso; brand e categorie attivi con la somma dei pesi dei prodotti
+     */
+    private List<Suggestion> loadSuggestions() {
+        List<Suggestion> suggestions = new ArrayList<>();
+        Map<Long, Long> brandWeights = new HashMap<>();
+        Map<Long, Long> categoryWeights = new HashMap<>();
+
+        for (Object[] row : productRepository.findSuggestionRows()) {
+            long weight = toLong(row[3]) * SALES_WEIGHT + toLong(row[4]);
+            suggestions.add(new Suggestion(SuggestionType.PRODUCT, (Long) row[0], (String) row[1], (String) row[2], weight));
+            categoryWeights.merge((Long) row[5], weight, Long::sum);
+            if (row[6] != null) {
+                brandWeights.merge((Long) row[6], weight, Long::sum);
+            }
+        }
+
+        brandRepository.findAllActive().forEach(brand -> suggestions.add(new Suggestion(SuggestionType.BRAND,
+            brand.getId(), brand.getName(), brand.getSlug(), brandWeights.getOrDefault(brand.getId(), 0L))));
+        categoryRepository.findAllActive().forEach(category -> suggestions.add(new Suggestion(SuggestionType.CATEGORY,
+            category.getId(), category.getName(), category.getSlug(), categoryWeights.getOrDefault(category.getId(), 0L))));
+
+        return suggestions;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+}
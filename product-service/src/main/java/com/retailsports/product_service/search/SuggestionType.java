@@ -0,0 +1,10 @@
+package com.retailsports.product_service.search;
+
+/**
+ * Tipo di entità restituita dall'autocompletamento
+ */
+public enum SuggestionType {
+    PRODUCT,
+    BRAND,
+    CATEGORY
+}
@@ -5,9 +5,14 @@ import com.retailsports.product_service.dto.response.BrandResponse;
 import com.retailsports.product_service.exception.BadRequestException;
 import com.retailsports.product_service.exception.DuplicateResourceException;
 import com.retailsports.product_service.exception.ResourceNotFoundException;
+import com.retailsports.product_service.feed.CatalogChangeFeed;
+import com.retailsports.product_service.feed.CatalogVersion;
 import com.retailsports.product_service.model.Brand;
 import com.retailsports.product_service.repository.BrandRepository;
 import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.repository.projection.TableVersionProjection;
+import com.retailsports.product_service.search.SuggestionIndex;
+import com.retailsports.product_service.util.ResourceVersion;
 import com.retailsports.product_service.util.SlugUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +30,8 @@ public class BrandService {
 
     private final BrandRepository brandRepository;
     private final ProductRepository productRepository;
+    private final SuggestionIndex suggestionIndex;
+    private final CatalogChangeFeed catalogChangeFeed;
 
     /**
      * Crea un nuovo brand
@@ -54,6 +61,7 @@ public class BrandService {
             .build();
 
         Brand saved = brandRepository.save(brand);
+        suggestionIndex.invalidate();
         log.info("Brand created successfully with id: {}", saved.getId());
 
         return convertToResponse(saved);
@@ -88,6 +96,7 @@ public class BrandService {
         brand.setMetaDescription(request.getMetaDescription());
 
         Brand updated = brandRepository.save(brand);
+        suggestionIndex.invalidate();
         log.info("Brand updated successfully with id: {}", updated.getId());
 
         return convertToResponse(updated);
@@ -135,6 +144,38 @@ public class BrandService {
             .collect(Collectors.toList());
     }
 
+    /**
+     * Versione del brand per ID (GET condizionali)
+     * Include la versione del catalogo, da cui dipende il conteggio prodotti.
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getBrandVersion(Long id) {
+        Brand brand = brandRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Brand not found with id: " + id));
+        return toResourceVersion(brand);
+    }
+
+    /**
+     * Versione del brand per slug (GET condizionali)
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getBrandVersionBySlug(String slug) {
+        Brand brand = brandRepository.findBySlug(slug)
+            .orElseThrow(() -> new ResourceNotFoundException("Brand not found with slug: " + slug));
+        return toResourceVersion(brand);
+    }
+
+    /**
+     * Versione delle liste di brand (tutti, attivi)
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getBrandsVersion() {
+        TableVersionProjection brands = brandRepository.findTableVersion();
+        CatalogVersion catalog = catalogChangeFeed.currentVersion();
+        return ResourceVersion.of("bl", null,
+            brands.getLastUpdatedAt(), brands.getRowCount(), catalog.version(), catalog.updatedAt());
+    }
+
     /**
      * Elimina brand (solo se non ha prodotti associati)
      */
@@ -151,6 +192,7 @@ public class BrandService {
         }
 
         brandRepository.delete(brand);
+        suggestionIndex.invalidate();
         log.info("Brand deleted successfully with id: {}", id);
     }
 
@@ -165,6 +207,7 @@ public class BrandService {
 
         brand.setIsActive(!brand.getIsActive());
         Brand updated = brandRepository.save(brand);
+        suggestionIndex.invalidate();
 
         log.info("Brand active status toggled to: {} for id: {}", updated.getIsActive(), id);
         return convertToResponse(updated);
@@ -172,6 +215,14 @@ public class BrandService {
 
     // ========== HELPER METHODS ==========
 
+    /**
+     * Versione del dettaglio brand
+     */
+    private ResourceVersion toResourceVersion(Brand brand) {
+        CatalogVersion catalog = catalogChangeFeed.currentVersion();
+        return ResourceVersion.of("b", brand.getId(), brand.getUpdatedAt(), catalog.version(), catalog.updatedAt());
+    }
+
     /**
      * Converte Brand entity in BrandResponse DTO
      */
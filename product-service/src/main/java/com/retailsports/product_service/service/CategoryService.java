@@ -1,13 +1,19 @@
 package com.retailsports.product_service.service;
 
+import com.retailsports.product_service.cache.CategoryTreeCache;
 import com.retailsports.product_service.dto.request.CategoryRequest;
 import com.retailsports.product_service.dto.response.CategoryResponse;
 import com.retailsports.product_service.exception.BadRequestException;
 import com.retailsports.product_service.exception.DuplicateResourceException;
 import com.retailsports.product_service.exception.ResourceNotFoundException;
+import com.retailsports.product_service.feed.CatalogChangeFeed;
+import com.retailsports.product_service.feed.CatalogVersion;
 import com.retailsports.product_service.model.Category;
 import com.retailsports.product_service.repository.CategoryRepository;
 import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.repository.projection.TableVersionProjection;
+import com.retailsports.product_service.search.SuggestionIndex;
+import com.retailsports.product_service.util.ResourceVersion;
 import com.retailsports.product_service.util.SlugUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,6 +32,9 @@ public class CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final SuggestionIndex suggestionIndex;
+    private final CatalogChangeFeed catalogChangeFeed;
 
     /**
      * Crea una nuova categoria
@@ -62,6 +71,8 @@ public class CategoryService {
             .build();
 
         Category saved = categoryRepository.save(category);
+        categoryTreeCache.invalidate();
+        suggestionIndex.invalidate();
         log.info("Category created successfully with id: {}", saved.getId());
 
         return convertToResponse(saved);
@@ -114,6 +125,8 @@ public class CategoryService {
         category.setMetaDescription(request.getMetaDescription());
 
         Category updated = categoryRepository.save(category);
+        categoryTreeCache.invalidate();
+        suggestionIndex.invalidate();
         log.info("Category updated successfully with id: {}", updated.getId());
 
         return convertToResponse(updated);
@@ -178,15 +191,65 @@ public class CategoryService {
 
     /**
      * Ottieni albero completo delle categorie (con gerarchia)
+     * Servito dallo snapshot in memoria; i conteggi prodotti includono le sottocategorie.
      */
     @Transactional(readOnly = true)
     public List<CategoryResponse> getCategoryTree() {
+        if (categoryTreeCache.isReady()) {
+            return categoryTreeCache.getSnapshot().roots();
+        }
+
+        // Snapshot non ancora disponibile (avvio): costruzione diretta
         List<Category> rootCategories = categoryRepository.findAllActiveRootCategories();
         return rootCategories.stream()
             .map(this::convertToResponseWithChildren)
             .collect(Collectors.toList());
     }
 
+    /**
+     * Versione della categoria per ID (GET condizionali)
+     * Include la versione del catalogo, da cui dipende il conteggio prodotti.
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getCategoryVersion(Long id) {
+        Category category = categoryRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id));
+        return toResourceVersion(category);
+    }
+
+    /**
+     * Versione della categoria per slug (GET condizionali)
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getCategoryVersionBySlug(String slug) {
+        Category category = categoryRepository.findBySlug(slug)
+            .orElseThrow(() -> new ResourceNotFoundException("Category not found with slug: " + slug));
+        return toResourceVersion(category);
+    }
+
+    /**
+     * Versione delle liste di categorie (tutte, root, sottocategorie)
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getCategoriesVersion() {
+        TableVersionProjection categories = categoryRepository.findTableVersion();
+        CatalogVersion catalog = catalogChangeFeed.currentVersion();
+        return ResourceVersion.of("cl", null,
+            categories.getLastUpdatedAt(), categories.getRowCount(), catalog.version(), catalog.updatedAt());
+    }
+
+    /**
+     * Versione dell'albero categorie: digest del contenuto dello snapshot, uguale su tutte le istanze
+     * Null se lo snapshot non è ancora disponibile (nessuna GET condizionale).
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getCategoryTreeVersion() {
+        if (!categoryTreeCache.isReady()) {
+            return null;
+        }
+        return ResourceVersion.of("ct", null, categoryTreeCache.getSnapshot().contentDigest());
+    }
+
     /**
      * Elimina categoria (solo se non ha prodotti associati)
      */
@@ -209,6 +272,8 @@ public class CategoryService {
         }
 
         categoryRepository.delete(category);
+        categoryTreeCache.invalidate();
+        suggestionIndex.invalidate();
         log.info("Category deleted successfully with id: {}", id);
     }
 
@@ -223,6 +288,8 @@ public class CategoryService {
 
         category.setIsActive(!category.getIsActive());
         Category updated = categoryRepository.save(category);
+        categoryTreeCache.invalidate();
+        suggestionIndex.invalidate();
 
         log.info("Category active status toggled to: {} for id: {}", updated.getIsActive(), id);
         return convertToResponse(updated);
@@ -244,6 +311,14 @@ public class CategoryService {
         return false;
     }
 
+    /**
+     * Versione del dettaglio categoria
+     */
+    private ResourceVersion toResourceVersion(Category category) {
+        CatalogVersion catalog = catalogChangeFeed.currentVersion();
+        return ResourceVersion.of("c", category.getId(), category.getUpdatedAt(), catalog.version(), catalog.updatedAt());
+    }
+
     /**
      * Converte Category entity in CategoryResponse DTO
      */
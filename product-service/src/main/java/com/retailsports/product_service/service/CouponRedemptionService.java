@@ -0,0 +1,394 @@
+package com.retailsports.product_service.service;
+
+import com.retailsports.product_service.cache.ProductDetailCache;
+import com.retailsports.product_service.dto.request.CouponRedemptionRequest;
+import com.retailsports.product_service.dto.response.CouponRedemptionResponse;
+import com.retailsports.product_service.exception.BadRequestException;
+import com.retailsports.product_service.exception.ResourceNotFoundException;
+import com.retailsports.product_service.feed.CatalogChangeFeed;
+import com.retailsports.product_service.model.Discount;
+import com.retailsports.product_service.pricing.DiscountEngine;
+import com.retailsports.product_service.redemption.CouponPermits;
+import com.retailsports.product_service.repository.DiscountRepository;
+import com.retailsports.product_service.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Riscatto dei codici sconto ad alta concorrenza
+ *
+ * Limite totale (max_uses): discounts.current_uses conta i permessi assegnati alle istanze, prelevati a blocchi
+ * con UPDATE condizionali; ogni riscatto consuma un permesso in memoria (CouponPermits) senza toccare la riga dello sconto.
+ * Allo scarseggiare dei permessi i blocchi si riducono fino a uno, e i permessi inutilizzati tornano nel database
+ * quando il codice resta inattivo, quando lo sconto viene modificato e allo shutdown.
+ * Limite per utente (max_uses_per_user): UPDATE condizionale sulla riga (sconto, utente), contesa solo dallo stesso utente.
+ * Ogni riscatto è registrato in discount_redemptions e può essere rimborsato una volta (ordine annullato).
+ */
+@Service
+@Slf4j
+public class CouponRedemptionService {
+
+    private static final String SELECT_REMAINING_SQL =
+        "SELECT max_uses - current_uses FROM discounts WHERE id = ?";
+
+    // Condizionale: due istanze che ricaricano insieme non superano mai max_uses
+    private static final String ALLOCATE_SQL =
+        "UPDATE discounts SET current_uses = current_uses + ? WHERE id = ? AND current_uses + ? <= max_uses";
+
+    private static final String GIVE_BACK_SQL =
+        "UPDATE discounts SET current_uses = GREATEST(current_uses - ?, 0) WHERE id = ? AND max_uses IS NOT NULL";
+
+    private static final String ENSURE_USER_USAGE_SQL =
+        "INSERT INTO discount_user_usage (discount_id, user_id, uses) VALUES (?, ?, 0) " +
+        "ON DUPLICATE KEY UPDATE uses = uses";
+
+    private static final String INCREMENT_USER_USAGE_SQL =
+        "UPDATE discount_user_usage SET uses = uses + 1 WHERE discount_id = ? AND user_id = ? AND uses < ?";
+
+    private static final String DECREMENT_USER_USAGE_SQL =
+        "UPDATE discount_user_usage SET uses = uses - 1 WHERE discount_id = ? AND user_id = ? AND uses > 0";
+
+    private static final String INSERT_REDEMPTION_SQL =
+        "INSERT INTO discount_redemptions (discount_id, user_id, status, redeemed_at) VALUES (?, ?, 'REDEEMED', ?)";
+
+    private static final String SELECT_REDEMPTION_SQL =
+        "SELECT discount_id, user_id, status FROM discount_redemptions WHERE id = ? FOR UPDATE";
+
+    private static final String REFUND_REDEMPTION_SQL =
+        "UPDATE discount_redemptions SET status = 'REFUNDED', refunded_at = ? WHERE id = ?";
+
+    // Diviso per questo valore il residuo limita il blocco: vicino all'esaurimento i permessi restano nel database
+    private static final int REMAINING_SHARE = 16;
+
+    private static final int MAX_ALLOCATION_ATTEMPTS = 5;
+
+    private final DiscountRepository discountRepository;
+    private final DiscountEngine discountEngine;
+    private final CatalogChangeFeed catalogChangeFeed;
+    private final ProductDetailCache productDetailCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int stripes;
+    private final int blockSize;
+    private final Duration exhaustedRecheck;
+
+    // Pool per codice normalizzato dello sconto (non quello della richiesta), creati al primo riscatto e chiusi quando inattivi
+    private final Map<String, CouponPool> pools = new ConcurrentHashMap<>();
+
+    public CouponRedemptionService(DiscountRepository discountRepository,
+                                   DiscountEngine discountEngine,
+                                   CatalogChangeFeed catalogChangeFeed,
+                                   ProductDetailCache productDetailCache,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${product.coupons.stripes:0}") int stripes,
+                                   @Value("${product.coupons.block-size:64}") int blockSize,
+                                   @Value("${product.coupons.exhausted-recheck-ms:1000}") long exhaustedRecheckMs) {
+        this.discountRepository = discountRepository;
+        this.discountEngine = discountEngine;
+        this.catalogChangeFeed = catalogChangeFeed;
+        this.productDetailCache = productDetailCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.blockSize = blockSize;
+        this.exhaustedRecheck = Duration.ofMillis(exhaustedRecheckMs);
+    }
+
+    /**
+     * Riscatta un codice per un utente: consuma un utilizzo totale e uno dell'utente, o nessuno dei due
+     */
+    public CouponRedemptionResponse redeem(CouponRedemptionRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        CouponPool pool = acquire(request.getCode(), now, request.getPurchaseAmountCents());
+        CouponRule rule = pool.rule();
+
+        Long redemptionId;
+        try {
+            redemptionId = writeTransaction.execute(status -> record(rule, request.getUserId(), now));
+        } catch (RuntimeException e) {
+            releasePermit(pool);
+            throw e;
+        }
+
+        log.info("Discount {} redeemed by user {} (redemption {})", rule.id(), request.getUserId(), redemptionId);
+        return CouponRedemptionResponse.builder()
+            .redemptionId(redemptionId)
+            .discountId(rule.id())
+            .code(rule.code())
+            .type(rule.type())
+            .value(rule.value())
+            .userId(request.getUserId())
+            .redeemedAt(now)
+            .build();
+    }
+
+    /**
+     * Rimborsa un riscatto (ordine annullato): l'utilizzo torna disponibile per l'utente e per il codice
+     */
+    public void refund(Long redemptionId) {
+        writeTransaction.executeWithoutResult(status -> {
+            Map<String, Object> redemption = jdbcTemplate.queryForList(SELECT_REDEMPTION_SQL, redemptionId).stream()
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Redemption not found with id: " + redemptionId));
+            if (!"REDEEMED".equals(redemption.get("status"))) {
+                throw new BadRequestException("Redemption already refunded");
+            }
+
+            Long discountId = ((Number) redemption.get("discount_id")).longValue();
+            Long userId = ((Number) redemption.get("user_id")).longValue();
+            jdbcTemplate.update(REFUND_REDEMPTION_SQL, Timestamp.valueOf(LocalDateTime.now()), redemptionId);
+            jdbcTemplate.update(DECREMENT_USER_USAGE_SQL, discountId, userId);
+            giveBack(discountId, 1);
+        });
+
+        log.info("Redemption {} refunded", redemptionId);
+    }
+
+    /**
+     * Chiude i pool dello sconto dopo il commit (regole cambiate): i permessi tornano nel database
+     */
+    public void evict(Long discountId) {
+        TransactionUtils.afterCommit(() -> pools.values().stream()
+            .filter(pool -> pool.rule().id().equals(discountId))
+            .toList()
+            .forEach(this::closePool));
+    }
+
+    /**
+     * Chiude i pool dello sconto solo se le regole sono cambiate (modifiche da altre istanze):
+     * l'esaurimento notificato da un'istanza non fa restituire i permessi alle altre
+     */
+    public void evictIfChanged(Discount discount) {
+        CouponRule current = ruleOf(discount);
+        TransactionUtils.afterCommit(() -> pools.values().stream()
+            .filter(pool -> pool.rule().id().equals(current.id()) && !pool.rule().equals(current))
+            .toList()
+            .forEach(this::closePool));
+    }
+
+    /**
+     * Restituisce i permessi dei codici non riscattati dall'ultimo controllo
+     */
+    @Scheduled(fixedDelayString = "${product.coupons.idle-check-ms:60000}",
+               initialDelayString = "${product.coupons.idle-check-ms:60000}")
+    public void returnIdlePermits() {
+        for (CouponPool pool : pools.values()) {
+            if (pool.permits() != null && !pool.checkActivity()) {
+                closePool(pool);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(this::closePool);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Verifica le regole del codice e preleva un permesso (nessun permesso per gli sconti senza limite totale)
+     */
+    private CouponPool acquire(String code, LocalDateTime now, Integer purchaseAmountCents) {
+        for (int attempt = 0; ; attempt++) {
+            CouponPool pool = pools.get(normalize(code));
+            if (pool == null) {
+                pool = loadPool(code);
+            }
+            CouponRule rule = pool.rule();
+
+            if (!rule.isActive() || now.isBefore(rule.startsAt()) || !now.isBefore(rule.endsAt())) {
+                throw new BadRequestException("Discount is not valid");
+            }
+            if (rule.minPurchaseAmountCents() != null && purchaseAmountCents != null
+                && purchaseAmountCents < rule.minPurchaseAmountCents()) {
+                throw new BadRequestException("Minimum purchase amount for this discount is "
+                    + rule.minPurchaseAmountCents() + " cents");
+            }
+
+            if (pool.permits() == null || pool.permits().tryAcquire()) {
+                return pool;
+            }
+            // Pool chiuso nel frattempo (sconto modificato o inattivo): un nuovo tentativo con le regole aggiornate
+            if (!pool.permits().isClosed() || attempt > 0) {
+                throw new BadRequestException("Discount has reached maximum uses");
+            }
+        }
+    }
+
+    /**
+     * Pool dello sconto trovato nel database (la collation confronta i codici senza distinguere maiuscole e accenti)
+     */
+    private CouponPool loadPool(String code) {
+        Discount discount = readOnlyTransaction.execute(status -> discountRepository.findByCode(code)
+            .orElseThrow(() -> new ResourceNotFoundException("Discount not found with code: " + code)));
+
+        CouponRule rule = ruleOf(discount);
+        return pools.computeIfAbsent(normalize(rule.code()), key -> {
+            CouponPermits permits = rule.maxUses() != null
+                ? new CouponPermits(stripes, blockSize, exhaustedRecheck, requested -> allocate(rule.id(), requested))
+                : null;
+            return new CouponPool(rule, permits);
+        });
+    }
+
+    private static String normalize(String code) {
+        return code.strip().toUpperCase(Locale.ROOT);
+    }
+
+    private CouponRule ruleOf(Discount discount) {
+        return new CouponRule(discount.getId(), discount.getCode(), discount.getType(), discount.getValue(),
+            discount.getStartsAt(), discount.getEndsAt(), discount.getMaxUses(), discount.getMaxUsesPerUser(),
+            discount.getMinPurchaseAmountCents(), Boolean.TRUE.equals(discount.getIsActive()));
+    }
+
+    /**
+     * Registra il riscatto (nella transazione): utilizzo dell'utente e riga del registro
+     */
+    private Long record(CouponRule rule, Long userId, LocalDateTime now) {
+        if (rule.maxUsesPerUser() != null) {
+            jdbcTemplate.update(ENSURE_USER_USAGE_SQL, rule.id(), userId);
+            if (jdbcTemplate.update(INCREMENT_USER_USAGE_SQL, rule.id(), userId, rule.maxUsesPerUser()) == 0) {
+                throw new BadRequestException("User has reached maximum uses for this discount");
+            }
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_REDEMPTION_SQL, Statement.RETURN_GENERATED_KEYS);
+            statement.setLong(1, rule.id());
+            statement.setLong(2, userId);
+            statement.setTimestamp(3, Timestamp.valueOf(now));
+            return statement;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    /**
+     * Preleva un blocco di permessi dal database (0 se esauriti)
+     */
+    private int allocate(Long discountId, int requested) {
+        for (int attempt = 0; attempt < MAX_ALLOCATION_ATTEMPTS; attempt++) {
+            Integer remaining = jdbcTemplate.queryForObject(SELECT_REMAINING_SQL, Integer.class, discountId);
+            if (remaining == null || remaining <= 0) {
+                return 0;
+            }
+
+            int granted = Math.min(requested, Math.max(1, remaining / REMAINING_SHARE));
+            if (jdbcTemplate.update(ALLOCATE_SQL, granted, discountId, granted) > 0) {
+                if (granted == remaining) {
+                    usageLimitChanged(discountId);
+                }
+                return granted;
+            }
+            // Un'altra istanza ha prelevato nel frattempo: si rilegge il residuo
+        }
+        return 0;
+    }
+
+    private void releasePermit(CouponPool pool) {
+        if (pool.permits() != null && !pool.permits().release()) {
+            giveBack(pool.rule().id(), 1);
+        }
+    }
+
+    private void closePool(CouponPool pool) {
+        if (!pools.remove(normalize(pool.rule().code()), pool) || pool.permits() == null) {
+            return;
+        }
+        int remaining = pool.permits().close();
+        if (remaining > 0) {
+            giveBack(pool.rule().id(), remaining);
+            log.debug("Returned {} unused permits of discount {}", remaining, pool.rule().id());
+        }
+    }
+
+    /**
+     * Rende permessi al database (nella transazione corrente, se presente)
+     */
+    private void giveBack(Long discountId, int count) {
+        if (jdbcTemplate.update(GIVE_BACK_SQL, count, discountId) == 0) {
+            return;
+        }
+        Integer remaining = jdbcTemplate.queryForObject(SELECT_REMAINING_SQL, Integer.class, discountId);
+        if (remaining != null && remaining == count) {
+            usageLimitChanged(discountId);
+        }
+    }
+
+    /**
+     * Lo sconto è diventato esaurito o di nuovo disponibile: indice, feed e dettagli prodotto
+     */
+    private void usageLimitChanged(Long discountId) {
+        writeTransaction.executeWithoutResult(status -> discountRepository.findById(discountId).ifPresent(discount -> {
+            discountEngine.update(discount);
+            catalogChangeFeed.discountChanged(discountId);
+            productDetailCache.invalidateAll(discountRepository.findProductIdsByDiscountId(discountId));
+        }));
+    }
+
+    /**
+     * Regole del codice lette alla creazione del pool
+     */
+    private record CouponRule(Long id, String code, Discount.DiscountType type, Integer value,
+                              LocalDateTime startsAt, LocalDateTime endsAt, Integer maxUses, Integer maxUsesPerUser,
+                              Integer minPurchaseAmountCents, boolean isActive) {
+    }
+
+    /**
+     * Pool di un codice con lo stato dell'ultimo controllo di inattività (solo thread dello scheduler)
+     */
+    private static final class CouponPool {
+
+        private final CouponRule rule;
+        private final CouponPermits permits;
+        private int lastAvailable = -1;
+        private long lastRefills = -1;
+
+        private CouponPool(CouponRule rule, CouponPermits permits) {
+            this.rule = rule;
+            this.permits = permits;
+        }
+
+        private CouponRule rule() {
+            return rule;
+        }
+
+        private CouponPermits permits() {
+            return permits;
+        }
+
+        /**
+         * @return false se dall'ultimo controllo nessun permesso è stato preso o restituito
+         */
+        private boolean checkActivity() {
+            int available = permits.available();
+            long refills = permits.refills();
+            boolean active = available != lastAvailable || refills != lastRefills;
+            lastAvailable = available;
+            lastRefills = refills;
+            return active;
+        }
+    }
+}
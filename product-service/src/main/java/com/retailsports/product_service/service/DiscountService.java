@@ -1,21 +1,30 @@
 package com.retailsports.product_service.service;
 
+import com.retailsports.product_service.assignment.DiscountAssignmentService;
+import com.retailsports.product_service.cache.ProductDetailCache;
 import com.retailsports.product_service.dto.request.DiscountRequest;
 import com.retailsports.product_service.dto.response.DiscountResponse;
 import com.retailsports.product_service.exception.BadRequestException;
 import com.retailsports.product_service.exception.DuplicateResourceException;
 import com.retailsports.product_service.exception.ResourceNotFoundException;
+import com.retailsports.product_service.feed.CatalogChangeFeed;
 import com.retailsports.product_service.model.Discount;
 import com.retailsports.product_service.model.Product;
+import com.retailsports.product_service.pricing.DiscountEngine;
 import com.retailsports.product_service.repository.DiscountRepository;
 import com.retailsports.product_service.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,8 +33,19 @@ import java.util.stream.Collectors;
 @Transactional
 public class DiscountService {
 
+    // current_uses conta i permessi prelevati dalle istanze: gli utilizzi effettivi sono nel registro dei riscatti
+    private static final String REDEEMED_COUNTS_SQL =
+        "SELECT discount_id, COUNT(*) AS redeemed FROM discount_redemptions " +
+        "WHERE discount_id IN (:ids) AND status = 'REDEEMED' GROUP BY discount_id";
+
     private final DiscountRepository discountRepository;
     private final ProductRepository productRepository;
+    private final DiscountEngine discountEngine;
+    private final CatalogChangeFeed catalogChangeFeed;
+    private final ProductDetailCache productDetailCache;
+    private final CouponRedemptionService couponRedemptionService;
+    private final DiscountAssignmentService discountAssignmentService;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
     /**
      * Crea un nuovo sconto
@@ -65,13 +85,13 @@ public class DiscountService {
 
         Discount saved = discountRepository.save(discount);
 
-        // Associa prodotti (se forniti)
+        // Associa prodotti (se forniti): batch JDBC nella stessa transazione
         if (request.getProductIds() != null && !request.getProductIds().isEmpty()) {
-            for (Long productId : request.getProductIds()) {
-                applyDiscountToProduct(saved.getId(), productId);
-            }
+            discountAssignmentService.assignProducts(saved.getId(), request.getProductIds());
         }
 
+        discountEngine.update(saved);
+        catalogChangeFeed.discountChanged(saved.getId());
         log.info("Discount created successfully with id: {}", saved.getId());
         return convertToResponse(saved);
     }
@@ -115,6 +135,10 @@ public class DiscountService {
         discount.setIsActive(request.getIsActive());
 
         Discount updated = discountRepository.save(discount);
+        discountEngine.update(updated);
+        catalogChangeFeed.discountChanged(updated.getId());
+        productDetailCache.invalidateAll(discountRepository.findProductIdsByDiscountId(updated.getId()));
+        couponRedemptionService.evict(updated.getId());
         log.info("Discount updated successfully with id: {}", updated.getId());
 
         return convertToResponse(updated);
@@ -145,10 +169,7 @@ public class DiscountService {
      */
     @Transactional(readOnly = true)
     public List<DiscountResponse> getActiveDiscounts() {
-        return discountRepository.findAllActive()
-            .stream()
-            .map(this::convertToResponse)
-            .collect(Collectors.toList());
+        return convertToResponses(discountRepository.findAllActive());
     }
 
     /**
@@ -156,10 +177,7 @@ public class DiscountService {
      */
     @Transactional(readOnly = true)
     public List<DiscountResponse> getValidDiscounts() {
-        return discountRepository.findValidDiscounts(LocalDateTime.now())
-            .stream()
-            .map(this::convertToResponse)
-            .collect(Collectors.toList());
+        return convertToResponses(discountRepository.findValidDiscounts(LocalDateTime.now()));
     }
 
     /**
@@ -178,6 +196,11 @@ public class DiscountService {
         product.getDiscounts().add(discount);
 
         discountRepository.save(discount);
+        // Gli sconti fanno parte del dettaglio prodotto (ETag) e del feed delle modifiche
+        productRepository.touch(productId, LocalDateTime.now());
+        discountEngine.link(discountId, productId);
+        catalogChangeFeed.productChanged(productId);
+        productDetailCache.invalidate(productId);
         log.info("Discount applied successfully to product");
     }
 
@@ -197,6 +220,10 @@ public class DiscountService {
         product.getDiscounts().remove(discount);
 
         discountRepository.save(discount);
+        productRepository.touch(productId, LocalDateTime.now());
+        discountEngine.unlink(discountId, productId);
+        catalogChangeFeed.productChanged(productId);
+        productDetailCache.invalidate(productId);
         log.info("Discount removed successfully from product");
     }
 
@@ -242,15 +269,24 @@ public class DiscountService {
     public void incrementUsage(Long discountId) {
         log.info("Incrementing usage for discount {}", discountId);
 
-        Discount discount = discountRepository.findById(discountId)
-            .orElseThrow(() -> new ResourceNotFoundException("Discount not found with id: " + discountId));
+        if (!discountRepository.existsById(discountId)) {
+            throw new ResourceNotFoundException("Discount not found with id: " + discountId);
+        }
 
-        if (discount.hasReachedMaxUses()) {
+        // UPDATE condizionale: due incrementi concorrenti non superano maxUses
+        if (discountRepository.incrementUsageIfAvailable(discountId) == 0) {
             throw new BadRequestException("Discount has reached maximum uses");
         }
 
-        discount.incrementUsage();
-        discountRepository.save(discount);
+        Discount discount = discountRepository.findById(discountId)
+            .orElseThrow(() -> new ResourceNotFoundException("Discount not found with id: " + discountId));
+        // Motore dei prezzi, feed e cache cambiano solo all'esaurimento, non a ogni utilizzo
+        // (l'UPDATE condizionale fa raggiungere maxUses a un solo incremento)
+        if (discount.hasReachedMaxUses()) {
+            discountEngine.update(discount);
+            catalogChangeFeed.discountChanged(discountId);
+            productDetailCache.invalidateAll(discountRepository.findProductIdsByDiscountId(discountId));
+        }
 
         log.info("Discount usage incremented. Current uses: {}", discount.getCurrentUses());
     }
@@ -260,7 +296,13 @@ public class DiscountService {
      */
     public int deactivateExpiredDiscounts() {
         log.info("Deactivating expired discounts");
-        int deactivated = discountRepository.deactivateExpiredDiscounts(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> expiredIds = discountRepository.findActiveExpiredIds(now);
+        int deactivated = discountRepository.deactivateExpiredDiscounts(now);
+        expiredIds.forEach(catalogChangeFeed::discountChanged);
+        if (deactivated > 0) {
+            discountEngine.reload();
+        }
         log.info("Deactivated {} expired discounts", deactivated);
         return deactivated;
     }
@@ -281,6 +323,9 @@ public class DiscountService {
         }
 
         discountRepository.delete(discount);
+        discountEngine.remove(id);
+        catalogChangeFeed.discountChanged(id);
+        couponRedemptionService.evict(id);
         log.info("Discount deleted successfully with id: {}", id);
     }
 
@@ -290,11 +335,38 @@ public class DiscountService {
      * Converte Discount entity in DiscountResponse DTO
      */
     private DiscountResponse convertToResponse(Discount discount) {
+        return convertToResponse(discount, redeemedCounts(List.of(discount.getId())).getOrDefault(discount.getId(), 0));
+    }
+
+    /**
+     * Converte una lista di sconti (una sola query per i riscatti)
+     */
+    private List<DiscountResponse> convertToResponses(List<Discount> discounts) {
+        if (discounts.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> redeemed = redeemedCounts(discounts.stream().map(Discount::getId).toList());
+        return discounts.stream()
+            .map(discount -> convertToResponse(discount, redeemed.getOrDefault(discount.getId(), 0)))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Riscatti confermati per sconto
+     */
+    private Map<Long, Integer> redeemedCounts(Collection<Long> discountIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        namedParameterJdbcTemplate.query(REDEEMED_COUNTS_SQL, Map.of("ids", discountIds), (RowCallbackHandler) rs ->
+            counts.put(rs.getLong("discount_id"), rs.getInt("redeemed")));
+        return counts;
+    }
+
+    private DiscountResponse convertToResponse(Discount discount, int redeemed) {
         LocalDateTime now = LocalDateTime.now();
         boolean isValid = discount.isValid();
         boolean isExpired = discount.getEndsAt().isBefore(now);
         Integer remainingUses = discount.getMaxUses() != null
-            ? discount.getMaxUses() - discount.getCurrentUses()
+            ? Math.max(discount.getMaxUses() - redeemed, 0)
             : null;
 
         return DiscountResponse.builder()
@@ -308,7 +380,8 @@ public class DiscountService {
             .endsAt(discount.getEndsAt())
             .maxUses(discount.getMaxUses())
             .maxUsesPerUser(discount.getMaxUsesPerUser())
-            .currentUses(discount.getCurrentUses())
+            .currentUses(redeemed)
+            .allocatedUses(discount.getCurrentUses())
             .minPurchaseAmountCents(discount.getMinPurchaseAmountCents())
             .isActive(discount.getIsActive())
             .createdAt(discount.getCreatedAt())
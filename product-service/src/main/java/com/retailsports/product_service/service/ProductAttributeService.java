@@ -7,16 +7,28 @@ import com.retailsports.product_service.dto.response.AttributeValueResponse;
 import com.retailsports.product_service.exception.BadRequestException;
 import com.retailsports.product_service.exception.DuplicateResourceException;
 import com.retailsports.product_service.exception.ResourceNotFoundException;
+import com.retailsports.product_service.feed.CatalogChangeFeed;
+import com.retailsports.product_service.model.Product;
 import com.retailsports.product_service.model.ProductAttribute;
 import com.retailsports.product_service.model.AttributeValue;
+import com.retailsports.product_service.model.ProductAttributeValue;
+import com.retailsports.product_service.recommendation.ProductSimilarityJob;
 import com.retailsports.product_service.repository.ProductAttributeRepository;
 import com.retailsports.product_service.repository.AttributeValueRepository;
+import com.retailsports.product_service.repository.ProductAttributeValueRepository;
+import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.search.ProductFacetIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,6 +39,11 @@ public class ProductAttributeService {
 
     private final ProductAttributeRepository attributeRepository;
     private final AttributeValueRepository attributeValueRepository;
+    private final ProductAttributeValueRepository productAttributeValueRepository;
+    private final ProductRepository productRepository;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSimilarityJob productSimilarityJob;
+    private final CatalogChangeFeed catalogChangeFeed;
 
     // ========== PRODUCT ATTRIBUTE METHODS ==========
 
@@ -153,6 +170,8 @@ public class ProductAttributeService {
             .build();
 
         AttributeValue saved = attributeValueRepository.save(value);
+        productFacetIndex.defineAttributeValue(saved.getId(), attribute.getId());
+        catalogChangeFeed.attributeValueChanged(saved.getId());
         log.info("Attribute value created successfully with id: {}", saved.getId());
 
         return convertValueToResponse(saved);
@@ -186,6 +205,8 @@ public class ProductAttributeService {
         value.setDisplayOrder(request.getDisplayOrder() != null ? request.getDisplayOrder() : 0);
 
         AttributeValue updated = attributeValueRepository.save(value);
+        productFacetIndex.defineAttributeValue(updated.getId(), updated.getAttribute().getId());
+        catalogChangeFeed.attributeValueChanged(updated.getId());
         log.info("Attribute value updated successfully with id: {}", updated.getId());
 
         return convertValueToResponse(updated);
@@ -214,8 +235,83 @@ public class ProductAttributeService {
         AttributeValue value = attributeValueRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Attribute value not found with id: " + id));
 
+        // Le assegnazioni ai prodotti sono eliminate in cascata dal database
+        List<Long> productIds = productAttributeValueRepository.findProductIdsByAttributeValueId(id);
         attributeValueRepository.delete(value);
-        log.info("Attribute value deleted successfully with id: {}", id);
+        productFacetIndex.removeAttributeValue(id);
+        catalogChangeFeed.attributeValueChanged(id);
+        if (!productIds.isEmpty()) {
+            productRepository.touchAll(productIds, LocalDateTime.now());
+            productIds.forEach(productId -> {
+                productSimilarityJob.markDirty(productId);
+                catalogChangeFeed.productChanged(productId);
+            });
+        }
+        log.info("Attribute value deleted successfully with id: {} ({} products updated)", id, productIds.size());
+    }
+
+    // ========== PRODUCT ATTRIBUTE VALUE METHODS ==========
+
+    /**
+     * Ottieni i valori di attributo assegnati a un prodotto
+     */
+    @Transactional(readOnly = true)
+    public List<AttributeValueResponse> getProductAttributeValues(Long productId) {
+        productRepository.findActiveById(productId)
+            .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+
+        return productAttributeValueRepository.findByProductId(productId)
+            .stream()
+            .map(productAttributeValue -> convertValueToResponse(productAttributeValue.getAttributeValue()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Sostituisce i valori di attributo assegnati a un prodotto (es. taglie e colori disponibili)
+     */
+    public List<AttributeValueResponse> setProductAttributeValues(Long productId, List<Long> attributeValueIds) {
+        log.info("Setting attribute values for product id: {}", productId);
+
+        Product product = productRepository.findActiveById(productId)
+            .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+
+        Set<Long> requestedIds = attributeValueIds != null ? new HashSet<>(attributeValueIds) : Set.of();
+        Map<Long, AttributeValue> values = attributeValueRepository.findAllById(requestedIds)
+            .stream()
+            .collect(Collectors.toMap(AttributeValue::getId, Function.identity()));
+        if (values.size() != requestedIds.size()) {
+            Set<Long> missing = new HashSet<>(requestedIds);
+            missing.removeAll(values.keySet());
+            throw new ResourceNotFoundException("Attribute values not found with ids: " + missing);
+        }
+
+        // Rimuove le assegnazioni non più richieste e aggiunge solo le nuove (vincolo unique_product_attr)
+        Set<Long> currentIds = new HashSet<>();
+        for (ProductAttributeValue productAttributeValue : Set.copyOf(product.getAttributeValues())) {
+            Long valueId = productAttributeValue.getAttributeValue().getId();
+            if (requestedIds.contains(valueId)) {
+                currentIds.add(valueId);
+            } else {
+                product.removeAttributeValue(productAttributeValue);
+            }
+        }
+        for (Long valueId : requestedIds) {
+            if (!currentIds.contains(valueId)) {
+                product.addAttributeValue(ProductAttributeValue.builder().attributeValue(values.get(valueId)).build());
+            }
+        }
+
+        productRepository.save(product);
+        productRepository.touch(productId, LocalDateTime.now());
+        productFacetIndex.updateAttributeValues(productId, requestedIds);
+        productSimilarityJob.markDirty(productId);
+        catalogChangeFeed.productChanged(productId);
+        log.info("Product {} now has {} attribute values", productId, requestedIds.size());
+
+        return requestedIds.stream()
+            .map(values::get)
+            .map(this::convertValueToResponse)
+            .collect(Collectors.toList());
     }
 
     // ========== HELPER METHODS ==========
@@ -1,8 +1,12 @@
 package com.retailsports.product_service.service;
 
+import com.retailsports.product_service.cache.ProductDetailCache;
 import com.retailsports.product_service.dto.request.ProductImageRequest;
 import com.retailsports.product_service.dto.response.ProductImageResponse;
 import com.retailsports.product_service.exception.ResourceNotFoundException;
+import com.retailsports.product_service.image.ImageVariant;
+import com.retailsports.product_service.image.ImageVariantGenerator;
+import com.retailsports.product_service.image.ImageVariantStore;
 import com.retailsports.product_service.model.Product;
 import com.retailsports.product_service.model.ProductImage;
 import com.retailsports.product_service.repository.ProductImageRepository;
@@ -10,8 +14,12 @@ import com.retailsports.product_service.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Objects;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,6 +31,9 @@ public class ProductImageService {
 
     private final ProductImageRepository productImageRepository;
     private final ProductRepository productRepository;
+    private final ImageVariantGenerator imageVariantGenerator;
+    private final ImageVariantStore imageVariantStore;
+    private final ProductDetailCache productDetailCache;
 
     /**
      * Aggiungi immagine a un prodotto
@@ -49,6 +60,9 @@ public class ProductImageService {
             .build();
 
         ProductImage saved = productImageRepository.save(image);
+        productRepository.touch(productId, LocalDateTime.now());
+        productDetailCache.invalidate(productId);
+        imageVariantGenerator.submit(saved.getId());
         log.info("Image added successfully with id: {} to product: {}", saved.getId(), productId);
 
         return convertToResponse(saved);
@@ -68,6 +82,13 @@ public class ProductImageService {
             productImageRepository.removePrimaryFlagForProduct(image.getProduct().getId());
         }
 
+        // Nuovo originale: le varianti vanno rigenerate (nel frattempo i listing usano image_url)
+        boolean imageChanged = !Objects.equals(image.getImageUrl(), request.getImageUrl());
+        if (imageChanged) {
+            image.setVariantsKey(null);
+            image.setVariantsStatus(ProductImage.VariantStatus.PENDING);
+        }
+
         // Aggiornamento campi
         image.setImageUrl(request.getImageUrl());
         image.setAltText(request.getAltText());
@@ -75,6 +96,11 @@ public class ProductImageService {
         image.setIsPrimary(request.getIsPrimary() != null ? request.getIsPrimary() : false);
 
         ProductImage updated = productImageRepository.save(image);
+        productRepository.touch(image.getProduct().getId(), LocalDateTime.now());
+        productDetailCache.invalidate(image.getProduct().getId());
+        if (imageChanged) {
+            imageVariantGenerator.submit(updated.getId());
+        }
         log.info("Image updated successfully with id: {}", updated.getId());
 
         return convertToResponse(updated);
@@ -110,6 +136,8 @@ public class ProductImageService {
         // Imposta questa come primary
         image.setIsPrimary(true);
         ProductImage updated = productImageRepository.save(image);
+        productRepository.touch(image.getProduct().getId(), LocalDateTime.now());
+        productDetailCache.invalidate(image.getProduct().getId());
 
         log.info("Image set as primary successfully with id: {}", updated.getId());
         return convertToResponse(updated);
@@ -125,9 +153,20 @@ public class ProductImageService {
             .orElseThrow(() -> new ResourceNotFoundException("Image not found with id: " + imageId));
 
         productImageRepository.delete(image);
+        productRepository.touch(image.getProduct().getId(), LocalDateTime.now());
+        productDetailCache.invalidate(image.getProduct().getId());
         log.info("Image deleted successfully with id: {}", imageId);
     }
 
+    /**
+     * File di una variante dall'archivio locale (nessuna transazione né connessione)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Path getImageVariant(String key, String variant) {
+        return imageVariantStore.find(key, ImageVariant.resolve(variant))
+            .orElseThrow(() -> new ResourceNotFoundException("Image variant not found: " + key + "/" + variant));
+    }
+
     // ========== HELPER METHODS ==========
 
     /**
@@ -137,6 +176,7 @@ public class ProductImageService {
         return ProductImageResponse.builder()
             .id(image.getId())
             .imageUrl(image.getImageUrl())
+            .variants(imageVariantStore.urls(image.getVariantsKey()))
             .altText(image.getAltText())
             .displayOrder(image.getDisplayOrder())
             .isPrimary(image.getIsPrimary())
@@ -1,27 +1,70 @@
 package com.retailsports.product_service.service;
 
+import com.retailsports.money.Money;
+import com.retailsports.money.MoneyFormatter;
+import com.retailsports.product_service.cache.CategoryTreeCache;
+import com.retailsports.product_service.cache.ProductDetailCache;
+import com.retailsports.product_service.dto.request.ProductBatchRequest;
 import com.retailsports.product_service.dto.request.ProductRequest;
+import com.retailsports.product_service.dto.request.ProductSalesRequest;
 import com.retailsports.product_service.dto.request.ProductSearchRequest;
 import com.retailsports.product_service.dto.response.*;
 import com.retailsports.product_service.exception.BadRequestException;
 import com.retailsports.product_service.exception.DuplicateResourceException;
 import com.retailsports.product_service.exception.ResourceNotFoundException;
+import com.retailsports.product_service.feed.CatalogChangeFeed;
+import com.retailsports.product_service.image.ImageVariantStore;
 import com.retailsports.product_service.model.*;
+import com.retailsports.product_service.pricing.DiscountEngine;
+import com.retailsports.product_service.pricing.DiscountWindow;
+import com.retailsports.product_service.ranking.ProductRanking;
+import com.retailsports.product_service.ranking.RankingType;
+import com.retailsports.product_service.ranking.RankingWindow;
+import com.retailsports.product_service.recommendation.ProductSimilarityJob;
 import com.retailsports.product_service.repository.*;
+import com.retailsports.product_service.repository.projection.ProductInfoProjection;
+import com.retailsports.product_service.repository.projection.ProductSummaryProjection;
+import com.retailsports.product_service.repository.projection.ProductVersionProjection;
+import com.retailsports.product_service.search.FacetQuery;
+import com.retailsports.product_service.search.FacetedHits;
+import com.retailsports.product_service.search.ProductFacetIndex;
+import com.retailsports.product_service.search.ProductFlag;
+import com.retailsports.product_service.search.ProductIdentifierIndex;
+import com.retailsports.product_service.search.ProductSearchIndex;
+import com.retailsports.product_service.search.SearchHits;
+import com.retailsports.product_service.search.SuggestionIndex;
+import com.retailsports.product_service.util.KeysetCursor;
+import com.retailsports.product_service.util.ResourceVersion;
 import com.retailsports.product_service.util.SlugUtil;
+import com.retailsports.product_service.util.TransactionUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,12 +73,52 @@ import java.util.stream.Collectors;
 @Transactional
 public class ProductService {
 
+    // Un ordine concorrente con lo stesso ID attende il commit del primo e poi non inserisce nulla
+    private static final String INSERT_SALES_ORDER_SQL =
+        "INSERT IGNORE INTO product_sales_orders (order_id, recorded_at) VALUES (?, ?)";
+
+    private static final String PURGE_SALES_ORDERS_SQL =
+        "DELETE FROM product_sales_orders WHERE recorded_at < ? LIMIT ?";
+
+    private static final int PURGE_CHUNK_SIZE = 10000;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final BrandRepository brandRepository;
     private final ProductImageRepository productImageRepository;
+    private final ImageVariantStore imageVariantStore;
     private final DiscountRepository discountRepository;
+    private final DiscountEngine discountEngine;
     private final ProductAttributeValueRepository productAttributeValueRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductIdentifierIndex productIdentifierIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final ProductSimilarityJob productSimilarityJob;
+    private final ProductRanking productRanking;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ProductDetailCache productDetailCache;
+    private final ProductViewCounter productViewCounter;
+    private final CatalogChangeFeed catalogChangeFeed;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${product.suggest.max-results:20}")
+    private int suggestMaxResults;
+
+    @Value("${product.batch.max-size:200}")
+    private int batchMaxSize;
+
+    @Value("${product.cursor.max-page-size:100}")
+    private int cursorMaxPageSize;
+
+    @Value("${product.similar.top-k:12}")
+    private int similarMaxResults;
+
+    @Value("${product.changes.max-batch-size:1000}")
+    private int changesMaxBatchSize;
+
+    @Value("${product.sales.order-retention-days:30}")
+    private int salesOrderRetentionDays;
 
     /**
      * Crea un nuovo prodotto
@@ -44,16 +127,21 @@ public class ProductService {
         log.info("Creating product with SKU: {}", request.getSku());
 
         // Validazione SKU univoco
-        if (productRepository.existsBySku(request.getSku())) {
+        if (skuExists(request.getSku())) {
             throw new DuplicateResourceException("Product with SKU '" + request.getSku() + "' already exists");
         }
 
+        // Validazione barcode univoco (se fornito)
+        if (request.getBarcode() != null && !request.getBarcode().isBlank() && barcodeExists(request.getBarcode())) {
+            throw new DuplicateResourceException("Product with barcode '" + request.getBarcode() + "' already exists");
+        }
+
         // Validazione e generazione slug
         String slug = request.getSlug() != null && !request.getSlug().isBlank()
             ? request.getSlug()
             : SlugUtil.generateSlug(request.getName());
 
-        if (productRepository.existsBySlug(slug)) {
+        if (slugExists(slug)) {
             throw new DuplicateResourceException("Product with slug '" + slug + "' already exists");
         }
 
@@ -102,6 +190,14 @@ public class ProductService {
             .build();
 
         Product saved = productRepository.save(product);
+        productSearchIndex.index(saved);
+        productFacetIndex.index(saved);
+        productIdentifierIndex.index(saved);
+        productSimilarityJob.markDirty(saved.getId());
+        productRanking.index(saved);
+        catalogChangeFeed.productChanged(saved.getId());
+        categoryTreeCache.invalidate();
+        suggestionIndex.invalidate();
         log.info("Product created successfully with id: {}", saved.getId());
 
         return convertToFullResponse(saved);
@@ -117,16 +213,22 @@ public class ProductService {
             .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
 
         // Validazione SKU (se cambiato)
-        if (!product.getSku().equals(request.getSku()) && productRepository.existsBySku(request.getSku())) {
+        if (!product.getSku().equals(request.getSku()) && skuExists(request.getSku())) {
             throw new DuplicateResourceException("Product with SKU '" + request.getSku() + "' already exists");
         }
 
+        // Validazione barcode (se cambiato)
+        if (request.getBarcode() != null && !request.getBarcode().isBlank()
+            && !request.getBarcode().equals(product.getBarcode()) && barcodeExists(request.getBarcode())) {
+            throw new DuplicateResourceException("Product with barcode '" + request.getBarcode() + "' already exists");
+        }
+
         // Validazione slug (se cambiato)
         String slug = request.getSlug() != null && !request.getSlug().isBlank()
             ? request.getSlug()
             : SlugUtil.generateSlug(request.getName());
 
-        if (!product.getSlug().equals(slug) && productRepository.existsBySlug(slug)) {
+        if (!product.getSlug().equals(slug) && slugExists(slug)) {
             throw new DuplicateResourceException("Product with slug '" + slug + "' already exists");
         }
 
@@ -173,6 +275,15 @@ public class ProductService {
         product.setMetaKeywords(request.getMetaKeywords());
 
         Product updated = productRepository.save(product);
+        productSearchIndex.index(updated);
+        productFacetIndex.index(updated);
+        productIdentifierIndex.index(updated);
+        productSimilarityJob.markDirty(updated.getId());
+        productRanking.index(updated);
+        catalogChangeFeed.productChanged(updated.getId());
+        productDetailCache.invalidate(updated.getId());
+        categoryTreeCache.invalidate();
+        suggestionIndex.invalidate();
         log.info("Product updated successfully with id: {}", updated.getId());
 
         return convertToFullResponse(updated);
@@ -197,17 +308,27 @@ public class ProductService {
      */
     @Transactional(readOnly = true)
     public ProductResponse getProductBySku(String sku) {
-        Product product = productRepository.findBySku(sku)
+        Product product = findActiveBySku(sku)
             .orElseThrow(() -> new ResourceNotFoundException("Product not found with SKU: " + sku));
         return convertToFullResponse(product);
     }
 
+    /**
+     * Ottieni prodotto per barcode (lettura alle casse)
+     */
+    @Transactional(readOnly = true)
+    public ProductResponse getProductByBarcode(String barcode) {
+        Product product = findActiveByBarcode(barcode)
+            .orElseThrow(() -> new ResourceNotFoundException("Product not found with barcode: " + barcode));
+        return convertToFullResponse(product);
+    }
+
     /**
      * Ottieni prodotto per slug
      */
     @Transactional(readOnly = true)
     public ProductResponse getProductBySlug(String slug) {
-        Product product = productRepository.findBySlug(slug)
+        Product product = findActiveBySlug(slug)
             .orElseThrow(() -> new ResourceNotFoundException("Product not found with slug: " + slug));
 
         // Incrementa views
@@ -216,6 +337,104 @@ public class ProductService {
         return convertToFullResponse(product);
     }
 
+    /**
+     * Versione del dettaglio prodotto per ID (GET condizionali): una sola query, senza immagini e sconti
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getProductVersion(Long id) {
+        return productRepository.findVersionById(id, LocalDateTime.now())
+            .map(this::toResourceVersion)
+            .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+    }
+
+    /**
+     * Versione del dettaglio prodotto per slug (GET condizionali)
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getProductVersionBySlug(String slug) {
+        Long id = productIdentifierIndex.isReady() ? productIdentifierIndex.findActiveIdBySlug(slug) : null;
+        LocalDateTime now = LocalDateTime.now();
+        return findVersionByIndexedId(id)
+            .filter(version -> slug.equalsIgnoreCase(version.getSlug()))
+            .or(() -> productRepository.findVersionBySlug(slug, now))
+            .map(this::toResourceVersion)
+            .orElseThrow(() -> new ResourceNotFoundException("Product not found with slug: " + slug));
+    }
+
+    /**
+     * Versione del dettaglio prodotto per SKU (GET condizionali)
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getProductVersionBySku(String sku) {
+        Long id = productIdentifierIndex.isReady() ? productIdentifierIndex.findActiveIdBySku(sku) : null;
+        LocalDateTime now = LocalDateTime.now();
+        return findVersionByIndexedId(id)
+            .filter(version -> sku.equalsIgnoreCase(version.getSku()))
+            .or(() -> productRepository.findVersionBySku(sku, now))
+            .map(this::toResourceVersion)
+            .orElseThrow(() -> new ResourceNotFoundException("Product not found with SKU: " + sku));
+    }
+
+    /**
+     * Autocompletamento su prodotti, brand e categorie (solo memoria: nessuna transazione né connessione)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<SuggestionResponse> suggest(String query, int limit) {
+        return suggestionIndex.suggest(query, Math.min(Math.max(limit, 1), suggestMaxResults)).stream()
+            .map(suggestion -> SuggestionResponse.builder()
+                .type(suggestion.type())
+                .id(suggestion.id())
+                .name(suggestion.name())
+                .slug(suggestion.slug())
+                .build())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Prodotti simili precalcolati ("potrebbe piacerti anche"), nell'ordine del ranking
+     */
+    @Transactional(readOnly = true)
+    public List<ProductSummaryResponse> getSimilarProducts(Long id, int limit) {
+        List<ProductSummaryProjection> similar = productRepository.findSimilarSummaries(
+            id, PageRequest.of(0, Math.min(Math.max(limit, 1), similarMaxResults)));
+
+        // Nessun simile: distingue il prodotto inesistente dal prodotto non ancora calcolato
+        if (similar.isEmpty() && productRepository.findActiveById(id).isEmpty()) {
+            throw new ResourceNotFoundException("Product not found with id: " + id);
+        }
+
+        return similar.stream()
+            .map(this::convertToSummaryResponse)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Feed delle modifiche del catalogo successive a sinceVersion (prezzi, stock, attivazione, sconti)
+     */
+    @Transactional(readOnly = true)
+    public CatalogChangesResponse getCatalogChanges(long sinceVersion, int limit) {
+        if (sinceVersion < 0) {
+            throw new BadRequestException("sinceVersion must be >= 0");
+        }
+        return catalogChangeFeed.read(sinceVersion, Math.min(Math.max(limit, 1), changesMaxBatchSize));
+    }
+
+    /**
+     * Prodotti di tendenza nella finestra (visualizzazioni e vendite), globali o per categoria
+     */
+    @Transactional(readOnly = true)
+    public List<ProductSummaryResponse> getTrendingProducts(RankingWindow window, Long categoryId, int limit) {
+        return findSummariesInOrder(productRanking.top(RankingType.TRENDING, window, categoryId, Math.max(limit, 1)));
+    }
+
+    /**
+     * Prodotti più venduti nella finestra, globali o per categoria
+     */
+    @Transactional(readOnly = true)
+    public List<ProductSummaryResponse> getBestsellers(RankingWindow window, Long categoryId, int limit) {
+        return findSummariesInOrder(productRanking.top(RankingType.BESTSELLERS, window, categoryId, Math.max(limit, 1)));
+    }
+
     /**
      * Ricerca prodotti con filtri avanzati
      */
@@ -223,15 +442,20 @@ public class ProductService {
     public Page<ProductSummaryResponse> searchProducts(ProductSearchRequest request, Pageable pageable) {
         log.info("Searching products with filters: {}", request);
 
-        Page<Product> products;
+        // Se c'è una keyword e l'indice è pronto, usa l'indice in memoria (ordinato per rilevanza)
+        if (request.getKeyword() != null && !request.getKeyword().isBlank() && productSearchIndex.isReady()) {
+            return searchByKeyword(request.getKeyword(), pageable);
+        }
+
+        Page<ProductSummaryProjection> products;
 
-        // Se c'è una keyword, usa la ricerca full-text
+        // Se c'è una keyword ma l'indice non è ancora pronto, ricerca LIKE su DB
         if (request.getKeyword() != null && !request.getKeyword().isBlank()) {
-            products = productRepository.searchByNameOrDescription(request.getKeyword(), pageable);
+            products = productRepository.searchSummariesByNameOrDescription(request.getKeyword(), pageable);
         }
         // Altrimenti usa i filtri
         else if (request.getCategoryId() != null) {
-            products = productRepository.findWithFilters(
+            products = productRepository.findSummariesWithFilters(
                 request.getCategoryId(),
                 request.getBrandId(),
                 request.getMinPrice(),
@@ -241,12 +465,42 @@ public class ProductService {
         }
         // Prodotti generici
         else {
-            products = productRepository.findAllActive(pageable);
+            products = productRepository.findAllActiveSummaries(pageable);
         }
 
         return products.map(this::convertToSummaryResponse);
     }
 
+    /**
+     * Ricerca prodotti con filtri combinabili (bitmap) e conteggi per faccetta
+     * Se gli indici non sono ancora pronti, o il Sort usa un criterio non indicizzato (vendite, visualizzazioni,
+     * valutazione), ricade sulla ricerca su DB, senza faccette.
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<ProductSummaryResponse> searchProductsWithFacets(ProductSearchRequest request, Pageable pageable) {
+        log.info("Searching products with facets: {}", request);
+
+        boolean hasKeyword = request.getKeyword() != null && !request.getKeyword().isBlank();
+        if (!productFacetIndex.isReady() || (hasKeyword && !productSearchIndex.isReady())
+            || !productFacetIndex.supportsSort(pageable.getSort())) {
+            return PageResponse.from(searchProducts(request, pageable));
+        }
+
+        List<Long> rankedCandidates = hasKeyword ? productSearchIndex.rank(request.getKeyword()) : null;
+        FacetedHits hits = productFacetIndex.search(
+            toFacetQuery(request),
+            rankedCandidates,
+            pageable.getSort(),
+            (int) pageable.getOffset(),
+            pageable.getPageSize()
+        );
+
+        Page<ProductSummaryResponse> page = new PageImpl<>(findSummariesInOrder(hits.productIds()), pageable, hits.totalHits());
+        PageResponse<ProductSummaryResponse> response = PageResponse.from(page);
+        response.setFacets(hits.facets());
+        return response;
+    }
+
     /**
      * Ottieni prodotti per categoria
      */
@@ -256,7 +510,7 @@ public class ProductService {
         categoryRepository.findById(categoryId)
             .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + categoryId));
 
-        Page<Product> products = productRepository.findByCategoryId(categoryId, pageable);
+        Page<ProductSummaryProjection> products = productRepository.findSummariesByCategoryId(categoryId, pageable);
         return products.map(this::convertToSummaryResponse);
     }
 
@@ -269,16 +523,94 @@ public class ProductService {
         brandRepository.findById(brandId)
             .orElseThrow(() -> new ResourceNotFoundException("Brand not found with id: " + brandId));
 
-        Page<Product> products = productRepository.findByBrandId(brandId, pageable);
+        Page<ProductSummaryProjection> products = productRepository.findSummariesByBrandId(brandId, pageable);
         return products.map(this::convertToSummaryResponse);
     }
 
+    /**
+     * Listing prodotti con paginazione keyset (cursore opaco, nessuna COUNT)
+     * Cursore vuoto = prima pagina ordinata per sortBy/direction; i cursori successivi
+     * portano con sé l'ordinamento. categoryId e brandId sono filtri opzionali.
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<ProductSummaryResponse> getProductsByCursor(Long categoryId, Long brandId, String cursor,
+                                                                    int size, String sortBy, Sort.Direction direction) {
+        if (size < 1 || size > cursorMaxPageSize) {
+            throw new BadRequestException("Page size must be between 1 and " + cursorMaxPageSize);
+        }
+        if (categoryId != null) {
+            categoryRepository.findById(categoryId)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + categoryId));
+        }
+        if (brandId != null) {
+            brandRepository.findById(brandId)
+                .orElseThrow(() -> new ResourceNotFoundException("Brand not found with id: " + brandId));
+        }
+
+        KeysetCursor position = cursor == null || cursor.isBlank()
+            ? KeysetCursor.first(sortBy, direction)
+            : KeysetCursor.decode(cursor);
+
+        // Un elemento in più per sapere se esiste una pagina successiva
+        List<ProductSummaryProjection> rows = productRepository.findSummariesAfter(categoryId, brandId, position, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<ProductSummaryProjection> page = hasNext ? rows.subList(0, size) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            ProductSummaryProjection last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(position.sortBy(), position.direction(), sortValue(last, position.sortBy()), last.getId())
+                .encode();
+        }
+
+        List<ProductSummaryResponse> content = page.stream()
+            .map(this::convertToSummaryResponse)
+            .collect(Collectors.toList());
+
+        return PageResponse.fromSlice(content, size, nextCursor);
+    }
+
+    /**
+     * Lettura batch per i servizi interni (carrello, stock): una query per gli ID e una per gli SKU
+     * Gli identificativi non trovati (inesistenti o cancellati) sono riportati esplicitamente.
+     */
+    @Transactional(readOnly = true)
+    public ProductBatchResponse getProductsBatch(ProductBatchRequest request) {
+        Set<Long> ids = request.getIds() != null ? new LinkedHashSet<>(request.getIds()) : Set.of();
+        Set<String> skus = request.getSkus() != null ? new LinkedHashSet<>(request.getSkus()) : Set.of();
+
+        if (ids.isEmpty() && skus.isEmpty()) {
+            throw new BadRequestException("At least one product id or SKU is required");
+        }
+        if (ids.size() + skus.size() > batchMaxSize) {
+            throw new BadRequestException("Too many products requested: max " + batchMaxSize + " ids and SKUs per call");
+        }
+
+        Map<Long, ProductBatchResponse.ProductInfo> products = new LinkedHashMap<>();
+        Set<String> foundSkus = new HashSet<>();
+        if (!ids.isEmpty()) {
+            productRepository.findInfoByIds(ids).forEach(info -> products.put(info.getId(), convertToProductInfo(info)));
+        }
+        if (!skus.isEmpty()) {
+            productRepository.findInfoBySkus(skus).forEach(info -> {
+                products.put(info.getId(), convertToProductInfo(info));
+                foundSkus.add(info.getSku());
+            });
+        }
+
+        return ProductBatchResponse.builder()
+            .products(products)
+            .missingIds(ids.stream().filter(id -> !products.containsKey(id)).toList())
+            .missingSkus(skus.stream().filter(sku -> !foundSkus.contains(sku)).toList())
+            .build();
+    }
+
     /**
      * Ottieni prodotti in evidenza
      */
     @Transactional(readOnly = true)
     public Page<ProductSummaryResponse> getFeaturedProducts(Pageable pageable) {
-        Page<Product> products = productRepository.findFeaturedProducts(pageable);
+        Page<ProductSummaryProjection> products = productRepository.findFeaturedSummaries(pageable);
         return products.map(this::convertToSummaryResponse);
     }
 
@@ -287,7 +619,7 @@ public class ProductService {
      */
     @Transactional(readOnly = true)
     public Page<ProductSummaryResponse> getNewProducts(Pageable pageable) {
-        Page<Product> products = productRepository.findAllActive(
+        Page<ProductSummaryProjection> products = productRepository.findAllActiveSummaries(
             PageRequest.of(
                 pageable.getPageNumber(),
                 pageable.getPageSize(),
@@ -299,21 +631,12 @@ public class ProductService {
 
     /**
      * Ottieni prodotti in sconto
+     * Paginazione e ordinamento su database (ordinamento scelto dal controller)
      */
     @Transactional(readOnly = true)
     public Page<ProductSummaryResponse> getProductsOnSale(Pageable pageable) {
-        List<Product> products = productRepository.findProductsOnSale();
-
-        // Converti in Page manualmente
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), products.size());
-
-        List<ProductSummaryResponse> content = products.subList(start, end)
-            .stream()
-            .map(this::convertToSummaryResponse)
-            .collect(Collectors.toList());
-
-        return new org.springframework.data.domain.PageImpl<>(content, pageable, products.size());
+        Page<ProductSummaryProjection> products = productRepository.findOnSaleSummaries(pageable);
+        return products.map(this::convertToSummaryResponse);
     }
 
     /**
@@ -327,6 +650,15 @@ public class ProductService {
 
         product.softDelete();
         productRepository.save(product);
+        productSearchIndex.remove(id);
+        productFacetIndex.remove(id);
+        productIdentifierIndex.index(product);
+        productSimilarityJob.markDirty(id);
+        productRanking.index(product);
+        catalogChangeFeed.productChanged(product.getId());
+        productDetailCache.invalidate(product.getId());
+        categoryTreeCache.invalidate();
+        suggestionIndex.invalidate();
 
         log.info("Product soft deleted successfully with id: {}", id);
     }
@@ -346,6 +678,15 @@ public class ProductService {
 
         product.restore();
         Product restored = productRepository.save(product);
+        productSearchIndex.index(restored);
+        productFacetIndex.index(restored);
+        productIdentifierIndex.index(restored);
+        productSimilarityJob.markDirty(restored.getId());
+        productRanking.index(restored);
+        catalogChangeFeed.productChanged(restored.getId());
+        productDetailCache.invalidate(restored.getId());
+        categoryTreeCache.invalidate();
+        suggestionIndex.invalidate();
 
         log.info("Product restored successfully with id: {}", id);
         return convertToFullResponse(restored);
@@ -371,19 +712,198 @@ public class ProductService {
 
         product.setStockQuantity(newStock);
         Product updated = productRepository.save(product);
+        productFacetIndex.updateStock(updated.getId(), updated.getStockQuantity());
+        catalogChangeFeed.productChanged(updated.getId());
+        productDetailCache.invalidate(updated.getId());
 
         log.info("Stock updated successfully for product id: {}. New stock: {}", id, newStock);
         return convertToFullResponse(updated);
     }
 
     /**
-     * Incrementa views prodotto (asincrono)
+     * Incrementa views prodotto (accumulate in memoria e scritte in batch da ProductViewCounter)
      */
     public void incrementViews(Long id) {
-        productRepository.findActiveById(id).ifPresent(product -> {
-            product.incrementViews();
-            productRepository.save(product);
-        });
+        productViewCounter.increment(id);
+        productRanking.recordView(id);
+    }
+
+    /**
+     * Registra le vendite di un ordine: contatore vendite su DB e classifiche in memoria (dopo il commit)
+     * I prodotti inesistenti o cancellati vengono ignorati. Un ordine già registrato non viene conteggiato di nuovo:
+     * il marcatore in product_sales_orders è scritto nella stessa transazione dei contatori.
+     */
+    public int recordSales(ProductSalesRequest request) {
+        if (request.getItems().size() > batchMaxSize) {
+            throw new BadRequestException("Too many items: max " + batchMaxSize + " per call");
+        }
+        if (jdbcTemplate.update(INSERT_SALES_ORDER_SQL, request.getOrderId(), LocalDateTime.now()) == 0) {
+            log.info("Sales for order {} already recorded, skipping", request.getOrderId());
+            return 0;
+        }
+
+        int recorded = 0;
+        for (ProductSalesRequest.Item item : request.getItems()) {
+            if (productRepository.incrementSalesCount(item.getProductId(), item.getQuantity()) > 0) {
+                TransactionUtils.afterCommit(() -> productRanking.recordSale(item.getProductId(), item.getQuantity()));
+                recorded++;
+            }
+        }
+
+        log.info("Recorded sales for {} of {} items", recorded, request.getItems().size());
+        return recorded;
+    }
+
+    /**
+     * Elimina i marcatori degli ordini registrati da più di salesOrderRetentionDays giorni (a blocchi, fuori transazione)
+     * Oltre questo periodo un nuovo invio dello stesso ordine verrebbe conteggiato di nuovo.
+     */
+    @Scheduled(fixedDelayString = "${product.sales.purge-interval-ms:3600000}",
+               initialDelayString = "${product.sales.purge-interval-ms:3600000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void purgeSalesOrders() {
+        Timestamp threshold = Timestamp.valueOf(LocalDateTime.now().minusDays(salesOrderRetentionDays));
+        int deleted = 0;
+        int chunk;
+        do {
+            chunk = jdbcTemplate.update(PURGE_SALES_ORDERS_SQL, threshold, PURGE_CHUNK_SIZE);
+            deleted += chunk;
+        } while (chunk == PURGE_CHUNK_SIZE);
+
+        if (deleted > 0) {
+            log.info("Purged {} recorded sales orders older than {} days", deleted, salesOrderRetentionDays);
+        }
+    }
+
+    // ========== HELPER METHODS - IDENTIFIERS ==========
+
+    /**
+     * Risoluzione tramite indice identificativi (poi lettura per chiave primaria); database se l'indice non risolve
+     * La riga letta deve avere ancora la chiave richiesta: una voce non aggiornata (rinomina, modifica di un'altra
+     * istanza non ancora applicata) porterebbe a un altro prodotto.
+     */
+    private Optional<Product> findActiveBySku(String sku) {
+        return findActiveByIndexedId(productIdentifierIndex.isReady() ? productIdentifierIndex.findActiveIdBySku(sku) : null)
+            .filter(product -> sku.equalsIgnoreCase(product.getSku()))
+            .or(() -> productRepository.findBySku(sku));
+    }
+
+    private Optional<Product> findActiveBySlug(String slug) {
+        return findActiveByIndexedId(productIdentifierIndex.isReady() ? productIdentifierIndex.findActiveIdBySlug(slug) : null)
+            .filter(product -> slug.equalsIgnoreCase(product.getSlug()))
+            .or(() -> productRepository.findBySlug(slug));
+    }
+
+    private Optional<Product> findActiveByBarcode(String barcode) {
+        return findActiveByIndexedId(productIdentifierIndex.isReady() ? productIdentifierIndex.findActiveIdByBarcode(barcode) : null)
+            .filter(product -> barcode.equalsIgnoreCase(product.getBarcode()))
+            .or(() -> productRepository.findByBarcode(barcode));
+    }
+
+    private Optional<Product> findActiveByIndexedId(Long id) {
+        return id != null ? productRepository.findActiveById(id) : Optional.empty();
+    }
+
+    private Optional<ProductVersionProjection> findVersionByIndexedId(Long id) {
+        return id != null ? productRepository.findVersionById(id, LocalDateTime.now()) : Optional.empty();
+    }
+
+    /**
+     * Controlli di unicità: l'indice risponde solo per le chiavi presenti, un'assenza viene verificata sul database
+     * (l'indice può essere indietro rispetto a un'altra istanza o a un import in corso)
+     */
+    private boolean skuExists(String sku) {
+        return (productIdentifierIndex.isReady() && productIdentifierIndex.containsSku(sku)) || productRepository.existsBySku(sku);
+    }
+
+    private boolean slugExists(String slug) {
+        return (productIdentifierIndex.isReady() && productIdentifierIndex.containsSlug(slug)) || productRepository.existsBySlug(slug);
+    }
+
+    private boolean barcodeExists(String barcode) {
+        return (productIdentifierIndex.isReady() && productIdentifierIndex.containsBarcode(barcode))
+            || productRepository.existsByBarcode(barcode);
+    }
+
+    // ========== HELPER METHODS - SEARCH ==========
+
+    /**
+     * Ricerca per keyword sull'indice in memoria: una sola query per caricare la pagina
+     * Senza Sort i risultati seguono il punteggio BM25, altrimenti sono ordinati sull'indice a faccette
+     * (su DB se il criterio non è indicizzato).
+     */
+    private Page<ProductSummaryResponse> searchByKeyword(String keyword, Pageable pageable) {
+        if (pageable.getSort().isUnsorted()) {
+            SearchHits hits = productSearchIndex.search(keyword, (int) pageable.getOffset(), pageable.getPageSize());
+            return new PageImpl<>(findSummariesInOrder(hits.productIds()), pageable, hits.totalHits());
+        }
+        if (!productFacetIndex.isReady() || !productFacetIndex.supportsSort(pageable.getSort())) {
+            return productRepository.searchSummariesByNameOrDescription(keyword, pageable).map(this::convertToSummaryResponse);
+        }
+
+        List<Long> sorted = productFacetIndex.sort(productSearchIndex.rank(keyword), pageable.getSort());
+        int from = (int) Math.min(pageable.getOffset(), sorted.size());
+        int to = Math.min(from + pageable.getPageSize(), sorted.size());
+        return new PageImpl<>(findSummariesInOrder(sorted.subList(from, to)), pageable, sorted.size());
+    }
+
+    /**
+     * Valore della chiave di ordinamento keyset per una riga del listing
+     */
+    private Object sortValue(ProductSummaryProjection row, String sortBy) {
+        return switch (sortBy) {
+            case "createdAt" -> row.getCreatedAt();
+            case "name" -> row.getName();
+            case "priceCents" -> row.getPriceCents();
+            default -> row.getId();
+        };
+    }
+
+    /**
+     * Converte i filtri della richiesta in una query a faccette
+     */
+    private FacetQuery toFacetQuery(ProductSearchRequest request) {
+        EnumSet<ProductFlag> flags = EnumSet.noneOf(ProductFlag.class);
+        if (Boolean.TRUE.equals(request.getFeatured())) flags.add(ProductFlag.FEATURED);
+        if (Boolean.TRUE.equals(request.getNewArrivals())) flags.add(ProductFlag.NEW);
+        if (Boolean.TRUE.equals(request.getOnSale())) flags.add(ProductFlag.ON_SALE);
+        if (Boolean.TRUE.equals(request.getInStock())) flags.add(ProductFlag.IN_STOCK);
+
+        return new FacetQuery(
+            mergeIds(request.getCategoryId(), request.getCategoryIds()),
+            mergeIds(request.getBrandId(), request.getBrandIds()),
+            request.getTagIds() != null ? new HashSet<>(request.getTagIds()) : Set.of(),
+            request.getAttributeValueIds() != null ? new HashSet<>(request.getAttributeValueIds()) : Set.of(),
+            flags,
+            request.getMinPrice(),
+            request.getMaxPrice()
+        );
+    }
+
+    private Set<Long> mergeIds(Long singleId, List<Long> ids) {
+        Set<Long> merged = new HashSet<>();
+        if (singleId != null) merged.add(singleId);
+        if (ids != null) merged.addAll(ids);
+        return merged;
+    }
+
+    /**
+     * Carica le proiezioni summary per IDs mantenendo l'ordine ricevuto
+     */
+    private List<ProductSummaryResponse> findSummariesInOrder(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, ProductSummaryProjection> byId = productRepository.findSummariesByIds(productIds)
+            .stream()
+            .collect(Collectors.toMap(ProductSummaryProjection::getId, Function.identity()));
+
+        return productIds.stream()
+            .map(byId::get)
+            .filter(Objects::nonNull)
+            .map(this::convertToSummaryResponse)
+            .collect(Collectors.toList());
     }
 
     // ========== HELPER METHODS - MAPPERS ==========
@@ -422,11 +942,14 @@ public class ProductService {
             .map(this::convertImageToResponse)
             .orElse(null);
 
-        // Active Discounts
-        List<Discount> activeDiscounts = discountRepository.findValidDiscountsByProductId(product.getId(), LocalDateTime.now());
-        List<DiscountResponse> discountResponses = activeDiscounts.stream()
-            .map(this::convertDiscountToResponse)
-            .collect(Collectors.toList());
+        // Active Discounts (dall'indice in memoria; dal database solo finché l'indice non è pronto)
+        List<DiscountResponse> discountResponses = discountEngine.isReady()
+            ? discountEngine.getValidDiscounts(product.getId(), LocalDateTime.now()).stream()
+                .map(this::convertDiscountToResponse)
+                .collect(Collectors.toList())
+            : discountRepository.findValidDiscountsByProductId(product.getId(), LocalDateTime.now()).stream()
+                .map(this::convertDiscountToResponse)
+                .collect(Collectors.toList());
 
         // Prezzi formattati
         String priceFormatted = formatPrice(product.getPriceCents());
@@ -481,20 +1004,40 @@ public class ProductService {
     }
 
     /**
-     * Converte Product entity in ProductSummaryResponse (lightweight)
+     * Converte la proiezione di versione in ResourceVersion (ETag uguale per ID, slug e SKU)
      */
-    private ProductSummaryResponse convertToSummaryResponse(Product product) {
-        // Primary image URL
-        String primaryImageUrl = productImageRepository.findPrimaryImageByProductId(product.getId())
-            .map(ProductImage::getImageUrl)
-            .orElse(null);
+    private ResourceVersion toResourceVersion(ProductVersionProjection version) {
+        return ResourceVersion.of("p", version.getId(),
+            version.getUpdatedAt(), version.getCategoryUpdatedAt(), version.getBrandUpdatedAt(),
+            version.getDiscountsUpdatedAt(), version.getValidDiscountCount());
+    }
+
+    /**
+     * Converte la proiezione essenziale nel DTO della lettura batch
+     */
+    private ProductBatchResponse.ProductInfo convertToProductInfo(ProductInfoProjection info) {
+        return ProductBatchResponse.ProductInfo.builder()
+            .id(info.getId())
+            .sku(info.getSku())
+            .name(info.getName())
+            .slug(info.getSlug())
+            .priceCents(info.getPriceCents())
+            .stockQuantity(info.getStockQuantity())
+            .trackInventory(info.getTrackInventory())
+            .isActive(info.getIsActive())
+            .build();
+    }
 
+    /**
+     * Converte la proiezione di listing in ProductSummaryResponse (nessuna query aggiuntiva)
+     */
+    private ProductSummaryResponse convertToSummaryResponse(ProductSummaryProjection product) {
         // Prezzo formattato
         String priceFormatted = formatPrice(product.getPriceCents());
         BigDecimal discountPercentage = calculateDiscountPercentage(product.getPriceCents(), product.getCompareAtPriceCents());
 
         // Badge
-        String badge = determineBadge(product);
+        String badge = determineBadge(product.getStockQuantity(), product.getIsNew(), product.getIsOnSale(), product.getIsFeatured());
 
         return ProductSummaryResponse.builder()
             .id(product.getId())
@@ -505,9 +1048,10 @@ public class ProductService {
             .compareAtPriceCents(product.getCompareAtPriceCents())
             .priceFormatted(priceFormatted)
             .discountPercentage(discountPercentage)
-            .brandName(product.getBrand() != null ? product.getBrand().getName() : null)
-            .categoryName(product.getCategory().getName())
-            .primaryImageUrl(primaryImageUrl)
+            .brandName(product.getBrandName())
+            .categoryName(product.getCategoryName())
+            .primaryImageUrl(product.getPrimaryImageUrl())
+            .primaryImageVariants(imageVariantStore.urls(product.getPrimaryImageVariantsKey()))
             .ratingAverage(product.getRatingAverage())
             .ratingCount(product.getRatingCount())
             .isFeatured(product.getIsFeatured())
@@ -522,6 +1066,7 @@ public class ProductService {
         return ProductImageResponse.builder()
             .id(image.getId())
             .imageUrl(image.getImageUrl())
+            .variants(imageVariantStore.urls(image.getVariantsKey()))
             .altText(image.getAltText())
             .displayOrder(image.getDisplayOrder())
             .isPrimary(image.getIsPrimary())
@@ -551,13 +1096,26 @@ public class ProductService {
             .build();
     }
 
+    private DiscountResponse convertDiscountToResponse(DiscountWindow discount) {
+        return DiscountResponse.builder()
+            .id(discount.id())
+            .name(discount.name())
+            .code(discount.code())
+            .type(discount.type())
+            .value(discount.value())
+            .startsAt(discount.startsAt())
+            .endsAt(discount.endsAt())
+            .isValid(true)
+            .isExpired(false)
+            .remainingUses(discount.remainingUses())
+            .build();
+    }
+
     /**
      * Formatta prezzo in centesimi in stringa (es. 9999 -> "99.99€")
      */
     private String formatPrice(Integer priceCents) {
-        if (priceCents == null) return null;
-        BigDecimal price = BigDecimal.valueOf(priceCents).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
-        return String.format("%.2f€", price);
+        return MoneyFormatter.format(priceCents);
     }
 
     /**
@@ -567,20 +1125,19 @@ public class ProductService {
         if (compareAtPriceCents == null || compareAtPriceCents <= priceCents) {
             return null;
         }
-        BigDecimal price = BigDecimal.valueOf(priceCents);
-        BigDecimal compareAt = BigDecimal.valueOf(compareAtPriceCents);
-        BigDecimal discount = compareAt.subtract(price).divide(compareAt, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
-        return discount.setScale(0, RoundingMode.HALF_UP);
+        // Rapporto arrotondato a 0,01% e poi al punto percentuale intero (come il calcolo precedente)
+        long basisPoints = Money.ratioInBasisPoints(compareAtPriceCents - priceCents, compareAtPriceCents, RoundingMode.HALF_UP);
+        return BigDecimal.valueOf(Money.basisPointsToPercent(basisPoints, RoundingMode.HALF_UP));
     }
 
     /**
      * Determina badge da mostrare sul prodotto
      */
-    private String determineBadge(Product product) {
-        if (product.getStockQuantity() == 0) return "OUT OF STOCK";
-        if (product.getIsNew()) return "NEW";
-        if (product.getIsOnSale()) return "SALE";
-        if (product.getIsFeatured()) return "FEATURED";
+    private String determineBadge(Integer stockQuantity, Boolean isNew, Boolean isOnSale, Boolean isFeatured) {
+        if (stockQuantity == 0) return "OUT OF STOCK";
+        if (isNew) return "NEW";
+        if (isOnSale) return "SALE";
+        if (isFeatured) return "FEATURED";
         return null;
     }
 }
@@ -0,0 +1,151 @@
+package com.retailsports.product_service.service;
+
+import com.retailsports.product_service.util.PendingCounters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Contatore visualizzazioni prodotto con scrittura differita
+ * Le visualizzazioni si accumulano in memoria (un LongAdder per prodotto, senza lock sul percorso caldo)
+ * e vengono scritte periodicamente con un unico batch di UPDATE incrementali.
+ */
+@Component
+@Slf4j
+public class ProductViewCounter {
+
+    // updated_at esplicito: la colonna ha ON UPDATE CURRENT_TIMESTAMP e una visualizzazione non è una modifica del prodotto
+    private static final String INCREMENT_SQL =
+        "UPDATE products SET views_count = views_count + ?, updated_at = updated_at WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Numero massimo di prodotti distinti in attesa di flush: oltre, le nuove visualizzazioni vengono scartate
+    private final int maxPendingProducts;
+
+    private final PendingCounters pending = new PendingCounters();
+
+    // Serializza flush schedulato e flush allo shutdown
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Counter droppedIncrements;
+    private final Counter flushedIncrements;
+    private final Counter failedFlushes;
+
+    private volatile long lastSuccessfulFlushMillis = System.currentTimeMillis();
+
+    public ProductViewCounter(JdbcTemplate jdbcTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${product.views.max-pending-products:100000}") int maxPendingProducts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxPendingProducts = maxPendingProducts;
+
+        this.droppedIncrements = Counter.builder("product.views.dropped")
+            .description("Visualizzazioni scartate per superamento del limite di prodotti in attesa")
+            .register(meterRegistry);
+        this.flushedIncrements = Counter.builder("product.views.flushed")
+            .description("Visualizzazioni scritte su database")
+            .register(meterRegistry);
+        this.failedFlushes = Counter.builder("product.views.flush.failures")
+            .description("Flush falliti (le visualizzazioni restano in memoria per il flush successivo)")
+            .register(meterRegistry);
+        Gauge.builder("product.views.pending", pending, PendingCounters::size)
+            .description("Prodotti con visualizzazioni non ancora scritte")
+            .register(meterRegistry);
+        Gauge.builder("product.views.flush.lag", this, ProductViewCounter::flushLagSeconds)
+            .description("Secondi trascorsi dall'ultimo flush riuscito")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Registra una visualizzazione (solo memoria, nessun accesso al database)
+     */
+    public void increment(Long productId) {
+        if (pending.size() >= maxPendingProducts && !pending.contains(productId)) {
+            droppedIncrements.increment();
+            return;
+        }
+        pending.add(productId, 1);
+    }
+
+    /**
+     * Scrive su database le visualizzazioni accumulate
+     * Eseguito ogni X millisecondi (configurabile in application.yaml)
+     */
+    @Scheduled(
+        fixedDelayString = "${product.views.flush-interval-ms:5000}",
+        initialDelayString = "${product.views.flush-interval-ms:5000}",
+        timeUnit = TimeUnit.MILLISECONDS
+    )
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Object[]> batch = drain();
+            if (batch.isEmpty()) {
+                lastSuccessfulFlushMillis = System.currentTimeMillis();
+                return;
+            }
+
+            try {
+                jdbcTemplate.batchUpdate(INCREMENT_SQL, batch);
+                lastSuccessfulFlushMillis = System.currentTimeMillis();
+                long total = batch.stream().mapToLong(row -> (Long) row[0]).sum();
+                flushedIncrements.increment(total);
+                log.debug("Flushed {} product views for {} products", total, batch.size());
+            } catch (RuntimeException e) {
+                // Reinserisce i delta: verranno riprovati al prossimo flush
+                failedFlushes.increment();
+                for (Object[] row : batch) {
+                    pending.add((Long) row[1], (Long) row[0]);
+                }
+                log.error("Error flushing product views ({} products): {}", batch.size(), e.getMessage());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flush finale allo shutdown: nessuna visualizzazione accumulata va persa
+     */
+    @PreDestroy
+    public void drainOnShutdown() {
+        log.info("Draining {} pending product view counters before shutdown", pending.size());
+        flush();
+    }
+
+    /**
+     * Secondi trascorsi dall'ultimo flush riuscito
+     */
+    public double flushLagSeconds() {
+        return (System.currentTimeMillis() - lastSuccessfulFlushMillis) / 1000.0;
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Azzera i contatori e restituisce le righe (delta, productId) da scrivere
+     */
+    private List<Object[]> drain() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : pending.drain().entrySet()) {
+            if (entry.getValue() > 0) {
+                batch.add(new Object[]{entry.getValue(), entry.getKey()});
+            }
+        }
+        return batch;
+    }
+}
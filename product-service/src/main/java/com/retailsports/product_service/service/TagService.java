@@ -5,16 +5,20 @@ import com.retailsports.product_service.dto.response.TagResponse;
 import com.retailsports.product_service.exception.BadRequestException;
 import com.retailsports.product_service.exception.DuplicateResourceException;
 import com.retailsports.product_service.exception.ResourceNotFoundException;
+import com.retailsports.product_service.feed.CatalogChangeFeed;
 import com.retailsports.product_service.model.Tag;
 import com.retailsports.product_service.model.Product;
 import com.retailsports.product_service.repository.TagRepository;
 import com.retailsports.product_service.repository.ProductRepository;
+import com.retailsports.product_service.recommendation.ProductSimilarityJob;
+import com.retailsports.product_service.search.ProductFacetIndex;
 import com.retailsports.product_service.util.SlugUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -26,6 +30,9 @@ public class TagService {
 
     private final TagRepository tagRepository;
     private final ProductRepository productRepository;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSimilarityJob productSimilarityJob;
+    private final CatalogChangeFeed catalogChangeFeed;
 
     /**
      * Crea un nuovo tag
@@ -141,6 +148,10 @@ public class TagService {
         product.getTags().add(tag);
 
         tagRepository.save(tag);
+        productRepository.touch(productId, LocalDateTime.now());
+        productFacetIndex.index(product);
+        productSimilarityJob.markDirty(productId);
+        catalogChangeFeed.productChanged(productId);
         log.info("Tag added successfully to product");
     }
 
@@ -160,6 +171,10 @@ public class TagService {
         product.getTags().remove(tag);
 
         tagRepository.save(tag);
+        productRepository.touch(productId, LocalDateTime.now());
+        productFacetIndex.index(product);
+        productSimilarityJob.markDirty(productId);
+        catalogChangeFeed.productChanged(productId);
         log.info("Tag removed successfully from product");
     }
 
@@ -0,0 +1,74 @@
+package com.retailsports.product_service.util;
+
+import com.retailsports.product_service.exception.BadRequestException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Cursore opaco per la paginazione keyset (seek) dei listing prodotti
+ * Contiene criterio di ordinamento, valore della chiave e id dell'ultimo elemento restituito:
+ * la pagina successiva riparte da (lastValue, lastId) senza OFFSET né COUNT.
+ */
+public record KeysetCursor(String sortBy, Sort.Direction direction, Object lastValue, Long lastId) {
+
+    // Chiavi di ordinamento supportate (colonne non nulle e indicizzate)
+    public static final Set<String> SORT_KEYS = Set.of("createdAt", "name", "priceCents", "id");
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Cursore della prima pagina (nessun elemento precedente)
+     */
+    public static KeysetCursor first(String sortBy, Sort.Direction direction) {
+        if (!SORT_KEYS.contains(sortBy)) {
+            throw new BadRequestException("Cursor pagination supports only sortBy in " + SORT_KEYS);
+        }
+        return new KeysetCursor(sortBy, direction, null, null);
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+
+    /**
+     * Serializza il cursore in una stringa URL-safe
+     */
+    public String encode() {
+        String raw = sortBy + SEPARATOR + direction.name() + SEPARATOR + lastId + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Ricostruisce il cursore ricevuto dal client
+     */
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+            // Il valore è l'ultimo campo: può contenere il separatore (es. nomi prodotto)
+            String[] parts = raw.split("\\|", 4);
+            String sortBy = parts[0];
+            if (parts.length != 4 || !SORT_KEYS.contains(sortBy)) {
+                throw new BadRequestException("Invalid cursor");
+            }
+
+            Sort.Direction direction = Sort.Direction.valueOf(parts[1]);
+            Long lastId = Long.valueOf(parts[2]);
+            Object lastValue = switch (sortBy) {
+                case "createdAt" -> LocalDateTime.parse(parts[3]);
+                case "priceCents" -> Integer.valueOf(parts[3]);
+                case "id" -> Long.valueOf(parts[3]);
+                default -> parts[3];
+            };
+
+            return new KeysetCursor(sortBy, direction, lastValue, lastId);
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.retailsports.product_service.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contatori per ID con incrementi senza lock (un LongAdder per ID) e prelievo periodico dei delta
+ *
+ * Il prelievo azzera i contatori con sumThenReset, atomico per cella: un incremento concorrente resta nel contatore.
+ * Un contatore trovato a zero viene scollegato dalla mappa (per non farla crescere) e letto ancora al prelievo
+ * successivo, che raccoglie gli incrementi arrivati tra l'azzeramento e la rimozione. Un incremento che trova
+ * il proprio contatore scollegato lo annulla e riprova su un contatore nuovo: non si perde nulla, e solo un thread
+ * fermo tra incremento e controllo per un intero intervallo di prelievo può contare un evento due volte.
+ */
+public class PendingCounters {
+
+    private final Map<Long, LongAdder> counters = new ConcurrentHashMap<>();
+
+    // Contatori scollegati all'ultimo prelievo (solo thread del prelievo)
+    private Map<Long, LongAdder> detached = new HashMap<>();
+
+    /**
+     * Aggiunge delta al contatore dell'ID
+     */
+    public void add(Long id, long delta) {
+        while (true) {
+            LongAdder adder = counters.get(id);
+            if (adder == null) {
+                adder = counters.computeIfAbsent(id, key -> new LongAdder());
+            }
+            adder.add(delta);
+            if (counters.get(id) == adder) {
+                return;
+            }
+            // Scollegato dal prelievo nel frattempo: il residuo annullato viene letto al prelievo successivo
+            adder.add(-delta);
+        }
+    }
+
+    public boolean contains(Long id) {
+        return counters.containsKey(id);
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    /**
+     * Preleva i delta accumulati (ID -> delta diverso da zero)
+     * Da chiamare da un solo thread alla volta.
+     */
+    public Map<Long, Long> drain() {
+        Map<Long, Long> deltas = new HashMap<>();
+        detached.forEach((id, adder) -> collect(deltas, id, adder.sumThenReset()));
+
+        Map<Long, LongAdder> newlyDetached = new HashMap<>();
+        for (Map.Entry<Long, LongAdder> entry : counters.entrySet()) {
+            LongAdder adder = entry.getValue();
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                collect(deltas, entry.getKey(), delta);
+            } else if (counters.remove(entry.getKey(), adder)) {
+                newlyDetached.put(entry.getKey(), adder);
+            }
+        }
+        detached = newlyDetached;
+        return deltas;
+    }
+
+    private static void collect(Map<Long, Long> deltas, Long id, long delta) {
+        if (delta != 0 && deltas.merge(id, delta, Long::sum) == 0) {
+            deltas.remove(id);
+        }
+    }
+}
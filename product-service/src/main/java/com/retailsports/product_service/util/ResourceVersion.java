@@ -0,0 +1,49 @@
+package com.retailsports.product_service.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Versione di una risorsa HTTP per le GET condizionali (ETag / Last-Modified)
+ * L'ETag è forte e deriva da timestamp di aggiornamento, contatori e digest della risorsa e delle entità incluse
+ * nella risposta; Last-Modified è il più recente dei timestamp.
+ *
+ * @param id id dell'entità (null per le liste)
+ */
+public record ResourceVersion(Long id, String etag, long lastModified) {
+
+    /**
+     * Costruisce la versione a partire dalle sue componenti
+     * Le componenti LocalDateTime contribuiscono anche a Last-Modified; le null valgono 0.
+     */
+    public static ResourceVersion of(String prefix, Long id, Object... parts) {
+        long lastModified = -1;
+        for (Object part : parts) {
+            if (part instanceof LocalDateTime timestamp) {
+                lastModified = Math.max(lastModified, toEpochMillis(timestamp));
+            }
+        }
+
+        String token = Arrays.stream(parts)
+            .map(ResourceVersion::toToken)
+            .collect(Collectors.joining("-"));
+        String etag = "\"" + prefix + (id != null ? id : "") + "-" + token + "\"";
+
+        return new ResourceVersion(id, etag, lastModified);
+    }
+
+    private static String toToken(Object part) {
+        if (part == null) return "0";
+        if (part instanceof LocalDateTime timestamp) return Long.toHexString(toEpochMillis(timestamp));
+        if (part instanceof Number number) return Long.toHexString(number.longValue());
+        if (part instanceof String token) return token;
+        return Integer.toHexString(Objects.hashCode(part));
+    }
+
+    private static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
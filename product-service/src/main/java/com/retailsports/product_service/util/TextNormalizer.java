@@ -0,0 +1,44 @@
+package com.retailsports.product_service.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class per normalizzare e tokenizzare testo per la ricerca
+ * Stessa piegatura degli accenti di SlugUtil (NFD + rimozione dei segni diacritici)
+ */
+public class TextNormalizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    /**
+     * Normalizza un testo: rimuove accenti e converte in minuscolo
+     * Esempio: "Scarpe Città" -> "scarpe citta"
+     */
+    public static String normalize(String input) {
+        if (input == null || input.isBlank()) {
+            return "";
+        }
+
+        String decomposed = Normalizer.normalize(input, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Divide un testo normalizzato in token alfanumerici
+     * Esempio: "Nike Air-Zoom 2024" -> ["nike", "air", "zoom", "2024"]
+     */
+    public static List<String> tokenize(String input) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(normalize(input))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,27 @@
+package com.retailsports.product_service.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utility class per agganciare azioni al ciclo di vita della transazione corrente
+ */
+public class TransactionUtils {
+
+    /**
+     * Esegue l'azione dopo il commit della transazione corrente (o subito, se non c'è transazione)
+     * Usato dagli indici in memoria: un rollback non deve lasciare modifiche mai salvate.
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.retailsports.product_service.repository;
+
+import com.retailsports.product_service.model.Brand;
+import com.retailsports.product_service.model.Category;
+import com.retailsports.product_service.model.Product;
+import com.retailsports.product_service.model.ProductImage;
+import com.retailsports.product_service.repository.projection.ProductSummaryProjection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Le pagine delle liste prodotti costano un numero fisso di statement (select + count),
+ * indipendente dalla dimensione della pagina: nessun caricamento lazy di categoria, brand o immagini per riga
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:listing;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ProductListingQueryCountTests {
+
+    private static final int PRODUCTS = 60;
+
+    // Una select per il contenuto e una per il totale
+    private static final long STATEMENTS_PER_PAGE = 2;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Category category;
+    private Brand brand;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        category = Category.builder().name("Running").slug("running").build();
+        brand = Brand.builder().name("Brand").slug("brand").build();
+        entityManager.persist(category);
+        entityManager.persist(brand);
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = Product.builder()
+                .sku("SKU-" + i)
+                .name("Scarpa " + i)
+                .slug("scarpa-" + i)
+                .category(category)
+                .brand(i % 2 == 0 ? brand : null)
+                .priceCents(1000 + i)
+                .isFeatured(true)
+                .build();
+            entityManager.persist(product);
+            entityManager.persist(ProductImage.builder()
+                .product(product)
+                .imageUrl("https://cdn.example.com/" + i + ".jpg")
+                .isPrimary(true)
+                .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void allActiveSummariesUseConstantStatements() {
+        assertConstantStatements(size -> productRepository.findAllActiveSummaries(PageRequest.of(0, size, Sort.by("name"))));
+    }
+
+    @Test
+    void categorySummariesUseConstantStatements() {
+        assertConstantStatements(size -> productRepository.findSummariesByCategoryId(category.getId(), PageRequest.of(0, size)));
+    }
+
+    @Test
+    void brandSummariesUseConstantStatements() {
+        assertConstantStatements(size -> productRepository.findSummariesByBrandId(brand.getId(), PageRequest.of(0, size)));
+    }
+
+    @Test
+    void featuredSummariesUseConstantStatements() {
+        assertConstantStatements(size -> productRepository.findFeaturedSummaries(PageRequest.of(0, size)));
+    }
+
+    @Test
+    void searchSummariesUseConstantStatements() {
+        assertConstantStatements(size -> productRepository.searchSummariesByNameOrDescription("scarpa", PageRequest.of(0, size)));
+    }
+
+    @Test
+    void summaryCarriesJoinedFieldsWithoutExtraStatements() {
+        statistics.clear();
+
+        Page<ProductSummaryProjection> page = productRepository.findSummariesByBrandId(brand.getId(), PageRequest.of(0, 5));
+        ProductSummaryProjection first = page.getContent().get(0);
+
+        assertEquals("Running", first.getCategoryName());
+        assertEquals("Brand", first.getBrandName());
+        assertNotNull(first.getPrimaryImageUrl());
+        assertEquals(STATEMENTS_PER_PAGE, statistics.getPrepareStatementCount());
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private void assertConstantStatements(PageLoader loader) {
+        for (int size : new int[]{5, 10, 25}) {
+            entityManager.clear();
+            statistics.clear();
+
+            Page<ProductSummaryProjection> page = loader.load(size);
+
+            assertEquals(size, page.getNumberOfElements());
+            page.getContent().forEach(summary -> {
+                summary.getCategoryName();
+                summary.getBrandName();
+                summary.getPrimaryImageUrl();
+            });
+            assertEquals(STATEMENTS_PER_PAGE, statistics.getPrepareStatementCount(),
+                "Statements for a page of " + size);
+        }
+    }
+
+    @FunctionalInterface
+    private interface PageLoader {
+        Page<ProductSummaryProjection> load(int size);
+    }
+}
@@ -0,0 +1,130 @@
+package com.retailsports.product_service.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tabella a indirizzamento aperto: catene di probing attraverso i tombstone, sostituzioni e ridimensionamenti
+ */
+class IdentifierTableTests {
+
+    @Test
+    void getReturnsIdOrZeroWhenAbsent() {
+        IdentifierTable table = new IdentifierTable();
+        table.put("SKU-1", 1);
+        table.put("SKU-2", 2);
+
+        assertEquals(1, table.get("SKU-1"));
+        assertEquals(2, table.get("SKU-2"));
+        assertEquals(0, table.get("SKU-3"));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void putReplacesThePreviousKeyOfTheSameId() {
+        IdentifierTable table = new IdentifierTable();
+        table.put("old-slug", 7);
+        table.put("new-slug", 7);
+
+        assertEquals(0, table.get("old-slug"));
+        assertEquals(7, table.get("new-slug"));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void keyMovedToAnotherIdIsTakenFromThePreviousOwner() {
+        IdentifierTable table = new IdentifierTable();
+        table.put("8001234567890", 1);
+        table.put("8001234567890", 2);
+
+        assertEquals(2, table.get("8001234567890"));
+        assertEquals(1, table.size());
+
+        // Il vecchio proprietario non ha più voci: rimuoverlo non tocca la chiave passata al nuovo
+        table.remove(1);
+        assertEquals(2, table.get("8001234567890"));
+    }
+
+    @Test
+    void removeDeletesOnlyTheKeyOfThatId() {
+        IdentifierTable table = new IdentifierTable();
+        table.put("a", 1);
+        table.put("b", 2);
+
+        table.remove(1);
+        table.remove(99);
+
+        assertEquals(0, table.get("a"));
+        assertEquals(2, table.get("b"));
+        assertEquals(1, table.size());
+
+        table.put("a", 1);
+        assertEquals(1, table.get("a"));
+    }
+
+    @Test
+    void lookupsSurviveResizeBeyondInitialCapacity() {
+        IdentifierTable table = new IdentifierTable();
+        int entries = 50_000;
+        for (int id = 1; id <= entries; id++) {
+            table.put("SKU-" + id, id);
+        }
+
+        assertEquals(entries, table.size());
+        for (int id = 1; id <= entries; id++) {
+            assertEquals(id, table.get("SKU-" + id));
+        }
+        assertEquals(0, table.get("SKU-" + (entries + 1)));
+    }
+
+    @Test
+    void probingCrossesTombstonesLeftByDeletes() {
+        IdentifierTable table = new IdentifierTable();
+        int entries = 5_000;
+        for (int id = 1; id <= entries; id++) {
+            table.put("key-" + id, id);
+        }
+        // Metà delle voci diventano tombstone in mezzo alle catene di probing
+        for (int id = 1; id <= entries; id += 2) {
+            table.remove(id);
+        }
+
+        assertEquals(entries / 2, table.size());
+        for (int id = 1; id <= entries; id++) {
+            assertEquals(id % 2 == 0 ? id : 0, table.get("key-" + id));
+        }
+    }
+
+    @Test
+    void churnOfUpdatesKeepsTableAndArenaConsistent() {
+        IdentifierTable table = new IdentifierTable();
+        int products = 200;
+
+        // Ogni giro rinomina tutti i prodotti: tombstone e chiavi orfane forzano rehash e compattazione dell'arena
+        for (int round = 0; round < 200; round++) {
+            for (int id = 1; id <= products; id++) {
+                table.put("slug-" + id + "-" + round, id);
+            }
+        }
+
+        assertEquals(products, table.size());
+        for (int id = 1; id <= products; id++) {
+            assertEquals(id, table.get("slug-" + id + "-199"));
+            assertEquals(0, table.get("slug-" + id + "-198"));
+        }
+    }
+
+    @Test
+    void keysAreComparedAsUtf8Bytes() {
+        IdentifierTable table = new IdentifierTable(10);
+        table.put("scarpa-città", 1);
+        table.put("scarpa-citta", 2);
+        table.put("x".repeat(1_000), 3);
+
+        assertEquals(1, table.get("scarpa-città"));
+        assertEquals(2, table.get("scarpa-citta"));
+        assertEquals(3, table.get("x".repeat(1_000)));
+        assertEquals(0, table.get("x".repeat(999)));
+    }
+}
@@ -0,0 +1,81 @@
+package com.retailsports.product_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Contatori per ID: prelievo dei delta, scollegamento dei contatori inattivi e incrementi concorrenti al prelievo
+ */
+class PendingCountersTests {
+
+    @Test
+    void drainReturnsDeltasAndResetsCounters() {
+        PendingCounters counters = new PendingCounters();
+        counters.add(1L, 1);
+        counters.add(1L, 2);
+        counters.add(2L, 5);
+
+        assertEquals(Map.of(1L, 3L, 2L, 5L), counters.drain());
+        assertEquals(Map.of(), counters.drain());
+    }
+
+    @Test
+    void idleCountersAreDetachedAndRecreatedOnNextAdd() {
+        PendingCounters counters = new PendingCounters();
+        counters.add(1L, 1);
+        counters.drain();
+        assertTrue(counters.contains(1L));
+
+        // Secondo prelievo a zero: il contatore esce dalla mappa
+        counters.drain();
+        assertFalse(counters.contains(1L));
+        assertEquals(0, counters.size());
+
+        counters.add(1L, 4);
+        assertEquals(Map.of(1L, 4L), counters.drain());
+    }
+
+    @Test
+    void concurrentAddsAreNeverLost() throws InterruptedException {
+        PendingCounters counters = new PendingCounters();
+        int threads = 4;
+        int addsPerThread = 200_000;
+        int ids = 16;
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        long[] drained = new long[1];
+        Thread drainer = new Thread(() -> {
+            while (running.get()) {
+                counters.drain().values().forEach(delta -> drained[0] += delta);
+                Thread.onSpinWait();
+            }
+        });
+        drainer.start();
+
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            new Thread(() -> {
+                for (int i = 0; i < addsPerThread; i++) {
+                    // Pochi ID su cui insistono tutti i thread, altri lasciati inattivi a turno
+                    counters.add((long) ((i / 1_000 + offset) % ids), 1);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        running.set(false);
+        drainer.join();
+
+        // Due prelievi finali: il secondo raccoglie i residui dei contatori scollegati
+        drained[0] += counters.drain().values().stream().mapToLong(Long::longValue).sum();
+        drained[0] += counters.drain().values().stream().mapToLong(Long::longValue).sum();
+
+        assertTrue(drained[0] >= (long) threads * addsPerThread, "lost increments: " + drained[0]);
+    }
+}
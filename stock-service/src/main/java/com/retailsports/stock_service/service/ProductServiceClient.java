@@ -1,5 +1,6 @@
 package com.retailsports.stock_service.service;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.retailsports.stock_service.exception.ProductNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -8,6 +9,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.*;
+
 /**
  * Client per comunicare con il Product Service
  */
@@ -21,9 +24,14 @@ public class ProductServiceClient {
     @Value("${services.product-service.url}")
     private String productServiceUrl;
 
+    // Massimo numero di ID per singola chiamata batch (il Product Service ne accetta fino a 200)
+    @Value("${services.product-service.batch-size:100}")
+    private int batchSize;
+
     /**
      * DTO interno per la risposta del Product Service
      */
+    @JsonIgnoreProperties(ignoreUnknown = true)
     public static class ProductInfo {
         private Long id;
         private String name;
@@ -44,6 +52,28 @@ public class ProductServiceClient {
         public void setIsActive(Boolean isActive) { this.isActive = isActive; }
     }
 
+    /**
+     * DTO interni per la risposta della lettura batch del Product Service
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class BatchApiResponse {
+        private BatchResult data;
+
+        public BatchResult getData() { return data; }
+        public void setData(BatchResult data) { this.data = data; }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class BatchResult {
+        private Map<Long, ProductInfo> products;
+        private List<Long> missingIds;
+
+        public Map<Long, ProductInfo> getProducts() { return products; }
+        public void setProducts(Map<Long, ProductInfo> products) { this.products = products; }
+        public List<Long> getMissingIds() { return missingIds; }
+        public void setMissingIds(List<Long> missingIds) { this.missingIds = missingIds; }
+    }
+
     /**
      * Recupera le informazioni di un prodotto dal Product Service
      */
@@ -71,6 +101,45 @@ public class ProductServiceClient {
         }
     }
 
+    /**
+     * Recupera le informazioni di più prodotti con una chiamata batch (a blocchi di batchSize ID)
+     * I prodotti non trovati sono semplicemente assenti dalla mappa restituita
+     */
+    public Map<Long, ProductInfo> getProducts(Collection<Long> productIds) {
+        Map<Long, ProductInfo> result = new HashMap<>();
+        if (productIds == null || productIds.isEmpty()) {
+            return result;
+        }
+
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        String url = productServiceUrl + "/api/products/batch";
+
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+
+            log.info("Fetching {} products from Product Service: {}", chunk.size(), url);
+
+            try {
+                BatchApiResponse response = restTemplate.postForObject(url, Map.of("ids", chunk), BatchApiResponse.class);
+
+                if (response != null && response.getData() != null) {
+                    if (response.getData().getProducts() != null) {
+                        result.putAll(response.getData().getProducts());
+                    }
+                    if (response.getData().getMissingIds() != null && !response.getData().getMissingIds().isEmpty()) {
+                        log.warn("Products not found in Product Service: {}", response.getData().getMissingIds());
+                    }
+                }
+
+            } catch (Exception ex) {
+                log.error("Error calling Product Service batch lookup for {} products: {}", chunk.size(), ex.getMessage());
+                throw new RuntimeException("Error calling Product Service: " + ex.getMessage(), ex);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Verifica che il prodotto esista e sia attivo
      */
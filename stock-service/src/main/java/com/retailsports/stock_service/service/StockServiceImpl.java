@@ -22,7 +22,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -61,8 +64,10 @@ public class StockServiceImpl implements StockService {
     public Page<StockResponse> getAllStock(Pageable pageable) {
         log.info("Getting all stock with pagination");
 
-        return stockRepository.findAll(pageable)
-                .map(this::convertToStockResponse);
+        Page<Stock> stocks = stockRepository.findAll(pageable);
+        Map<Long, String> productNames = fetchProductNames(stocks.map(Stock::getProductId).getContent());
+
+        return stocks.map(stock -> convertToStockResponse(stock, productNames.get(stock.getProductId())));
     }
 
     @Override
@@ -136,8 +141,11 @@ public class StockServiceImpl implements StockService {
     public List<StockResponse> getLowStockProducts() {
         log.info("Getting low stock products");
 
-        return stockRepository.findLowStockProducts().stream()
-                .map(this::convertToStockResponse)
+        List<Stock> stocks = stockRepository.findLowStockProducts();
+        Map<Long, String> productNames = fetchProductNames(stocks.stream().map(Stock::getProductId).toList());
+
+        return stocks.stream()
+                .map(stock -> convertToStockResponse(stock, productNames.get(stock.getProductId())))
                 .collect(Collectors.toList());
     }
 
@@ -359,8 +367,11 @@ public class StockServiceImpl implements StockService {
     public List<LowStockAlertResponse> getActiveLowStockAlerts() {
         log.info("Getting active low stock alerts");
 
-        return lowStockAlertRepository.findByAlertStatusOrderByCreatedAtDesc(AlertStatus.ACTIVE).stream()
-                .map(this::convertToAlertResponse)
+        List<LowStockAlert> alerts = lowStockAlertRepository.findByAlertStatusOrderByCreatedAtDesc(AlertStatus.ACTIVE);
+        Map<Long, String> productNames = fetchProductNames(alerts.stream().map(LowStockAlert::getProductId).toList());
+
+        return alerts.stream()
+                .map(alert -> convertToAlertResponse(alert, productNames.get(alert.getProductId())))
                 .collect(Collectors.toList());
     }
 
@@ -420,6 +431,25 @@ public class StockServiceImpl implements StockService {
         }
     }
 
+    /**
+     * Recupera i nomi di più prodotti con una sola chiamata batch al Product Service
+     * In caso di errore restituisce una mappa vuota (i nomi restano null come nella conversione singola)
+     */
+    private Map<Long, String> fetchProductNames(Collection<Long> productIds) {
+        Map<Long, String> productNames = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return productNames;
+        }
+
+        try {
+            productServiceClient.getProducts(productIds)
+                    .forEach((productId, productInfo) -> productNames.put(productId, productInfo.getName()));
+        } catch (Exception e) {
+            log.warn("Could not fetch product names for {} products: {}", productIds.size(), e.getMessage());
+        }
+        return productNames;
+    }
+
     /**
      * Converte Stock entity in StockResponse
      */
@@ -432,6 +462,13 @@ public class StockServiceImpl implements StockService {
             log.warn("Could not fetch product name for product {}: {}", stock.getProductId(), e.getMessage());
         }
 
+        return convertToStockResponse(stock, productName);
+    }
+
+    /**
+     * Converte Stock entity in StockResponse con il nome prodotto già risolto
+     */
+    private StockResponse convertToStockResponse(Stock stock, String productName) {
         return StockResponse.builder()
                 .id(stock.getId())
                 .productId(stock.getProductId())
@@ -484,17 +521,9 @@ public class StockServiceImpl implements StockService {
     }
 
     /**
-     * Converte LowStockAlert entity in LowStockAlertResponse
+     * Converte LowStockAlert entity in LowStockAlertResponse con il nome prodotto già risolto
      */
-    private LowStockAlertResponse convertToAlertResponse(LowStockAlert alert) {
-        String productName = null;
-        try {
-            ProductInfo productInfo = productServiceClient.getProduct(alert.getProductId());
-            productName = productInfo.getName();
-        } catch (Exception e) {
-            log.warn("Could not fetch product name for product {}: {}", alert.getProductId(), e.getMessage());
-        }
-
+    private LowStockAlertResponse convertToAlertResponse(LowStockAlert alert, String productName) {
         return LowStockAlertResponse.builder()
                 .id(alert.getId())
                 .productId(alert.getProductId())